@@ -192,12 +192,12 @@ public class IndexBrowser_p {
 
         if (post.containsKey("deleteLoadErrors")) {
             try {
-                fulltext.getDefaultConnector().deleteByQuery("-" + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200 AND "
+                fulltext.deleteByQuery("-" + CollectionSchema.httpstatus_i.getSolrFieldName() + ":200 AND "
                         + CollectionSchema.httpstatus_i.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM); // make sure field exists
                 ConcurrentLog.info ("IndexBrowser_p:", "delete documents with httpstatus_i <> 200");
-                fulltext.getDefaultConnector().deleteByQuery(CollectionSchema.failtype_s.getSolrFieldName() + ":\"" + FailType.fail.name() + "\"" );
+                fulltext.deleteByQuery(CollectionSchema.failtype_s.getSolrFieldName() + ":\"" + FailType.fail.name() + "\"" );
                 ConcurrentLog.info ("IndexBrowser_p:", "delete documents with failtype_s = fail");
-                fulltext.getDefaultConnector().deleteByQuery(CollectionSchema.failtype_s.getSolrFieldName() + ":\"" + FailType.excl.name() + "\"" );
+                fulltext.deleteByQuery(CollectionSchema.failtype_s.getSolrFieldName() + ":\"" + FailType.excl.name() + "\"" );
                 ConcurrentLog.info ("IndexBrowser_p:", "delete documents with failtype_s = excl");
                 prop.putNum("ucount", fulltext.collectionSize());
                 return prop;
@@ -176,7 +176,7 @@ public class IndexDeletion_p {
                     prop.put("urldelete-active", count == 0 ? 2 : 1);
                 } else {
                     try {
-                        defaultConnector.deleteByQuery(regexquery);
+                        sb.index.fulltext().deleteByQuery(regexquery);
                         defaultConnector.commit(false);
                         try {sb.index.loadTimeIndex().clear();} catch (IOException e) {}
                         sb.tables.recordAPICall(post, "IndexDeletion_p.html", WorkTables.TABLE_API_TYPE_DELETION, "deletion, regex match = " + urldelete);
@@ -206,7 +206,7 @@ public class IndexDeletion_p {
                 prop.put("timedelete-active", count == 0 ? 2 : 1);
             } else {
                 try {
-                    defaultConnector.deleteByQuery(collection1Query);
+                    sb.index.fulltext().deleteByQuery(collection1Query);
                     defaultConnector.commit(false);
                     try {sb.index.loadTimeIndex().clear();} catch (IOException e) {}
                     if (webgraphConnector != null) webgraphConnector.deleteByQuery(webgraphQuery);
@@ -233,7 +233,7 @@ public class IndexDeletion_p {
                 prop.put("collectiondelete-active", count == 0 ? 2 : 1);
             } else {
                 try {
-                    defaultConnector.deleteByQuery(query);
+                    sb.index.fulltext().deleteByQuery(query);
                     defaultConnector.commit(false);
                     try {sb.index.loadTimeIndex().clear();} catch (IOException e) {}
                     sb.tables.recordAPICall(post, "IndexDeletion_p.html", WorkTables.TABLE_API_TYPE_DELETION, "deletion, collection " + collectiondelete);
@@ -260,7 +260,7 @@ public class IndexDeletion_p {
             } else {
                 try {
                     ConcurrentLog.info("IndexDeletion", "delete by query \"" + querydelete + "\", size before deletion = " + connector.getSize());
-                    connector.deleteByQuery(querydelete);
+                    if (connector == defaultConnector) sb.index.fulltext().deleteByQuery(querydelete); else connector.deleteByQuery(querydelete);
                     connector.commit(false);
                     try {sb.index.loadTimeIndex().clear();} catch (IOException e) {}
                     ConcurrentLog.info("IndexDeletion", "delete by query \"" + querydelete + "\", size after commit = " + connector.getSize());
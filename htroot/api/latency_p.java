@@ -54,6 +54,9 @@ public class latency_p {
             prop.put("domains_" + c + "_average", host.average());
             prop.put("domains_" + c + "_robots", host.robotsDelay());
             prop.put("domains_" + c + "_flux", host.flux(agent.minimumDelta));
+            prop.put("domains_" + c + "_inflight", host.inflight());
+            prop.put("domains_" + c + "_parallel", host.parallel());
+            prop.put("domains_" + c + "_delayfactor", Float.toString(host.delayFactor()));
             c++;
         }
         prop.put("domains", c);
@@ -33,6 +33,7 @@ import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.kelondro.index.RowHandleSet;
 import net.yacy.kelondro.io.ByteCount;
+import net.yacy.kelondro.rwi.IODispatcher;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.workflow.BusyThread;
 import net.yacy.kelondro.workflow.WorkflowProcessor;
@@ -92,6 +93,17 @@ public class status_p {
         prop.putNum("citationSegmentCount", segment.citationSegmentCount());
         prop.putNum("rwipublictextSize", segment.RWICount());
         prop.putNum("rwipublictextSegmentCount", segment.RWISegmentCount());
+        prop.putNum("rwipublictextMergeDebt", segment.RWIMergeDebt());
+
+        // merges of the reverse word index files
+        final IODispatcher merger = segment.RWIMerger();
+        prop.putNum("rwimergeCount", merger == null ? 0 : merger.getMergeCount());
+        prop.putNum("rwimergeBytes", merger == null ? 0 : merger.getMergedBytes());
+        prop.putNum("rwimergeMillis", merger == null ? 0 : merger.getMergeMillis());
+        prop.putNum("rwimergePausedMillis", merger == null ? 0 : merger.getMergePausedMillis());
+        prop.putNum("rwimergeThrottledMillis", merger == null ? 0 : merger.getMergeThrottledMillis());
+        prop.putNum("rwimergePendingJobs", merger == null ? 0 : merger.pendingMergeJobs());
+        prop.putNum("rwimergePendingBytes", merger == null ? 0 : merger.pendingMergeBytes());
 
         // loader queue
         prop.putNum("loaderSize", sb.crawlQueues.activeWorkerEntries().size());
@@ -0,0 +1,103 @@
+// workflow_p.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.util.LatencyHistogram;
+import net.yacy.document.TextParser;
+import net.yacy.kelondro.workflow.WorkflowProcessor;
+import net.yacy.server.serverObjects;
+import net.yacy.server.serverSwitch;
+
+/**
+ * metrics of the workflow processors and the parsers: the latency percentiles of the queue wait and the
+ * execution of each processor, the queue sizes of the last minutes and the execution time of each parser.
+ * workflow_p.json lists all values, workflow_p.txt has the current values in the Prometheus text format.
+ */
+public class workflow_p {
+
+    public static serverObjects respond(@SuppressWarnings("unused") final RequestHeader header, @SuppressWarnings("unused") final serverObjects post, @SuppressWarnings("unused") final serverSwitch env) {
+        final serverObjects prop = new serverObjects();
+
+        final Iterator<WorkflowProcessor<?>> processes = WorkflowProcessor.processes();
+        int c = 0;
+        while (processes.hasNext()) {
+            final WorkflowProcessor<?> p = processes.next();
+            final String prefix = "stages_" + c;
+            p.sampleQueueSize();
+            prop.put(prefix + "_name", p.getName());
+            prop.put(prefix + "_queueSize", p.getQueueSize());
+            prop.put(prefix + "_maxQueueSize", p.getMaxQueueSize());
+            prop.put(prefix + "_executors", p.getExecutors());
+            prop.put(prefix + "_maxConcurrency", p.getMaxConcurrency());
+            putHistogram(prop, prefix + "_wait", p.getWaitHistogram());
+            putHistogram(prop, prefix + "_exec", p.getExecHistogram());
+            final List<long[]> history = p.getQueueSizeHistory();
+            for (int i = 0; i < history.size(); i++) {
+                prop.put(prefix + "_history_" + i + "_time", history.get(i)[0]);
+                prop.put(prefix + "_history_" + i + "_size", history.get(i)[1]);
+                prop.put(prefix + "_history_" + i + "_eol", i == history.size() - 1 ? 0 : 1);
+            }
+            prop.put(prefix + "_history", history.size());
+            prop.put(prefix + "_eol", 1);
+            c++;
+        }
+        if (c > 0) prop.put("stages_" + (c - 1) + "_eol", 0);
+        prop.put("stages", c);
+
+        c = 0;
+        final Map<String, LatencyHistogram> parsers = new TreeMap<String, LatencyHistogram>(TextParser.parseTimes());
+        for (final Map.Entry<String, LatencyHistogram> entry: parsers.entrySet()) {
+            final String prefix = "parsers_" + c;
+            prop.put(prefix + "_name", entry.getKey());
+            putHistogram(prop, prefix + "_exec", entry.getValue());
+            prop.put(prefix + "_eol", c == parsers.size() - 1 ? 0 : 1);
+            c++;
+        }
+        prop.put("parsers", c);
+
+        return prop;
+    }
+
+    /**
+     * put the count and the percentiles of a histogram in microseconds and in seconds (with a "Seconds" suffix)
+     */
+    private static void putHistogram(final serverObjects prop, final String prefix, final LatencyHistogram histogram) {
+        final long count = histogram.getCount();
+        prop.put(prefix + "Count", count);
+        putMicros(prop, prefix + "Sum", histogram.getSum());
+        putMicros(prop, prefix + "Mean", histogram.getMean());
+        putMicros(prop, prefix + "P50", histogram.getPercentile(50));
+        putMicros(prop, prefix + "P95", histogram.getPercentile(95));
+        putMicros(prop, prefix + "P99", histogram.getPercentile(99));
+        putMicros(prop, prefix + "Max", histogram.getMax());
+    }
+
+    private static void putMicros(final serverObjects prop, final String key, final long micros) {
+        prop.put(key, micros);
+        prop.put(key + "Seconds", String.format(Locale.ROOT, "%.6f", micros / 1000000.0d));
+    }
+}
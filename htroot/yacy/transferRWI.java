@@ -30,6 +30,7 @@
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import net.yacy.cora.document.encoding.ASCII;
@@ -231,11 +232,11 @@ public final class transferRWI {
                 testids.add(ASCII.String(urlHash));
                 received++;
             }
+            final Map<String, Long> known = sb.index.fulltext().getLoadDates(testids);
             for (String id: testids) {
+                if (known.containsKey(id)) continue;
                 try {
-                    if (!sb.index.fulltext().exists(id)) {
-                        unknownURL.put(ASCII.getBytes(id));
-                    }
+                    unknownURL.put(ASCII.getBytes(id));
                 } catch (final SpaceExceededException e) {
                     sb.getLog().warn("transferRWI: DB-Error while trying to determine if URL with hash '" + id + "' is known.", e);
                 }
@@ -145,8 +145,9 @@ public final class transferURL {
             }
             
             doublecheck = 0;
+            final Map<String, Long> known = sb.index.getLoadDates(lEm.keySet());
             for (String id : lEm.keySet()) {
-                if (sb.index.exists(id)) {
+                if (known.containsKey(id)) {
                     doublecheck++;
                 } else {
                     lEntry = lEm.get(id);
@@ -75,6 +75,10 @@ public class EnhancedTextProfileSignature extends Lookup3Signature {
     return evalText;
   }
 
+  public int getMinTokenLen() {
+    return minTokenLen;
+  }
+
   @Override
   public void add(String content) {
     HashMap<String, Token> tokens = new HashMap<String, Token>();
@@ -116,6 +120,27 @@ public class EnhancedTextProfileSignature extends Lookup3Signature {
       if (tok.cnt > maxFreq)
         maxFreq = tok.cnt;
     }
+    addProfile(tokens, maxFreq);
+  }
+
+  /**
+   * add the profile of a text which was already split into tokens, i.e. by the Tokenizer
+   * @param tokens the lowercase tokens longer than minTokenLen in the order of their first appearance in the text
+   * @param counts the number of appearances of each token
+   */
+  public void add(String[] tokens, int[] counts) {
+    // the tokens are put into the map in the same order as add(String) does, so the iteration order is the same
+    HashMap<String, Token> map = new HashMap<String, Token>();
+    int maxFreq = 0;
+    for (int i = 0; i < tokens.length; i++) {
+      map.put(tokens[i], new Token(counts[i], tokens[i]));
+      if (counts[i] > maxFreq)
+        maxFreq = counts[i];
+    }
+    addProfile(map, maxFreq);
+  }
+
+  private void addProfile(HashMap<String, Token> tokens, int maxFreq) {
     Iterator<Token> it = tokens.values().iterator();
     ArrayList<Token> profile = new ArrayList<Token>();
     // calculate the QUANT value
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -502,6 +503,55 @@ public abstract class AbstractSolrConnector implements SolrConnector {
         }
     }
 
+    /**
+     * check the existence of many documents with one terms query for each chunk of ids
+     * @param ids the url hashes and document ids
+     * @return a map from the id of each existing document to its load date in milliseconds; 0 if the document has no load date
+     * @throws IOException
+     */
+    @Override
+    public Map<String, Long> getLoadDates(final Collection<String> ids) throws IOException {
+        final Map<String, Long> dates = new HashMap<String, Long>();
+        if (ids == null || ids.isEmpty()) return dates;
+        final List<String> chunk = new ArrayList<String>(Math.min(ids.size(), loadDatesChunkSize));
+        final Iterator<String> i = ids.iterator();
+        while (i.hasNext()) {
+            chunk.add(i.next());
+            if (chunk.size() >= loadDatesChunkSize || !i.hasNext()) {
+                getLoadDates(chunk, dates);
+                chunk.clear();
+            }
+        }
+        return dates;
+    }
+
+    private static final int loadDatesChunkSize = 500; // the number of ids in one terms query
+
+    private void getLoadDates(final List<String> chunk, final Map<String, Long> dates) throws IOException {
+        final StringBuilder q = new StringBuilder(chunk.size() * (Word.commonHashLength + 1) + 40);
+        q.append("{!cache=false terms f=").append(CollectionSchema.id.getSolrFieldName()).append('}');
+        for (int j = 0; j < chunk.size(); j++) {
+            if (j > 0) q.append(',');
+            q.append(chunk.get(j));
+        }
+        final SolrQuery params = new SolrQuery();
+        params.setQuery(q.toString());
+        params.setRows(chunk.size());
+        params.setStart(0);
+        params.setFacet(false);
+        params.clearSorts();
+        params.setFields(CollectionSchema.id.getSolrFieldName(), CollectionSchema.load_date_dt.getSolrFieldName());
+        params.setIncludeScore(false);
+        final SolrDocumentList sdl = getDocumentListByParams(params);
+        if (sdl == null) return;
+        for (final SolrDocument doc: sdl) {
+            final Object id = doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+            if (id == null) continue;
+            final Object date = doc.getFieldValue(CollectionSchema.load_date_dt.getSolrFieldName());
+            dates.put((String) id, date instanceof Date ? ((Date) date).getTime() : 0L);
+        }
+    }
+
     /**
      * get the number of results when this query is done.
      * This should only be called if the actual result is never used, and only the count is interesting
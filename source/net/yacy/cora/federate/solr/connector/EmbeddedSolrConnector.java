@@ -29,12 +29,20 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -179,6 +187,47 @@ public class EmbeddedSolrConnector extends SolrServerConnector implements SolrCo
         return numDocs;
     }
 
+    /**
+     * read the ids of all live documents from the term dictionary of the id field.
+     * This is much faster than a paged query over all documents, but only committed documents are visible.
+     * @param ids receives each id
+     * @return the number of ids
+     * @throws IOException
+     */
+    public long forEachId(final Consumer<String> ids) throws IOException {
+        final String field = CollectionSchema.id.getSolrFieldName();
+        final RefCounted<SolrIndexSearcher> refCountedIndexSearcher = this.core.getSearcher();
+        long count = 0;
+        try {
+            final SolrIndexSearcher searcher = refCountedIndexSearcher.get();
+            for (final LeafReaderContext leaf: searcher.getIndexReader().leaves()) {
+                final LeafReader reader = leaf.reader();
+                final Terms terms = reader.terms(field);
+                if (terms == null) continue;
+                final Bits live = reader.getLiveDocs(); // null if the segment has no deletions
+                final TermsEnum te = terms.iterator();
+                PostingsEnum postings = null;
+                BytesRef term;
+                while ((term = te.next()) != null) {
+                    if (live != null) {
+                        // the terms of deleted documents stay in the dictionary until the segment is merged
+                        postings = te.postings(postings, PostingsEnum.NONE);
+                        boolean alive = false;
+                        for (int d = postings.nextDoc(); d != DocIdSetIterator.NO_MORE_DOCS; d = postings.nextDoc()) {
+                            if (live.get(d)) {alive = true; break;}
+                        }
+                        if (!alive) continue;
+                    }
+                    ids.accept(term.utf8ToString());
+                    count++;
+                }
+            }
+        } finally {
+            refCountedIndexSearcher.decref();
+        }
+        return count;
+    }
+
     /**
      * get a new query request. MUST be closed after usage using close()
      * @param params
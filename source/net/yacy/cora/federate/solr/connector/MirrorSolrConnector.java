@@ -21,8 +21,11 @@
 package net.yacy.cora.federate.solr.connector;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
@@ -418,6 +421,20 @@ public class MirrorSolrConnector extends AbstractSolrConnector implements SolrCo
         return result;
     }
 
+    @Override
+    public Map<String, Long> getLoadDates(final Collection<String> ids) throws IOException {
+        if (this.solr0 != null && this.solr1 == null) return this.solr0.getLoadDates(ids);
+        if (this.solr0 == null && this.solr1 != null) return this.solr1.getLoadDates(ids);
+        final Map<String, Long> dates = new HashMap<String, Long>();
+        if (this.solr0 == null) return dates;
+        dates.putAll(this.solr0.getLoadDates(ids));
+        if (dates.size() == ids.size()) return dates;
+        final List<String> missing = new ArrayList<String>(ids.size() - dates.size());
+        for (final String id: ids) if (!dates.containsKey(id)) missing.add(id);
+        dates.putAll(this.solr1.getLoadDates(missing));
+        return dates;
+    }
+
     @Override
     public BlockingQueue<String> concurrentIDsByQuery(final String querystring, final String sort, final int offset, final int maxcount, final long maxtime, final int buffersize, final int concurrency) {
         if (this.solr0 != null && this.solr1 == null) return this.solr0.concurrentIDsByQuery(querystring, sort, offset, maxcount, maxtime, buffersize, concurrency);
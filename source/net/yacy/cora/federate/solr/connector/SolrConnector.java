@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 import org.apache.solr.client.solrj.response.QueryResponse;
@@ -123,6 +124,14 @@ public interface SolrConnector extends Iterable<String> /* Iterable of document
      */
     public boolean exists(final String id);
 
+    /**
+     * check the existence of many documents at once, identified by url hash as document id
+     * @param ids the url hashes and document ids
+     * @return a map from the id of each existing document to its load date in milliseconds; 0 if the document has no load date
+     * @throws IOException
+     */
+    public Map<String, Long> getLoadDates(final Collection<String> ids) throws IOException;
+
     /**
      * add a solr input document
      * @param solrdoc
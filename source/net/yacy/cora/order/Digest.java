@@ -119,6 +119,24 @@ public class Digest {
         byte[] h = md5Cache.get(key);
         if (h != null) return h;
 
+        final MessageDigest digest = borrowMD5Digest();
+        byte[] keyBytes;
+        keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        digest.update(keyBytes);
+        final byte[] result = digest.digest();
+        returnMD5Digest(digest);
+        //System.out.println("Digest Pool size = " + digestPool.size());
+
+        // update the cache
+        md5Cache.insertIfAbsent(key, result); // prevent expensive MD5 computation and encoding
+        return result;
+    }
+
+    /**
+     * take a md5 digest from the pool, for callers which compute many hashes without the md5 cache
+     * @return a reset digest, which must be given back with returnMD5Digest()
+     */
+    public static MessageDigest borrowMD5Digest() {
     	MessageDigest digest = digestPool.poll();
     	if (digest == null) {
     	    // if there are no digest objects left, create some on the fly
@@ -131,17 +149,12 @@ public class Digest {
     	} else {
     	    digest.reset(); // they should all be reseted but anyway; this is safe
     	}
-        byte[] keyBytes;
-        keyBytes = key.getBytes(StandardCharsets.UTF_8);
-        digest.update(keyBytes);
-        final byte[] result = digest.digest();
+    	return digest;
+    }
+
+    public static void returnMD5Digest(final MessageDigest digest) {
         digest.reset(); // to be prepared for next
         digestPool.add(digest);
-        //System.out.println("Digest Pool size = " + digestPool.size());
-
-        // update the cache
-        md5Cache.insertIfAbsent(key, result); // prevent expensive MD5 computation and encoding
-        return result;
     }
 
     public static byte[] encodeMD5Raw(final File file) throws IOException {
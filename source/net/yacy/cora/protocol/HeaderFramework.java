@@ -90,6 +90,7 @@ public class HeaderFramework extends TreeMap<String, String> implements Map<Stri
     public static final String DATE = "Date"; // time message/response was created, https://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html#sec14.18
     public static final String LAST_MODIFIED = "Last-Modified";
     public static final String SERVER = "Server";
+    public static final String RETRY_AFTER = "Retry-After";
 
     public static final String ACCEPT_RANGES = "Accept-Ranges";
     public static final String CONTENT_RANGE = "Content-Range";
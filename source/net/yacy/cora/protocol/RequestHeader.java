@@ -81,6 +81,7 @@ public class RequestHeader extends HeaderFramework implements HttpServletRequest
     public static final String COOKIE = "Cookie";
 
     public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String IF_NONE_MATCH = "If-None-Match";
     public static final String IF_RANGE = "If-Range";
     public static final String REFERER = "Referer"; // a misspelling of referrer that occurs as an HTTP header field. Its defined so in the http protocol, so please don't 'fix' it!
 
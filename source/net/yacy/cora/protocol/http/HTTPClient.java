@@ -453,6 +453,7 @@ public class HTTPClient implements Closeable {
         
         try (final CloseableHttpClient httpclient = clientBuilder.setDefaultCredentialsProvider(credsProvider)
                 .setDefaultAuthSchemeRegistry(AUTHSCHEMEREGISTRY).build()) {
+            setHeaders(); // the request headers are sent with the credentials, too
             this.httpResponse = httpclient.execute(this.currentRequest);
             HttpEntity httpEntity = this.httpResponse.getEntity();
             if (httpEntity != null) {
@@ -0,0 +1,93 @@
+// FinishingInputStream.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream which calls {@link #finished(IOException)} exactly once: when the end of the wrapped stream is
+ * reached, or when the stream is closed before. This lets the opener of a stream release resources or record the
+ * load time when the content was transferred, and not already when the stream was handed out.
+ */
+public abstract class FinishingInputStream extends FilterInputStream {
+
+    private IOException error; // the first error of a read
+    private boolean finished;
+
+    /**
+     * @param in the wrapped stream
+     */
+    public FinishingInputStream(final InputStream in) {
+        super(in);
+        this.error = null;
+        this.finished = false;
+    }
+
+    /**
+     * called once when the end of the stream was reached or the stream was closed
+     * @param error the first error that was thrown by a read, null if there was none
+     */
+    protected abstract void finished(final IOException error);
+
+    @Override
+    public int read() throws IOException {
+        try {
+            final int b = this.in.read();
+            if (b < 0) finish();
+            return b;
+        } catch (final IOException e) {
+            if (this.error == null) this.error = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        try {
+            final int n = this.in.read(b, off, len);
+            if (n < 0) finish();
+            return n;
+        } catch (final IOException e) {
+            if (this.error == null) this.error = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            finish();
+        }
+    }
+
+    private void finish() {
+        synchronized (this) {
+            if (this.finished) return;
+            this.finished = true;
+        }
+        this.finished(this.error);
+    }
+}
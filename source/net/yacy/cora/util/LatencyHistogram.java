@@ -0,0 +1,139 @@
+// LatencyHistogram.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a histogram of durations in microseconds with logarithmic buckets, similar to a HDR histogram:
+ * every power of two is divided into eight buckets, so that a percentile is exact up to 1/8 of its value.
+ * Values are recorded without locks; the histogram covers the whole time since it was created or reset.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3; // 2^3 = 8 buckets for each power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong count, sum, max;
+
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new AtomicLong(0);
+        this.sum = new AtomicLong(0);
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * record a duration
+     * @param micros the duration in microseconds; negative values are counted as 0
+     */
+    public void add(long micros) {
+        if (micros < 0) micros = 0;
+        this.counts.incrementAndGet(bucket(micros));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(micros);
+        long m;
+        while (micros > (m = this.max.get()) && !this.max.compareAndSet(m, micros)) {}
+    }
+
+    /**
+     * record the time since a start time
+     * @param startNanos the start time from System.nanoTime()
+     */
+    public void addSince(final long startNanos) {
+        add((System.nanoTime() - startNanos) / 1000L);
+    }
+
+    static int bucket(final long micros) {
+        if (micros < SUB_COUNT) return (int) micros;
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        final int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return SUB_COUNT + (exponent - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return the largest value which falls into the bucket
+     */
+    static long highestValue(final int bucket) {
+        if (bucket < SUB_COUNT) return bucket;
+        final int exponent = (bucket - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        final long sub = (bucket - SUB_COUNT) % SUB_COUNT;
+        final long lowest = (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return this.count.get();
+    }
+
+    /**
+     * @return the sum of all recorded values in microseconds
+     */
+    public long getSum() {
+        return this.sum.get();
+    }
+
+    /**
+     * @return the largest recorded value in microseconds
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values in microseconds
+     */
+    public long getMean() {
+        final long c = this.count.get();
+        return c == 0 ? 0 : this.sum.get() / c;
+    }
+
+    /**
+     * @param percentile a value between 0 and 100
+     * @return the value in microseconds which is not exceeded by the given percentage of the recorded values; 0 if there are no values
+     */
+    public long getPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += this.counts.get(i);
+        if (total == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0d, Math.max(0.0d, percentile)) / 100.0d));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) return Math.min(highestValue(i), this.max.get());
+        }
+        return this.max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) this.counts.set(i, 0);
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+}
@@ -113,7 +113,7 @@ public interface Balancer {
     /**
      * get a list of domains that are currently maintained as domain stacks
      * @return a map of clear text strings of host names (each host name eventually concatenated with a port, depending on the implementation)
-     * 		to an integer array: {the size of the domain stack, guessed delta waiting time}
+     * 		to an integer array: {the size of the domain stack, guessed delta waiting time, number of parallel loads}
      */
     public Map<String, Integer[]> getDomainStackHosts(RobotsTxt robots);
 
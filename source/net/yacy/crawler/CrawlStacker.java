@@ -28,12 +28,19 @@ package net.yacy.crawler;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.contentcontrol.ContentControlFilterUpdateThread;
@@ -54,6 +61,8 @@ import net.yacy.crawler.data.NoticedURL;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.document.TextParser;
+import net.yacy.kelondro.util.NamePrefixThreadFactory;
+import net.yacy.kelondro.workflow.WorkflowJob;
 import net.yacy.kelondro.workflow.WorkflowProcessor;
 import net.yacy.kelondro.workflow.WorkflowTask;
 import net.yacy.peers.SeedDB;
@@ -70,10 +79,19 @@ public final class CrawlStacker implements WorkflowTask<Request>{
     /** Crawl reject reason prefix having specific processing */
     public static final String CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX = "double in";
 
+    /** Crawl reject reason of a block entry that could not be processed because of an exception; such entries are not recorded as errors */
+    public static final String CRAWL_REJECT_REASON_EXCEPTION = "exception while stacking";
+
+    // the minimum number of urls in a partition of a block which is checked by one thread
+    private static final int blockPartitionSize = 64;
+
     private final static ConcurrentLog log = new ConcurrentLog("STACKCRAWL");
 
     private final RobotsTxt robots;
     private final WorkflowProcessor<Request>  requestQueue;
+    private final WorkflowProcessor<Block>    blockQueue;
+    private final AtomicInteger     blockEntries; // the number of requests in the blockQueue
+    private final ExecutorService   filterExecutor;
     public  final CrawlQueues       nextQueue;
     private final CrawlSwitchboard  crawler;
     private final Segment           indexSegment;
@@ -101,30 +119,44 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         this.acceptGlobalURLs = acceptGlobalURLs;
         this.domainList = domainList;
         this.requestQueue = new WorkflowProcessor<>("CrawlStacker", "This process checks new urls before they are enqueued into the balancer (proper, double-check, correct domain, filter)", new String[]{"Balancer"}, this, 10000, null, WorkflowProcessor.availableCPU);
+        this.blockQueue = new WorkflowProcessor<>("CrawlStackerBlocks", "This process checks blocks of new urls, i.e. all links of a document, before they are enqueued into the balancer", new String[]{"Balancer"}, new WorkflowTask<Block>() {
+            @Override
+            public Block process(final Block block) {
+                CrawlStacker.this.processBlock(block.entries);
+                return null;
+            }
+        }, 1000, null, Math.max(1, WorkflowProcessor.availableCPU / 2));
+        this.blockEntries = new AtomicInteger(0);
+        this.filterExecutor = Executors.newFixedThreadPool(WorkflowProcessor.availableCPU, new NamePrefixThreadFactory("CrawlStacker.filter"));
         CrawlStacker.log.info("STACKCRAWL thread initialized.");
     }
 
     public int size() {
-        return this.requestQueue.getQueueSize();
+        return this.requestQueue.getQueueSize() + this.blockEntries.get();
     }
 
     public boolean isEmpty() {
         if (!this.requestQueue.queueIsEmpty()) return false;
+        if (this.blockEntries.get() > 0) return false;
         return true;
     }
 
     public void clear() {
         this.requestQueue.clear();
+        this.blockQueue.clear();
     }
 
     public void announceClose() {
         CrawlStacker.log.info("Flushing remaining " + this.size() + " crawl stacker job entries.");
         this.requestQueue.shutdown();
+        this.blockQueue.shutdown();
     }
 
     public synchronized void close() {
         CrawlStacker.log.info("Shutdown. waiting for remaining " + this.size() + " crawl stacker job entries. please wait.");
         this.requestQueue.shutdown();
+        this.blockQueue.shutdown();
+        this.filterExecutor.shutdown();
 
         CrawlStacker.log.info("Shutdown. Closing stackCrawl queue.");
 
@@ -158,6 +190,54 @@ public final class CrawlStacker implements WorkflowTask<Request>{
         this.requestQueue.enQueue(entry);
     }
 
+    /**
+     * enqueue a block of requests, i.e. all links of a document. The block is checked with one existence
+     * lookup for all urls and with the filters evaluated in parallel; see stackCrawls(List)
+     * @param entries
+     */
+    public void enqueueEntries(final List<Request> entries) {
+        if (entries.isEmpty()) return;
+        if (entries.size() == 1) {
+            this.enqueueEntry(entries.get(0));
+            return;
+        }
+        if (CrawlStacker.log.isFinest()) CrawlStacker.log.finest("ENQUEUE block of " + entries.size() + " entries");
+        this.blockEntries.addAndGet(entries.size());
+        this.blockQueue.enQueue(new Block(entries));
+    }
+
+    private void processBlock(final List<Request> entries) {
+        try {
+            final String[] rejectReasons = this.stackCrawls(entries);
+
+            // the rejected urls are stored into the error URL db, the same as in process(Request)
+            for (int i = 0; i < rejectReasons.length; i++) {
+                final String rejectReason = rejectReasons[i];
+                if (rejectReason == null || rejectReason.startsWith(CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX) || rejectReason.equals(CRAWL_REJECT_REASON_EXCEPTION)) continue;
+                final Request entry = entries.get(i);
+                try {
+                    final CrawlProfile profile = this.crawler.get(UTF8.getBytes(entry.profileHandle()));
+                    this.nextQueue.errorURL.push(entry.url(), entry.depth(), profile, FailCategory.FINAL_LOAD_CONTEXT, rejectReason, -1);
+                } catch (final Exception e) {
+                    CrawlStacker.log.warn("Error while processing stackCrawl entry.\n" + "Entry: " + entry.toString() + "Error: " + e.toString(), e);
+                }
+            }
+        } finally {
+            this.blockEntries.addAndGet(-entries.size());
+        }
+    }
+
+    /**
+     * a block of requests for the blockQueue
+     */
+    private static final class Block extends WorkflowJob {
+        private final List<Request> entries;
+        private Block(final List<Request> entries) {
+            super();
+            this.entries = entries;
+        }
+    }
+
     public void enqueueEntriesAsynchronous(
             final byte[] initiator,
             final String profileHandle,
@@ -352,8 +432,126 @@ public final class CrawlStacker implements WorkflowTask<Request>{
 
         error = this.checkAcceptanceChangeable(entry.url(), profile, entry.depth());
         if (error != null) return error;
-        error = this.checkAcceptanceInitially(entry.url(), profile);
+        final long oldDate = this.indexSegment.getLoadTime(entry.url().hash());
+        error = this.checkAcceptanceInitially(entry.url(), profile, this.nextQueue.exists(entry.url().hash()), oldDate);
         if (error != null) return error;
+        entry.setLoadDate(oldDate);
+
+        return this.stack(entry, profile);
+    }
+
+    /**
+     * stacks a block of crawl items with the same result as stackCrawl(Request) for each of them.
+     * The profiles are looked up once for the block, the filters (including the DNS lookups of the ip filters)
+     * are evaluated in parallel partitions, and the existence of all remaining urls in the loader and the index
+     * is looked up at once. The accepted urls are then pushed in the order of the block, so that the domain
+     * counters of the profiles are checked exactly as if the urls were stacked one by one.
+     * @param entries
+     * @return for each entry null if successful, a reason string if not successful
+     */
+    public String[] stackCrawls(final List<Request> entries) {
+        final int n = entries.size();
+        final String[] rejectReasons = new String[n];
+        final CrawlProfile[] profiles = new CrawlProfile[n];
+        final Map<String, CrawlProfile> profileCache = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            final Request entry = entries.get(i);
+            final String handle = entry.profileHandle();
+            CrawlProfile profile = profileCache.get(handle);
+            if (profile == null && !profileCache.containsKey(handle)) {
+                profile = this.crawler.get(UTF8.getBytes(handle));
+                profileCache.put(handle, profile);
+            }
+            if (profile == null) {
+                rejectReasons[i] = "LOST STACKER PROFILE HANDLE '" + handle + "' for URL " + entry.url().toNormalform(true);
+                CrawlStacker.log.info(rejectReasons[i]); // this is NOT an error but a normal effect when terminating a crawl queue
+                continue;
+            }
+            profiles[i] = profile;
+        }
+
+        this.checkAcceptanceChangeable(entries, profiles, rejectReasons);
+
+        // look up all remaining urls at once
+        final List<byte[]> hashes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (rejectReasons[i] == null) hashes.add(entries.get(i).url().hash());
+        }
+        final Map<String, HarvestProcess> dboccs = this.nextQueue.exists(hashes);
+        final Map<String, Long> loadTimes = this.indexSegment.getLoadTimes(hashes);
+
+        for (int i = 0; i < n; i++) {
+            if (rejectReasons[i] != null) continue;
+            final Request entry = entries.get(i);
+            try {
+                final String urlhash = ASCII.String(entry.url().hash());
+                final Long oldDate = loadTimes.get(urlhash);
+                rejectReasons[i] = this.checkAcceptanceInitially(entry.url(), profiles[i], dboccs.get(urlhash), oldDate == null ? -1 : oldDate.longValue());
+                if (rejectReasons[i] == null) {
+                    if (oldDate != null) entry.setLoadDate(oldDate.longValue());
+                    rejectReasons[i] = this.stack(entry, profiles[i]);
+                }
+            } catch (final Exception e) {
+                CrawlStacker.log.warn("Error while processing stackCrawl entry.\n" + "Entry: " + entry.toString() + "Error: " + e.toString(), e);
+                rejectReasons[i] = CRAWL_REJECT_REASON_EXCEPTION;
+            }
+        }
+        return rejectReasons;
+    }
+
+    /**
+     * evaluate checkAcceptanceChangeable for all entries of a block which have a profile and no reject reason yet.
+     * Large blocks are split into partitions which are checked concurrently.
+     */
+    private void checkAcceptanceChangeable(final List<Request> entries, final CrawlProfile[] profiles, final String[] rejectReasons) {
+        final int n = entries.size();
+        final int partitions = Math.min(WorkflowProcessor.availableCPU, (n + blockPartitionSize - 1) / blockPartitionSize);
+        if (partitions <= 1) {
+            this.checkAcceptanceChangeable(entries, profiles, rejectReasons, 0, n);
+            return;
+        }
+        final List<Future<?>> futures = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            final int from = n * p / partitions;
+            final int to = n * (p + 1) / partitions;
+            futures.add(this.filterExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    CrawlStacker.this.checkAcceptanceChangeable(entries, profiles, rejectReasons, from, to);
+                }
+            }));
+        }
+        for (int p = 0; p < partitions; p++) {
+            try {
+                futures.get(p).get();
+            } catch (final InterruptedException | ExecutionException e) {
+                // check the partition again in this thread; entries with a result are not checked twice
+                this.checkAcceptanceChangeable(entries, profiles, rejectReasons, n * p / partitions, n * (p + 1) / partitions);
+            }
+        }
+    }
+
+    private void checkAcceptanceChangeable(final List<Request> entries, final CrawlProfile[] profiles, final String[] rejectReasons, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (rejectReasons[i] != null || profiles[i] == null) continue;
+            final Request entry = entries.get(i);
+            try {
+                rejectReasons[i] = this.checkAcceptanceChangeable(entry.url(), profiles[i], entry.depth());
+            } catch (final Exception e) {
+                CrawlStacker.log.warn("Error while processing stackCrawl entry.\n" + "Entry: " + entry.toString() + "Error: " + e.toString(), e);
+                rejectReasons[i] = CRAWL_REJECT_REASON_EXCEPTION;
+            }
+        }
+    }
+
+    /**
+     * push an accepted crawl item to the stack that matches its initiator and profile
+     * @param entry
+     * @param profile
+     * @return null if successful, a reason string if not successful
+     */
+    private String stack(final Request entry, final CrawlProfile profile) {
+        String error;
 
         // store information
         final boolean local = Base64Order.enhancedCoder.equal(entry.initiator(), UTF8.getBytes(this.peers.mySeed().hash));
@@ -418,14 +616,28 @@ public final class CrawlStacker implements WorkflowTask<Request>{
      * @return null if the url is accepted, an error string in case if the url is not accepted with an error description
      */
     public String checkAcceptanceInitially(final DigestURL url, final CrawlProfile profile) {
+        final HarvestProcess dbocc = this.nextQueue.exists(url.hash()); // returns the name of the queue if entry exists
+        if (dbocc != null) {
+            return CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": " + dbocc.name();
+        }
+        return this.checkAcceptanceInitially(url, profile, null, this.indexSegment.getLoadTime(url.hash()));
+    }
+
+    /**
+     * Test if an url shall be accepted for crawl using attributes that are consistent for the whole crawl
+     * @param url
+     * @param profile
+     * @param dbocc the queue where the url exists, or null
+     * @param oldDate the time when the url was loaded the last time, or -1
+     * @return null if the url is accepted, an error string in case if the url is not accepted with an error description
+     */
+    private String checkAcceptanceInitially(final DigestURL url, final CrawlProfile profile, final HarvestProcess dbocc, final long oldDate) {
 
         // check if the url is double registered
-        final HarvestProcess dbocc = this.nextQueue.exists(url.hash()); // returns the name of the queue if entry exists
         if (dbocc != null) {
             return CRAWL_REJECT_REASON_DOUBLE_IN_PREFIX + ": " + dbocc.name();
         }
         String urls = url.toNormalform(false);
-        final long oldDate = this.indexSegment.getLoadTime(url.hash());
 
         // deny urls that exceed allowed number of occurrences
         final int maxAllowedPagesPerDomain = profile.domMaxPages();
@@ -32,7 +32,6 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -68,10 +67,19 @@ public class HostBalancer implements Balancer {
     private final static ConcurrentLog log = new ConcurrentLog("HostBalancer");
     public final static HandleMap depthCache = new RowHandleMap(Word.commonHashLength, Word.commonHashOrder, 2, 8 * 1024 * 1024, "HostBalancer.DepthCache");
 
+    // a host is tried again later if its exact waiting time is more than this above the due time of the scheduler
+    private final static long dueTolerance = 200;
+
+    // a host whose robots.txt is still loading is tried again after this time
+    private final static long robotsRetryDelay = 1000;
+
     private final File hostsPath;
     private final boolean exceed134217727;
     private final Map<String, HostQueue> queues;
-    private final Set<String> roundRobinHostHashes;
+    private final HostScheduler scheduler;
+    private final Map<String, String> robotsPending; // the hosts which wait for their robots.txt: host hash to host:port
+    private final Map<String, ClientIdentification.Agent> agents; // the agent of the latest crawl profile of a host: host hash to agent
+    private final Latency.Listener latencyListener;
     private final int onDemandLimit;
 
     /**
@@ -106,7 +114,17 @@ public class HostBalancer implements Balancer {
         // create a stack for newly entered entries
         if (!(hostsPath.exists())) hostsPath.mkdirs(); // make the path
         this.queues = new ConcurrentHashMap<>();
-        this.roundRobinHostHashes = new HashSet<>();
+        this.scheduler = new HostScheduler();
+        this.robotsPending = new ConcurrentHashMap<>();
+        this.agents = new ConcurrentHashMap<>();
+        this.latencyListener = new Latency.Listener() {
+            @Override
+            public void accessed(final String hosthash, final Latency.Host host) {
+                // move the host to the time of its next possible access; hosts in other balancers are ignored
+                HostBalancer.this.scheduler.update(hosthash, Latency.nextAccessGuessed(host, HostBalancer.this.agent(hosthash)));
+            }
+        };
+        Latency.addListener(this.latencyListener);
         this.init(asyncInit); // return without wait but starts a thread to fill the queues
     }
 
@@ -144,6 +162,7 @@ public class HostBalancer implements Balancer {
                     FileUtils.deletedelete(queuePath);
                 } else {
                     this.queues.put(queue.getHostHash(), queue);
+                    this.scheduler.offer(queue.getHostHash(), Latency.nextAccessGuessed(queue.getHostHash(), ClientIdentification.yacyInternetCrawlerAgent));
                 }
             } catch (MalformedURLException | RuntimeException e) {
                 log.warn("delete queue due to init error for " + this.hostsPath.getName() + " host=" + hoststr + " " + e.getLocalizedMessage());
@@ -159,8 +178,12 @@ public class HostBalancer implements Balancer {
         if (depthCache != null) {
             depthCache.clear();
         }
+        Latency.removeListener(this.latencyListener);
         for (final HostQueue queue: this.queues.values()) queue.close();
         this.queues.clear();
+        this.scheduler.clear();
+        this.robotsPending.clear();
+        this.agents.clear();
     }
 
     @Override
@@ -170,6 +193,9 @@ public class HostBalancer implements Balancer {
         }
         for (final HostQueue queue: this.queues.values()) queue.clear();
         this.queues.clear();
+        this.scheduler.clear();
+        this.robotsPending.clear();
+        this.agents.clear();
     }
 
     @Override
@@ -287,23 +313,38 @@ public class HostBalancer implements Balancer {
         if (this.has(entry.url().hash())) return "double occurrence";
         depthCache.put(entry.url().hash(), entry.depth());
         final String hosthash = entry.url().hosthash();
+        // profile might be null when continue crawls after YaCy restart
+        final ClientIdentification.Agent agent = profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent();
+        if (profile != null) this.agents.put(hosthash, agent);
+        final String result;
+        final boolean created;
         synchronized (this) {
             HostQueue queue = this.queues.get(hosthash);
-            if (queue == null) {
+            created = queue == null;
+            if (created) {
                 queue = new HostQueue(this.hostsPath, entry.url(), this.queues.size() > this.onDemandLimit, this.exceed134217727);
                 this.queues.put(hosthash, queue);
-                // profile might be null when continue crawls after YaCy restart
-                robots.ensureExist(entry.url(), profile == null ? ClientIdentification.yacyInternetCrawlerAgent : profile.getAgent(), true); // concurrently load all robots.txt
+                // the host is not selected by pop() until its robots.txt is loaded, so that no loader waits for it.
+                // The robots table is not read here to keep the lock short; pop() tests if the robots.txt is ready.
+                final String robotsHostPort = entry.url().getProtocol().startsWith("http") && !entry.url().isLocal() ? RobotsTxt.getHostPort(entry.url()) : null;
+                if (robotsHostPort != null) this.robotsPending.put(hosthash, robotsHostPort);
+                this.scheduler.offer(hosthash, Latency.nextAccessGuessed(hosthash, agent));
             }
-            return queue.push(entry, profile, robots);
+            result = queue.push(entry, profile, robots);
+        }
+        if (created) {
+            robots.ensureExist(entry.url(), agent, true); // concurrently load all robots.txt
+            if (robots.isReady(entry.url())) this.robotsPending.remove(hosthash);
         }
+        return result;
     }
 
     /**
      * get the next entry in this crawl queue in such a way that the domain access time delta is maximized
      * and always above the given minimum delay time. In case the minimum time cannot ensured, this method pauses
      * the necessary time until the url is released and returned as CrawlEntry object. In case that a profile
-     * for the computed Entry does not exist, null is returned
+     * for the computed Entry does not exist, null is returned. Hosts whose robots.txt is not yet loaded are skipped;
+     * if all hosts which are due wait for their robots.txt, null is returned as well.
      * @param delay true if the requester demands forced delays using explicit thread sleep
      * @param profile
      * @return a url in a CrawlEntry object
@@ -312,211 +353,102 @@ public class HostBalancer implements Balancer {
      */
     @Override
     public Request pop(boolean delay, CrawlSwitchboard cs, RobotsTxt robots) throws IOException {
-        tryagain: while (true) try {
-            HostQueue rhq = null;
-            String rhh = null;
-
-            synchronized (this) {
-                if (this.roundRobinHostHashes.size() == 0) {
-                    // refresh the round-robin cache
-                    this.roundRobinHostHashes.addAll(this.queues.keySet());
-                    // quickly get rid of small stacks to reduce number of files:
-                    // remove all stacks with more than 10 entries
-                    // this shall kick out small stacks to prevent that too many files are opened for very wide crawls
-                    boolean smallStacksExist = false;
-                    boolean singletonStacksExist = false;
-                    smallsearch: for (final String s: this.roundRobinHostHashes) {
-                        final HostQueue hq = this.queues.get(s);
-                        if (hq != null) {
-                            final int size = hq.size();
-                            if (size ==  1) {singletonStacksExist = true; break smallsearch;}
-                            if (size <= 10) {smallStacksExist = true; break smallsearch;}
-                        }
-                    }
-                    final ArrayList<String> freshhosts = new ArrayList<>();
-                    final ArrayList<String> removehosts = new ArrayList<>();
-                    final Iterator<String> i = this.roundRobinHostHashes.iterator();
-                    smallstacks: while (i.hasNext()) {
-                        if (this.roundRobinHostHashes.size() <= 10) break smallstacks; // don't shrink the hosts until nothing is left
-                        final String hosthash = i.next();
-                        final HostQueue hq = this.queues.get(hosthash);
-                        if (hq == null) {removehosts.add(hosthash); i.remove(); continue smallstacks;}
-                        final int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), hosthash, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                        if (delta == Integer.MIN_VALUE) {
-                            // never-crawled hosts; we do not want to have too many of them in here. Loading new hosts means: waiting for robots.txt to load
-                            freshhosts.add(hosthash);
-                            i.remove();
-                            continue smallstacks;
-                        }
-                        if (singletonStacksExist || smallStacksExist) {
-                            if (delta < 0) continue; // keep all non-waiting stacks; they are useful to speed up things
-                            // to protect all small stacks which have a fast throughput, remove all with long waiting time
-                            if (delta >= 1000) {removehosts.add(hosthash); i.remove(); continue smallstacks;}
-                            final int size = hq.size();
-                            if (singletonStacksExist) {
-                                if (size != 1) {removehosts.add(hosthash); i.remove(); continue smallstacks;} // remove all non-singletons
-                            } else /*smallStacksExist*/ {
-                                if (size > 10) {removehosts.add(hosthash); i.remove(); continue smallstacks;} // remove all large stacks
-                            }
-                        }
-                    }
-
-                    // shuffle the lists
-                    final Random r = new Random();
-
-                    // put at least one of the fresh hosts back
-                    if (freshhosts.size() > 0) this.roundRobinHostHashes.add(freshhosts.remove(r.nextInt(freshhosts.size())));
-                    // fill up so we can have at least 100 domains in the queue
-                    while (this.roundRobinHostHashes.size() < 100 && removehosts.size() > 0) {
-                        this.roundRobinHostHashes.add(removehosts.remove(r.nextInt(removehosts.size())));
-                    }
-                    while (this.roundRobinHostHashes.size() < 100 && freshhosts.size() > 0) {
-                        this.roundRobinHostHashes.add(freshhosts.remove(r.nextInt(freshhosts.size())));
-                    }
-
-                    // result
-                    if (this.roundRobinHostHashes.size() == 1) {
-                        if (log.isFine()) log.fine("(re-)initialized the round-robin queue with one host");
-                    } else {
-                        log.info("(re-)initialized the round-robin queue; " + this.roundRobinHostHashes.size() + " hosts.");
-                    }
-                }
-                if (this.roundRobinHostHashes.size() == 0) return null;
-
-                // if the queue size is 1, just take that
-                if (this.roundRobinHostHashes.size() == 1) {
-                    rhh = this.roundRobinHostHashes.iterator().next();
-                    rhq = this.queues.get(rhh);
-                }
-
-                if (rhq == null) {
-                    // mixed minimum sleep time / largest queue strategy:
-                    // create a map of sleep time / queue relations with a fuzzy sleep time (ms / 500).
-                    // if the entry with the smallest sleep time contains at least two entries,
-                    // then the larger one from these queues are selected.
-                    final TreeMap<Integer, List<String>> fastTree = new TreeMap<>();
-                    mixedstrategy: for (final String h: this.roundRobinHostHashes) {
-                        final HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), h, robots, ClientIdentification.yacyInternetCrawlerAgent) / 200;
-                            if (delta < 0) delta = 0;
-                            List<String> queueHashes = fastTree.get(delta);
-                            if (queueHashes == null) {
-                                queueHashes = new ArrayList<>(2);
-                                fastTree.put(delta, queueHashes);
-                            }
-                            queueHashes.add(h);
-                            // check stop criteria
-                            final List<String> firstEntries = fastTree.firstEntry().getValue();
-                            if (firstEntries.size() > 1) {
-                                // select larger queue from that list
-                                int largest = Integer.MIN_VALUE;
-                                for (final String hh: firstEntries) {
-                                    final HostQueue hhq = this.queues.get(hh);
-                                    if (hhq != null) {
-                                        final int s = hhq.size();
-                                        if (s > largest) {
-                                            largest = s;
-                                            rhh = hh;
-                                        }
-                                    }
-                                }
-                                rhq = this.queues.get(rhh);
-                                break mixedstrategy;
-                            }
-                        }
-                    }
-                    if (rhq == null && fastTree.size() > 0) {
-                        // it may be possible that the lowest entry never has more than one queues assigned
-                        // in this case just take the smallest entry
-                        final List<String> firstEntries = fastTree.firstEntry().getValue();
-                        assert firstEntries.size() == 1;
-                        rhh = firstEntries.get(0);
-                        rhq = this.queues.get(rhh);
-                    }
-                    // to prevent that the complete roundrobinhosthashes are taken for each round, we remove the entries from the top of the fast queue
-                    final List<String> lastEntries = fastTree.size() > 0 ? fastTree.lastEntry().getValue() : null;
-                    if (lastEntries != null) {
-                        for (final String h: lastEntries) this.roundRobinHostHashes.remove(h);
-                    }
-                }
-
-                /*
-                // first strategy: get one entry which does not need sleep time
-                Iterator<String> nhhi = this.roundRobinHostHashes.iterator();
-                nosleep: while (nhhi.hasNext()) {
-                    rhh = nhhi.next();
-                    rhq = this.queues.get(rhh);
-                    if (rhq == null) {
-                        nhhi.remove();
-                        continue nosleep;
-            }
-                    int delta = Latency.waitingRemainingGuessed(rhq.getHost(), rhh, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                    if (delta <= 10 || this.roundRobinHostHashes.size() == 1 || rhq.size() == 1) {
-                        nhhi.remove();
-                        break nosleep;
-                    }
-                }
-                if (rhq == null) {
-                    // second strategy: take from the largest stack
-                    int largest = Integer.MIN_VALUE;
-                    for (String h: this.roundRobinHostHashes) {
-                        HostQueue hq = this.queues.get(h);
-                        if (hq != null) {
-                            int s = hq.size();
-                            if (s > largest) {
-                                largest = s;
-                                rhh = h;
-                            }
-                        }
-                    }
-                    rhq = this.queues.get(rhh);
-                }
-                */
-            }
-
+        int corrections = 0;
+        Set<String> robotsWaiting = null; // the hosts that were skipped because their robots.txt is loading
+        tryagain: while (true) {
+            // take the host with the earliest due time; no other thread can take it until it is released again
+            final HostScheduler.Slot slot = this.scheduler.poll();
+            if (slot == null) return null;
+            final String rhh = slot.hosthash;
+            final HostQueue rhq = this.queues.get(rhh);
             if (rhq == null) {
-                this.roundRobinHostHashes.clear(); // force re-initialization
+                this.scheduler.remove(rhh);
+                this.robotsPending.remove(rhh);
+                this.agents.remove(rhh);
                 continue tryagain;
             }
-            this.roundRobinHostHashes.remove(rhh); // prevent that the queue is used again
-            final long timestamp = System.currentTimeMillis();
-            final Request request = rhq.pop(delay, cs, robots); // this pop is outside of synchronization to prevent blocking of pushes
-            final long actualwaiting = System.currentTimeMillis() - timestamp;
-
-            if (actualwaiting > 1000) {
-                synchronized (this) {
-                    // to prevent that this occurs again, remove all stacks with positive delay times (which may be less after that waiting)
-                    final Iterator<String> i = this.roundRobinHostHashes.iterator();
-                    protectcheck: while (i.hasNext()) {
-                        if (this.roundRobinHostHashes.size() <= 3) break protectcheck; // don't shrink the hosts until nothing is left
-                        final String s = i.next();
-                        final HostQueue hq = this.queues.get(s);
-                        if (hq == null) {i.remove(); continue protectcheck;}
-                        final int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), s, robots, ClientIdentification.yacyInternetCrawlerAgent);
-                        if (delta >= 0) {i.remove();}
+            final String robotsHostPort = this.robotsPending.get(rhh);
+            if (robotsHostPort != null) {
+                if (robots.isReady(robotsHostPort)) {
+                    this.robotsPending.remove(rhh);
+                } else {
+                    // load the robots.txt again if its loading was lost, i.e. because the robots table was cleared
+                    if (!robots.isLoading(robotsHostPort)) {
+                        final DigestURL robotsURL = RobotsTxt.robotsURL(robotsHostPort);
+                        if (robotsURL != null) robots.ensureExist(robotsURL, this.agent(rhh), true);
                     }
+                    this.reschedule(rhh, rhq, System.currentTimeMillis() + robotsRetryDelay);
+                    if (robotsWaiting == null) robotsWaiting = new HashSet<>();
+                    // if a host comes again, all hosts which are due wait for their robots.txt
+                    if (!robotsWaiting.add(rhh)) return null;
+                    continue tryagain;
                 }
             }
-
-            if (rhq.isEmpty()) {
-                synchronized (this) {
-                    this.queues.remove(rhh);
+            long next = System.currentTimeMillis();
+            Request request = null;
+            try {
+                // the due time of the scheduler is only a lower bound because it does not know the robots.txt delay
+                // and the loader queue; if the host must wait longer, it is scheduled again and the next host is tried
+                final ClientIdentification.Agent agent = this.agent(rhh);
+                final int remaining = Latency.waitingRemainingGuessed(rhq.getHost(), rhq.getPort(), rhh, robots, agent);
+                if (remaining > 0 && next + remaining > slot.due + dueTolerance && corrections++ < this.scheduler.size()) {
+                    next += remaining;
+                    continue tryagain;
                 }
-                rhq.close();
+                request = rhq.pop(delay, cs, robots); // this pop is outside of synchronization to prevent blocking of pushes
+                // a host with several parallel loads may be taken again before the load of this url has started
+                next = Math.max(Latency.nextAccessGuessed(rhh, agent), System.currentTimeMillis() + Latency.adaptiveWaiting(rhh, agent.minimumDelta, agent.minimumDelta));
+            } catch (final ConcurrentModificationException e) {
+                continue tryagain;
+            } catch (final IOException e) {
+                throw e;
+            } catch (final Throwable e) {
+                ConcurrentLog.logException(e);
+                throw new IOException(e.getMessage());
+            } finally {
+                this.reschedule(rhh, rhq, next);
             }
             if (request == null) continue tryagain;
             return request;
-        } catch (final ConcurrentModificationException e) {
-            continue tryagain;
-        } catch (final IOException e) {
-            throw e;
-        } catch (final Throwable e) {
-            ConcurrentLog.logException(e);
-            throw new IOException(e.getMessage());
         }
     }
 
+    /**
+     * @param hosthash
+     * @return the agent of the latest crawl profile which pushed an url of the host, the internet crawler agent if none is known
+     */
+    private ClientIdentification.Agent agent(final String hosthash) {
+        final ClientIdentification.Agent agent = this.agents.get(hosthash);
+        return agent == null ? ClientIdentification.yacyInternetCrawlerAgent : agent;
+    }
+
+    /**
+     * release a host that was taken from the scheduler, or remove it together with its queue if the queue is empty
+     * @param hosthash
+     * @param queue
+     * @param due the time when the host may be accessed again
+     */
+    private void reschedule(final String hosthash, final HostQueue queue, final long due) {
+        if (queue.isEmpty()) {
+            boolean removed = false;
+            synchronized (this) {
+                // a push is synchronized as well; it either has filled the queue already or it will create a new one
+                if (queue.isEmpty()) {
+                    this.queues.remove(hosthash);
+                    this.scheduler.remove(hosthash);
+                    this.robotsPending.remove(hosthash);
+                    this.agents.remove(hosthash);
+                    removed = true;
+                }
+            }
+            if (removed) {
+                queue.close();
+                return;
+            }
+        }
+        this.scheduler.release(hosthash, due);
+    }
+
     @Override
     public Iterator<Request> iterator() throws IOException {
         final Iterator<HostQueue> hostsIterator = this.queues.values().iterator();
@@ -548,14 +480,14 @@ public class HostBalancer implements Balancer {
 
     /**
      * get a list of domains that are currently maintained as domain stacks
-     * @return a map of clear text strings of host names + ports to an integer array: {the size of the domain stack, guessed delta waiting time}
+     * @return a map of clear text strings of host names + ports to an integer array: {the size of the domain stack, guessed delta waiting time, parallel loads}
      */
     @Override
     public Map<String, Integer[]> getDomainStackHosts(RobotsTxt robots) {
         final Map<String, Integer[]> map = new TreeMap<>(); // we use a tree map to get a stable ordering
         for (final HostQueue hq: this.queues.values()) {
             final int delta = Latency.waitingRemainingGuessed(hq.getHost(), hq.getPort(), hq.getHostHash(), robots, ClientIdentification.yacyInternetCrawlerAgent);
-            map.put(hq.getHost() + ":" + hq.getPort(), new Integer[]{hq.size(), delta});
+            map.put(hq.getHost() + ":" + hq.getPort(), new Integer[]{hq.size(), delta, Latency.parallel(hq.getHostHash())});
         }
         return map;
     }
@@ -34,10 +34,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
@@ -70,13 +72,28 @@ public class HostQueue implements Balancer {
     private static final int    EcoFSBufferSize       = 1000;
     private static final int    objectIndexBufferSize = 1000;
 
+    /**
+     * in lazy mode the depth stacks of a queue are not opened before the queue is used; at startup only the
+     * number of urls in each stack is read from the file sizes. Stacks of queues that were not used for a while
+     * are closed again, so that the number of open files and the memory grow with the active hosts only.
+     */
+    public static boolean lazyStacks = false;
+    /** the maximum number of queues with open stacks in lazy mode */
+    public static int maxOpenQueues = 1000;
+
+    // the queues with open stacks in lazy mode in access order; this is the lock order: first a queue, then this map
+    private static final LinkedHashMap<HostQueue, Boolean> openQueues = new LinkedHashMap<>(16, 0.75f, true);
+    // queues which were removed from openQueues and must be closed by a thread that does not hold any queue monitor
+    private static final ConcurrentLinkedQueue<HostQueue> evictedQueues = new ConcurrentLinkedQueue<>();
+
     private final File          hostPath; // path to the stack files
     private final String        hostName;
     private final String        hostHash;
     private final int           port;
     private final boolean       exceed134217727;
     private final boolean       onDemand;
-    private       TreeMap<Integer, Index> depthStacks;
+    private volatile TreeMap<Integer, Index> depthStacks; // null while the stacks are closed in lazy mode
+    private volatile TreeMap<Integer, Integer> depthSizes; // the number of urls in each depth while the stacks are closed
 
     /**
      * Create or open host queue. The host part of the hostUrl parameter is used
@@ -166,8 +183,15 @@ public class HostQueue implements Balancer {
                 throw new MalformedURLException("hostPath could not be created: " + this.hostPath.toString());
             }
         }
-        this.depthStacks = new TreeMap<>();
-        final int size = this.openAllStacks();
+        final int size;
+        if (lazyStacks) {
+            this.depthSizes = new TreeMap<>();
+            size = this.scanAllStacks(this.depthSizes);
+        } else {
+            final TreeMap<Integer, Index> stacks = new TreeMap<>();
+            size = this.openAllStacks(stacks);
+            this.depthStacks = stacks;
+        }
         if (log.isInfo()) log.info("opened HostQueue " + this.hostPath.getAbsolutePath() + " with " + size + " urls.");
     }
 
@@ -188,7 +212,7 @@ public class HostQueue implements Balancer {
         return this.hostHash;
     }
 
-    private int openAllStacks() {
+    private int openAllStacks(final TreeMap<Integer, Index> stacks) {
         final String[] l = this.hostPath.list();
         int c = 0;
         if (l != null) for (final String s: l) {
@@ -202,7 +226,7 @@ public class HostQueue implements Balancer {
                         depthStack.close();
                         deletedelete(stackFile);
                     } else {
-                        this.depthStacks.put(depth, depthStack);
+                        stacks.put(depth, depthStack);
                         c += sz;
                     }
                 }
@@ -211,17 +235,135 @@ public class HostQueue implements Balancer {
         return c;
     }
 
-    private Index getLowestStack() {
-        while (this.depthStacks.size() > 0) {
-            Map.Entry<Integer, Index> entry;
+    /**
+     * get the number of urls in each stack file without opening the stacks
+     * @param sizes the map to which the number of urls in each depth is added
+     * @return the number of urls in all stacks
+     */
+    private int scanAllStacks(final TreeMap<Integer, Integer> sizes) {
+        final String[] l = this.hostPath.list();
+        int c = 0;
+        if (l != null) for (final String s: l) {
+            if (s.endsWith(indexSuffix)) try {
+                final int depth = Integer.parseInt(s.substring(0, s.length() - indexSuffix.length()));
+                final File stackFile = new File(this.hostPath, s);
+                final int sz = (int) Table.tableSize(stackFile, Request.rowdef.objectsize, true);
+                if (sz == 0) {
+                    deletedelete(stackFile);
+                } else {
+                    sizes.put(depth, sz);
+                    c += sz;
+                }
+            } catch (final NumberFormatException | kelondroException e) {}
+        }
+        return c;
+    }
+
+    /**
+     * get the depth stacks; in lazy mode they are opened if they are closed.
+     * This must be called while holding the monitor of this queue.
+     * @return the depth stacks
+     */
+    private TreeMap<Integer, Index> stacks() {
+        TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) {
+            stacks = new TreeMap<>();
+            this.openAllStacks(stacks);
+            this.depthStacks = stacks;
+            this.depthSizes = null;
+        }
+        if (lazyStacks) touch(this);
+        return stacks;
+    }
+
+    /**
+     * get the depth stacks without holding the monitor if they are open; in lazy mode they are opened if they are closed
+     * @return the depth stacks
+     */
+    private TreeMap<Integer, Index> openStacks() {
+        if (lazyStacks) {
+            // mark the queue as used before the stacks are read: closeStacks() does not close them after that,
+            // and a closeStacks() that has started before holds the monitor until the stacks are closed
+            touch(this);
             synchronized (this) {
-                entry = this.depthStacks.firstEntry();
+                return this.stacks();
             }
+        }
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) {
+            synchronized (this) {
+                return this.stacks();
+            }
+        }
+        return stacks;
+    }
+
+    /**
+     * mark a queue as recently used and select the least recently used queues for closing if there are too many open queues
+     * @param queue
+     */
+    private static void touch(final HostQueue queue) {
+        synchronized (openQueues) {
+            openQueues.put(queue, Boolean.TRUE);
+            if (openQueues.size() <= maxOpenQueues) return;
+            final Iterator<HostQueue> i = openQueues.keySet().iterator();
+            while (openQueues.size() > maxOpenQueues && i.hasNext()) {
+                final HostQueue eldest = i.next();
+                if (eldest == queue) continue;
+                i.remove();
+                evictedQueues.add(eldest);
+            }
+        }
+    }
+
+    /**
+     * close the stacks of the least recently used queues. This must not be called while holding the monitor of a queue.
+     */
+    private static void closeEvicted() {
+        HostQueue queue;
+        while ((queue = evictedQueues.poll()) != null) queue.closeStacks();
+    }
+
+    /**
+     * @return the number of queues with open stacks in lazy mode
+     */
+    public static int openQueues() {
+        synchronized (openQueues) {
+            return openQueues.size();
+        }
+    }
+
+    /**
+     * close the stacks and remember only their sizes; the stacks are opened again when the queue is used
+     */
+    private synchronized void closeStacks() {
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) return;
+        synchronized (openQueues) {
+            if (openQueues.containsKey(this)) return; // used again after it was evicted
+        }
+        final TreeMap<Integer, Integer> sizes = new TreeMap<>();
+        for (final Map.Entry<Integer, Index> entry: stacks.entrySet()) {
+            final int size = entry.getValue().size();
+            if (size > 0) sizes.put(entry.getKey(), size);
+        }
+        this.depthSizes = sizes;
+        this.depthStacks = null;
+        for (final Map.Entry<Integer, Index> entry: stacks.entrySet()) {
+            entry.getValue().close();
+            if (!sizes.containsKey(entry.getKey())) deletedelete(this.getFile(entry.getKey()));
+        }
+    }
+
+    private Index getLowestStack() {
+        final TreeMap<Integer, Index> stacks = this.stacks();
+        while (stacks.size() > 0) {
+            final Map.Entry<Integer, Index> entry = stacks.firstEntry();
             if (entry == null) return null; // happens only if map is empty
             if (entry.getValue().size() == 0) {
                 entry.getValue().close();
                 deletedelete(this.getFile(entry.getKey()));
-                this.depthStacks.remove(entry.getKey());
+                stacks.remove(entry.getKey());
                 continue;
             }
             return entry.getValue();
@@ -241,12 +383,13 @@ public class HostQueue implements Balancer {
         Index depthStack;
         // create a new stack
         synchronized (this) {
-            depthStack = this.depthStacks.get(depth);
+            final TreeMap<Integer, Index> stacks = this.stacks();
+            depthStack = stacks.get(depth);
             if (depthStack != null) return depthStack;
             // now actually create a new stack
             final File f = this.getFile(depth);
             depthStack = this.openStack(f);
-            if (depthStack != null) this.depthStacks.put(depth, depthStack);
+            if (depthStack != null) stacks.put(depth, depthStack);
         }
         return depthStack;
     }
@@ -288,24 +431,38 @@ public class HostQueue implements Balancer {
 
     @Override
     public synchronized void close() {
-        log.info("closing HostQueue, closing " + this.depthStacks.size() + " depthStacks for host " + this.hostName);
-        for (final Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
-            final int size = entry.getValue().size();
-            entry.getValue().close();
-            if (size == 0) deletedelete(this.getFile(entry.getKey()));
+        synchronized (openQueues) {
+            openQueues.remove(this);
+        }
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) {
+            log.info("closing HostQueue, depthStacks are closed for host " + this.hostName);
+            this.depthStacks = new TreeMap<>(); // do not open them again
+            this.depthSizes = null;
+        } else {
+            log.info("closing HostQueue, closing " + stacks.size() + " depthStacks for host " + this.hostName);
+            for (final Map.Entry<Integer, Index> entry: stacks.entrySet()) {
+                final int size = entry.getValue().size();
+                entry.getValue().close();
+                if (size == 0) deletedelete(this.getFile(entry.getKey()));
+            }
+            stacks.clear();
         }
-        this.depthStacks.clear();
         final String[] l = this.hostPath.list();
         if ((l == null || l.length == 0) && this.hostPath != null) deletedelete(this.hostPath);
     }
 
     @Override
     public synchronized void clear() {
-        for (final Map.Entry<Integer, Index> entry: this.depthStacks.entrySet()) {
-            entry.getValue().close();
-            deletedelete(this.getFile(entry.getKey()));
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks != null) {
+            for (final Map.Entry<Integer, Index> entry: stacks.entrySet()) {
+                entry.getValue().close();
+                deletedelete(this.getFile(entry.getKey()));
+            }
         }
-        this.depthStacks.clear();
+        this.depthStacks = new TreeMap<>();
+        this.depthSizes = null;
         final String[] l = this.hostPath.list();
         if (l != null) for (final String s: l) {
             deletedelete(new File(this.hostPath, s));
@@ -316,8 +473,7 @@ public class HostQueue implements Balancer {
     @Override
     public Request get(final byte[] urlhash) throws IOException {
         assert urlhash != null;
-        if (this.depthStacks == null) return null; // case occurs during shutdown
-        for (final Index depthStack: this.depthStacks.values()) {
+        for (final Index depthStack: this.openStacks().values()) {
             final Row.Entry entry = depthStack.get(urlhash, false);
             if (entry == null) return null;
             return new Request(entry);
@@ -331,7 +487,7 @@ public class HostQueue implements Balancer {
         final long terminate = timeout == Long.MAX_VALUE ? Long.MAX_VALUE : (timeout > 0) ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
         int count = 0;
         synchronized (this) {
-            for (final Index depthStack: this.depthStacks.values()) {
+            for (final Index depthStack: this.stacks().values()) {
                 final HandleSet urlHashes = new RowHandleSet(Word.commonHashLength, Base64Order.enhancedCoder, 100);
                 final Iterator<Row.Entry> i = depthStack.rows();
                 Row.Entry rowEntry;
@@ -379,7 +535,7 @@ public class HostQueue implements Balancer {
     @Override
     public synchronized int remove(final HandleSet urlHashes) throws IOException {
         int removedCounter = 0;
-        for (final Index depthStack: this.depthStacks.values()) {
+        for (final Index depthStack: this.stacks().values()) {
             final int s = depthStack.size();
             for (final byte[] urlhash: urlHashes) {
                 final Row.Entry entry = depthStack.remove(urlhash);
@@ -391,11 +547,17 @@ public class HostQueue implements Balancer {
         return removedCounter;
     }
 
+    /**
+     * In lazy mode a queue with closed stacks answers false without opening them. The HostBalancer asks its
+     * depth cache first, which holds all urls that were pushed since the start; an url from the stack files
+     * which is pushed again only replaces its entry.
+     */
     @Override
     public boolean has(final byte[] urlhashb) {
+        if (lazyStacks && this.depthStacks == null) return false;
         for (int retry = 0; retry < 3; retry++) {
             try {
-                for (final Index depthStack: this.depthStacks.values()) {
+                for (final Index depthStack: this.openStacks().values()) {
                     if (depthStack.has(urlhashb)) return true;
                 }
                 return false;
@@ -404,18 +566,29 @@ public class HostQueue implements Balancer {
         return false;
     }
 
+    /**
+     * the size of a queue with closed stacks is taken from the remembered sizes, so that statistics never open a queue.
+     * The monitor prevents that the stacks are closed while they are counted.
+     */
     @Override
-    public int size() {
+    public synchronized int size() {
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
         int size = 0;
-        for (final Index depthStack: this.depthStacks.values()) {
-            size += depthStack.size();
+        if (stacks != null) {
+            for (final Index depthStack: stacks.values()) {
+                size += depthStack.size();
+            }
+        } else {
+            for (final Integer s: this.depthSizes.values()) size += s;
         }
         return size;
     }
 
     @Override
-    public boolean isEmpty() {
-        for (final Index depthStack: this.depthStacks.values()) {
+    public synchronized boolean isEmpty() {
+        final TreeMap<Integer, Index> stacks = this.depthStacks;
+        if (stacks == null) return this.depthSizes.isEmpty(); // only stacks with urls are counted
+        for (final Index depthStack: stacks.values()) {
             if (!depthStack.isEmpty()) return false;
         }
         return true;
@@ -445,6 +618,7 @@ public class HostQueue implements Balancer {
             assert s < depthStack.size() : "hash = " + ASCII.String(hash) + ", s = " + s + ", size = " + depthStack.size();
             assert depthStack.has(hash) : "hash = " + ASCII.String(hash);
         }
+        closeEvicted();
         return null;
     }
 
@@ -486,6 +660,7 @@ public class HostQueue implements Balancer {
                 break mainloop;
             }
         }
+        closeEvicted();
         if (crawlEntry == null) return null;
         final ClientIdentification.Agent agent = profileEntry == null ? ClientIdentification.yacyInternetCrawlerAgent : profileEntry.getAgent();
         final long robotsTime = Latency.getRobotsTime(robots, crawlEntry.url(), agent);
@@ -519,7 +694,7 @@ public class HostQueue implements Balancer {
 
     @Override
     public Iterator<Request> iterator() throws IOException {
-        final Iterator<Map.Entry<Integer, Index>> depthIterator = this.depthStacks.entrySet().iterator();
+        final Iterator<Map.Entry<Integer, Index>> depthIterator = this.openStacks().entrySet().iterator();
         @SuppressWarnings("unchecked")
         final Iterator<Row.Entry>[] rowIterator = (Iterator<Row.Entry>[]) Array.newInstance(Iterator.class, 1);
         rowIterator[0] = null;
@@ -554,13 +729,13 @@ public class HostQueue implements Balancer {
 
     /**
      * get a list of domains that are currently maintained as domain stacks
-     * @return a map of clear text strings of host names to an integer array: {the size of the domain stack, guessed delta waiting time}
+     * @return a map of clear text strings of host names to an integer array: {the size of the domain stack, guessed delta waiting time, parallel loads}
      */
     @Override
     public Map<String, Integer[]> getDomainStackHosts(RobotsTxt robots) {
         final Map<String, Integer[]> map = new TreeMap<>();
         final int delta = Latency.waitingRemainingGuessed(this.hostName, this.port, this.hostHash, robots, ClientIdentification.yacyInternetCrawlerAgent);
-        map.put(this.hostName, new Integer[]{this.size(), delta});
+        map.put(this.hostName, new Integer[]{this.size(), delta, Latency.parallel(this.hostHash)});
         return map;
     }
 
@@ -0,0 +1,176 @@
+// HostScheduler.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * a priority queue of hosts, ordered by the time when each host may be accessed again.
+ * The host with the earliest due time is taken in O(log n) without a lock; a taken host is not
+ * handed out again until it is released with a new due time, so that two crawler threads never
+ * select the same host at the same time.
+ *
+ * Every host is in one of three states: unknown, scheduled with a due time, or taken.
+ * All state changes are compare-and-set operations on the slot map; the skip list is only the
+ * ordering of the scheduled slots and may contain superseded slots for a short time, which are skipped.
+ */
+public final class HostScheduler {
+
+    /**
+     * the scheduled access of a host. Slots are immutable, a new due time means a new slot.
+     */
+    public static final class Slot {
+        public final String hosthash;
+        public final long due;
+        private final long sequence;
+        private Slot(final String hosthash, final long due, final long sequence) {
+            this.hosthash = hosthash;
+            this.due = due;
+            this.sequence = sequence;
+        }
+        @Override
+        public String toString() {
+            return this.hosthash + "@" + this.due;
+        }
+    }
+
+    private static final Comparator<Slot> dueOrder = new Comparator<Slot>() {
+        @Override
+        public int compare(final Slot a, final Slot b) {
+            if (a.due != b.due) return a.due < b.due ? -1 : 1;
+            return a.sequence < b.sequence ? -1 : a.sequence == b.sequence ? 0 : 1;
+        }
+    };
+
+    // the marker for hosts that were taken and are not yet released
+    private static final Slot TAKEN = new Slot("", Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final ConcurrentSkipListSet<Slot> queue;
+    private final ConcurrentHashMap<String, Slot> slots;
+    private final AtomicLong sequence;
+
+    public HostScheduler() {
+        this.queue = new ConcurrentSkipListSet<>(dueOrder);
+        this.slots = new ConcurrentHashMap<>();
+        this.sequence = new AtomicLong(0);
+    }
+
+    private Slot slot(final String hosthash, final long due) {
+        return new Slot(hosthash, due, this.sequence.incrementAndGet());
+    }
+
+    /**
+     * schedule a host which is not yet known to the scheduler
+     * @param hosthash
+     * @param due the time in milliseconds when the host may be accessed
+     * @return true if the host was added; false if it is already scheduled or taken
+     */
+    public boolean offer(final String hosthash, final long due) {
+        final Slot slot = slot(hosthash, due);
+        if (this.slots.putIfAbsent(hosthash, slot) != null) return false;
+        this.queue.add(slot);
+        return true;
+    }
+
+    /**
+     * take the host with the earliest due time, regardless if that time is reached.
+     * The host stays taken until release() or remove() is called for it.
+     * @return the slot of the host or null if no host is scheduled
+     */
+    public Slot poll() {
+        Slot slot;
+        while ((slot = this.queue.pollFirst()) != null) {
+            if (this.slots.replace(slot.hosthash, slot, TAKEN)) return slot;
+            // the slot was superseded by a later update of the host
+        }
+        return null;
+    }
+
+    /**
+     * schedule a taken host again
+     * @param hosthash
+     * @param due the time in milliseconds when the host may be accessed
+     * @return false if the host was not taken
+     */
+    public boolean release(final String hosthash, final long due) {
+        final Slot slot = slot(hosthash, due);
+        if (!this.slots.replace(hosthash, TAKEN, slot)) return false;
+        this.queue.add(slot);
+        return true;
+    }
+
+    /**
+     * move a scheduled host to a new due time. Hosts that are unknown or taken are not changed.
+     * @param hosthash
+     * @param due the time in milliseconds when the host may be accessed
+     * @return true if the host was moved
+     */
+    public boolean update(final String hosthash, final long due) {
+        while (true) {
+            final Slot current = this.slots.get(hosthash);
+            if (current == null || current == TAKEN) return false;
+            if (current.due == due) return true;
+            final Slot slot = slot(hosthash, due);
+            if (this.slots.replace(hosthash, current, slot)) {
+                this.queue.add(slot);
+                this.queue.remove(current);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * forget a host, regardless if it is scheduled or taken
+     * @param hosthash
+     */
+    public void remove(final String hosthash) {
+        final Slot slot = this.slots.remove(hosthash);
+        if (slot != null && slot != TAKEN) this.queue.remove(slot);
+    }
+
+    /**
+     * @return the due time of a scheduled host; Long.MAX_VALUE if the host is taken and Long.MIN_VALUE if it is unknown
+     */
+    public long due(final String hosthash) {
+        final Slot slot = this.slots.get(hosthash);
+        return slot == null ? Long.MIN_VALUE : slot.due;
+    }
+
+    /**
+     * @return the number of scheduled and taken hosts
+     */
+    public int size() {
+        return this.slots.size();
+    }
+
+    public boolean isEmpty() {
+        return this.slots.isEmpty();
+    }
+
+    public void clear() {
+        this.slots.clear();
+        this.queue.clear();
+    }
+}
@@ -275,7 +275,7 @@ public class LegacyBalancer implements Balancer {
 
     /**
      * get a list of domains that are currently maintained as domain stacks
-     * @return a map of clear text strings of host names to an integer array: {the size of the domain stack, guessed delta waiting time}
+     * @return a map of clear text strings of host names to an integer array: {the size of the domain stack, guessed delta waiting time, parallel loads}
      */
     @Override
     public Map<String, Integer[]> getDomainStackHosts(RobotsTxt robots) {
@@ -285,7 +285,7 @@ public class LegacyBalancer implements Balancer {
             final HostHandles hosthandles = entry.getValue();
             final int size = hosthandles.handleSet.size();
             final int delta = Latency.waitingRemainingGuessed(hostname, 80, hosthandles.hosthash, robots, ClientIdentification.yacyInternetCrawlerAgent);
-            map.put(hostname, new Integer[]{size, delta});
+            map.put(hostname, new Integer[]{size, delta, Latency.parallel(hosthandles.hosthash)});
         }
         return map;
     }
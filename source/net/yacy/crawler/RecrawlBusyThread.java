@@ -322,7 +322,7 @@ public class RecrawlBusyThread extends AbstractBusyThread {
             }
 
             if (!tobedeletedIDs.isEmpty()) try {
-                solrConnector.deleteByIds(tobedeletedIDs);
+                this.sb.index.fulltext().deleteByIds(tobedeletedIDs);
                 solrConnector.commit(false);
             } catch (final IOException e) {
                 ConcurrentLog.severe(THREAD_NAME, "error deleting IDs ", e);
@@ -31,13 +31,18 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.solr.client.solrj.SolrQuery;
@@ -54,12 +59,16 @@ import net.yacy.cora.federate.solr.FailCategory;
 import net.yacy.cora.federate.yacy.CacheStrategy;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.protocol.ConnectionInfo;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.crawler.HarvestProcess;
 import net.yacy.crawler.data.NoticedURL.StackType;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
+import net.yacy.crawler.retrieval.StreamResponse;
 import net.yacy.crawler.robots.RobotsTxtEntry;
+import net.yacy.kelondro.util.VirtualThreads;
 import net.yacy.kelondro.workflow.WorkflowJob;
 import net.yacy.peers.DHTSelection;
 import net.yacy.peers.Protocol;
@@ -76,9 +85,18 @@ public class CrawlQueues {
     private final static Request POISON_REQUEST = new Request();
     private final static ConcurrentLog log = new ConcurrentLog("CRAWLER");
 
+    /** if true, the content of the loaded resources is parsed while it is transferred if the parser reads it as a stream */
+    public static boolean streamParsing = false;
+
+    /** if true, documents which are in the index are requested with their validators and only loaded again if they were changed */
+    public static boolean conditionalRequests = true;
+
     private final Switchboard sb;
     private final Loader[] worker;
     private final ArrayBlockingQueue<Request> workerQueue;
+    private final ExecutorService fetcher;                // the virtual thread engine, or null if the loader threads are used
+    private final Semaphore fetchSlots;                   // limits the number of requests in the virtual thread engine
+    private final Map<String, Request> fetching;          // the requests in the virtual thread engine, by url hash
     private ArrayList<String> remoteCrawlProviderHashes;
 
     public  NoticedURL noticeURL;
@@ -96,6 +114,17 @@ public class CrawlQueues {
         this.workerQueue = new ArrayBlockingQueue<Request>(maxWorkers);
         this.remoteCrawlProviderHashes = null;
 
+        // the virtual thread engine loads every request in its own virtual thread; the thread waits for
+        // the network without holding an operating system thread, so there can be many more requests in flight
+        ExecutorService fetcher = null;
+        if (SwitchboardConstants.CRAWLER_FETCH_ENGINE_VIRTUAL.equals(sb.getConfig(SwitchboardConstants.CRAWLER_FETCH_ENGINE, SwitchboardConstants.CRAWLER_FETCH_ENGINE_THREADS))) {
+            fetcher = VirtualThreads.newThreadPerTaskExecutor("CrawlQueues.Fetch_");
+            if (fetcher == null) log.warn("virtual threads are not available in this JVM (Java 21 or later is required), using " + maxWorkers + " loader threads");
+        }
+        this.fetcher = fetcher;
+        this.fetchSlots = new Semaphore(fetcher == null ? 0 : Math.max(1, sb.getConfigInt(SwitchboardConstants.CRAWLER_FETCH_MAX_IN_FLIGHT, 2000)));
+        this.fetching = new ConcurrentHashMap<String, Request>();
+
         // start crawling management
         log.config("Starting Crawling Management");
         log.config("Opening noticeURL..");
@@ -157,6 +186,14 @@ public class CrawlQueues {
                 }
             }
         }
+        if (this.fetcher != null) {
+            this.fetcher.shutdown();
+            try {
+                if (!this.fetcher.awaitTermination(1, TimeUnit.SECONDS)) this.fetcher.shutdownNow();
+            } catch (final InterruptedException e) {
+                CrawlQueues.log.warn("Interrupted while waiting for fetch termination.");
+            }
+        }
         if (this.delegatedURL != null) this.delegatedURL.clear();
     }
 
@@ -181,7 +218,10 @@ public class CrawlQueues {
         //if (this.noticeURL.existsInStack(hash)) {
         //    return HarvestProcess.CRAWLER;
         //} // this is disabled because it prevents proper crawling of smb shares. The cause is unknown
-        for (final Request request: activeWorkerEntries().values()) {
+        if (this.fetching.containsKey(ASCII.String(hash))) {
+            return HarvestProcess.WORKER;
+        }
+        for (final Request request: activeLoaderEntries().values()) {
             if (Base64Order.enhancedCoder.equal(request.url().hash(), hash)) {
                 return HarvestProcess.WORKER;
             }
@@ -189,6 +229,36 @@ public class CrawlQueues {
         return null;
     }
     
+    /**
+     * tests for a set of hashes if they occur in any database. Other than exists(byte[])
+     * the entries of the loader are only read once for all hashes.
+     * @param hashes
+     * @return a map from the hash to the name of the database for all hashes which exist
+     */
+    public Map<String, HarvestProcess> exists(final Collection<byte[]> hashes) {
+        final Map<String, HarvestProcess> processes = new HashMap<>();
+        Set<String> loading = null;
+        for (final byte[] hash: hashes) {
+            final String h = ASCII.String(hash);
+            if (this.delegatedURL != null && this.delegatedURL.containsKey(h)) {
+                processes.put(h, HarvestProcess.DELEGATED);
+                continue;
+            }
+            if (this.fetching.containsKey(h)) {
+                processes.put(h, HarvestProcess.WORKER);
+                continue;
+            }
+            if (loading == null) {
+                loading = new HashSet<>();
+                for (final Request request: activeLoaderEntries().values()) {
+                    loading.add(ASCII.String(request.url().hash()));
+                }
+            }
+            if (loading.contains(h)) processes.put(h, HarvestProcess.WORKER);
+        }
+        return processes;
+    }
+
     /**
      * count the number of same host names in the worker
      * @param host
@@ -229,7 +299,11 @@ public class CrawlQueues {
                 return u;
             }
         }
-        for (final DigestURL url: activeWorkerEntries().keySet()) {
+        final Request fetched = this.fetching.get(ASCII.String(urlhash));
+        if (fetched != null) {
+            return fetched.url();
+        }
+        for (final DigestURL url: activeLoaderEntries().keySet()) {
             if (Base64Order.enhancedCoder.equal(url.hash(), urlhash)) {
                 return url;
             }
@@ -250,7 +324,16 @@ public class CrawlQueues {
         }
     }
     
+    /**
+     * @return the requests that are loaded at this moment, in the loader threads and in the virtual thread engine
+     */
     public Map<DigestURL, Request> activeWorkerEntries() {
+        final Map<DigestURL, Request> map = activeLoaderEntries();
+        for (final Request r: this.fetching.values()) map.put(r.url(), r);
+        return map;
+    }
+
+    private Map<DigestURL, Request> activeLoaderEntries() {
         synchronized (this.worker) {
             Map<DigestURL, Request> map = new HashMap<DigestURL, Request>();
             for (final Loader w: this.worker) {
@@ -330,7 +413,8 @@ public class CrawlQueues {
 
                 urlEntry = this.noticeURL.pop(NoticedURL.StackType.LOCAL, true, this.sb.crawler, this.sb.robots);
                 if (urlEntry == null) {
-                    continue;
+                    // no host can be accessed now, i.e. because the robots.txt of all hosts which are due is loading
+                    return false;
                 }
                 // System.out.println("DEBUG plasmaSwitchboard.processCrawling:
                 // profileHandle = " + profileHandle + ", urlEntry.url = " + urlEntry.url());
@@ -381,7 +465,9 @@ public class CrawlQueues {
                 if (urlEntry == null || urlEntry.url() == null) {
                     CrawlQueues.log.info(stats + ": urlEntry = null");
                 } else {
-                    if (!activeWorkerEntries().containsKey(urlEntry.url())) {
+                    if (this.fetcher != null) {
+                        fetch(urlEntry);
+                    } else if (!activeWorkerEntries().containsKey(urlEntry.url())) {
                         try {
                             ensureLoaderRunning();
                             this.workerQueue.put(urlEntry);
@@ -431,8 +517,8 @@ public class CrawlQueues {
         }
 
         // check again
-        if (this.workerQueue.remainingCapacity() == 0) {
-            return "too many workers active: " + this.workerQueue.size();
+        if (!loaderAvailable()) {
+            return "too many workers active: " + (this.fetcher == null ? this.workerQueue.size() : this.fetching.size());
         }
 
         final String cautionCause = this.sb.onlineCaution();
@@ -456,9 +542,9 @@ public class CrawlQueues {
         }
 
         // check again
-        if (this.workerQueue.remainingCapacity() == 0) {
+        if (!loaderAvailable()) {
             if (CrawlQueues.log.isFine()) {
-                CrawlQueues.log.fine("remoteCrawlLoaderJob: too many processes in loader queue, dismissed (" + "workerQueue=" + this.workerQueue.size() + "), httpClients = " + ConnectionInfo.getCount());
+                CrawlQueues.log.fine("remoteCrawlLoaderJob: too many processes in loader queue, dismissed (" + "workerQueue=" + this.workerQueue.size() + ", fetching=" + this.fetching.size() + "), httpClients = " + ConnectionInfo.getCount());
             }
             return false;
         }
@@ -703,6 +789,173 @@ public class CrawlQueues {
         }
     }
 
+    /**
+     * load a request from the loader threads or the virtual thread engine: check robots.txt,
+     * load the resource and hand it to the indexer, or record the error
+     * @param request
+     */
+    private void loadRequest(final Request request) {
+        final CrawlProfile profile = this.sb.crawler.get(UTF8.getBytes(request.profileHandle()));
+        try {
+            // checking robots.txt for http(s) resources
+            request.setStatus("worker-checkingrobots", WorkflowJob.STATUS_STARTED);
+            RobotsTxtEntry robotsEntry;
+            if ((request.url().getProtocol().equals("http") || request.url().getProtocol().equals("https")) &&
+                (robotsEntry = this.sb.robots.getEntry(request.url(), profile.getAgent())) != null &&
+                robotsEntry.isDisallowed(request.url())) {
+                //if (log.isFine()) log.logFine("Crawling of URL '" + request.url().toString() + "' disallowed by robots.txt.");
+                this.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_ROBOTS_RULE, "denied by robots.txt", -1);
+                request.setStatus("worker-disallowed", WorkflowJob.STATUS_FINISHED);
+            } else {
+                // starting a load from the internet
+                request.setStatus("worker-loading", WorkflowJob.STATUS_RUNNING);
+                String error = null;
+   
+                // load a resource and push queue entry to switchboard queue
+                // returns null if everything went fine, a fail reason string if a problem occurred
+                try {
+                    request.setStatus("loading", WorkflowJob.STATUS_RUNNING);
+                    final CacheStrategy cacheStrategy = profile == null ? CacheStrategy.IFEXIST : profile.cacheStrategy();
+                    if (conditionalRequests) this.setConditional(request);
+                    if (streamParsing) {
+                        // the indexer reads the content while it is loaded
+                        final StreamResponse streamResponse = this.sb.loader.openInputStream(request, cacheStrategy, BlacklistType.CRAWLER, profile.getAgent());
+                        if (streamResponse.getResponse().isNotModified()) {
+                            streamResponse.close();
+                            this.notModified(request);
+                        } else {
+                            request.setStatus("loaded", WorkflowJob.STATUS_RUNNING);
+                            final String storedFailMessage = this.sb.toIndexer(streamResponse);
+                            request.setStatus("enqueued-" + ((storedFailMessage == null) ? "ok" : "fail"), WorkflowJob.STATUS_FINISHED);
+                            error = (storedFailMessage == null) ? null : "not enqueued to indexer: " + storedFailMessage;
+                        }
+                    } else {
+                        final Response response = this.sb.loader.load(request, cacheStrategy, BlacklistType.CRAWLER, profile.getAgent());
+                        if (response == null) {
+                            request.setStatus("error", WorkflowJob.STATUS_FINISHED);
+                            if (CrawlQueues.log.isFine()) {
+                                CrawlQueues.log.fine("problem loading " + request.url().toString() + ": no content (possibly caused by cache policy)");
+                            }
+                            error = "no content (possibly caused by cache policy)";
+                        } else if (response.isNotModified()) {
+                            this.notModified(request);
+                        } else {
+                            request.setStatus("loaded", WorkflowJob.STATUS_RUNNING);
+                            final String storedFailMessage = this.sb.toIndexer(response);
+                            request.setStatus("enqueued-" + ((storedFailMessage == null) ? "ok" : "fail"), WorkflowJob.STATUS_FINISHED);
+                            error = (storedFailMessage == null) ? null : "not enqueued to indexer: " + storedFailMessage;
+                        }
+                    }
+                } catch (final IOException e) {
+                    request.setStatus("error", WorkflowJob.STATUS_FINISHED);
+                    if (CrawlQueues.log.isFine()) {
+                        CrawlQueues.log.fine("problem loading " + request.url().toString() + ": " + e.getMessage());
+                    }
+                    error = "load error - " + e.getMessage();
+                }
+   
+                if (error != null) {
+                    if (error.endsWith("$")) {
+                        // the "$" mark at the end of the error message means, that the error was already pushed to the error-db by the reporting method
+                        // thus we only push this message if we don't have that mark
+                        error = error.substring(0, error.length() - 1).trim();
+                    } else {
+                        this.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "cannot load: " + error, -1);
+                    }
+                    request.setStatus("worker-error", WorkflowJob.STATUS_FINISHED);
+                } else {
+                    request.setStatus("worker-processed", WorkflowJob.STATUS_FINISHED);
+                }
+            }
+        } catch (final Exception e) {
+            this.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
+            request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+        }
+    }
+
+    /**
+     * make the request of a document which is already in the index conditional. The load date of the indexed
+     * document was set by the crawl stacker when the request was stacked, so the index is not asked again here;
+     * the entity tag and the last modification date are taken from the response header in the cache
+     * if that header is not newer than the indexed document.
+     * @param request
+     */
+    private void setConditional(final Request request) {
+        final DigestURL url = request.url();
+        if (!url.isHTTP() && !url.isHTTPS()) return;
+        final Date loadDate = request.loaddate();
+        if (loadDate == null) return;
+        Date lastModified = loadDate;
+        String etag = null;
+        final ResponseHeader cached = Cache.getResponseHeader(url.hash());
+        // a cached header of a later load which was not indexed must not be used; one hour is allowed for clock differences
+        if (cached != null && cached.date().getTime() <= loadDate.getTime() + 3600000L) {
+            etag = cached.get(HeaderFramework.ETAG);
+            if (cached.containsKey(HeaderFramework.LAST_MODIFIED)) lastModified = cached.lastModified();
+        }
+        if (lastModified == null || lastModified.after(loadDate)) lastModified = loadDate;
+        request.setConditional(lastModified, etag);
+    }
+
+    /**
+     * the document of a conditional request was not modified: only refresh its dates in the index
+     * @param request
+     */
+    private void notModified(final Request request) {
+        try {
+            this.sb.index.refreshLoadDate(request.url());
+        } catch (final IOException e) {
+            CrawlQueues.log.warn("cannot refresh the load date of " + request.url().toNormalform(true) + ": " + e.getMessage());
+        }
+        if (CrawlQueues.log.isFine()) CrawlQueues.log.fine("not modified: " + request.url().toNormalform(true));
+        request.setStatus("notmodified", WorkflowJob.STATUS_FINISHED);
+    }
+
+    /**
+     * @return true if a loader thread or a slot in the virtual thread engine is free
+     */
+    private boolean loaderAvailable() {
+        return this.fetcher == null ? this.workerQueue.remainingCapacity() > 0 : this.fetchSlots.availablePermits() > 0;
+    }
+
+    /**
+     * load a request in its own virtual thread. The number of requests in flight is limited by the fetch slots;
+     * the politeness to the hosts is kept by the balancer which hands out a url only if its host may be accessed.
+     * @param request
+     */
+    private void fetch(final Request request) {
+        final String urlhash = ASCII.String(request.url().hash());
+        if (this.fetching.containsKey(urlhash)) return;
+        try {
+            this.fetchSlots.acquire();
+        } catch (final InterruptedException e) {
+            ConcurrentLog.logException(e);
+            return;
+        }
+        if (this.fetching.putIfAbsent(urlhash, request) != null) {
+            this.fetchSlots.release();
+            return;
+        }
+        request.setStatus("worker-initialized", WorkflowJob.STATUS_INITIATED);
+        try {
+            this.fetcher.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        loadRequest(request);
+                    } finally {
+                        CrawlQueues.this.fetching.remove(urlhash);
+                        CrawlQueues.this.fetchSlots.release();
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the engine is shut down
+            this.fetching.remove(urlhash);
+            this.fetchSlots.release();
+        }
+    }
+
     private void ensureLoaderRunning() {
         // check if there is at least one loader available
         for (int i = 0; i < this.worker.length; i++) {
@@ -733,68 +986,12 @@ public class CrawlQueues {
                     if (request == null) break; // we run this only for a specific time and then let the process die to clear up resources
                     request.setStatus("worker-initialized", WorkflowJob.STATUS_INITIATED);
                     this.setName("CrawlQueues.Loader(" + request.url().toNormalform(false) + ")");
-                    CrawlProfile profile = CrawlQueues.this.sb.crawler.get(UTF8.getBytes(request.profileHandle()));
                     try {
-                        // checking robots.txt for http(s) resources
-                        request.setStatus("worker-checkingrobots", WorkflowJob.STATUS_STARTED);
-                        RobotsTxtEntry robotsEntry;
-                        if ((request.url().getProtocol().equals("http") || request.url().getProtocol().equals("https")) &&
-                            (robotsEntry = CrawlQueues.this.sb.robots.getEntry(request.url(), profile.getAgent())) != null &&
-                            robotsEntry.isDisallowed(request.url())) {
-                            //if (log.isFine()) log.logFine("Crawling of URL '" + request.url().toString() + "' disallowed by robots.txt.");
-                            CrawlQueues.this.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_ROBOTS_RULE, "denied by robots.txt", -1);
-                            request.setStatus("worker-disallowed", WorkflowJob.STATUS_FINISHED);
-                        } else {
-                            // starting a load from the internet
-                            request.setStatus("worker-loading", WorkflowJob.STATUS_RUNNING);
-                            String error = null;
-   
-                            // load a resource and push queue entry to switchboard queue
-                            // returns null if everything went fine, a fail reason string if a problem occurred
-                            try {
-                                request.setStatus("loading", WorkflowJob.STATUS_RUNNING);
-                                final Response response = CrawlQueues.this.sb.loader.load(request, profile == null ? CacheStrategy.IFEXIST : profile.cacheStrategy(), BlacklistType.CRAWLER, profile.getAgent());
-                                if (response == null) {
-                                    request.setStatus("error", WorkflowJob.STATUS_FINISHED);
-                                    if (CrawlQueues.log.isFine()) {
-                                        CrawlQueues.log.fine("problem loading " + request.url().toString() + ": no content (possibly caused by cache policy)");
-                                    }
-                                    error = "no content (possibly caused by cache policy)";
-                                } else {
-                                    request.setStatus("loaded", WorkflowJob.STATUS_RUNNING);
-                                    final String storedFailMessage = CrawlQueues.this.sb.toIndexer(response);
-                                    request.setStatus("enqueued-" + ((storedFailMessage == null) ? "ok" : "fail"), WorkflowJob.STATUS_FINISHED);
-                                    error = (storedFailMessage == null) ? null : "not enqueued to indexer: " + storedFailMessage;
-                                }
-                            } catch (final IOException e) {
-                                request.setStatus("error", WorkflowJob.STATUS_FINISHED);
-                                if (CrawlQueues.log.isFine()) {
-                                    CrawlQueues.log.fine("problem loading " + request.url().toString() + ": " + e.getMessage());
-                                }
-                                error = "load error - " + e.getMessage();
-                            }
-   
-                            if (error != null) {
-                                if (error.endsWith("$")) {
-                                    // the "$" mark at the end of the error message means, that the error was already pushed to the error-db by the reporting method
-                                    // thus we only push this message if we don't have that mark
-                                    error = error.substring(0, error.length() - 1).trim();
-                                } else {
-                                    CrawlQueues.this.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "cannot load: " + error, -1);
-                                }
-                                request.setStatus("worker-error", WorkflowJob.STATUS_FINISHED);
-                            } else {
-                                request.setStatus("worker-processed", WorkflowJob.STATUS_FINISHED);
-                            }
-                        }
-                    } catch (final Exception e) {
-                        CrawlQueues.this.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, e.getMessage() + " - in worker", -1);
-                        request.setStatus("worker-exception", WorkflowJob.STATUS_FINISHED);
+                        CrawlQueues.this.loadRequest(request);
                     } finally {
                         request = null;
                         this.setName("CrawlQueues.Loader(WAITING)");
                     }
-                    profile = null;
                 }
             } catch (InterruptedException e2) {
                 ConcurrentLog.logException(e2);
@@ -24,9 +24,14 @@
 
 package net.yacy.crawler.data;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,6 +39,7 @@ import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.federate.yacy.CacheStrategy;
 import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.crawler.robots.RobotsTxtEntry;
 import net.yacy.kelondro.util.MemoryControl;
@@ -47,6 +53,37 @@ public class Latency {
     private static final int mapMaxSize = 1000;
     private static final ConcurrentHashMap<String, Host> map = new ConcurrentHashMap<>();
 
+    // the adaptive politeness: the number of parallel loads and a delay factor for each host follow the measured response times.
+    // Hosts that answer fast for many loads get more parallel loads, slow answers, timeouts and refusals (429, 503) reduce them again.
+    public static boolean adaptive = true;
+    public static int adaptiveMaxParallel = 4;     // the maximum number of parallel loads for a host in the internet; intranet hosts get twice as many
+    public static int adaptiveFastLatency = 300;   // loads which are not slower than this (milliseconds) count for more parallel loads
+    public static int adaptiveSlowLatency = 5000;  // loads which are slower than this (milliseconds) halve the parallel loads
+    private static final float maxDelayFactor = 16.0f;
+    private static final long maxRetryAfter = 600000; // a Retry-After header is respected up to this time (milliseconds)
+
+    // the listeners which are informed about each access to a host
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * a listener is informed whenever a host is accessed by a loader, i.e. when its access time changes
+     */
+    public interface Listener {
+        public void accessed(String hosthash, Host host);
+    }
+
+    public static void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static void accessed(final String hosthash, final Host host) {
+        for (final Listener listener: listeners) listener.accessed(hosthash, host);
+    }
+
     /**
      * update the latency entry after a host was selected for queueing into the loader
      * @param url
@@ -58,7 +95,7 @@ public class Latency {
         final String hosthash = url.hosthash();
         Host h = map.get(hosthash);
         if (h == null) {
-            h = new Host(host, Switchboard.getSwitchboard().getConfigInt("crawler.defaultAverageLatency", 500), robotsCrawlDelay);
+            h = new Host(host, url.isLocal(), Switchboard.getSwitchboard().getConfigInt("crawler.defaultAverageLatency", 500), robotsCrawlDelay);
             if (map.size() > mapMaxSize || MemoryControl.shortStatus()) map.clear();
             map.put(hosthash, h);
         }
@@ -75,12 +112,14 @@ public class Latency {
         final String hosthash = url.hosthash();
         Host h = map.get(hosthash);
         if (h == null) {
-            h = new Host(host, 500, 0);
+            h = new Host(host, url.isLocal(), 500, 0);
             if (map.size() > mapMaxSize || MemoryControl.shortStatus()) map.clear();
             map.put(hosthash, h);
         } else {
             h.update();
         }
+        h.inflight.incrementAndGet();
+        accessed(hosthash, h);
     }
 
     /**
@@ -94,12 +133,70 @@ public class Latency {
         final String hosthash = url.hosthash();
         Host h = map.get(hosthash);
         if (h == null) {
-            h = new Host(host, time, 0);
+            h = new Host(host, url.isLocal(), time, 0);
             if (map.size() > mapMaxSize || MemoryControl.shortStatus()) map.clear();
             map.put(hosthash, h);
         } else {
             h.update(time);
+            h.finished();
         }
+        h.loaded(time);
+        accessed(hosthash, h);
+    }
+
+    /**
+     * update the latency entry after a load from a host failed. A timeout reduces the parallel loads
+     * and increases the delay of the host; other errors only end the load.
+     * @param url
+     * @param time the time until the load failed in milliseconds
+     * @param e the cause of the failure
+     */
+    public static void updateAfterFailure(final DigestURL url, final long time, final IOException e) {
+        final String host = url.getHost();
+        if (host == null) return;
+        final String hosthash = url.hosthash();
+        final Host h = map.get(hosthash);
+        if (h == null) return;
+        h.update();
+        h.finished();
+        if (e instanceof InterruptedIOException) {
+            // socket and connect timeouts
+            h.refused(0);
+        } else if (time >= adaptiveSlowLatency) {
+            h.loaded(time);
+        }
+        accessed(hosthash, h);
+    }
+
+    /**
+     * update the latency entry after a host refused a request because it is overloaded (http status 429 or 503).
+     * The parallel loads and the delay are reduced, and the host is not accessed again before a given Retry-After time.
+     * @param url
+     * @param retryAfter the value of the Retry-After header, either seconds or a http date; may be null
+     */
+    public static void updateAfterRefusal(final DigestURL url, final String retryAfter) {
+        final String host = url.getHost();
+        if (host == null) return;
+        final Host h = map.get(url.hosthash());
+        if (h == null) return;
+        h.refused(retryAfterMillis(retryAfter, System.currentTimeMillis()));
+    }
+
+    /**
+     * @param retryAfter the value of a Retry-After header
+     * @param now the current time
+     * @return the waiting time demanded by the header in milliseconds, at most ten minutes; 0 if there is none
+     */
+    static long retryAfterMillis(final String retryAfter, final long now) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) return 0;
+        long wait;
+        try {
+            wait = Long.parseLong(retryAfter.trim()) * 1000L;
+        } catch (final NumberFormatException e) {
+            final Date date = HeaderFramework.parseHTTPDate(retryAfter);
+            wait = date == null ? 0 : date.getTime() - now;
+        }
+        return Math.max(0, Math.min(maxRetryAfter, wait));
     }
 
     private static Host host(final DigestURL url) {
@@ -164,11 +261,15 @@ public class Latency {
         // consider so many external accesses
         waiting = Math.max(waiting, (int) (host.average() * Switchboard.getSwitchboard().getConfigFloat(SwitchboardConstants.CRAWLER_LATENCY_FACTOR, 0.5f)));
 
+        // apply the adaptive parallel loads and delay factor of the host
+        waiting = host.adaptiveWaiting(waiting, agent.minimumDelta);
+
         // if the number of same hosts as in the url in the loading queue is greater than MaxSameHostInQueue, then increase waiting
         if (Switchboard.getSwitchboard().crawlQueues.hostcount(hostname) > Switchboard.getSwitchboard().getConfigInt(SwitchboardConstants.CRAWLER_MAX_SAME_HOST_IN_QUEUE, 20)) waiting += 3000;
 
         // the time since last access to the domain is the basis of the remaining calculation
-        final int timeSinceLastAccess = (int) (System.currentTimeMillis() - host.lastacc());
+        final long now = System.currentTimeMillis();
+        final int timeSinceLastAccess = (int) (now - host.lastacc());
 
         // find the delay as given by robots.txt on target site
         if (robots != null) {
@@ -177,7 +278,57 @@ public class Latency {
             waiting = Math.max(waiting, robotsDelay);
         }
 
-        return waiting - timeSinceLastAccess;
+        return (int) Math.max(waiting - timeSinceLastAccess, host.blockedUntil() - now);
+    }
+
+    /**
+     * guess the earliest time when a host may be accessed again.
+     * Other than waitingRemainingGuessed this does not look into the robots.txt and the loader queue,
+     * so it is cheap enough to be computed after each access; the result is a lower bound.
+     * @param host
+     * @param agent
+     * @return the time in milliseconds since epoch
+     */
+    public static long nextAccessGuessed(final Host host, final ClientIdentification.Agent agent) {
+        int waiting = agent.minimumDelta;
+        waiting += host.flux(waiting);
+        final Switchboard sb = Switchboard.getSwitchboard();
+        final float latencyFactor = sb == null ? 0.5f : sb.getConfigFloat(SwitchboardConstants.CRAWLER_LATENCY_FACTOR, 0.5f);
+        waiting = Math.max(waiting, (int) (host.average() * latencyFactor));
+        waiting = host.adaptiveWaiting(waiting, agent.minimumDelta);
+        return Math.max(host.lastacc() + waiting, host.blockedUntil());
+    }
+
+    /**
+     * guess the earliest time when a host may be accessed again
+     * @param hosthash
+     * @param agent
+     * @return the time in milliseconds since epoch; 0 if the host was never accessed before
+     */
+    public static long nextAccessGuessed(final String hosthash, final ClientIdentification.Agent agent) {
+        final Host host = map.get(hosthash);
+        return host == null ? 0 : nextAccessGuessed(host, agent);
+    }
+
+    /**
+     * apply the adaptive politeness of a host to a waiting time
+     * @param hosthash
+     * @param waiting the waiting time between two accesses of one loader
+     * @param minimumDelta the minimum delay between two accesses of a host in the internet, given by the agent
+     * @return the waiting time after the last access of the host; the given time if the host was never accessed before
+     */
+    public static int adaptiveWaiting(final String hosthash, final int waiting, final int minimumDelta) {
+        final Host host = map.get(hosthash);
+        return host == null ? waiting : host.adaptiveWaiting(waiting, minimumDelta);
+    }
+
+    /**
+     * @param hosthash
+     * @return the number of loads that may run in parallel for the host; 1 if the host was never accessed before
+     */
+    public static int parallel(final String hosthash) {
+        final Host host = map.get(hosthash);
+        return host == null ? 1 : host.parallel();
     }
 
     /**
@@ -207,18 +358,22 @@ public class Latency {
         // use the access latency as rule how fast we can access the server
         waiting = Math.max(waiting, (int) (host.average() * Switchboard.getSwitchboard().getConfigFloat(SwitchboardConstants.CRAWLER_LATENCY_FACTOR, 0.5f)));
 
+        // apply the adaptive parallel loads and delay factor of the host
+        waiting = host.adaptiveWaiting(waiting, agent.minimumDelta);
+
         // if the number of same hosts as in the url in the loading queue is greater than MaxSameHostInQueue, then increase waiting
         if (Switchboard.getSwitchboard().crawlQueues.hostcount(url.getHost()) > Switchboard.getSwitchboard().getConfigInt(SwitchboardConstants.CRAWLER_MAX_SAME_HOST_IN_QUEUE, 20)) waiting += 3000;
 
         // the time since last access to the domain is the basis of the remaining calculation
-        final int timeSinceLastAccess = (int) (System.currentTimeMillis() - host.lastacc());
+        final long now = System.currentTimeMillis();
+        final int timeSinceLastAccess = (int) (now - host.lastacc());
 
         // find the delay as given by robots.txt on target site
         final int robotsDelay = waitingRobots(url, robots, agent);
         if (robotsDelay < 0) return -timeSinceLastAccess; // no limits if granted exclusively for this peer
 
         waiting = Math.max(waiting, robotsDelay);
-        return waiting - timeSinceLastAccess;
+        return (int) Math.max(waiting - timeSinceLastAccess, host.blockedUntil() - now);
     }
 
     public static String waitingRemainingExplain(final DigestURL url, final RobotsTxt robots, final ClientIdentification.Agent agent) {
@@ -248,6 +403,11 @@ public class Latency {
         s.append(", host.average = ").append(host.average());
         waiting = Math.max(waiting, (int) (host.average() * Switchboard.getSwitchboard().getConfigFloat(SwitchboardConstants.CRAWLER_LATENCY_FACTOR, 0.5f)));
 
+        // apply the adaptive parallel loads and delay factor of the host
+        s.append(", parallel = ").append(host.inflight()).append("/").append(host.parallel());
+        s.append(", delayFactor = ").append(host.delayFactor());
+        waiting = host.adaptiveWaiting(waiting, agent.minimumDelta);
+
         // if the number of same hosts as in the url in the loading queue is greater than MaxSameHostInQueue, then increase waiting
         final int hostcount = Switchboard.getSwitchboard().crawlQueues.hostcount(url.getHost());
         if (hostcount > Switchboard.getSwitchboard().getConfigInt(SwitchboardConstants.CRAWLER_MAX_SAME_HOST_IN_QUEUE, 20)) {
@@ -306,13 +466,25 @@ public class Latency {
         private final AtomicLong lastacc;
         private final AtomicInteger count;
         private final String host;
+        private final boolean local;
         private final long robotsMinDelay;
-        private Host(final String host, final long time, long robotsMinDelay) {
+        private final AtomicInteger inflight;     // the number of loads that are running at this moment
+        private volatile int parallel;            // the number of loads that may run at the same time
+        private volatile float delayFactor;       // a factor >= 1 for the access delay, increased by slow answers and refusals
+        private volatile long blockedUntil;       // the host must not be accessed before this time, given by a Retry-After header
+        private int fastLoads;                    // the number of fast loads since the last change of the parallel loads
+        private Host(final String host, final boolean local, final long time, long robotsMinDelay) {
             this.host = host;
+            this.local = local;
             this.timeacc = new AtomicLong(time);
             this.count = new AtomicInteger(1);
             this.lastacc = new AtomicLong(System.currentTimeMillis());
             this.robotsMinDelay = robotsMinDelay;
+            this.inflight = new AtomicInteger(0);
+            this.parallel = 1;
+            this.delayFactor = 1.0f;
+            this.blockedUntil = 0;
+            this.fastLoads = 0;
         }
         private void update(final long time) {
             if (this.count.get() > 100) {
@@ -344,6 +516,74 @@ public class Latency {
         public long robotsDelay() {
             return this.robotsMinDelay;
         }
+        public int inflight() {
+            return this.inflight.get();
+        }
+        public int parallel() {
+            return this.parallel;
+        }
+        public float delayFactor() {
+            return this.delayFactor;
+        }
+        public long blockedUntil() {
+            return this.blockedUntil;
+        }
+        private void finished() {
+            // the counter may be lost if the host map was cleared during a load
+            this.inflight.updateAndGet(i -> Math.max(0, i - 1));
+        }
+        private int maxParallel() {
+            return this.local ? 2 * adaptiveMaxParallel : adaptiveMaxParallel;
+        }
+        /**
+         * adapt the parallel loads and the delay factor to the time of a load.
+         * The delay factor of a slowed down host decreases first; only then fast loads raise the parallel loads,
+         * one step after ten times the current number of parallel loads were fast.
+         * @param time the time to load a file in milliseconds
+         */
+        private synchronized void loaded(final long time) {
+            if (!adaptive) return;
+            if (time >= adaptiveSlowLatency) {
+                this.parallel = Math.max(1, this.parallel / 2);
+                this.delayFactor = Math.min(maxDelayFactor, this.delayFactor * 1.5f);
+                this.fastLoads = 0;
+            } else if (this.delayFactor > 1.0f) {
+                this.delayFactor = Math.max(1.0f, this.delayFactor * 0.9f);
+                this.fastLoads = 0;
+            } else if (time > adaptiveFastLatency) {
+                this.fastLoads = 0;
+            } else if (++this.fastLoads >= 10 * this.parallel) {
+                this.parallel = Math.min(maxParallel(), this.parallel + 1);
+                this.fastLoads = 0;
+            }
+        }
+        /**
+         * the host refused a request or did not answer in time: go back to one load at a time and double the delay
+         * @param retryAfter the time in milliseconds the host asked us to wait; 0 if not given
+         */
+        private synchronized void refused(final long retryAfter) {
+            if (!adaptive) return;
+            this.parallel = 1;
+            this.delayFactor = Math.min(maxDelayFactor, this.delayFactor * 2.0f);
+            this.fastLoads = 0;
+            if (retryAfter > 0) this.blockedUntil = Math.max(this.blockedUntil, System.currentTimeMillis() + retryAfter);
+        }
+        /**
+         * apply the adaptive politeness to a waiting time: the time is multiplied with the delay factor and,
+         * as long as not all parallel loads are running, divided by the number of parallel loads.
+         * Parallel loads never start two accesses of a host in the internet closer than the minimum delta of the agent.
+         * @param waiting the waiting time between two accesses of one loader
+         * @param minimumDelta the minimum delay between two accesses of a host in the internet
+         * @return the waiting time after the last access of the host
+         */
+        public int adaptiveWaiting(final int waiting, final int minimumDelta) {
+            if (!adaptive) return waiting;
+            long w = (long) (waiting * this.delayFactor);
+            final int p = this.parallel;
+            if (this.inflight.get() < p) w /= p;
+            if (!this.local) w = Math.max(w, Math.min(waiting, minimumDelta));
+            return (int) Math.min(Integer.MAX_VALUE, w);
+        }
         /**
          * Used by crawler to calculate additional access delay time for often accessed hosts
          * (access count > 10000 returns half of the range parameter) linear incrementet from 0 up to (range div 2)
@@ -162,7 +162,9 @@ public class FTPLoader {
             // some error logging
             final String detail = (berr.size() > 0) ? "Errorlog: " + berr.toString() : "";
             this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, " ftp server download, " + detail, -1);
-            throw new IOException("FTPLoader: Unable to download URL '" + request.url().toString() + "': " + detail);
+            final IOException e = new IOException("FTPLoader: Unable to download URL '" + request.url().toString() + "': " + detail);
+            Latency.updateAfterFailure(request.url(), System.currentTimeMillis() - start, e);
+            throw e;
         }
 
         Latency.updateAfterLoad(request.url(), System.currentTimeMillis() - start);
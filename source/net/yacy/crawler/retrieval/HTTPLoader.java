@@ -25,7 +25,6 @@
 
 package net.yacy.crawler.retrieval;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Locale;
@@ -41,10 +40,10 @@ import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.protocol.http.HTTPClient;
 import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.FinishingInputStream;
 import net.yacy.cora.util.HTTPInputStream;
 import net.yacy.cora.util.StrictLimitInputStream;
 import net.yacy.crawler.CrawlSwitchboard;
-import net.yacy.crawler.data.Cache;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.crawler.data.Latency;
 import net.yacy.kelondro.io.ByteCount;
@@ -82,14 +81,19 @@ public final class HTTPLoader {
         // load fulltext of html page
         Latency.updateBeforeLoad(entry.url());
         final long start = System.currentTimeMillis();
-        final Response doc = load(entry, profile, DEFAULT_CRAWLING_RETRY_COUNT, maxFileSize, blacklistType, agent);
-        Latency.updateAfterLoad(entry.url(), System.currentTimeMillis() - start);
-        return doc;
+        try {
+            final Response doc = load(entry, profile, DEFAULT_CRAWLING_RETRY_COUNT, maxFileSize, blacklistType, agent);
+            Latency.updateAfterLoad(entry.url(), System.currentTimeMillis() - start);
+            return doc;
+        } catch (final IOException e) {
+            Latency.updateAfterFailure(entry.url(), System.currentTimeMillis() - start, e);
+            throw e;
+        }
     }
 
     /**
-     * Open an input stream on a requested HTTP resource. When the resource content size is small
-     * (lower than {@link Response#CRAWLER_MAX_SIZE_TO_CACHE}, fully load it and use a ByteArrayInputStream instance.
+     * Open an input stream on a requested HTTP resource. The content is not loaded here, it is transferred
+     * while the stream is read; the connection is closed when the stream is closed.
      * @param request
      * @param profile crawl profile
      * @param retryCount remaining redirect retries count
@@ -103,6 +107,37 @@ public final class HTTPLoader {
             final Request request, CrawlProfile profile, final int retryCount,
             final int maxFileSize, final BlacklistType blacklistType, final ClientIdentification.Agent agent
         ) throws IOException {
+        final DigestURL url = request.url(); // the request is changed by a redirection
+        Latency.updateBeforeLoad(url);
+        final long start = System.currentTimeMillis();
+        final StreamResponse response;
+        try {
+            response = openStream(request, profile, retryCount, maxFileSize, blacklistType, agent);
+        } catch (final IOException e) {
+            Latency.updateAfterFailure(url, System.currentTimeMillis() - start, e);
+            throw e;
+        }
+        if (response.getContentStream() == null) {
+            Latency.updateAfterLoad(url, System.currentTimeMillis() - start);
+            return response;
+        }
+        // the load is finished when the content was transferred; until then it counts as a running load of the host
+        return new StreamResponse(response.getResponse(), new FinishingInputStream(response.getContentStream()) {
+            @Override
+            protected void finished(final IOException error) {
+                if (error == null) {
+                    Latency.updateAfterLoad(url, System.currentTimeMillis() - start);
+                } else {
+                    Latency.updateAfterFailure(url, System.currentTimeMillis() - start, error);
+                }
+            }
+        });
+    }
+
+    private StreamResponse openStream(
+            final Request request, CrawlProfile profile, final int retryCount,
+            final int maxFileSize, final BlacklistType blacklistType, final ClientIdentification.Agent agent
+        ) throws IOException {
         if (retryCount < 0) {
             this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "retry counter exceeded", -1);
             throw new IOException( "retry counter exceeded for URL " + request.url().toString() + ". Processing aborted.$");
@@ -139,8 +174,10 @@ public final class HTTPLoader {
         // create a request header
         final RequestHeader requestHeader = createRequestheader(request, agent);
 
-        // HTTP-Client
-        try (final HTTPClient client = new HTTPClient(agent)) {
+        // HTTP-Client; it is closed here unless its content stream is handed out
+        final HTTPClient client = new HTTPClient(agent);
+        boolean streaming = false;
+        try {
             client.setRedirecting(false); // we want to handle redirection
                                             // ourselves, so we don't index pages
                                             // twice
@@ -154,6 +191,10 @@ public final class HTTPLoader {
             final ResponseHeader responseHeader = new ResponseHeader(statusCode, client.getHttpResponse().getAllHeaders());
             String requestURLString = request.url().toNormalform(true);
 
+            // this must be checked before the redirection, 304 is in the range of the redirection codes
+            final Response notModified = notModifiedResponse(request, requestHeader, responseHeader, profile);
+            if (notModified != null) return new StreamResponse(notModified, null);
+
             // check redirection
             if (statusCode > 299 && statusCode < 310) {
                 // client.close(); // explicit close caused: warning: [try] explicit call to close() on an auto-closeable resource
@@ -204,7 +245,7 @@ public final class HTTPLoader {
 
                     // retry crawling with new url
                     request.redirectURL(redirectionUrl);
-                    return openInputStream(request, profile, retryCount - 1, maxFileSize, blacklistType, agent);
+                    return openStream(request, profile, retryCount - 1, maxFileSize, blacklistType, agent);
                 }
                 // we don't want to follow redirects
                 this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "redirection not wanted", statusCode);
@@ -213,51 +254,40 @@ public final class HTTPLoader {
                 // the transfer is ok
 
                 /*
-                 * When content is not large (less than Response.CRAWLER_MAX_SIZE_TO_CACHE), we have better cache it if cache is enabled and url is not local
+                 * Content length may already be known now : check it before opening a stream
                  */
-                long contentLength = client.getHttpResponse().getEntity().getContentLength();
-                InputStream contentStream;
-                if (profile != null && profile.storeHTCache() && contentLength > 0 && contentLength < (Response.CRAWLER_MAX_SIZE_TO_CACHE) && !url.isLocal()) {
-                    byte[] content = null;
-                    try {
-                        content = HTTPClient.getByteArray(client.getHttpResponse().getEntity(), maxFileSize);
-                        Cache.store(url, responseHeader, content);
-                    } catch (final IOException e) {
-                        this.log.warn("cannot write " + url + " to Cache (3): " + e.getMessage(), e);
-                    } finally {
-                        // client.close(); // explicit close caused: warning: [try] explicit call to close() on an auto-closeable resource
-                    }
-
-                    contentStream = new ByteArrayInputStream(content);
-                } else {
-                    /*
-                     * Content length may already be known now : check it before opening a stream
-                     */
-                    if (maxFileSize >= 0 && contentLength > maxFileSize) {
-                        throw new IOException("Content to download exceed maximum value of " + maxFileSize + " bytes");
-                    }
-                    /*
-                     * Create a HTTPInputStream delegating to
-                     * client.getContentstream(). Close method will ensure client is
-                     * properly closed.
-                     */
-                    contentStream = new HTTPInputStream(client);
-                    /* Anticipated content length may not be already known or incorrect : let's apply now the same eventual content size restriction as when loading in a byte array */
-                    if(maxFileSize >= 0) {
-                        contentStream = new StrictLimitInputStream(contentStream, maxFileSize,
-                                "Content to download exceed maximum value of " + Formatter.bytesToString(maxFileSize));
-                    }
+                final long contentLength = client.getHttpResponse().getEntity().getContentLength();
+                if (maxFileSize >= 0 && contentLength > maxFileSize) {
+                    this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.FINAL_PROCESS_CONTEXT, "file size limit exceeded", statusCode);
+                    throw new IOException("REJECTED URL " + request.url() + " because file size '" + contentLength + "' exceeds max filesize limit of " + maxFileSize + " bytes. (GET)$");
+                }
+                /*
+                 * Create a HTTPInputStream delegating to
+                 * client.getContentstream(). Close method will ensure client is
+                 * properly closed.
+                 */
+                InputStream contentStream = new HTTPInputStream(client);
+                /* Anticipated content length may not be already known or incorrect : let's apply now the same eventual content size restriction as when loading in a byte array */
+                if(maxFileSize >= 0) {
+                    contentStream = new StrictLimitInputStream(contentStream, maxFileSize,
+                            "Content to download exceed maximum value of " + Formatter.bytesToString(maxFileSize));
                 }
 
+                streaming = true;
                 return new StreamResponse(new Response(request, requestHeader, responseHeader, profile, false, null), contentStream);
             } else {
-                // client.close(); // explicit close caused: warning: [try] explicit call to close() on an auto-closeable resource
+                // the host is overloaded, slow down
+                if (statusCode == 429 || statusCode == 503) {
+                    Latency.updateAfterRefusal(request.url(), responseHeader.get(HeaderFramework.RETRY_AFTER));
+                }
                 // if the response has not the right response type then reject file
                 this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile,
                         FailCategory.TEMPORARY_NETWORK_FAILURE, "wrong http status code", statusCode);
                 throw new IOException("REJECTED WRONG STATUS TYPE '" + statusline
                         + "' for URL '" + requestURLString + "'$");
             }
+        } finally {
+            if (!streaming) client.close();
         }
     }
 
@@ -323,9 +353,33 @@ public final class HTTPLoader {
                 this.sb.getConfig("crawler.http.acceptCharset", DEFAULT_CHARSET));
         requestHeader.put(HeaderFramework.ACCEPT_ENCODING,
                 this.sb.getConfig("crawler.http.acceptEncoding", DEFAULT_ENCODING));
+        putConditionalHeaders(request, requestHeader);
         return requestHeader;
     }
 
+    /**
+     * ask only for a changed resource if the request knows the version which was loaded before
+     * @param request the request, which may have the date and the entity tag of the last load
+     * @param requestHeader the header of the http request
+     */
+    static void putConditionalHeaders(final Request request, final RequestHeader requestHeader) {
+        if (request.ifModifiedSince() != null) {
+            requestHeader.put(RequestHeader.IF_MODIFIED_SINCE, HeaderFramework.formatRFC1123(request.ifModifiedSince()));
+        }
+        if (request.ifNoneMatch() != null) {
+            requestHeader.put(RequestHeader.IF_NONE_MATCH, request.ifNoneMatch());
+        }
+    }
+
+    /**
+     * @return a response without content if the server answered a conditional request with 304 (not modified),
+     * because the resource is unchanged since it was loaded before; null for all other answers
+     */
+    static Response notModifiedResponse(final Request request, final RequestHeader requestHeader, final ResponseHeader responseHeader, final CrawlProfile profile) {
+        if (responseHeader.getStatusCode() != HttpStatus.SC_NOT_MODIFIED || !request.isConditional()) return null;
+        return new Response(request, requestHeader, responseHeader, profile, false, new byte[0]);
+    }
+
     private Response load(final Request request, CrawlProfile profile, final int retryCount, final int maxFileSize, final BlacklistType blacklistType, final ClientIdentification.Agent agent) throws IOException {
 
         if (retryCount < 0) {
@@ -376,6 +430,10 @@ public final class HTTPLoader {
             final ResponseHeader responseHeader = new ResponseHeader(statusCode, client.getHttpResponse().getAllHeaders());
             String requestURLString = request.url().toNormalform(true);
 
+            // this must be checked before the redirection, 304 is in the range of the redirection codes
+            final Response notModified = notModifiedResponse(request, requestHeader, responseHeader, profile);
+            if (notModified != null) return notModified;
+
             // check redirection
             if (statusCode > 299 && statusCode < 310) {
 
@@ -446,6 +504,10 @@ public final class HTTPLoader {
 
                 return response;
             } else {
+                // the host is overloaded, slow down
+                if (statusCode == 429 || statusCode == 503) {
+                    Latency.updateAfterRefusal(request.url(), responseHeader.get(HeaderFramework.RETRY_AFTER));
+                }
                 // if the response has not the right response type then reject file
                 this.sb.crawlQueues.errorURL.push(request.url(), request.depth(), profile, FailCategory.TEMPORARY_NETWORK_FAILURE, "wrong http status code", statusCode);
                 throw new IOException("REJECTED WRONG STATUS TYPE '" + client.getHttpResponse().getStatusLine() + "' for URL '" + requestURLString + "'$");
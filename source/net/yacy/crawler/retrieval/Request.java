@@ -96,6 +96,9 @@ public class Request extends WorkflowJob
     private String statusMessage;
     private int initialHash; // to provide a object hash that does not change even if the url changes because of redirection
     private int timezoneOffset;
+    private long loaddate; // the time when the url was loaded the last time, 0 if it was never loaded
+    private Date ifModifiedSince; // the validators of a conditional request; they are not stored with the request
+    private String ifNoneMatch;
     
     public Request() {
         // used only to create poison entries
@@ -186,7 +189,7 @@ public class Request extends WorkflowJob
             //this.anchors = (int) entry.getColLong(8);
             //this.forkfactor = (int) entry.getColLong(9);
             this.flags = new Bitfield(entry.getColBytes(10, true));
-            //this.loaddate = entry.getColLong(12);
+            this.loaddate = entry.getColLong(12);
             //this.lastmodified = entry.getColLong(13);
             this.statusMessage = "loaded(kelondroRow.Entry)";
             this.initialHash = this.url.hashCode();
@@ -214,7 +217,7 @@ public class Request extends WorkflowJob
 
     public Row.Entry toRow() {
         final byte[] appdatestr = NaturalOrder.encodeLong(this.appdate, rowdef.width(5));
-        final byte[] loaddatestr = NaturalOrder.encodeLong(0 /*loaddate*/, rowdef.width(12));
+        final byte[] loaddatestr = NaturalOrder.encodeLong(this.loaddate, rowdef.width(12));
         final byte[] serverdatestr = NaturalOrder.encodeLong(0 /*lastmodified*/, rowdef.width(13));
         // store the hash in the hash cache
         final byte[] namebytes = UTF8.getBytes(this.name);
@@ -247,6 +250,47 @@ public class Request extends WorkflowJob
     public void redirectURL(final DigestURL redirectedURL) {
         // replace old URL by new one. This should only be used in case of url redirection
         this.url = redirectedURL;
+        // the load date and the validators belong to the old url
+        this.loaddate = 0;
+        this.ifModifiedSince = null;
+        this.ifNoneMatch = null;
+    }
+
+    /**
+     * set the time when the url was loaded the last time; it is stored with the request
+     * @param loaddate the time in milliseconds, 0 if the url was never loaded
+     */
+    public void setLoadDate(final long loaddate) {
+        this.loaddate = loaddate < 0 ? 0 : loaddate;
+    }
+
+    /**
+     * @return the time when the url was loaded the last time, or null if it was never loaded
+     */
+    public Date loaddate() {
+        return this.loaddate == 0 ? null : new Date(this.loaddate);
+    }
+
+    /**
+     * make the request conditional: the resource is only transferred if it was changed since it was loaded before
+     * @param ifModifiedSince the last modification date of the known version, or null
+     * @param ifNoneMatch the entity tag of the known version, or null
+     */
+    public void setConditional(final Date ifModifiedSince, final String ifNoneMatch) {
+        this.ifModifiedSince = ifModifiedSince;
+        this.ifNoneMatch = ifNoneMatch == null || ifNoneMatch.isEmpty() ? null : ifNoneMatch;
+    }
+
+    public boolean isConditional() {
+        return this.ifModifiedSince != null || this.ifNoneMatch != null;
+    }
+
+    public Date ifModifiedSince() {
+        return this.ifModifiedSince;
+    }
+
+    public String ifNoneMatch() {
+        return this.ifNoneMatch;
     }
 
     public byte[] referrerhash() {
@@ -830,6 +830,13 @@ public class Response {
         return status == 200 || status == 203;
     }
 
+    /**
+     * @return true if this is the answer to a conditional request and the resource was not modified; there is no content then
+     */
+    public boolean isNotModified() {
+        return this.responseHeader != null && this.responseHeader.getStatusCode() == 304;
+    }
+
     public Date ifModifiedSince() {
         return (this.requestHeader == null) ? null : this.requestHeader.ifModifiedSince();
     }
@@ -0,0 +1,186 @@
+// TeeCacheInputStream.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.retrieval;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.crawler.data.Cache;
+import net.yacy.kelondro.io.ByteCount;
+
+/**
+ * a stream on the content of a response which is loading. The bytes that are read are counted and,
+ * if the content shall be cached, copied to a buffer; when the end of the content is reached, the
+ * copy is written to the cache. This lets a parser read the content while it is transferred without
+ * losing the cache entry. If a parser closes the stream before the end, the rest of the content is
+ * read on close as long as it is copied, so that the cache entry is complete. Content that is larger
+ * than {@link Response#CRAWLER_MAX_SIZE_TO_CACHE} is not copied at all.
+ */
+public class TeeCacheInputStream extends FilterInputStream {
+
+    private final Response response;
+    private ByteArrayOutputStream copy; // null if the content is not cached
+    private long count;
+    private boolean finished; // the end of the content was reached
+    private boolean accounted; // the count was added to the crawler traffic
+
+    /**
+     * @param in the content stream of the response
+     * @param response the response; its url and header are used for the cache entry
+     * @param store true if the content shall be written to the cache
+     */
+    public TeeCacheInputStream(final InputStream in, final Response response, final boolean store) {
+        super(in);
+        this.response = response;
+        final long size = response.size();
+        this.copy = store && size <= Response.CRAWLER_MAX_SIZE_TO_CACHE ? new ByteArrayOutputStream(size > 0 ? (int) size : 8192) : null;
+        this.count = 0;
+        this.finished = false;
+        this.accounted = false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = this.in.read();
+        if (b < 0) {
+            finish();
+        } else {
+            this.count++;
+            if (this.copy != null) {
+                this.copy.write(b);
+                checkCopy();
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int n = this.in.read(b, off, len);
+        if (n < 0) {
+            finish();
+        } else {
+            this.count += n;
+            if (this.copy != null) {
+                this.copy.write(b, off, n);
+                checkCopy();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * skipped bytes are read, so that the copy stays complete
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (r < 0) break;
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(final int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * @return the number of bytes read so far
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return true if the content was read to its end
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    private void checkCopy() {
+        if (this.copy.size() > Response.CRAWLER_MAX_SIZE_TO_CACHE) this.copy = null; // too large for caching
+    }
+
+    private void account() {
+        if (this.accounted) return;
+        this.accounted = true;
+        ByteCount.addAccountCount(ByteCount.CRAWLER, this.count);
+    }
+
+    private void finish() {
+        if (this.finished) return;
+        this.finished = true;
+        account();
+
+        // repair the content length like Response.setContent does; it is unknown for chunked responses
+        final ResponseHeader header = this.response.getResponseHeader();
+        if (header != null && header.getContentLengthLong() < this.count) {
+            header.put(HeaderFramework.CONTENT_LENGTH, Long.toString(this.count));
+        }
+
+        if (this.copy == null) return;
+        final byte[] content = this.copy.toByteArray();
+        this.copy = null;
+        try {
+            /* the content is stored with the url of the response, which is the last location after redirections */
+            Cache.store(this.response.url(), header, content);
+        } catch (final IOException e) {
+            Cache.log.warn("cannot write " + this.response.url() + " to Cache (5): " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (this.copy != null && !this.finished) {
+                // complete the copy for the cache; the wrapped stream limits the size
+                final byte[] buffer = new byte[8192];
+                while (this.copy != null && read(buffer, 0, buffer.length) >= 0) {}
+            }
+        } catch (final IOException e) {
+            this.copy = null; // an incomplete content is not cached
+        } finally {
+            account();
+            this.copy = null;
+            super.close();
+        }
+    }
+}
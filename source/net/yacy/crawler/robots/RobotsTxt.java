@@ -34,12 +34,14 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
@@ -73,6 +75,8 @@ public class RobotsTxt {
     private final LoaderDispatcher loader;
     /** Thread pool used to launch concurrent tasks */
     private final ThreadPoolExecutor threadPool;
+    /** the hosts (host:port) whose robots.txt is queued or loading in the thread pool */
+    private final Set<String> loading;
 
     private static class DomSync {
         private DomSync() {}
@@ -90,6 +94,7 @@ public class RobotsTxt {
                 new LinkedBlockingQueue<Runnable>(),
                 new NamePrefixThreadFactory(RobotsTxt.class.getSimpleName()));
         this.syncObjects = new ConcurrentHashMap<>();
+        this.loading = ConcurrentHashMap.newKeySet();
         this.tables = worktables;
         this.loader = loader;
         try {
@@ -224,7 +229,41 @@ public class RobotsTxt {
         }
     }
 
-    public void ensureExist(final MultiProtocolURL theURL, final ClientIdentification.Agent agent, boolean concurrent) {
+    /**
+     * test if the robots.txt of a host can be read without a download
+     * @param urlHostPort the host and port as given by getHostPort()
+     * @return true if the robots table has an entry for the host
+     */
+    public boolean isReady(final String urlHostPort) {
+        try {
+            final BEncodedHeap robotsTable = this.tables.getHeap(WorkTables.TABLE_ROBOTS_NAME);
+            return robotsTable.containsKey(robotsTable.encodedKey(urlHostPort));
+        } catch (final IOException e) {
+            return true; // there is nothing to wait for
+        }
+    }
+
+    /**
+     * test if getEntry() can answer for an url without a download. Only the robots.txt of hosts in the internet
+     * is loaded in advance by ensureExist(), other urls are always ready.
+     * @param theURL
+     * @return true if the robots.txt is in the robots table or the url is not a http url in the internet
+     */
+    public boolean isReady(final MultiProtocolURL theURL) {
+        if (!theURL.getProtocol().startsWith("http") || theURL.isLocal()) return true;
+        final String urlHostPort = getHostPort(theURL);
+        return urlHostPort == null || this.isReady(urlHostPort);
+    }
+
+    /**
+     * @param urlHostPort the host and port as given by getHostPort()
+     * @return true if the robots.txt of the host is queued or loading in a concurrent ensureExist()
+     */
+    public boolean isLoading(final String urlHostPort) {
+        return this.loading.contains(urlHostPort);
+    }
+
+    public void ensureExist(final MultiProtocolURL theURL, final ClientIdentification.Agent agent, final boolean concurrent) {
         if (theURL.isLocal()) return;
         final String urlHostPort = getHostPort(theURL);
         if (urlHostPort == null) return;
@@ -236,9 +275,17 @@ public class RobotsTxt {
             return;
         }
         if (robotsTable != null && robotsTable.containsKey(robotsTable.encodedKey(urlHostPort))) return;
+        if (concurrent && !this.loading.add(urlHostPort)) return; // the robots.txt is already queued
         final Thread t = new Thread("Robots.txt:ensureExist(" + theURL.toNormalform(true) + ")") {
             @Override
             public void run(){
+                try {
+                    load();
+                } finally {
+                    if (concurrent) RobotsTxt.this.loading.remove(urlHostPort);
+                }
+            }
+            private void load() {
                 // make or get a synchronization object
                 DomSync syncObj = RobotsTxt.this.syncObjects.get(urlHostPort);
                 if (syncObj == null) {
@@ -272,7 +319,11 @@ public class RobotsTxt {
             }
         };
         if (concurrent) {
-            this.threadPool.execute(t);
+            try {
+                this.threadPool.execute(t);
+            } catch (final RejectedExecutionException e) {
+                this.loading.remove(urlHostPort); // the pool is shut down
+            }
         } else {
             t.run();
         }
@@ -75,7 +75,7 @@ public final class Condenser extends Tokenizer {
             final boolean findDatesInContent,
             final int timezoneOffset
             ) {
-        super(document.dc_source(), indexText ? document.getTextString() : "", meaningLib, doAutotagging, scraper);
+        super(document.dc_source(), indexText ? document.getTextString() : "", meaningLib, doAutotagging, scraper, indexText ? fuzzySignatureFactory() : null);
         
         final String initialThreadName = Thread.currentThread().getName();
         Thread.currentThread().setName("condenser-" + document.dc_identifier()); // for debugging
@@ -95,7 +95,7 @@ public final class Condenser extends Tokenizer {
         this.languageIdentificator = new Identificator();
 
         // add the URL components to the word list
-        insertTextToWords(new SentenceReader(document.dc_source().toTokens()), 0, WordReferenceRow.flag_app_dc_identifier, this.RESULT_FLAGS, false, meaningLib);
+        insertTextToWords(document.dc_source().toTokens(), 0, WordReferenceRow.flag_app_dc_identifier, this.RESULT_FLAGS, false, meaningLib);
 
         Map.Entry<AnchorURL, String> entry;
         if (indexText) {
@@ -113,17 +113,17 @@ public final class Condenser extends Tokenizer {
             // phrase  98 is taken from the embedded anchor/hyperlinks description (REMOVED!)
             // phrase  99 is taken from the media Link url and anchor description
             // phrase 100 and above are lines from the text
-            insertTextToWords(new SentenceReader(document.dc_title()),       1, WordReferenceRow.flag_app_dc_title, this.RESULT_FLAGS, true, meaningLib);
+            insertTextToWords(document.dc_title(),       1, WordReferenceRow.flag_app_dc_title, this.RESULT_FLAGS, true, meaningLib);
             for (String description: document.dc_description()) {
-                insertTextToWords(new SentenceReader(description), 3, WordReferenceRow.flag_app_dc_description, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(description, 3, WordReferenceRow.flag_app_dc_description, this.RESULT_FLAGS, true, meaningLib);
             }
-            insertTextToWords(new SentenceReader(document.dc_creator()),     4, WordReferenceRow.flag_app_dc_creator, this.RESULT_FLAGS, true, meaningLib);
-            insertTextToWords(new SentenceReader(document.dc_publisher()),   5, WordReferenceRow.flag_app_dc_creator, this.RESULT_FLAGS, true, meaningLib);
-            insertTextToWords(new SentenceReader(document.dc_subject(' ')),  6, WordReferenceRow.flag_app_dc_description, this.RESULT_FLAGS, true, meaningLib);
+            insertTextToWords(document.dc_creator(),     4, WordReferenceRow.flag_app_dc_creator, this.RESULT_FLAGS, true, meaningLib);
+            insertTextToWords(document.dc_publisher(),   5, WordReferenceRow.flag_app_dc_creator, this.RESULT_FLAGS, true, meaningLib);
+            insertTextToWords(document.dc_subject(' '),  6, WordReferenceRow.flag_app_dc_description, this.RESULT_FLAGS, true, meaningLib);
             // missing: tags!
             final String[] titles = document.getSectionTitles();
             for (int i = 0; i < titles.length; i++) {
-                insertTextToWords(new SentenceReader(titles[i]), i + 10, WordReferenceRow.flag_app_emphasized, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(titles[i], i + 10, WordReferenceRow.flag_app_emphasized, this.RESULT_FLAGS, true, meaningLib);
             }
 
             // anchors: for text indexing we add only the anchor description
@@ -151,24 +151,24 @@ public final class Condenser extends Tokenizer {
             Iterator<Map.Entry<AnchorURL, String>> i = document.getAudiolinks().entrySet().iterator();
             while (i.hasNext()) {
                 entry = i.next();
-                insertTextToWords(new SentenceReader(entry.getKey().toNormalform(true)), 99, flag_cat_hasaudio, this.RESULT_FLAGS, false, meaningLib);
-                insertTextToWords(new SentenceReader(entry.getValue()), 99, flag_cat_hasaudio, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(entry.getKey().toNormalform(true), 99, flag_cat_hasaudio, this.RESULT_FLAGS, false, meaningLib);
+                insertTextToWords(entry.getValue(), 99, flag_cat_hasaudio, this.RESULT_FLAGS, true, meaningLib);
             }
 
             // video
             i = document.getVideolinks().entrySet().iterator();
             while (i.hasNext()) {
                 entry = i.next();
-                insertTextToWords(new SentenceReader(entry.getKey().toNormalform(true)), 99, flag_cat_hasvideo, this.RESULT_FLAGS, false, meaningLib);
-                insertTextToWords(new SentenceReader(entry.getValue()), 99, flag_cat_hasvideo, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(entry.getKey().toNormalform(true), 99, flag_cat_hasvideo, this.RESULT_FLAGS, false, meaningLib);
+                insertTextToWords(entry.getValue(), 99, flag_cat_hasvideo, this.RESULT_FLAGS, true, meaningLib);
             }
 
             // applications
             i = document.getApplinks().entrySet().iterator();
             while (i.hasNext()) {
                 entry = i.next();
-                insertTextToWords(new SentenceReader(entry.getKey().toNormalform(true)), 99, flag_cat_hasapp, this.RESULT_FLAGS, false, meaningLib);
-                insertTextToWords(new SentenceReader(entry.getValue()), 99, flag_cat_hasapp, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(entry.getKey().toNormalform(true), 99, flag_cat_hasapp, this.RESULT_FLAGS, false, meaningLib);
+                insertTextToWords(entry.getValue(), 99, flag_cat_hasapp, this.RESULT_FLAGS, true, meaningLib);
             }
 
             // images
@@ -179,8 +179,8 @@ public final class Condenser extends Tokenizer {
                 ientry = j.next();
                 url = ientry.url();
                 if (url == null) continue;
-                insertTextToWords(new SentenceReader(url.toNormalform(true)), 99, flag_cat_hasimage, this.RESULT_FLAGS, false, meaningLib);
-                insertTextToWords(new SentenceReader(ientry.alt()), 99, flag_cat_hasimage, this.RESULT_FLAGS, true, meaningLib);
+                insertTextToWords(url.toNormalform(true), 99, flag_cat_hasimage, this.RESULT_FLAGS, false, meaningLib);
+                insertTextToWords(ientry.alt(), 99, flag_cat_hasimage, this.RESULT_FLAGS, true, meaningLib);
             }
 
             // finally check all words for missing flag entry
@@ -211,12 +211,14 @@ public final class Condenser extends Tokenizer {
 
         // create hashes for duplicate detection
         // check dups with http://localhost:8090/solr/select?q=*:*&start=0&rows=3&fl=sku,fuzzy_signature_text_t,fuzzy_signature_l,fuzzy_signature_unique_b
-        EnhancedTextProfileSignature fuzzySignatureFactory = new EnhancedTextProfileSignature();
-        Map<String,String> sp = new HashMap<String,String>();
-        sp.put("quantRate", Float.toString(Ranking.getQuantRate())); // for minTokenLen = 2 the value should not be below 0.24; for minTokenLen = 3 the value must be not below 0.5!
-        sp.put("minTokenLen", Integer.toString(Ranking.getMinTokenLen()));
-        fuzzySignatureFactory.init(new MapSolrParams(sp));
-        fuzzySignatureFactory.add(text);
+        // the text profile was counted together with the words if the text was indexed
+        final EnhancedTextProfileSignature fuzzySignatureFactory;
+        if (this.profile == null) {
+            fuzzySignatureFactory = fuzzySignatureFactory();
+            fuzzySignatureFactory.add(text);
+        } else {
+            fuzzySignatureFactory = this.profile;
+        }
         this.fuzzy_signature = EnhancedTextProfileSignature.getSignatureLong(fuzzySignatureFactory);
         this.fuzzy_signature_text = fuzzySignatureFactory.getSignatureText().toString();
         this.exact_signature = EnhancedTextProfileSignature.getSignatureLong(text);
@@ -225,6 +227,15 @@ public final class Condenser extends Tokenizer {
         Thread.currentThread().setName(initialThreadName);
     }
     
+    private static EnhancedTextProfileSignature fuzzySignatureFactory() {
+        EnhancedTextProfileSignature fuzzySignatureFactory = new EnhancedTextProfileSignature();
+        Map<String,String> sp = new HashMap<String,String>();
+        sp.put("quantRate", Float.toString(Ranking.getQuantRate())); // for minTokenLen = 2 the value should not be below 0.24; for minTokenLen = 3 the value must be not below 0.5!
+        sp.put("minTokenLen", Integer.toString(Ranking.getMinTokenLen()));
+        fuzzySignatureFactory.init(new MapSolrParams(sp));
+        return fuzzySignatureFactory;
+    }
+
 	/**
 	 * Search for tags matching the given linked data types identifiers (absolute
 	 * URLs) in the given autotagging library. Then fill this instance "tags" map
@@ -256,7 +267,7 @@ public final class Condenser extends Tokenizer {
 	}
 
     private void insertTextToWords(
-            final SentenceReader text,
+            final String text,
             final int phrase,
             final int flagpos,
             final Bitfield flagstemplate,
@@ -265,11 +276,12 @@ public final class Condenser extends Tokenizer {
         if (text == null) return;
         String word;
         Word wprop;
-        WordTokenizer wordenum = new WordTokenizer(text, meaningLib);
+        final TokenScanner scanner = TokenScanner.get(text, false);
         try {
 	        int pip = 0;
-	        while (wordenum.hasMoreElements()) {
-	            word = wordenum.nextElement().toString();
+	        while (scanner.next()) {
+	            if (meaningLib != null) WordCache.learn(scanner.toStringBuilder());
+	            word = scanner.toString();
 	            if (useForLanguageIdentification) this.languageIdentificator.add(word); // langdetect is case sensitive
                     if (word.length() < 2) continue;
                     word = word.toLowerCase(Locale.ENGLISH);
@@ -283,8 +295,7 @@ public final class Condenser extends Tokenizer {
 	            //this.RESULT_DIFF_WORDS++;
                 }
         } finally {
-        	wordenum.close();
-        	wordenum = null;
+        	scanner.release();
         }
     }
 
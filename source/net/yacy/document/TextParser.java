@@ -40,6 +40,7 @@ import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.cora.util.CommonPattern;
+import net.yacy.cora.util.LatencyHistogram;
 import net.yacy.cora.util.StrictLimitInputStream;
 import net.yacy.document.parser.GenericXMLParser;
 import net.yacy.document.parser.XZParser;
@@ -90,6 +91,7 @@ public final class TextParser {
     private static final Map<String, String> ext2mime = new ConcurrentHashMap<String, String>();
     private static final Map<String, Object> denyMime = new ConcurrentHashMap<String, Object>();
     private static final Map<String, Object> denyExtensionx = new ConcurrentHashMap<String, Object>();
+    private static final Map<String, LatencyHistogram> parseTimes = new ConcurrentHashMap<String, LatencyHistogram>(); // by parser name
 
     static {
         initParser(new apkParser());
@@ -488,6 +490,7 @@ public final class TextParser {
         assert parser != null;
 
         if (AbstractParser.log.isFine()) AbstractParser.log.fine("Parsing " + location + " with mimeType '" + mimeType + "' and file extension '" + fileExt + "'.");
+        final long start = System.nanoTime();
         try {
             final Document[] docs;
             if(parser.isParseWithLimitsSupported()) {
@@ -502,9 +505,22 @@ public final class TextParser {
         	throw e;
         } catch (final Exception e) {
             throw new Parser.Failure("parser failed: " + parser.getName(), location);
+        } finally {
+            recordParseTime(parser, start);
         }
     }
 
+    private static void recordParseTime(final Parser parser, final long startNanos) {
+        parseTimes.computeIfAbsent(parser.getName(), name -> new LatencyHistogram()).addSince(startNanos);
+    }
+
+    /**
+     * @return the histograms of the time in microseconds that each parser needed for a document, by parser name; failed attempts are included
+     */
+    public static Map<String, LatencyHistogram> parseTimes() {
+        return parseTimes;
+    }
+
     /**
      * @param location the URL of the source
      * @param mimeType the mime type of the source, if known
@@ -550,6 +566,7 @@ public final class TextParser {
             	} else {
             	    bis = new ByteArrayInputStream(sourceArray);
             	}
+            	final long start = System.nanoTime();
                 try {
                 	if(parser.isParseWithLimitsSupported()) {
                 		docs = parser.parseWithLimits(location, mimeType, documentCharset, ignore_class_name, scraper, timezoneOffset, bis, maxLinks, maxBytes);
@@ -597,6 +614,7 @@ public final class TextParser {
                     failedParser.put(parser, new Parser.Failure(e.getMessage(), location));
                     //log.logWarning("tried parser '" + parser.getName() + "' to parse " + location.toNormalform(true, false) + " but failed: " + e.getMessage(), e);
                 } finally {
+                	recordParseTime(parser, start);
                 	try {
                 		bis.close();
                 	} catch(IOException ioe) {
@@ -655,6 +673,31 @@ public final class TextParser {
         }
     }
 
+    /**
+     * check if the given content can be parsed while it is loaded. This is the case if there is only one
+     * specific parser for the content (besides the generic parser) and this parser reads its input as a stream,
+     * which is expressed by the support of parsing within limits (html, xml, rss, archives).
+     * For other content, the stream would be read into a byte[] before parsing anyway.
+     * @param url
+     * @param mimeType
+     * @return true if the content is supported and can be parsed from a stream
+     */
+    public static boolean supportsStreaming(final MultiProtocolURL url, final String mimeType) {
+        final Set<Parser> idioms;
+        try {
+            idioms = parsers(url, mimeType);
+        } catch (final Parser.Failure e) {
+            return false;
+        }
+        Parser specific = null;
+        for (final Parser idiom: idioms) {
+            if (idiom instanceof genericParser) continue;
+            if (specific != null) return false;
+            specific = idiom;
+        }
+        return specific != null && specific.isParseWithLimitsSupported();
+    }
+
     /**
      * find a parser for a given url and mime type
      * because mime types returned by web severs are sometimes wrong, we also compute the mime type again
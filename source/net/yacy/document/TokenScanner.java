@@ -0,0 +1,386 @@
+// TokenScanner.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.document;
+
+import java.util.Arrays;
+
+import net.yacy.cora.document.analysis.EnhancedTextProfileSignature;
+import net.yacy.kelondro.data.word.Word;
+
+/**
+ * A single pass over a text which produces the same tokens as a WordTokenizer reading from a SentenceReader:
+ * words are the longest runs of letters and digits and every punctuation character is a token of its own.
+ * The current token is held in a reusable char buffer, so that no object is created for a token. The scanner
+ * also has a hash table of the distinct lowercase tokens which is searched with that buffer; a String is only
+ * created for a token which is not yet in the table.
+ * Scanners are kept per thread, get one with get() and hand it back with release().
+ */
+final class TokenScanner {
+
+    private static final int TOKEN_CAPACITY = 64, TABLE_CAPACITY = 1024; // initial sizes
+    private static final int TOKEN_CAPACITY_MAX = 1024, TABLE_CAPACITY_MAX = 1 << 16; // larger buffers are not kept after release
+
+    private static final ThreadLocal<TokenScanner> scanners = new ThreadLocal<TokenScanner>() {
+        @Override
+        protected TokenScanner initialValue() {
+            return new TokenScanner();
+        }
+    };
+
+    // the text and the sentence state, which follows SentenceReader.nextElement0()
+    private String text;
+    private int pos;
+    private boolean toEnd;         // scan the tokens behind the end of the sentences
+    private boolean ended;         // the SentenceReader would have stopped at an empty sentence
+    private int sentence;          // number of the current sentence
+    private boolean sentenceEmpty; // no char was added to the current sentence
+    private char lc;               // the last char of the current sentence
+    private boolean pre;           // a line break ends a sentence
+    private int preFrom, preCountdown;
+
+    // the current token
+    private char[] token = new char[TOKEN_CAPACITY];
+    private char[] lower = new char[TOKEN_CAPACITY];
+    private int length, tokenSentence;
+    private char pending; // a punctuation char which follows the current token, 0 if none
+
+    // the distinct tokens: slots is an open addressing hash table of entry numbers + 1
+    private int[] slots = new int[TABLE_CAPACITY];
+    private String[] keys = new String[TABLE_CAPACITY / 2];
+    private int[] hashes = new int[TABLE_CAPACITY / 2];
+    private Word[] words = new Word[TABLE_CAPACITY / 2];
+    private int[] counts = new int[TABLE_CAPACITY / 2];
+    private int[] profile = new int[TABLE_CAPACITY / 2]; // entries in the order of their first count
+    private int entries, profileSize;
+
+    private TokenScanner() {
+    }
+
+    /**
+     * get a scanner of the current thread for a text
+     * @param text the text to scan
+     * @param toEnd if true, the tokens after an empty sentence which ends the sentences are also scanned, see inSentences()
+     * @return a scanner, which must be given back with release() when the text is done
+     */
+    static TokenScanner get(final String text, final boolean toEnd) {
+        TokenScanner scanner = scanners.get();
+        if (scanner.text != null) scanner = new TokenScanner(); // in use by a caller further up the stack
+        scanner.text = text;
+        scanner.pos = 0;
+        scanner.toEnd = toEnd;
+        scanner.ended = false;
+        scanner.sentence = 0;
+        scanner.sentenceEmpty = true;
+        scanner.lc = ' ';
+        scanner.pre = false;
+        scanner.preFrom = Integer.MAX_VALUE;
+        scanner.preCountdown = 0;
+        scanner.length = 0;
+        scanner.pending = 0;
+        return scanner;
+    }
+
+    /**
+     * clear the scanner for the next text of this thread
+     */
+    void release() {
+        for (int i = this.entries - 1; i >= 0; i--) { // backwards, so that the probe sequences of the remaining entries stay intact
+            this.slots[slot(this.keys[i], this.hashes[i])] = 0;
+            this.keys[i] = null;
+            this.words[i] = null;
+            this.counts[i] = 0;
+        }
+        this.entries = 0;
+        this.profileSize = 0;
+        this.text = null;
+        if (this.token.length > TOKEN_CAPACITY_MAX) {
+            this.token = new char[TOKEN_CAPACITY];
+            this.lower = new char[TOKEN_CAPACITY];
+        }
+        if (this.slots.length > TABLE_CAPACITY_MAX) {
+            this.slots = new int[TABLE_CAPACITY];
+            this.keys = new String[TABLE_CAPACITY / 2];
+            this.hashes = new int[TABLE_CAPACITY / 2];
+            this.words = new Word[TABLE_CAPACITY / 2];
+            this.counts = new int[TABLE_CAPACITY / 2];
+            this.profile = new int[TABLE_CAPACITY / 2];
+        }
+    }
+
+    /**
+     * read the next token
+     * @return false if there are no more tokens
+     */
+    boolean next() {
+        if (this.ended && !this.toEnd) return false;
+        if (this.pending != 0) {
+            this.token[0] = this.pending;
+            this.length = 1;
+            this.pending = 0;
+            return found();
+        }
+        this.length = 0;
+        final String t = this.text;
+        while (this.pos < t.length()) {
+            final char nextChar = t.charAt(this.pos++);
+            if (this.ended) {
+                // behind the sentences only words are scanned
+                if (!SentenceReader.invisible(nextChar) && !SentenceReader.punctuation(nextChar)) {
+                    append(nextChar);
+                } else if (this.length > 0) {
+                    return found();
+                }
+                continue;
+            }
+            if (nextChar == 0 || (this.pre && (nextChar == '\n' || nextChar == '\r'))) {
+                // end of a sentence; an empty sentence ends all sentences
+                if (this.sentenceEmpty) {
+                    this.ended = true;
+                    if (!this.toEnd) return false;
+                } else {
+                    nextSentence();
+                }
+                if (this.length > 0) return found();
+                continue;
+            }
+            final char c = nextChar < ' ' ? ' ' : nextChar;
+            if (this.lc == ' ' && c == ' ') continue; // ignore double spaces
+            this.sentenceEmpty = false;
+            boolean end = false;
+            if (SentenceReader.punctuation(c)) {
+                if (this.length > 0) {
+                    this.pending = c;
+                } else {
+                    this.token[0] = c;
+                    this.length = 1;
+                    this.tokenSentence = this.sentence;
+                }
+                end = true;
+            } else if (SentenceReader.invisible(c)) {
+                end = this.length > 0;
+            } else {
+                append(c);
+            }
+            if (SentenceReader.punctuation(this.lc) && SentenceReader.invisible(c)) {
+                nextSentence();
+            } else {
+                this.lc = c;
+            }
+            if (end) return found();
+        }
+        return this.length > 0 && found();
+    }
+
+    private void append(final char c) {
+        if (this.length == 0) this.tokenSentence = this.sentence;
+        if (this.length == this.token.length) this.token = Arrays.copyOf(this.token, this.length * 2);
+        this.token[this.length++] = c;
+    }
+
+    private void nextSentence() {
+        this.sentence++;
+        this.sentenceEmpty = true;
+        this.lc = ' ';
+        this.pre = this.sentence >= this.preFrom;
+    }
+
+    private boolean found() {
+        if (this.preCountdown > 0 && --this.preCountdown == 0) this.preFrom = this.tokenSentence + 2;
+        return true;
+    }
+
+    /**
+     * let line breaks end the sentences, like WordTokenizer.pre(true) does. The WordTokenizer reads two tokens and the
+     * SentenceReader one sentence ahead, therefore this starts with the second sentence after the sentence of the
+     * token which follows two tokens after the current one.
+     */
+    void pre() {
+        if (this.preFrom == Integer.MAX_VALUE && this.preCountdown == 0) this.preCountdown = 2;
+    }
+
+    /**
+     * @return false if the current token comes after an empty sentence, where the SentenceReader stops reading the text.
+     * Such tokens are only produced if the scanner was requested with toEnd == true.
+     */
+    boolean inSentences() {
+        return !this.ended;
+    }
+
+    /**
+     * @return the length of the current token
+     */
+    int length() {
+        return this.length;
+    }
+
+    /**
+     * @return true if the current token is a punctuation char
+     */
+    boolean isPunctuation() {
+        return this.length == 1 && SentenceReader.punctuation(this.token[0]);
+    }
+
+    /**
+     * @return the current token in a new StringBuilder
+     */
+    StringBuilder toStringBuilder() {
+        return new StringBuilder(this.length).append(this.token, 0, this.length);
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.token, 0, this.length);
+    }
+
+    /**
+     * lowercase the current token char by char into the buffer which is searched by lookup()
+     * @return false if the token contains a char which String.toLowerCase(Locale.ENGLISH) translates depending on the
+     * context or to more than one char; then that lowercase word differs from the one in the buffer.
+     */
+    boolean lowercase() {
+        if (this.lower.length < this.length) this.lower = new char[this.token.length];
+        boolean simple = true;
+        for (int i = 0; i < this.length; i++) {
+            final char c = this.token[i];
+            if (c < 128) {
+                this.lower[i] = c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+            } else {
+                if (c == '\u0130' || c == '\u03A3') simple = false;
+                this.lower[i] = Character.toLowerCase(c);
+            }
+        }
+        return simple;
+    }
+
+    /**
+     * find the lowercase token from the last lowercase() call in the table of distinct tokens, the token is added if it is new
+     * @return the entry number
+     */
+    int lookup() {
+        int h = 0;
+        for (int i = 0; i < this.length; i++) h = 31 * h + this.lower[i];
+        int s = slot(h);
+        int e;
+        while ((e = this.slots[s]) != 0) {
+            e--;
+            if (this.hashes[e] == h && equal(this.keys[e])) return e;
+            s = (s + 1) & (this.slots.length - 1);
+        }
+        return add(s, new String(this.lower, 0, this.length), h);
+    }
+
+    /**
+     * find a token in the table of distinct tokens, the token is added if it is new
+     * @return the entry number
+     */
+    int lookup(final String key) {
+        final int h = key.hashCode();
+        int s = slot(h);
+        int e;
+        while ((e = this.slots[s]) != 0) {
+            e--;
+            if (this.hashes[e] == h && this.keys[e].equals(key)) return e;
+            s = (s + 1) & (this.slots.length - 1);
+        }
+        return add(s, key, h);
+    }
+
+    private boolean equal(final String key) {
+        if (key.length() != this.length) return false;
+        for (int i = 0; i < this.length; i++) if (key.charAt(i) != this.lower[i]) return false;
+        return true;
+    }
+
+    private int slot(final int h) {
+        return (h ^ (h >>> 16)) & (this.slots.length - 1);
+    }
+
+    private int slot(final String key, final int h) {
+        int s = slot(h);
+        while (this.keys[this.slots[s] - 1] != key) s = (s + 1) & (this.slots.length - 1);
+        return s;
+    }
+
+    private int add(int s, final String key, final int h) {
+        if (this.entries == this.keys.length) {
+            // the table is half full: double all arrays and rehash
+            final int capacity = this.keys.length * 2;
+            this.keys = Arrays.copyOf(this.keys, capacity);
+            this.hashes = Arrays.copyOf(this.hashes, capacity);
+            this.words = Arrays.copyOf(this.words, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.profile = Arrays.copyOf(this.profile, capacity);
+            this.slots = new int[capacity * 2];
+            for (int e = 0; e < this.entries; e++) {
+                int t = slot(this.hashes[e]);
+                while (this.slots[t] != 0) t = (t + 1) & (this.slots.length - 1);
+                this.slots[t] = e + 1;
+            }
+            s = slot(h);
+            while (this.slots[s] != 0) s = (s + 1) & (this.slots.length - 1);
+        }
+        final int e = this.entries++;
+        this.keys[e] = key;
+        this.hashes[e] = h;
+        this.slots[s] = e + 1;
+        return e;
+    }
+
+    /**
+     * @return the number of distinct tokens
+     */
+    int entries() {
+        return this.entries;
+    }
+
+    String key(final int entry) {
+        return this.keys[entry];
+    }
+
+    Word word(final int entry) {
+        return this.words[entry];
+    }
+
+    void word(final int entry, final Word word) {
+        this.words[entry] = word;
+    }
+
+    /**
+     * count a token for the text profile
+     */
+    void count(final int entry) {
+        if (this.counts[entry]++ == 0) this.profile[this.profileSize++] = entry;
+    }
+
+    /**
+     * add the counted tokens to a text profile signature in the order of their first appearance
+     */
+    void profile(final EnhancedTextProfileSignature signature) {
+        final String[] tokens = new String[this.profileSize];
+        final int[] c = new int[this.profileSize];
+        for (int i = 0; i < this.profileSize; i++) {
+            tokens[i] = this.keys[this.profile[i]];
+            c[i] = this.counts[this.profile[i]];
+        }
+        signature.add(tokens, c);
+    }
+}
@@ -33,6 +33,7 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import net.yacy.cora.document.WordCache;
+import net.yacy.cora.document.analysis.EnhancedTextProfileSignature;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.language.synonyms.SynonymLibrary;
 import net.yacy.cora.lod.vocabulary.Tagging;
@@ -59,14 +60,24 @@ public class Tokenizer {
     protected final Map<String, Word> words; // a string (the words) to (indexWord) - relation (key: words are lowercase)
     private final Set<String> synonyms; // a set of synonyms to the words
     protected final Map<String, Set<Tagging.Metatag>> tags = new HashMap<String, Set<Tagging.Metatag>>(); // a set of tags, discovered from Autotagging
+    protected final EnhancedTextProfileSignature profile; // the text profile which was counted together with the words, or null
     
     public int RESULT_NUMB_WORDS = -1;
     public int RESULT_NUMB_SENTENCES = -1;
     public Bitfield RESULT_FLAGS = new Bitfield(4);
 
     public Tokenizer(final DigestURL root, final String text, final WordCache meaningLib, boolean doAutotagging, final VocabularyScraper scraper) {
+        this(root, text, meaningLib, doAutotagging, scraper, null);
+    }
+
+    /**
+     * tokenize a text in a single pass, see TokenScanner
+     * @param profile if not null, the tokens of the whole text are also added to this text profile signature
+     */
+    protected Tokenizer(final DigestURL root, final String text, final WordCache meaningLib, boolean doAutotagging, final VocabularyScraper scraper, final EnhancedTextProfileSignature profile) {
         this.words = new TreeMap<String, Word>(NaturalOrder.naturalComparator);
         this.synonyms = new LinkedHashSet<String>();
+        this.profile = profile;
         assert text != null;
         final String[] wordcache = new String[LibraryProvider.autotagging.getMaxWordsInTerm() - 1];
         for (int i = 0; i < wordcache.length; i++) {
@@ -80,28 +91,57 @@ public class Tokenizer {
         boolean comb_indexof = false, last_last = false, last_index = false;
         //final Map<StringBuilder, Phrase> sentences = new HashMap<StringBuilder, Phrase>(100);
         if (LibraryProvider.autotagging.isEmpty()) doAutotagging = false;
+        Set<String> vocabularyNames = null;
+        final int profileminsize = profile == null ? Integer.MAX_VALUE : profile.getMinTokenLen() + 1;
+        final int minsize = Math.min(wordminsize, profileminsize);
 
         // read source
-        WordTokenizer wordenum = new WordTokenizer(new SentenceReader(text), meaningLib);
+        final TokenScanner scanner = TokenScanner.get(text, profile != null);
         try {
-            while (wordenum.hasMoreElements()) {
-                String word = wordenum.nextElement().toString().toLowerCase(Locale.ENGLISH);
+            while (scanner.next()) {
+                if (!scanner.inSentences()) {
+                    // the words are done, the rest of the text is only counted for the profile
+                    if (scanner.length() >= profileminsize) {
+                        scanner.lowercase();
+                        scanner.count(scanner.lookup());
+                    }
+                    continue;
+                }
+                if (meaningLib != null) WordCache.learn(scanner.toStringBuilder());
                 // handle punktuation (start new sentence)
-                if (word.length() == 1 && SentenceReader.punctuation(word.charAt(0))) {
+                if (scanner.isPunctuation()) {
                     // store sentence
                     if (wordInSentenceCounter > 1) // if no word in sentence repeated punktuation ".....", don't count as sentence
                         allsentencecounter++;
                     wordInSentenceCounter = 1;
                     continue;
                 }
-                if (word.length() < wordminsize) continue;
+                final int entry;
+                if (scanner.lowercase()) {
+                    if (scanner.length() < minsize) continue;
+                    entry = scanner.lookup();
+                    if (scanner.length() >= profileminsize) scanner.count(entry);
+                    if (scanner.length() < wordminsize) continue;
+                } else {
+                    // the token has a char which lowercases depending on the context, the profile uses the lowercase chars
+                    if (scanner.length() >= profileminsize) scanner.count(scanner.lookup());
+                    final String lowercase = scanner.toString().toLowerCase(Locale.ENGLISH);
+                    if (lowercase.length() < wordminsize) continue;
+                    entry = scanner.lookup(lowercase);
+                }
+                final String word = scanner.key(entry);
 
                 // get tags from autotagging
                 if (doAutotagging) {
-                    Set<String> vocabularyNames = LibraryProvider.autotagging.getVocabularyNames();
-                    extendVocabularies(root, scraper, vocabularyNames);
-                    
-                    extractAutoTagsFromText(wordcache, word, vocabularyNames);
+                    if (vocabularyNames == null) {
+                        // the vocabularies which are extended with terms from the scraper are not used to tag the first word
+                        vocabularyNames = LibraryProvider.autotagging.getVocabularyNames();
+                        final Set<String> firstVocabularyNames = new HashSet<String>(vocabularyNames);
+                        extendVocabularies(root, scraper, firstVocabularyNames);
+                        extractAutoTagsFromText(wordcache, word, firstVocabularyNames);
+                    } else {
+                        extractAutoTagsFromText(wordcache, word, vocabularyNames);
+                    }
                 }
                 // shift wordcache
                 System.arraycopy(wordcache, 1, wordcache, 0, wordcache.length - 1);
@@ -110,7 +150,7 @@ public class Tokenizer {
                 // check index.of detection
                 if (last_last && comb_indexof && word.equals("modified")) {
                     this.RESULT_FLAGS.set(flag_cat_indexof, true);
-                    wordenum.pre(true); // parse lines as they come with CRLF
+                    scanner.pre(); // parse lines as they come with CRLF
                 }
                 if (last_index && (wordminsize > 2 || word.equals("of"))) comb_indexof = true;
                 last_last = word.equals("last");
@@ -118,7 +158,7 @@ public class Tokenizer {
 
                 // store word
                 allwordcounter++;
-                Word wsp = this.words.get(word);
+                Word wsp = scanner.word(entry);
                 if (wsp != null) {
                     // word already exists
                     wsp.inc();
@@ -126,14 +166,18 @@ public class Tokenizer {
                     // word does not yet exist, create new word entry
                     wsp = new Word(allwordcounter, wordInSentenceCounter, allsentencecounter + 100); // nomal sentence start at 100 !
                     wsp.flags = this.RESULT_FLAGS.clone();
-                    this.words.put(word, wsp);
+                    scanner.word(entry, wsp);
                 }
                 // we now have the unique handle of the word, put it into the sentence:
                 wordInSentenceCounter++;
             }
+            for (int entry = 0; entry < scanner.entries(); entry++) {
+                final Word wsp = scanner.word(entry);
+                if (wsp != null) this.words.put(scanner.key(entry), wsp);
+            }
+            if (profile != null) scanner.profile(profile);
         } finally {
-            wordenum.close();
-            wordenum = null;
+            scanner.release();
         }
 
         if (pseudostemming) {
@@ -189,9 +233,10 @@ public class Tokenizer {
 	protected void extractAutoTagsFromText(final String[] wordcache, final String word, final Set<String> vocabularyNames) {
 		Tagging.Metatag tag;
 		if (vocabularyNames.size() > 0) {
+			final StringBuilder sb = new StringBuilder(80);
 			for (int wordc = 1; wordc <= wordcache.length + 1; wordc++) {
 				// wordc is number of words that are tested
-				StringBuilder sb = new StringBuilder();
+				sb.setLength(0);
 				if (wordc == 1) {
 					sb.append(word);
 				} else {
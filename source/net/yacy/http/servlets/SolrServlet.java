@@ -39,6 +39,7 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.UpdateRequestHandler;
 import org.apache.solr.handler.admin.LukeRequestHandler;
+import org.apache.solr.handler.loader.ContentStreamLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.request.SolrRequestInfo;
@@ -48,11 +49,17 @@ import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.servlet.ResponseUtils;
 import org.apache.solr.servlet.SolrRequestParsers;
 import org.apache.solr.servlet.cache.Method;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
 
 import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
 import net.yacy.cora.protocol.Domains;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.search.Switchboard;
+import net.yacy.search.index.Fulltext;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphSchema;
 
@@ -94,7 +101,14 @@ public class SolrServlet extends HttpServlet {
 			SolrRequestHandler handler;
 			if ("/solr/collection1/update".equals(hrequest.getServletPath())
 					|| "/solr/webgraph/update".equals(hrequest.getServletPath())) {
-				handler = new UpdateRequestHandler();
+				final Fulltext fulltext = sb.index.fulltext();
+				handler = !defaultConnector ? new UpdateRequestHandler() : new UpdateRequestHandler() {
+					@Override
+					protected ContentStreamLoader newLoader(SolrQueryRequest req, UpdateRequestProcessor processor) {
+						// the changed documents are not known to the url hash index
+						return super.newLoader(req, new URLHashIndexUpdater(processor, fulltext));
+					}
+				};
 			} else {
 				handler = new LukeRequestHandler();
 			}
@@ -121,6 +135,45 @@ public class SolrServlet extends HttpServlet {
 
 	}
 
+	/**
+	 * an update processor that applies the adds and deletes of an update request to the url hash index of the collection.
+	 * Deletes by query, merges and rollbacks change unknown documents, then the url hash index is rebuilt.
+	 */
+	private static class URLHashIndexUpdater extends UpdateRequestProcessor {
+
+		private final Fulltext fulltext;
+
+		public URLHashIndexUpdater(final UpdateRequestProcessor next, final Fulltext fulltext) {
+			super(next);
+			this.fulltext = fulltext;
+		}
+
+		@Override
+		public void processAdd(final AddUpdateCommand cmd) throws IOException {
+			final Object id = cmd.getSolrInputDocument().getFieldValue(CollectionSchema.id.getSolrFieldName());
+			super.processAdd(cmd);
+			if (id != null) this.fulltext.urlHashAdded(id.toString());
+		}
+
+		@Override
+		public void processDelete(final DeleteUpdateCommand cmd) throws IOException {
+			super.processDelete(cmd);
+			if (cmd.isDeleteById()) this.fulltext.urlHashDeleted(cmd.getId()); else this.fulltext.rebuildURLHashIndex();
+		}
+
+		@Override
+		public void processMergeIndexes(final MergeIndexesCommand cmd) throws IOException {
+			super.processMergeIndexes(cmd);
+			this.fulltext.rebuildURLHashIndex();
+		}
+
+		@Override
+		public void processRollback(final RollbackUpdateCommand cmd) throws IOException {
+			super.processRollback(cmd);
+			this.fulltext.rebuildURLHashIndex();
+		}
+	}
+
 	private void writeResponse(SolrQueryRequest solrReq, SolrQueryResponse solrRsp, HttpServletResponse response, QueryResponseWriter responseWriter,
 			Method reqMethod) throws IOException {
 		try {
@@ -31,10 +31,14 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
@@ -49,6 +53,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import net.yacy.cora.date.GenericFormatter;
 import net.yacy.cora.document.encoding.ASCII;
@@ -59,10 +64,12 @@ import net.yacy.cora.order.NaturalOrder;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.LookAheadIterator;
 import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.BloomFilter;
 import net.yacy.kelondro.rwi.Reference;
 import net.yacy.kelondro.rwi.ReferenceContainer;
 import net.yacy.kelondro.rwi.ReferenceFactory;
 import net.yacy.kelondro.rwi.ReferenceIterator;
+import net.yacy.kelondro.util.ByteRateLimiter;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.MergeIterator;
@@ -85,6 +92,7 @@ public class ArrayStack implements BLOB {
      */
 
     private static final long maxFileSize = Integer.MAX_VALUE;
+    public  static       int  bloomFilterBitsPerKey = 10; // bits per key for the key filter of read-only BLOB files; 0 disables the filters
     public  static final long oneMonth    = 1000L * 60L * 60L * 24L * 365L / 12L;
 
     private       int            keylength;
@@ -94,7 +102,7 @@ public class ArrayStack implements BLOB {
     private       long           fileSizeLimit;
     private       long           repositoryAgeMax;
     private       long           repositorySizeMax;
-    private       List<blobItem> blobs;
+    private volatile List<blobItem> blobs;
     private final String         prefix;
     private final int            buffersize;
     private final boolean        trimall;
@@ -125,13 +133,17 @@ public class ArrayStack implements BLOB {
         this.repositorySizeMax = Long.MAX_VALUE;
         this.trimall = trimall;
 
-        // init the thread pool for the keeperOf executor service
-        this.executor = new ThreadPoolExecutor(
-        		1,
+        // init the thread pool for the keeperOf and getAllConcurrently executor service
+        // the queue is unbounded, so the core pool size must be the maximum size to get any concurrency at all;
+        // idle threads time out, so there is no cost for ArrayStacks that are not queried
+        final ThreadPoolExecutor keeperExecutor = new ThreadPoolExecutor(
+        		Runtime.getRuntime().availableProcessors(),
         		Runtime.getRuntime().availableProcessors(), 100,
         		TimeUnit.MILLISECONDS,
         		new LinkedBlockingQueue<Runnable>(),
         		new NamePrefixThreadFactory(this.prefix));
+        keeperExecutor.allowCoreThreadTimeOut(true);
+        this.executor = keeperExecutor;
 
         // check existence of the heap directory
         if (heapLocation.exists()) {
@@ -152,7 +164,7 @@ public class ArrayStack implements BLOB {
                 FileUtils.deletedelete(new File(heapLocation, file));
                 deletions = true;
             }
-            if (file.endsWith(".idx") || file.endsWith(".gap")) {
+            if (file.endsWith(".idx") || file.endsWith(".gap") || file.endsWith(".blm")) {
                 final String s = file.substring(0, file.length() - 17);
                 if (!fh.contains(s)) {
                     FileUtils.deletedelete(new File(heapLocation, file));
@@ -232,7 +244,7 @@ public class ArrayStack implements BLOB {
     @Override
     public long mem() {
         long m = 0;
-        if (this.blobs != null) for (final blobItem b: this.blobs) m += b.blob.mem();
+        if (this.blobs != null) for (final blobItem b: this.blobs) m += b.blob.mem() + (b.filter == null ? 0 : b.filter.mem());
         return m;
     }
 
@@ -267,6 +279,73 @@ public class ArrayStack implements BLOB {
         this.blobs.add(new blobItem(d, location, oneBlob));
     }
 
+    /**
+     * mount files again which were unmounted for a merge that could not be started.
+     * The files are put back at the position of their date, so the stack stays ordered from the oldest to the newest file.
+     * @param files the unmounted files
+     */
+    public synchronized void remountBLOBs(final File[] files) {
+        for (final File f: files) {
+            if (!f.exists()) continue;
+            try {
+                mountBLOB(f, false);
+            } catch (final IOException e) {
+                ConcurrentLog.severe("BLOBArray", "cannot mount " + f.getName() + " again: " + e.getMessage(), e);
+                continue;
+            }
+            final blobItem b = this.blobs.remove(this.blobs.size() - 1);
+            int p = 0;
+            while (p < this.blobs.size() && this.blobs.get(p).creation.compareTo(b.creation) <= 0) p++;
+            this.blobs.add(p, b);
+        }
+    }
+
+    /**
+     * get the key filter for a read-only BLOB file. The filter is read from a dump next to the
+     * index dump of the heap file; if there is none, it is computed from the keys of the heap and written to a dump.
+     * @param location the heap file
+     * @param blob the opened heap
+     * @return the filter or null if the blob is writable, the filter is switched off or cannot be computed
+     */
+    private BloomFilter keyFilter(final File location, final BLOB blob) {
+        if (bloomFilterBitsPerKey <= 0 || blob instanceof Heap) return null;
+        final String fingerprint = HeapReader.fingerprintFileHash(location);
+        if (fingerprint == null) return null;
+        final File filterFile = HeapWriter.fingerprintBloomFile(location, fingerprint);
+        if (filterFile.exists()) try {
+            final BloomFilter filter = BloomFilter.load(filterFile);
+            if (filter.keylength() == this.keylength) return filter;
+        } catch (final IOException e) {
+            ConcurrentLog.warn("ArrayStack", "cannot read key filter " + filterFile.getName() + ": " + e.getMessage());
+        }
+        try {
+            final BloomFilter filter = new BloomFilter(this.keylength, blob.size(), bloomFilterBitsPerKey);
+            final Iterator<byte[]> i = blob.keys(true, false);
+            if (i == null) return null;
+            while (i.hasNext()) filter.add(i.next());
+            // remove filters of former versions of the heap file
+            final String[] l = location.getParentFile().list();
+            if (l != null) for (final String f: l) {
+                if (f.startsWith(location.getName()) && f.endsWith(".blm")) FileUtils.deletedelete(new File(location.getParentFile(), f));
+            }
+            filter.dump(filterFile);
+            return filter;
+        } catch (final IOException e) {
+            ConcurrentLog.warn("ArrayStack", "cannot compute key filter for " + location.getName() + ": " + e.getMessage());
+        } catch (final OutOfMemoryError e) {
+            ConcurrentLog.warn("ArrayStack", "not enough memory for the key filter of " + location.getName());
+        }
+        return null;
+    }
+
+    /**
+     * @return false if the blob of the item certainly does not contain the key
+     */
+    private static boolean mayContain(final blobItem bi, final byte[] key) {
+        final BloomFilter filter = bi.filter;
+        return filter == null || filter.mightContain(key);
+    }
+
     private synchronized void unmountBLOB(final File location, final boolean writeIDX) {
         blobItem b;
         for (int i = 0; i < this.blobs.size(); i++) {
@@ -325,6 +404,92 @@ public class ArrayStack implements BLOB {
         return bestMatch;
     }
 
+    /**
+     * the tier of a file in a size-tiered merge policy: all files up to the base size are in tier 0,
+     * and each following tier holds files that are up to factor times larger than the files of the tier before
+     */
+    private static int tier(final long size, final long tierBase, final int tierFactor) {
+        int t = 0;
+        long limit = tierBase;
+        while (size > limit && limit < Long.MAX_VALUE / tierFactor) {
+            limit *= tierFactor;
+            t++;
+        }
+        return t;
+    }
+
+    /**
+     * Unmount files for a size-tiered merge: the files are assigned to tiers of similar size and up to maxFiles files
+     * of the lowest tier that has at least two files are selected. Merging only files of similar size
+     * keeps the number of times that a reference is rewritten logarithmic in the index size.
+     * @param tierBase the size limit of the smallest tier
+     * @param tierFactor the size ratio between two tiers
+     * @param maxFiles the maximum number of files that are merged in one pass, at least 2
+     * @param maxResultSize the maximum size of the merged file
+     * @return the unmounted files in the order of the stack (oldest first) or null if no tier has two files that can be merged
+     */
+    public synchronized File[] unmountTiered(final long tierBase, final int tierFactor, final int maxFiles, final long maxResultSize) {
+        if (this.blobs.size() < 2) return null;
+        final TreeMap<Integer, List<blobItem>> tiers = tiers(tierBase, tierFactor);
+        for (final List<blobItem> tier: tiers.values()) {
+            if (tier.size() < 2) continue;
+            // take the smallest files of the tier
+            final List<blobItem> bySize = new ArrayList<blobItem>(tier);
+            Collections.sort(bySize, new Comparator<blobItem>() {
+                @Override
+                public int compare(final blobItem o1, final blobItem o2) {
+                    return Long.compare(o1.location.length(), o2.location.length());
+                }
+            });
+            final Set<blobItem> selected = new HashSet<blobItem>();
+            long size = 0, mem = 0;
+            for (final blobItem b: bySize) {
+                if (selected.size() >= Math.max(2, maxFiles)) break;
+                if (size + b.location.length() > maxResultSize) break;
+                size += b.location.length();
+                mem += b.blob.mem();
+                selected.add(b);
+            }
+            if (selected.size() < 2) continue;
+            if (!MemoryControl.request(mem, true)) return null;
+            final List<File> ff = new ArrayList<File>(selected.size());
+            for (final blobItem b: tier) if (selected.contains(b)) ff.add(b.location);
+            for (final File f: ff) unmountBLOB(f, false);
+            return ff.toArray(new File[ff.size()]);
+        }
+        return null;
+    }
+
+    /**
+     * The merge debt of a size-tiered merge policy: the number of bytes in all tiers that have more than one file.
+     * These bytes must be rewritten at least once until every tier holds a single file.
+     * @param tierBase the size limit of the smallest tier
+     * @param tierFactor the size ratio between two tiers
+     * @return the number of bytes that wait for a merge
+     */
+    public synchronized long mergeDebt(final long tierBase, final int tierFactor) {
+        long debt = 0;
+        for (final List<blobItem> tier: tiers(tierBase, tierFactor).values()) {
+            if (tier.size() < 2) continue;
+            for (final blobItem b: tier) debt += b.location.length();
+        }
+        return debt;
+    }
+
+    private TreeMap<Integer, List<blobItem>> tiers(final long tierBase, final int tierFactor) {
+        final TreeMap<Integer, List<blobItem>> tiers = new TreeMap<Integer, List<blobItem>>();
+        for (final blobItem b: this.blobs) {
+            final Integer t = Integer.valueOf(tier(b.location.length(), tierBase, tierFactor));
+            List<blobItem> tier = tiers.get(t);
+            if (tier == null) {
+                tier = new ArrayList<blobItem>();
+                tiers.put(t, tier);
+            }
+            tier.add(b);
+        }
+        return tiers;
+    }
+
     public synchronized File unmountOldest() {
         if (this.blobs.isEmpty()) return null;
         if (System.currentTimeMillis() - this.blobs.get(0).creation.getTime() < this.fileAgeLimit) return null;
@@ -374,8 +539,9 @@ public class ArrayStack implements BLOB {
      * return the number of BLOB files in this array
      * @return
      */
-    public synchronized int entries() {
-        return (this.blobs == null) ? 0 : this.blobs.size();
+    public int entries() {
+        final List<blobItem> blobList = this.blobs; // a copy-on-write list, reading its size needs no lock
+        return (blobList == null) ? 0 : blobList.size();
     }
 
     /**
@@ -446,17 +612,20 @@ public class ArrayStack implements BLOB {
         Date creation;
         File location;
         BLOB blob;
+        BloomFilter filter; // null if there is no filter for this blob
         public blobItem(final Date creation, final File location, final BLOB blob) {
             assert blob != null;
             this.creation = creation;
             this.location = location;
             this.blob = blob;
+            this.filter = keyFilter(location, blob);
         }
         public blobItem(final int buffer) throws IOException {
             // make a new blob file and assign it in this item
             this.creation = new Date();
             this.location = newBLOB(this.creation);
             this.blob = (buffer == 0) ? new HeapModifier(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering) : new Heap(this.location, ArrayStack.this.keylength, ArrayStack.this.ordering, buffer);
+            this.filter = null;
         }
     }
 
@@ -571,18 +740,18 @@ public class ArrayStack implements BLOB {
         if (this.blobs.isEmpty()) return null;
         if (this.blobs.size() == 1) {
             final blobItem bi = this.blobs.get(0);
-            if (bi.blob.containsKey(key)) return bi;
+            if (mayContain(bi, key) && bi.blob.containsKey(key)) return bi;
             return null;
         }
 
         // first check the current blob only because that has most probably the key if any has that key
         int bs1 = this.blobs.size() - 1;
         blobItem bi = this.blobs.get(bs1);
-        if (bi.blob.containsKey(key)) return bi;
+        if (mayContain(bi, key) && bi.blob.containsKey(key)) return bi;
         if (this.blobs.size() == 2) {
             // this should not be done concurrently
             bi = this.blobs.get(0);
-            if (bi.blob.containsKey(key)) return bi;
+            if (mayContain(bi, key) && bi.blob.containsKey(key)) return bi;
             return null;
         }
 
@@ -591,6 +760,7 @@ public class ArrayStack implements BLOB {
         int accepted = 0;
         for (int i = 0; i < bs1; i++) {
             final blobItem b = this.blobs.get(i);
+            if (!mayContain(b, key)) continue;
             try {
                 cs.submit(new Callable<blobItem>() {
                     @Override
@@ -642,7 +812,7 @@ public class ArrayStack implements BLOB {
         if (this.blobs == null || this.blobs.isEmpty()) return null;
         if (this.blobs.size() == 1) {
             final blobItem bi = this.blobs.get(0);
-            return bi.blob.get(key);
+            return mayContain(bi, key) ? bi.blob.get(key) : null;
         }
 
         final blobItem bi = keeperOf(key);
@@ -682,6 +852,67 @@ public class ArrayStack implements BLOB {
         return new BlobValues(key);
     }
 
+    /**
+     * get all BLOBs in the array, reading all BLOB files at the same time.
+     * In contrast to getAll() the time for this does not grow with the number of BLOB files
+     * as long as enough threads are available in the executor.
+     * @param key
+     * @param timeout the maximum time in milliseconds to wait for the results; BLOBs that are not read in time are omitted
+     * @return the BLOBs for the key, in the same order as getAll() would return them (oldest BLOB file first)
+     * @throws IOException if one of the BLOB files could not be read
+     * @throws SpaceExceededException
+     */
+    public List<byte[]> getAllConcurrently(final byte[] key, final long timeout) throws IOException, SpaceExceededException {
+        final List<blobItem> blobList = this.blobs;
+        if (blobList == null) return new ArrayList<byte[]>(0);
+        final long deadline = System.currentTimeMillis() + timeout;
+        final List<blobItem> items = new ArrayList<blobItem>(blobList);
+        final List<byte[]> result = new ArrayList<byte[]>(items.size());
+        final List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>(items.size());
+        for (final blobItem bi: items) {
+            final BLOB b = bi.blob;
+            if (b == null || !mayContain(bi, key)) continue;
+            final Callable<byte[]> reader = new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException, SpaceExceededException {
+                    return b.get(key);
+                }
+            };
+            try {
+                futures.add(this.executor.submit(reader));
+            } catch (final RejectedExecutionException e) {
+                // the executor is shutting down; read the blob in this thread
+                final FutureTask<byte[]> task = new FutureTask<byte[]>(reader);
+                task.run();
+                futures.add(task);
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            final Future<byte[]> f = futures.get(i);
+            try {
+                final byte[] n = f.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (n != null) result.add(n);
+            } catch (final TimeoutException e) {
+                ConcurrentLog.warn("ArrayStack", "getAllConcurrently: timeout after " + i + " of " + futures.size() + " files, timeout = " + timeout);
+                for (int j = i; j < futures.size(); j++) futures.get(j).cancel(false);
+                break;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (int j = i; j < futures.size(); j++) futures.get(j).cancel(false);
+                break;
+            } catch (final ExecutionException e) {
+                for (int j = i + 1; j < futures.size(); j++) futures.get(j).cancel(false);
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) throw (IOException) cause;
+                if (cause instanceof SpaceExceededException) throw (SpaceExceededException) cause;
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IOException(cause);
+            }
+        }
+        return result;
+    }
+
     private class BlobValues extends LookAheadIterator<byte[]> {
 
         private final Iterator<blobItem> bii;
@@ -695,8 +926,9 @@ public class ArrayStack implements BLOB {
         @Override
         protected byte[] next0() {
             while (this.bii.hasNext()) {
-                final BLOB b = this.bii.next().blob;
-                if (b == null) continue;
+                final blobItem bi = this.bii.next();
+                final BLOB b = bi.blob;
+                if (b == null || !mayContain(bi, this.key)) continue;
                 try {
                     final byte[] n = b.get(this.key);
                     if (n != null) return n;
@@ -722,6 +954,7 @@ public class ArrayStack implements BLOB {
     public synchronized long length(final byte[] key) throws IOException {
         long l;
         for (final blobItem bi: this.blobs) {
+            if (!mayContain(bi, key)) continue;
             l = bi.blob.length(key);
             if (l >= 0) return l;
         }
@@ -752,8 +985,9 @@ public class ArrayStack implements BLOB {
         @Override
         protected Long next0() {
             while (this.bii.hasNext()) {
-                final BLOB b = this.bii.next().blob;
-                if (b == null) continue;
+                final blobItem bi = this.bii.next();
+                final BLOB b = bi.blob;
+                if (b == null || !mayContain(bi, this.key)) continue;
                 try {
                     final long l = b.length(this.key);
                     if (l >= 0) return Long.valueOf(l);
@@ -923,10 +1157,40 @@ public class ArrayStack implements BLOB {
     public File mergeMount(final File f1, final File f2,
             final ReferenceFactory<? extends Reference> factory,
             final File newFile, final int writeBuffer) {
-        if (f2 == null) {
+        return mergeMount(f1, f2, factory, newFile, writeBuffer, null);
+    }
+
+    /**
+     * merge two blob files into one, limiting the write throughput
+     * @param limiter the write throughput limit or null for no limit
+     * @return the target file where the given files are merged in
+     */
+    public File mergeMount(final File f1, final File f2,
+            final ReferenceFactory<? extends Reference> factory,
+            final File newFile, final int writeBuffer, final ByteRateLimiter limiter) {
+        return mergeMount(f2 == null ? new File[]{f1} : new File[]{f1, f2}, factory, newFile, writeBuffer, limiter);
+    }
+
+    /**
+     * merge any number of blob files into one in a single pass: all files are read at the same time
+     * and the containers of the same term are merged before they are written. Compared to a sequence of
+     * pairwise merges this writes each reference only once. If only one file is given, it is rewritten.
+     * On equal references the one from the file with the lowest index in the array is kept.
+     * @param files the files to merge, in the order of the stack (oldest first)
+     * @param factory
+     * @param newFile
+     * @param writeBuffer
+     * @param limiter the write throughput limit or null for no limit
+     * @return the target file where the given files are merged in
+     */
+    public File mergeMount(final File[] files,
+            final ReferenceFactory<? extends Reference> factory,
+            final File newFile, final int writeBuffer, final ByteRateLimiter limiter) {
+        if (files.length == 1) {
             // this is a rewrite
+            final File f1 = files[0];
             ConcurrentLog.info("BLOBArray", "rewrite of " + f1.getName());
-            final File resultFile = rewriteWorker(factory, this.keylength, this.ordering, f1, newFile, writeBuffer);
+            final File resultFile = rewriteWorker(factory, this.keylength, this.ordering, f1, newFile, writeBuffer, limiter);
             if (resultFile == null) {
                 ConcurrentLog.warn("BLOBArray", "rewrite of file " + f1 + " returned null. newFile = " + newFile);
                 return null;
@@ -940,85 +1204,92 @@ public class ArrayStack implements BLOB {
             ConcurrentLog.info("BLOBArray", "rewrite of " + f1.getName() + " into " + resultFile);
             return resultFile;
         }
-        ConcurrentLog.info("BLOBArray", "merging " + f1.getName() + " with " + f2.getName());
-        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, f1, f2, newFile, writeBuffer);
+        final String names = names(files);
+        ConcurrentLog.info("BLOBArray", "merging " + names);
+        final File resultFile = mergeWorker(factory, this.keylength, this.ordering, files, newFile, writeBuffer, limiter);
         if (resultFile == null) {
-            ConcurrentLog.warn("BLOBArray", "merge of files " + f1 + ", " + f2 + " returned null. newFile = " + newFile);
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names + " returned null. newFile = " + newFile);
             return null;
         }
         try {
             mountBLOB(resultFile, false);
         } catch (final IOException e) {
-            ConcurrentLog.warn("BLOBArray", "merge of files " + f1 + ", " + f2 + " successfull, but read failed. resultFile = " + resultFile);
+            ConcurrentLog.warn("BLOBArray", "merge of files " + names + " successfull, but read failed. resultFile = " + resultFile);
             return null;
         }
-        ConcurrentLog.info("BLOBArray", "merged " + f1.getName() + " with " + f2.getName() + " into " + resultFile);
+        ConcurrentLog.info("BLOBArray", "merged " + names + " into " + resultFile);
         return resultFile;
     }
 
+    /**
+     * @return the names of the files, separated by comma, for log messages
+     */
+    public static String names(final File[] files) {
+        final StringBuilder sb = new StringBuilder();
+        for (final File f: files) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(f.getName());
+        }
+        return sb.toString();
+    }
+
     private static <ReferenceType extends Reference> File mergeWorker(
                     final ReferenceFactory<ReferenceType> factory,
-                    final int keylength, final ByteOrder order, final File f1, final File f2, final File newFile, final int writeBuffer) {
-        // iterate both files and write a new one
-        ReferenceIterator<ReferenceType> i1 = null;
+                    final int keylength, final ByteOrder order, final File[] files, final File newFile, final int writeBuffer, final ByteRateLimiter limiter) {
+        // open all files; empty files are not needed any more
+        final List<ReferenceIterator<ReferenceType>> iterators = new ArrayList<ReferenceIterator<ReferenceType>>(files.length);
+        final List<File> inputs = new ArrayList<File>(files.length);
         try {
-            i1 = new ReferenceIterator<ReferenceType>(f1, factory);
-            ReferenceIterator<ReferenceType> i2 = null;
-            try {
-                i2 = new ReferenceIterator<ReferenceType>(f2, factory);
-                if (!i1.hasNext()) {
-                    if (i2.hasNext()) {
-                        HeapWriter.delete(f1);
-                        if (f2.renameTo(newFile)) return newFile;
-                        return f2;
-                    }
-                    HeapWriter.delete(f1);
-                    HeapWriter.delete(f2);
-                    return null;
-                } else if (!i2.hasNext()) {
-                    HeapWriter.delete(f2);
-                    if (f1.renameTo(newFile)) return newFile;
-                    return f1;
-                }
-                assert i1.hasNext();
-                assert i2.hasNext();
-                final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+            for (final File f: files) {
+                final ReferenceIterator<ReferenceType> i;
                 try {
-                    final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
-                    merge(i1, i2, order, writer);
-                    writer.close(true);
+                    i = new ReferenceIterator<ReferenceType>(f, factory);
                 } catch (final IOException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
-                    return null;
-                } catch (final SpaceExceededException e) {
-                    ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
-                    HeapWriter.delete(tmpFile);
-                    HeapWriter.delete(newFile);
+                    ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f = " + f.toString() + ": " + e.getMessage(), e);
                     return null;
                 }
-                // we don't need the old files any more
-                HeapWriter.delete(f1);
-                HeapWriter.delete(f2);
-                return newFile;
+                if (i.hasNext()) {
+                    iterators.add(i);
+                    inputs.add(f);
+                } else {
+                    i.close();
+                    HeapWriter.delete(f);
+                }
+            }
+            if (iterators.isEmpty()) return null;
+            if (iterators.size() == 1) {
+                final File f = inputs.get(0);
+                if (f.renameTo(newFile)) return newFile;
+                return f;
+            }
+            final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
+            try {
+                final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
+                writer.setRateLimiter(limiter);
+                merge(iterators, order, factory, writer);
+                writer.close(true);
             } catch (final IOException e) {
-                ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f2 = " + f2.toString() + ": " + e.getMessage(), e);
+                ConcurrentLog.severe("ArrayStack", "cannot writing or close writing merge, newFile = " + newFile.toString() + ", tmpFile = " + tmpFile.toString() + ": " + e.getMessage(), e);
+                HeapWriter.delete(tmpFile);
+                HeapWriter.delete(newFile);
+                return null;
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.severe("ArrayStack", "cannot merge because of memory failure: " + e.getMessage(), e);
+                HeapWriter.delete(tmpFile);
+                HeapWriter.delete(newFile);
                 return null;
-            } finally {
-                if (i2 != null) i2.close();
             }
-        } catch (final IOException e) {
-            ConcurrentLog.severe("ArrayStack", "cannot merge because input files cannot be read, f1 = " + f1.toString() + ": " + e.getMessage(), e);
-            return null;
         } finally {
-            if (i1 != null) i1.close();
+            for (final ReferenceIterator<ReferenceType> i: iterators) i.close();
         }
+        // we don't need the old files any more
+        for (final File f: inputs) HeapWriter.delete(f);
+        return newFile;
     }
 
     private static <ReferenceType extends Reference> File rewriteWorker(
             final ReferenceFactory<ReferenceType> factory,
-            final int keylength, final ByteOrder order, final File f, final File newFile, final int writeBuffer) {
+            final int keylength, final ByteOrder order, final File f, final File newFile, final int writeBuffer, final ByteRateLimiter limiter) {
         // iterate both files and write a new one
 
         CloneableIterator<ReferenceContainer<ReferenceType>> i = null;
@@ -1036,6 +1307,7 @@ public class ArrayStack implements BLOB {
         final File tmpFile = new File(newFile.getParentFile(), newFile.getName() + ".prt");
         try {
             final HeapWriter writer = new HeapWriter(tmpFile, newFile, keylength, order, writeBuffer);
+            writer.setRateLimiter(limiter);
             rewrite(i, order, writer);
             writer.close(true);
             i.close();
@@ -1055,102 +1327,63 @@ public class ArrayStack implements BLOB {
         return newFile;
     }
 
+    /**
+     * the head of one input of a k-way merge: the current container of the input and its position in the merge
+     */
+    private static class MergeHead<ReferenceType extends Reference> {
+        private final int index;
+        private final CloneableIterator<ReferenceContainer<ReferenceType>> iterator;
+        private ReferenceContainer<ReferenceType> container;
+        private MergeHead(final int index, final CloneableIterator<ReferenceContainer<ReferenceType>> iterator) {
+            this.index = index;
+            this.iterator = iterator;
+            this.container = iterator.next();
+        }
+        private boolean advance(final ByteOrder ordering) {
+            if (!this.iterator.hasNext()) return false;
+            final byte[] lh = this.container.getTermHash();
+            this.container = this.iterator.next();
+            assert ordering.compare(this.container.getTermHash(), lh) > 0;
+            return true;
+        }
+    }
+
     private static <ReferenceType extends Reference> void merge(
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i1,
-            final CloneableIterator<ReferenceContainer<ReferenceType>> i2,
-            final ByteOrder ordering, final HeapWriter writer) throws IOException, SpaceExceededException {
-        assert i1.hasNext();
-        assert i2.hasNext();
-        byte[] c1lh, c2lh;
-        ReferenceContainer<ReferenceType> c1, c2;
-        c1 = i1.next();
-        c2 = i2.next();
-        int e, s;
-        while (true) {
-            assert c1 != null;
-            assert c2 != null;
-            e = ordering.compare(c1.getTermHash(), c2.getTermHash());
-            if (e < 0) {
-            	s = c1.shrinkReferences();
-            	if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-                writer.add(c1.getTermHash(), c1.exportCollection());
-                if (i1.hasNext()) {
-                    c1lh = c1.getTermHash();
-                    c1 = i1.next();
-                    assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                    continue;
-                }
-                c1 = null;
-                break;
+            final List<? extends CloneableIterator<ReferenceContainer<ReferenceType>>> iterators,
+            final ByteOrder ordering, final ReferenceFactory<ReferenceType> factory, final HeapWriter writer) throws IOException, SpaceExceededException {
+        // a heap of the input heads, ordered by the term hash and then by the input position
+        final PriorityQueue<MergeHead<ReferenceType>> heads = new PriorityQueue<MergeHead<ReferenceType>>(iterators.size(), new Comparator<MergeHead<ReferenceType>>() {
+            @Override
+            public int compare(final MergeHead<ReferenceType> h1, final MergeHead<ReferenceType> h2) {
+                final int c = ordering.compare(h1.container.getTermHash(), h2.container.getTermHash());
+                return c != 0 ? c : h1.index - h2.index;
             }
-            if (e > 0) {
-                s = c2.shrinkReferences();
-                if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-                writer.add(c2.getTermHash(), c2.exportCollection());
-                if (i2.hasNext()) {
-                    c2lh = c2.getTermHash();
-                    c2 = i2.next();
-                    assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                    continue;
-                }
-                c2 = null;
-                break;
-            }
-            assert e == 0;
-            // merge the entries
-            c1 = c1.merge(c2);
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            c1lh = c1.getTermHash();
-            c2lh = c2.getTermHash();
-            if (i1.hasNext() && i2.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-                continue;
-            }
-            c1 = null;
-            c2 = null;
-            if (i1.hasNext()) {
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
-            }
-            if (i2.hasNext()) {
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            }
-            break;
-
+        });
+        for (int i = 0; i < iterators.size(); i++) {
+            if (iterators.get(i).hasNext()) heads.add(new MergeHead<ReferenceType>(i, iterators.get(i)));
         }
-        // catch up remaining entries
-        assert !(i1.hasNext() && i2.hasNext());
-        assert (c1 == null) || (c2 == null);
-        while (c1 != null) {
-            //System.out.println("FLUSH REMAINING 1: " + c1.getWordHash());
-            s = c1.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c1.getTermHash()) + " by " + s + " to " + c1.size() + " entries");
-            writer.add(c1.getTermHash(), c1.exportCollection());
-            if (i1.hasNext()) {
-                c1lh = c1.getTermHash();
-                c1 = i1.next();
-                assert ordering.compare(c1.getTermHash(), c1lh) > 0;
+        final List<MergeHead<ReferenceType>> equal = new ArrayList<MergeHead<ReferenceType>>(iterators.size());
+        final List<ReferenceContainer<ReferenceType>> containers = new ArrayList<ReferenceContainer<ReferenceType>>(iterators.size());
+        ReferenceContainer<ReferenceType> c;
+        int s;
+        while (!heads.isEmpty()) {
+            // collect the containers of the smallest term from all inputs; they come in the order of the inputs
+            equal.clear();
+            equal.add(heads.poll());
+            final byte[] termHash = equal.get(0).container.getTermHash();
+            while (!heads.isEmpty() && ordering.compare(heads.peek().container.getTermHash(), termHash) == 0) equal.add(heads.poll());
+            if (equal.size() == 1) {
+                c = equal.get(0).container;
             } else {
-                c1 = null;
+                containers.clear();
+                for (final MergeHead<ReferenceType> h: equal) containers.add(h.container);
+                c = ReferenceContainer.merge(factory, termHash, containers);
             }
-        }
-        while (c2 != null) {
-            //System.out.println("FLUSH REMAINING 2: " + c2.getWordHash());
-            s = c2.shrinkReferences();
-            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c2.getTermHash()) + " by " + s + " to " + c2.size() + " entries");
-            writer.add(c2.getTermHash(), c2.exportCollection());
-            if (i2.hasNext()) {
-                c2lh = c2.getTermHash();
-                c2 = i2.next();
-                assert ordering.compare(c2.getTermHash(), c2lh) > 0;
-            } else {
-                c2 = null;
+            s = c.shrinkReferences();
+            if (s > 0) ConcurrentLog.info("ArrayStack", "shrinking index for " + ASCII.String(c.getTermHash()) + " by " + s + " to " + c.size() + " entries");
+            writer.add(c.getTermHash(), c.exportCollection());
+            for (final MergeHead<ReferenceType> h: equal) {
+                if (h.advance(ordering)) heads.add(h);
             }
         }
         // finished with writing
@@ -107,6 +107,14 @@ public final class Heap extends HeapModifier implements BLOB {
         System.out.println("*** DEBUG - counted " + c + " BLOBs");
         */
     }
+
+    /**
+     * a Heap is not mapped into memory because new records are appended to the file
+     */
+    @Override
+    protected boolean mappable() {
+        return false;
+    }
     
     /**
      * the number of BLOBs in the heap
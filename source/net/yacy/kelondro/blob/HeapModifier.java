@@ -64,6 +64,7 @@ public class HeapModifier extends HeapReader implements BLOB {
      */
     @Override
     public synchronized void clear() throws IOException {
+        unmap();
         this.index.clear();
         this.free.clear();
         this.file.close();
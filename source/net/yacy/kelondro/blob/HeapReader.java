@@ -29,6 +29,10 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
@@ -49,8 +53,10 @@ import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.RowHandleMap;
 import net.yacy.kelondro.io.CachedFileWriter;
 import net.yacy.kelondro.io.Writer;
+import net.yacy.kelondro.util.DirectMemory;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
+import net.yacy.kelondro.util.OS;
 import net.yacy.kelondro.util.RotateIterator;
 
 
@@ -60,6 +66,11 @@ public class HeapReader {
 
 	private final static ConcurrentLog log = new ConcurrentLog("HeapReader");
 
+    // read records of heaps that do not grow any more from a memory-mapped image of the file.
+    // This is switched off on Windows, because mapped files cannot be truncated or deleted there as long as the mapping exists.
+    public static boolean mmapRead = !OS.isWindows;
+    private final static int mapChunkSize = 1 << 30; // files larger than this are mapped in several chunks
+
     // input values
     protected int                keylength;  // the length of the primary key
     protected File               heapFile;   // the file of the heap
@@ -71,6 +82,8 @@ public class HeapReader {
     protected Gap                free;       // set of {seek, size} pairs denoting space and position of free records
     private   File               fingerprintFileIdx, fingerprintFileGap; // files with dumped indexes. Will be deleted if file is written
     private   Date               closeDate;  // records a time when the file was closed; used for debugging
+    private   MappedByteBuffer[] map;        // a read-only memory map of the file or null if the file is not mapped
+    private   long               mapLimit;   // the number of mapped bytes
 
     public HeapReader(
             final File heapFile,
@@ -125,6 +138,89 @@ public class HeapReader {
         // of file descriptors is too low and the number of files is too high
         this.file.close();
         // the file will be opened again automatically when the next access to it comes.
+
+        if (mmapRead && mappable()) map();
+    }
+
+    /**
+     * @return true if the heap file does not grow after initialization, so it can be read from a memory map
+     */
+    protected boolean mappable() {
+        return true;
+    }
+
+    /**
+     * map the heap file into memory. Records that are read from the map are served by the page cache of the
+     * operating system without a seek and read on the file. Writes to the file from HeapModifier are visible
+     * in the map; a truncation of the file only removes free records at the end of the file which are never read.
+     */
+    private void map() {
+        final long length = this.heapFile.length();
+        if (length == 0) return;
+        try {
+            final RandomAccessFile raf = new RandomAccessFile(this.heapFile, "r");
+            try {
+                final FileChannel channel = raf.getChannel();
+                final MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + mapChunkSize - 1) / mapChunkSize)];
+                for (int i = 0; i < chunks.length; i++) {
+                    final long start = ((long) i) * mapChunkSize;
+                    chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(mapChunkSize, length - start));
+                }
+                this.map = chunks;
+                this.mapLimit = length;
+            } finally {
+                raf.close(); // the mapping stays valid after the channel is closed
+            }
+        } catch (final IOException e) {
+            log.warn("cannot map " + this.heapFile.getName() + ", using file access: " + e.getMessage());
+            unmap();
+        }
+    }
+
+    /**
+     * drop the memory map and release the mapping at once. Without an explicit release the mapping would stay
+     * until the garbage collector finds the buffers, which may be a long time after the file was closed or deleted.
+     * All reads from the map hold the lock on the index, so no read can use a released buffer.
+     */
+    protected void unmap() {
+        if (this.map == null) return;
+        final Object lock = this.index == null ? this : this.index;
+        synchronized (lock) {
+            final MappedByteBuffer[] chunks = this.map;
+            this.map = null;
+            this.mapLimit = 0;
+            if (chunks != null) for (final MappedByteBuffer chunk: chunks) DirectMemory.release(chunk);
+        }
+    }
+
+    private boolean mapped(final long pos, final int len) {
+        return this.map != null && pos >= 0 && pos + len <= this.mapLimit;
+    }
+
+    private int readMappedInt(final long pos) {
+        final int i = (int) (pos / mapChunkSize);
+        final int p = (int) (pos % mapChunkSize);
+        if (p + 4 <= this.map[i].limit()) return this.map[i].getInt(p);
+        final byte[] b = new byte[4];
+        readMapped(pos, b, 0, 4);
+        return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16) | ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+    }
+
+    /**
+     * copy bytes from the map; this must be called while holding the lock on the index
+     * because the position of the map buffers is used
+     */
+    private void readMapped(long pos, final byte[] b, int off, int len) {
+        while (len > 0) {
+            final MappedByteBuffer chunk = this.map[(int) (pos / mapChunkSize)];
+            final int p = (int) (pos % mapChunkSize);
+            final int l = Math.min(len, chunk.limit() - p);
+            ((Buffer) chunk).position(p);
+            chunk.get(b, off, l);
+            pos += l;
+            off += l;
+            len -= l;
+        }
     }
 
     public long mem() {
@@ -242,7 +338,8 @@ public class HeapReader {
             if (l[i].endsWith(".idx") ||
                 l[i].endsWith(".gap") ||
                 l[i].endsWith(".idx.gz") ||
-                l[i].endsWith(".gap.gz")
+                l[i].endsWith(".gap.gz") ||
+                l[i].endsWith(".blm")
                ) FileUtils.deletedelete(new File(d, l[i]));
         }
     }
@@ -495,8 +592,14 @@ public class HeapReader {
             if (pos < 0) return null;
 
             // access the file and read the container
-            this.file.seek(pos);
-            final int len = this.file.readInt() - this.keylength;
+            final boolean mapped = mapped(pos, 4);
+            final int len;
+            if (mapped) {
+                len = readMappedInt(pos) - this.keylength;
+            } else {
+                this.file.seek(pos);
+                len = this.file.readInt() - this.keylength;
+            }
             if (len < 0) {
                 // database file may be corrupted and should be deleted :-((
                 log.severe("file " + this.file.file() + " corrupted at " + pos + ": negative len. len = " + len + ", pk.len = " + this.keylength);
@@ -516,7 +619,12 @@ public class HeapReader {
             } catch (final OutOfMemoryError e) {
                 throw new SpaceExceededException(this.keylength, "HeapReader.get()/keyf");
             }
-            this.file.readFully(keyf, 0, keyf.length);
+            if (mapped && mapped(pos, 4 + this.keylength + len)) {
+                readMapped(pos + 4, keyf, 0, keyf.length);
+            } else {
+                if (mapped) this.file.seek(pos + 4);
+                this.file.readFully(keyf, 0, keyf.length);
+            }
             if (!this.ordering.equal(key, keyf)) {
                 // verification of the indexed access failed. we must re-read the index
                 log.severe("indexed verification access failed for " + this.heapFile.toString());
@@ -543,7 +651,11 @@ public class HeapReader {
                     throw new SpaceExceededException(len, "HeapReader.get()/blob");
                 }
             }
-            this.file.readFully(blob, 0, blob.length);
+            if (mapped && mapped(pos, 4 + this.keylength + len)) {
+                readMapped(pos + 4 + this.keylength, blob, 0, blob.length);
+            } else {
+                this.file.readFully(blob, 0, blob.length);
+            }
 
             return blob;
         }
@@ -592,6 +704,7 @@ public class HeapReader {
             if (pos < 0) return -1;
 
             // access the file and read the size of the container
+            if (mapped(pos, 4)) return readMappedInt(pos) - this.keylength;
             this.file.seek(pos);
             return this.file.readInt() - this.keylength;
         }
@@ -603,6 +716,7 @@ public class HeapReader {
     public void close(boolean writeIDX) {
         if (this.index == null) return;
         synchronized (this.index) {
+            unmap();
             try {
             if (this.file != null)
     			try {
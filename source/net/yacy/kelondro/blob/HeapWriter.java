@@ -36,6 +36,7 @@ import net.yacy.cora.storage.HandleMap;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.RowHandleMap;
+import net.yacy.kelondro.util.ByteRateLimiter;
 import net.yacy.kelondro.util.FileUtils;
 
 
@@ -50,6 +51,7 @@ public final class HeapWriter {
     private final File         heapFileREADY; // the final file of the heap when the file is closed
     private DataOutputStream   os;            // the output stream where the BLOB is written
     private long               seek;          // the current write position
+    private ByteRateLimiter    limiter;       // an optional limit for the write throughput
     //private HashSet<String>    doublecheck;// only for testing
 
     /*
@@ -100,6 +102,15 @@ public final class HeapWriter {
         	throw e;
         }
         this.seek = 0;
+        this.limiter = null;
+    }
+
+    /**
+     * limit the write throughput of this writer; add() waits if the limit is exceeded
+     * @param limiter the limiter or null for no limit
+     */
+    public void setRateLimiter(final ByteRateLimiter limiter) {
+        this.limiter = limiter;
     }
 
     /**
@@ -124,6 +135,11 @@ public final class HeapWriter {
         this.os.write(blob);
         this.seek += chunkl + 4;
         //os.flush(); // necessary? may cause bad IO performance :-(
+        if (this.limiter != null) try {
+            this.limiter.consume(chunkl + 4);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -194,4 +210,9 @@ public final class HeapWriter {
         assert f != null;
         return new File(f.getParentFile(), f.getName() + "." + fingerprint + ".gap");
     }
+
+    protected static File fingerprintBloomFile(File f, String fingerprint) {
+        assert f != null;
+        return new File(f.getParentFile(), f.getName() + "." + fingerprint + ".blm");
+    }
 }
@@ -26,13 +26,13 @@
 
 package net.yacy.kelondro.data.word;
 
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.Locale;
 
+import net.yacy.cora.document.encoding.UTF8;
 import net.yacy.cora.order.Base64Order;
 import net.yacy.cora.order.Digest;
-import net.yacy.cora.storage.ARC;
-import net.yacy.cora.storage.ConcurrentARC;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
@@ -53,15 +53,14 @@ public class Word {
     public static final Base64Order commonHashOrder  = Base64Order.enhancedCoder;
 
     private static final int hashCacheSize = Math.max(20000, Math.min(200000, (int) (MemoryControl.available() / 40000L)));
-    private static ARC<String, byte[]> hashCache = null;
+    private static WordHashCache hashCache = null;
     static {
         try {
-            hashCache = new ConcurrentARC<String, byte[]>(hashCacheSize, Math.min(32, 2 * Runtime.getRuntime().availableProcessors()));
-            ConcurrentLog.info("Word", "hashCache.size = " + hashCacheSize);
+            hashCache = new WordHashCache(hashCacheSize);
         } catch (final OutOfMemoryError e) {
-            hashCache = new ConcurrentARC<String, byte[]>(1000, Math.min(8, 1 + Runtime.getRuntime().availableProcessors()));
-            ConcurrentLog.info("Word", "hashCache.size = " + 1000);
+            hashCache = new WordHashCache(1000);
         }
+        ConcurrentLog.info("Word", "hashCache.size = " + hashCache.capacity());
     }
 
     // object carries statistics for words and sentences
@@ -98,8 +97,19 @@ public class Word {
     }
 
     // static methods
-    public static byte[] word2hash(final StringBuilder word) {
-        return word2hash(word.toString());
+    public static byte[] word2hash(final CharSequence word) {
+        byte[] h = hashCache.get(word); // no String is created for words in the cache
+        if (h != null) return h;
+        final String wordlc = word.toString().toLowerCase(Locale.ENGLISH);
+        final MessageDigest digest = Digest.borrowMD5Digest();
+        try {
+            h = hash(wordlc, digest);
+        } finally {
+            Digest.returnMD5Digest(digest);
+        }
+        // the cache has a fixed size, it is only not extended when memory is short
+        if (!MemoryControl.shortStatus()) hashCache.put(wordlc, h);
+        return h;
     }
 
     private final static byte lowByte = Base64Order.alpha_enhanced[0];
@@ -111,11 +121,41 @@ public class Word {
 
     // create a word hash
     public static final byte[] word2hash(final String word) {
-    	final String wordlc = word.toLowerCase(Locale.ENGLISH);
-    	byte[] h = hashCache.get(wordlc);
-        if (h != null) return h;
-        // calculate the hash
-    	h = commonHashOrder.encodeSubstring(Digest.encodeMD5Raw(wordlc), commonHashLength);
+        return word2hash((CharSequence) word);
+    }
+
+    /**
+     * compute the hashes of many words at once, i.e. of all words of a Condenser. The hashes of words which are not
+     * in the cache are computed with a single md5 digest.
+     * @param words the words in any case
+     * @return the hashes in the order of the words
+     */
+    public static final byte[][] words2hashes(final Collection<? extends CharSequence> words) {
+        final byte[][] hashes = new byte[words.size()][];
+        final boolean extendCache = !MemoryControl.shortStatus();
+        MessageDigest digest = null;
+        try {
+            int i = 0;
+            for (final CharSequence word: words) {
+                byte[] h = hashCache.get(word);
+                if (h == null) {
+                    if (digest == null) digest = Digest.borrowMD5Digest();
+                    final String wordlc = word.toString().toLowerCase(Locale.ENGLISH);
+                    h = hash(wordlc, digest);
+                    if (extendCache) hashCache.put(wordlc, h);
+                }
+                hashes[i++] = h;
+            }
+        } finally {
+            if (digest != null) Digest.returnMD5Digest(digest);
+        }
+        return hashes;
+    }
+
+    // calculate the hash of a lowercase word
+    private static byte[] hash(final String wordlc, final MessageDigest digest) {
+        digest.update(UTF8.getBytes(wordlc));
+        final byte[] h = commonHashOrder.encodeSubstring(digest.digest(), commonHashLength);
     	while (h[0] == highByte && h[1] == highByte && h[2] == highByte && h[3] == highByte && h[4] == highByte) {
     	    // ensure that word hashes do not start with hash '_____' which is a key for an extra hash range for private usage on the local peer
     	    // statistically we are inside this loop only every 2^^30 calls of word2hash (which means almost never)
@@ -123,12 +163,6 @@ public class Word {
     	    h[commonHashLength - 1] = lowByte;
     	}
         assert h[2] != '@';
-        if (MemoryControl.shortStatus()) {
-            hashCache.clear();
-        } else {
-            //hashCache.putIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
-            hashCache.insertIfAbsent(wordlc, h); // prevent expensive MD5 computation and encoding
-        }
         return h;
     }
 
@@ -144,9 +178,9 @@ public class Word {
 
     public static final HandleSet words2hashesHandles(final Collection<String> words) {
         final HandleSet hashes = new RowHandleSet(WordReferenceRow.urlEntryRow.primaryKeyLength, WordReferenceRow.urlEntryRow.objectOrder, words.size());
-        for (final String word: words)
+        for (final byte[] hash: words2hashes(words))
             try {
-                hashes.put(word2hash(word));
+                hashes.put(hash);
             } catch (final SpaceExceededException e) {
                 ConcurrentLog.logException(e);
                 return hashes;
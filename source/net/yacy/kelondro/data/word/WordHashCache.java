@@ -0,0 +1,155 @@
+// WordHashCache.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A cache of word hashes with a fixed capacity which needs no locks.
+ * The cache is set associative: a word can only be stored in one of WAYS slots of the set that is selected by the
+ * hash code of the lowercase word. When all slots of a set are used, the CLOCK algorithm selects the slot which is
+ * replaced: a slot which was read since the clock hand passed it the last time gets a second chance.
+ * A word can be searched with any CharSequence, it is lowercased char by char while the set is searched,
+ * so a lookup does not create any objects.
+ */
+final class WordHashCache {
+
+    private static final int WAYS = 8; // number of slots in a set
+
+    private static final class Entry {
+        private final String key; // the lowercase word
+        private final byte[] hash;
+        private boolean referenced; // set on a read, cleared by the clock hand. Races only cost an early or late eviction.
+
+        private Entry(final String key, final byte[] hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int[] hands; // the clock hand of each set, not synchronized: a lost update only moves the hand less
+    private final int mask;
+
+    /**
+     * @param capacity the maximum number of words, rounded up to a power of two
+     */
+    WordHashCache(final int capacity) {
+        int sets = 1;
+        while (sets * WAYS < capacity) sets <<= 1;
+        this.slots = new AtomicReferenceArray<Entry>(sets * WAYS);
+        this.hands = new int[sets];
+        this.mask = sets - 1;
+    }
+
+    /**
+     * @return the number of words that the cache can hold
+     */
+    int capacity() {
+        return this.slots.length();
+    }
+
+    /**
+     * @return the number of words in the cache
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < this.slots.length(); i++) if (this.slots.get(i) != null) size++;
+        return size;
+    }
+
+    /**
+     * find the hash of a word
+     * @param word the word in any case
+     * @return the hash or null if the word is not in the cache. Words which String.toLowerCase(Locale.ENGLISH) does not
+     * lowercase char by char (with a dotted capital I, a capital sigma or surrogate chars) are never found.
+     */
+    byte[] get(final CharSequence word) {
+        final int length = word.length();
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = word.charAt(i);
+            if (c >= 128 && (c == '\u0130' || c == '\u03A3' || Character.isSurrogate(c))) return null;
+            h = 31 * h + lowercase(c);
+        }
+        final int base = set(h) * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            final Entry e = this.slots.get(base + i);
+            if (e != null && e.key.hashCode() == h && equal(e.key, word)) {
+                if (!e.referenced) e.referenced = true;
+                return e.hash;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * store the hash of a word
+     * @param wordlc the word in the form of String.toLowerCase(Locale.ENGLISH)
+     * @param hash the hash of the word
+     */
+    void put(final String wordlc, final byte[] hash) {
+        final int set = set(wordlc.hashCode());
+        final int base = set * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            final Entry e = this.slots.get(base + i);
+            if (e == null) {
+                if (this.slots.compareAndSet(base + i, null, new Entry(wordlc, hash))) return;
+            } else if (e.key.equals(wordlc)) {
+                return; // stored concurrently
+            }
+        }
+        // the set is full: advance the clock hand to an entry which was not read since the last round
+        int hand = this.hands[set];
+        for (int i = 0; i < 2 * WAYS; i++) {
+            final int slot = base + (hand++ & (WAYS - 1));
+            final Entry e = this.slots.get(slot);
+            if (e != null && e.referenced) {
+                e.referenced = false;
+                continue;
+            }
+            // if another thread replaced the entry in the meantime, this word is just not stored
+            this.slots.compareAndSet(slot, e, new Entry(wordlc, hash));
+            break;
+        }
+        this.hands[set] = hand;
+    }
+
+    void clear() {
+        for (int i = 0; i < this.slots.length(); i++) this.slots.set(i, null);
+    }
+
+    private int set(final int h) {
+        return (h ^ (h >>> 16)) & this.mask;
+    }
+
+    private static char lowercase(final char c) {
+        if (c < 128) return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        return Character.toLowerCase(c);
+    }
+
+    private static boolean equal(final String key, final CharSequence word) {
+        if (key.length() != word.length()) return false;
+        for (int i = 0; i < key.length(); i++) if (key.charAt(i) != lowercase(word.charAt(i))) return false;
+        return true;
+    }
+}
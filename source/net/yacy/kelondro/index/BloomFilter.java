@@ -0,0 +1,160 @@
+// BloomFilter.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A Bloom filter for fixed-length keys. It answers the question if a key may be contained in a set
+ * of keys: if mightContain() returns false, the key is certainly not in the set; if it returns true,
+ * the key is in the set with a probability that depends on the number of bits per key
+ * (about 1% false positives for 10 bits per key).
+ * Keys that are shorter than the key length are treated as if they were padded with zeros,
+ * just like the keys of a HeapReader.
+ */
+public final class BloomFilter {
+
+    private static final int MAGIC = 0x59424c4d; // "YBLM"
+
+    private final int keylength;
+    private final int hashes;
+    private final long bits;
+    private final long[] words;
+
+    /**
+     * create an empty filter
+     * @param keylength the length of the keys
+     * @param expectedKeys the number of keys that will be added
+     * @param bitsPerKey the number of bits per key; the number of hash functions is computed from this value
+     */
+    public BloomFilter(final int keylength, final int expectedKeys, final int bitsPerKey) {
+        this.keylength = keylength;
+        this.bits = Math.max(64L, ((long) Math.max(1, expectedKeys)) * Math.max(1, bitsPerKey));
+        this.hashes = Math.max(1, Math.min(16, (int) Math.round(bitsPerKey * Math.log(2))));
+        this.words = new long[(int) ((this.bits + 63) >>> 6)];
+    }
+
+    private BloomFilter(final int keylength, final int hashes, final long bits, final long[] words) {
+        this.keylength = keylength;
+        this.hashes = hashes;
+        this.bits = bits;
+        this.words = words;
+    }
+
+    public int keylength() {
+        return this.keylength;
+    }
+
+    /**
+     * @return the number of bytes used by this filter
+     */
+    public long mem() {
+        return this.words.length * 8L;
+    }
+
+    private long hash(final byte[] key) {
+        // FNV-1a over the normalized key, followed by a 64-bit finalizer
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < this.keylength; i++) {
+            h ^= (i < key.length) ? (key[i] & 0xff) : 0;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public void add(final byte[] key) {
+        final long h = hash(key);
+        final long h1 = h & 0xffffffffL, h2 = h >>> 32;
+        for (int i = 0; i < this.hashes; i++) {
+            final long p = ((h1 + i * h2) & Long.MAX_VALUE) % this.bits;
+            this.words[(int) (p >>> 6)] |= 1L << p;
+        }
+    }
+
+    public boolean mightContain(final byte[] key) {
+        final long h = hash(key);
+        final long h1 = h & 0xffffffffL, h2 = h >>> 32;
+        for (int i = 0; i < this.hashes; i++) {
+            final long p = ((h1 + i * h2) & Long.MAX_VALUE) % this.bits;
+            if ((this.words[(int) (p >>> 6)] & (1L << p)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * write the filter to a file. The file is written to a temporary file first and then renamed,
+     * so a crash during the write does not leave a broken filter file.
+     * @param file
+     * @throws IOException
+     */
+    public void dump(final File file) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".prt");
+        final DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 64 * 1024));
+        try {
+            os.writeInt(MAGIC);
+            os.writeInt(this.keylength);
+            os.writeInt(this.hashes);
+            os.writeLong(this.bits);
+            for (final long w: this.words) os.writeLong(w);
+        } finally {
+            os.close();
+        }
+        if (file.exists()) FileUtils.deletedelete(file);
+        if (!tmp.renameTo(file)) throw new IOException("cannot rename " + tmp + " to " + file);
+    }
+
+    /**
+     * read a filter from a file that was written with dump()
+     * @param file
+     * @return the filter
+     * @throws IOException if the file cannot be read or is not a filter dump
+     */
+    public static BloomFilter load(final File file) throws IOException {
+        final DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            if (is.readInt() != MAGIC) throw new IOException("not a bloom filter dump: " + file);
+            final int keylength = is.readInt();
+            final int hashes = is.readInt();
+            final long bits = is.readLong();
+            if (keylength <= 0 || hashes <= 0 || bits < 64 || ((bits + 63) >>> 6) * 8 + 20 != file.length()) throw new IOException("bad bloom filter dump: " + file);
+            final long[] words = new long[(int) ((bits + 63) >>> 6)];
+            for (int i = 0; i < words.length; i++) words[i] = is.readLong();
+            return new BloomFilter(keylength, hashes, bits, words);
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,458 @@
+// FrozenRowIndex.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * A read-optimized index for read-mostly workloads. Most rows are kept in a frozen part: one packed and sorted
+ * row array that is never modified, together with a radix table over the key cardinals which predicts the
+ * range of the array where a key can be located (a simple learned index). A lookup is a table access and a
+ * binary search within a few rows, without any locking.
+ * Changes are written to a small delta hash table, which is also read without locking; removals of frozen rows
+ * are recorded in it as tombstones, so that a reader sees either the old or the new value of a key. When the delta
+ * grows beyond a small share of the frozen part, it is folded into a new frozen array in one merge pass.
+ * Ordered access (iteration, smallest and largest key, top and random rows) folds the delta first.
+ */
+public final class FrozenRowIndex implements MemoryIndex, Iterable<Row.Entry> {
+
+    public static int foldDivisor = 32;   // fold if the delta has more than 1/foldDivisor of the frozen rows
+    public static int foldMinimum = 1000; // but do not fold smaller deltas
+
+    private static final byte[] REMOVED = new byte[0]; // the tombstone of a removed frozen row in the delta
+
+    private final String name;
+    private final Row rowdef;
+    private final Row keydef; // the row of the tombstones, only the key
+    private volatile State state;
+
+    /**
+     * the content of the index: readers take a state once and work with that state only.
+     * The frozen part and the table are never changed; the delta is only changed by the writers, which hold the lock
+     * of the index. Its values are never changed after they were stored.
+     */
+    private static final class State {
+        private final RowSet frozen;  // sorted rows without doubles
+        private final int[] table;    // table[b] is the first row in frozen with a key cardinal in bucket b or higher; null if the order has no usable cardinal
+        private final int shift;      // the shift of a cardinal that gives its bucket
+        private final ConcurrentHashMap<ByteArray, byte[]> delta; // new and changed rows, and REMOVED for removed frozen rows
+        private int removed;          // the number of tombstones in delta
+        private int deltaOnly;        // the number of keys in delta that are not in frozen
+        private State(final RowSet frozen, final int[] table, final int shift) {
+            this.frozen = frozen;
+            this.table = table;
+            this.shift = shift;
+            this.delta = new ConcurrentHashMap<ByteArray, byte[]>();
+            this.removed = 0;
+            this.deltaOnly = 0;
+        }
+    }
+
+    public FrozenRowIndex(final String name, final Row rowdef) {
+        this.name = name;
+        this.rowdef = rowdef;
+        this.keydef = new Row(new Column[]{new Column("key", Column.celltype_binary, Column.encoder_bytes, rowdef.primaryKeyLength, "key")}, rowdef.objectOrder);
+        this.state = freeze(new RowSet(rowdef));
+    }
+
+    /**
+     * create a frozen index with the content of another index
+     * @param name
+     * @param content the rows; the content is copied
+     * @throws IOException
+     * @throws SpaceExceededException
+     */
+    public FrozenRowIndex(final String name, final Index content) throws IOException, SpaceExceededException {
+        this.name = name;
+        this.rowdef = content.row();
+        this.keydef = new Row(new Column[]{new Column("key", Column.celltype_binary, Column.encoder_bytes, this.rowdef.primaryKeyLength, "key")}, this.rowdef.objectOrder);
+        final RowSet sorted = new RowSet(this.rowdef, content.size());
+        final int objectsize = this.rowdef.objectsize;
+        final Iterator<Row.Entry> i = content.rows(true, null);
+        Row.Entry entry;
+        int last = -1;
+        while (i.hasNext()) {
+            entry = i.next();
+            if (entry == null) continue;
+            // skip doubles, the content may have some if it was filled with addUnique
+            if (last >= 0 && this.rowdef.objectOrder.compare(sorted.chunkcache, last * objectsize, entry.bytes(), 0, this.rowdef.primaryKeyLength) == 0) continue;
+            sorted.addSorted(entry.bytes(), 0, objectsize);
+            last = sorted.chunkcount - 1;
+        }
+        sorted.trim();
+        this.state = freeze(sorted);
+    }
+
+    /**
+     * compute the radix table of a sorted row set and create a new state with an empty delta
+     */
+    private State freeze(final RowSet sorted) {
+        final int n = sorted.size();
+        final ByteOrder order = this.rowdef.objectOrder;
+        final int keylength = this.rowdef.primaryKeyLength;
+        int bits = 1;
+        while (bits < 20 && (1 << (bits + 2)) < n) bits++; // about four rows per bucket
+        final int shift = 63 - bits; // cardinals are in the range 0 .. Long.MAX_VALUE
+        int[] table = new int[(1 << bits) + 1];
+        int next = 0;
+        long last = 0, c;
+        int bucket;
+        for (int i = 0; i < n; i++) {
+            c = order.cardinal(sorted.chunkcache, i * this.rowdef.objectsize, keylength);
+            if (c < last) {
+                // the cardinal does not follow the order (i.e. descending or shifted orders): use only the binary search
+                table = null;
+                break;
+            }
+            bucket = (int) (c >>> shift);
+            while (next <= bucket) table[next++] = i;
+            last = c;
+        }
+        if (table != null) while (next < table.length) table[next++] = n;
+        return new State(sorted, table, shift);
+    }
+
+    /**
+     * @return the key of the delta table for a key, which may be longer than the primary key; only for lookups
+     */
+    private ByteArray deltaKey(final byte[] key) {
+        return key.length == this.rowdef.primaryKeyLength ? new ByteArray(key) : storeKey(key);
+    }
+
+    /**
+     * @return the key of the delta table for a key with a copy of the key, the caller may reuse its array
+     */
+    private ByteArray storeKey(final byte[] key) {
+        return new ByteArray(Arrays.copyOf(key, this.rowdef.primaryKeyLength));
+    }
+
+    /**
+     * find a key in the frozen part of a state
+     * @return the position in the frozen rows or -1 if the key is not there
+     */
+    private int find(final State s, final byte[] key) {
+        final RowSet frozen = s.frozen;
+        int l = 0, r = frozen.chunkcount;
+        if (s.table != null) {
+            final long c = this.rowdef.objectOrder.cardinal(key, 0, this.rowdef.primaryKeyLength);
+            if (c >= 0) {
+                final int bucket = (int) (c >>> s.shift);
+                l = s.table[bucket];
+                r = s.table[bucket + 1];
+            }
+        }
+        int p, d;
+        while (l < r) {
+            p = (l + r) >>> 1;
+            d = frozen.compare(key, 0, p);
+            if (d == 0) return p;
+            if (d < 0) r = p; else l = p + 1;
+        }
+        return -1;
+    }
+
+    private Row.Entry get(final State s, final byte[] key, final boolean forcecopy) {
+        if (!s.delta.isEmpty()) { // without a delta, no key object is created
+            final byte[] b = s.delta.get(deltaKey(key));
+            if (b == REMOVED) return null;
+            if (b != null) return this.rowdef.newEntry(b, 0, forcecopy); // the values are never changed
+        }
+        final int p = find(s, key);
+        if (p < 0) return null;
+        return s.frozen.get(p, forcecopy); // the frozen rows are never changed, so even a flyweight entry stays valid
+    }
+
+    @Override
+    public boolean has(final byte[] key) {
+        final State s = this.state;
+        if (!s.delta.isEmpty()) {
+            final byte[] b = s.delta.get(deltaKey(key));
+            if (b != null) return b != REMOVED;
+        }
+        return find(s, key) >= 0;
+    }
+
+    @Override
+    public Row.Entry get(final byte[] key, final boolean forcecopy) {
+        return get(this.state, key, forcecopy);
+    }
+
+    @Override
+    public Map<byte[], Row.Entry> get(final Collection<byte[]> keys, final boolean forcecopy) {
+        final Map<byte[], Row.Entry> map = new TreeMap<byte[], Row.Entry>(this.rowdef.objectOrder);
+        final State s = this.state;
+        Row.Entry entry;
+        for (final byte[] key: keys) {
+            entry = get(s, key, forcecopy);
+            if (entry != null) map.put(key, entry);
+        }
+        return map;
+    }
+
+    @Override
+    public synchronized boolean put(final Row.Entry row) throws SpaceExceededException {
+        return put(row, false) == null;
+    }
+
+    @Override
+    public synchronized Row.Entry replace(final Row.Entry row) throws SpaceExceededException {
+        return put(row, true);
+    }
+
+    /**
+     * write a row into the delta
+     * @return the previous row (a copy if wanted) or null if the key did not exist
+     */
+    private Row.Entry put(final Row.Entry row, final boolean copy) {
+        final State s = this.state;
+        final byte[] key = row.getPrimaryKeyBytes();
+        final Row.Entry old = get(s, key, copy);
+        final byte[] b = new byte[this.rowdef.objectsize]; // a copy, the row may be reused by the caller
+        System.arraycopy(row.bytes(), 0, b, 0, b.length);
+        final byte[] previous = s.delta.put(storeKey(key), b);
+        if (previous == REMOVED) {
+            s.removed--; // the frozen row is there again
+        } else if (previous == null && find(s, key) < 0) {
+            s.deltaOnly++;
+        }
+        checkFold(s);
+        return old;
+    }
+
+    @Override
+    public synchronized void addUnique(final Row.Entry row) {
+        put(row, false); // the delta has no doubles
+    }
+
+    @Override
+    public synchronized boolean delete(final byte[] key) {
+        return remove(key) != null;
+    }
+
+    @Override
+    public synchronized Row.Entry remove(final byte[] key) {
+        final State s = this.state;
+        final Row.Entry old = get(s, key, true);
+        if (old == null) return null;
+        if (find(s, key) >= 0) {
+            // the tombstone replaces a changed row in one step: a reader sees either the old row or none
+            s.delta.put(storeKey(key), REMOVED);
+            s.removed++;
+        } else {
+            s.delta.remove(deltaKey(key));
+            s.deltaOnly--;
+        }
+        checkFold(s);
+        return old;
+    }
+
+    private void checkFold(final State s) {
+        if (s.delta.size() > Math.max(foldMinimum, s.frozen.size() / foldDivisor)) fold();
+    }
+
+    /**
+     * merge the delta and the tombstones into a new frozen part
+     */
+    public synchronized void fold() {
+        final State s = this.state;
+        if (s.delta.isEmpty()) return;
+        final RowSet frozen = s.frozen;
+        final int objectsize = this.rowdef.objectsize;
+        final int keylength = this.rowdef.primaryKeyLength;
+        final ByteOrder order = this.rowdef.objectOrder;
+        final RowSet delta, removed, merged;
+        try {
+            delta = new RowSet(this.rowdef, s.delta.size() - s.removed);
+            removed = new RowSet(this.keydef, s.removed);
+            for (final Map.Entry<ByteArray, byte[]> entry: s.delta.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    removed.addUnique(this.keydef.newEntry(entry.getKey().asBytes()));
+                } else {
+                    delta.addUnique(this.rowdef.newEntry(entry.getValue()));
+                }
+            }
+            delta.sort();
+            removed.sort();
+            merged = new RowSet(this.rowdef, Math.max(0, frozen.size() - s.removed + s.deltaOnly));
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.warn("FrozenRowIndex", "cannot fold delta of " + this.name + ": " + e.getMessage());
+            return;
+        }
+        int f = 0, d = 0, r = 0, c;
+        try {
+            while (f < frozen.chunkcount || d < delta.chunkcount) {
+                if (d >= delta.chunkcount) {
+                    c = -1;
+                } else if (f >= frozen.chunkcount) {
+                    c = 1;
+                } else {
+                    c = order.compare(frozen.chunkcache, f * objectsize, delta.chunkcache, d * objectsize, keylength);
+                }
+                if (c <= 0) {
+                    // a frozen row; it is replaced if the delta has the same key, and dropped if it has been removed
+                    while (r < removed.chunkcount && order.compare(removed.chunkcache, r * keylength, frozen.chunkcache, f * objectsize, keylength) < 0) r++;
+                    final boolean isRemoved = r < removed.chunkcount && order.compare(removed.chunkcache, r * keylength, frozen.chunkcache, f * objectsize, keylength) == 0;
+                    if (c < 0 && !isRemoved) merged.addSorted(frozen.chunkcache, f * objectsize, objectsize);
+                    f++;
+                    if (c < 0) continue;
+                }
+                // a delta row
+                merged.addSorted(delta.chunkcache, d * objectsize, objectsize);
+                d++;
+            }
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.warn("FrozenRowIndex", "cannot fold delta of " + this.name + ": " + e.getMessage());
+            return;
+        }
+        merged.trim();
+        this.state = freeze(merged);
+    }
+
+    /**
+     * @return the content of the index as sorted row set; this folds the delta. The returned set must not be modified.
+     */
+    public RowSet sorted() {
+        fold();
+        return this.state.frozen;
+    }
+
+    @Override
+    public void optimize() {
+        fold();
+    }
+
+    @Override
+    public String filename() {
+        return this.name;
+    }
+
+    @Override
+    public synchronized int size() {
+        // the size is computed from three counters that are changed together by the writers
+        final State s = this.state;
+        return s.frozen.size() - s.removed + s.deltaOnly;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public long mem() {
+        final State s = this.state;
+        // a delta entry needs about 100 bytes for the table node, the key object and the arrays
+        return s.frozen.mem() + (s.table == null ? 0 : 4L * s.table.length) + s.delta.size() * (100L + this.rowdef.objectsize);
+    }
+
+    @Override
+    public Row row() {
+        return this.rowdef;
+    }
+
+    @Override
+    public byte[] smallestKey() {
+        return sorted().smallestKey();
+    }
+
+    @Override
+    public byte[] largestKey() {
+        return sorted().largestKey();
+    }
+
+    @Override
+    public synchronized List<RowCollection> removeDoubles() {
+        fold(); // neither the frozen rows nor the delta have doubles
+        return new ArrayList<RowCollection>(0);
+    }
+
+    @Override
+    public synchronized Row.Entry removeOne() {
+        final byte[] key = largestKey();
+        if (key == null) return null;
+        return remove(key);
+    }
+
+    @Override
+    public List<Row.Entry> top(final int count) {
+        return sorted().top(count);
+    }
+
+    @Override
+    public List<Row.Entry> random(final int count) {
+        return sorted().random(count);
+    }
+
+    @Override
+    public CloneableIterator<byte[]> keys(final boolean up, final byte[] firstKey) {
+        return sorted().keys(up, firstKey);
+    }
+
+    @Override
+    public CloneableIterator<Row.Entry> rows(final boolean up, final byte[] firstKey) {
+        return sorted().rows(up, firstKey);
+    }
+
+    @Override
+    public CloneableIterator<Row.Entry> rows() {
+        return sorted().rows();
+    }
+
+    @Override
+    public Iterator<Row.Entry> iterator() {
+        return rows();
+    }
+
+    @Override
+    public void deleteOnExit() {
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.state = freeze(new RowSet(this.rowdef));
+    }
+
+    @Override
+    public synchronized void close() {
+        this.state = freeze(new RowSet(this.rowdef));
+    }
+
+    @Override
+    public String toString() {
+        final State s = this.state;
+        return "FrozenRowIndex " + this.name + ": " + s.frozen.size() + " frozen, " + (s.delta.size() - s.removed) + " delta, " + s.removed + " removed";
+    }
+}
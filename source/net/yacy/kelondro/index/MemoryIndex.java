@@ -0,0 +1,64 @@
+// MemoryIndex.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.util.List;
+
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.util.SpaceExceededException;
+
+/**
+ * an Index that is held completely in memory: no access can cause an IOException.
+ * This is the common type of the index implementations that can be used behind a RowHandleMap or RowHandleSet.
+ */
+public interface MemoryIndex extends Index {
+
+    @Override
+    public Row.Entry get(byte[] key, boolean forcecopy);
+    @Override
+    public Row.Entry replace(Row.Entry row) throws SpaceExceededException;
+    @Override
+    public boolean put(Row.Entry row) throws SpaceExceededException;
+    @Override
+    public void addUnique(Row.Entry row) throws SpaceExceededException;
+    @Override
+    public List<RowCollection> removeDoubles() throws SpaceExceededException;
+    @Override
+    public boolean delete(byte[] key);
+    @Override
+    public Row.Entry remove(byte[] key);
+    @Override
+    public Row.Entry removeOne();
+    @Override
+    public List<Row.Entry> top(int count);
+    @Override
+    public List<Row.Entry> random(int count);
+    @Override
+    public CloneableIterator<byte[]> keys(boolean up, byte[] firstKey);
+    @Override
+    public CloneableIterator<Row.Entry> rows(boolean up, byte[] firstKey);
+    @Override
+    public CloneableIterator<Row.Entry> rows();
+    @Override
+    public void clear();
+
+}
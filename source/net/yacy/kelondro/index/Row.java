@@ -263,6 +263,17 @@ public final class Row implements Serializable {
             //for (int i = ll; i < objectsize; i++) this.rowinstance[i] = 0;
         }
 
+        /**
+         * let this entry show another row; this is used by flyweight cursors that move one entry over a row collection.
+         * @param newrow the byte array that contains the row
+         * @param start the offset where the row starts within newrow
+         */
+        final void point(final byte[] newrow, final int start) {
+            assert newrow.length - start >= Row.this.objectsize;
+            this.rowinstance = newrow;
+            this.offset = start;
+        }
+
         public Entry(final byte[][] cols) {
             assert Row.this.row.length == cols.length : "cols.length = " + cols.length + ", row.length = " + Row.this.row.length;
             this.rowinstance = new byte[Row.this.objectsize];
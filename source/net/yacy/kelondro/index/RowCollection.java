@@ -28,10 +28,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.encoding.UTF8;
@@ -55,8 +57,6 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
 
     public  static final long growfactorLarge100 = 140L;
     public  static final long growfactorSmall100 = 110L;
-    private static final int isortlimit = 20;
-
     private static final int exp_chunkcount  = 0;
     private static final int exp_last_read   = 1;
     private static final int exp_last_wrote  = 2;
@@ -514,6 +514,35 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         removeRow(p, true);
     }
 
+    /**
+     * remove all rows at the given positions in one pass. The order of the remaining rows is kept,
+     * but other than a sequence of removeRow(p, true) calls the rows are moved only once.
+     * @param rows the positions of the rows that shall be removed
+     * @return the number of removed rows
+     */
+    public synchronized final int removeRows(final BitSet rows) {
+        final int objectsize = this.rowdef.objectsize;
+        int target = rows.nextSetBit(0);
+        if (target < 0 || target >= this.chunkcount) return 0;
+        int removedBelowSortBound = 0;
+        int source = target;
+        while (source < this.chunkcount) {
+            if (rows.get(source)) {
+                if (source < this.sortBound) removedBelowSortBound++;
+            } else {
+                System.arraycopy(this.chunkcache, source * objectsize, this.chunkcache, target * objectsize, objectsize);
+                target++;
+            }
+            source++;
+        }
+        final int removed = this.chunkcount - target;
+        this.chunkcount = target;
+        this.sortBound -= removedBelowSortBound;
+        this.lastTimeWrote = System.currentTimeMillis();
+        checkShrink();
+        return removed;
+    }
+
     /**
      * removes the last entry from the collection
      * @return
@@ -676,6 +705,110 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
 
     }
 
+    /**
+     * create a cursor that iterates the rows of this collection in their current order without allocation of new entries.
+     * The collection must not be modified while the cursor is used.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * A flyweight cursor over the rows of the collection. Other than the row iterator, which creates a copy of
+     * every row, the cursor moves a single Row.Entry over the chunk cache. Keys can be compared in place with
+     * compareKey, so merge-joins of two collections do not create any objects until a row is actually used.
+     * The entry that is returned by entry() is only valid until the cursor moves; use copy() to keep a row.
+     */
+    public final class Cursor {
+
+        private int index;
+        private final Row.Entry entry;
+
+        private Cursor() {
+            this.index = -1;
+            this.entry = RowCollection.this.rowdef.newEntry();
+        }
+
+        /**
+         * move the cursor to the next row
+         * @return false if there is no next row; then the cursor stays behind the last row
+         */
+        public boolean next() {
+            if (this.index >= RowCollection.this.chunkcount - 1) {
+                this.index = RowCollection.this.chunkcount;
+                return false;
+            }
+            this.index++;
+            this.entry.point(RowCollection.this.chunkcache, offset());
+            return true;
+        }
+
+        /**
+         * move the cursor to the given row
+         * @param index the position of a row
+         */
+        public void seek(final int index) {
+            assert index >= 0 && index < RowCollection.this.chunkcount : "index = " + index + ", chunkcount = " + RowCollection.this.chunkcount;
+            this.index = index;
+            this.entry.point(RowCollection.this.chunkcache, offset());
+        }
+
+        /**
+         * @return the position of the current row
+         */
+        public int index() {
+            return this.index;
+        }
+
+        /**
+         * @return the byte array that contains the current row
+         */
+        public byte[] chunk() {
+            return RowCollection.this.chunkcache;
+        }
+
+        /**
+         * @return the offset of the current row within chunk()
+         */
+        public int offset() {
+            return this.index * RowCollection.this.rowdef.objectsize;
+        }
+
+        /**
+         * compare the primary key of the current row with the primary key of the current row of another cursor
+         */
+        public int compareKey(final Cursor other) {
+            return RowCollection.this.rowdef.objectOrder.compare(
+                    RowCollection.this.chunkcache, offset(),
+                    other.chunk(), other.offset(), RowCollection.this.rowdef.primaryKeyLength);
+        }
+
+        /**
+         * compare the primary key of the current row with a key
+         * @param a an array that contains the key
+         * @param astart the offset of the key within a
+         */
+        public int compareKey(final byte[] a, final int astart) {
+            return RowCollection.this.rowdef.objectOrder.compare(
+                    RowCollection.this.chunkcache, offset(),
+                    a, astart, RowCollection.this.rowdef.primaryKeyLength);
+        }
+
+        /**
+         * @return the current row as flyweight entry; the entry changes when the cursor moves
+         */
+        public Row.Entry entry() {
+            return this.entry;
+        }
+
+        /**
+         * @return a copy of the current row
+         */
+        public Row.Entry copy() {
+            return RowCollection.this.rowdef.newEntry(RowCollection.this.chunkcache, offset(), true);
+        }
+    }
+
     public void optimize() {
         sort();
         trim();
@@ -686,145 +819,149 @@ public class RowCollection implements Sortable<Row.Entry>, Iterable<Row.Entry>,
         synchronized (this) {
             if (this.sortBound == this.chunkcount) return; // check again
             //Log.logInfo("RowCollection.sort()", "sorting array of size " + this.chunkcount + ", sortBound = " + this.sortBound);
-            net.yacy.cora.sorting.Array.sort(this);
+            final int tail = this.chunkcount - this.sortBound;
+            if (this.sortBound > 0 && tail <= this.chunkcount / 4 && MemoryControl.request((long) tail * this.rowdef.objectsize, false)) {
+                // only a small unsorted tail: sort the tail and merge it into the sorted part
+                sort(this.sortBound, this.chunkcount);
+                mergeTail();
+            } else {
+                sort(0, this.chunkcount);
+            }
             this.sortBound = this.chunkcount;
         }
     }
 
-    public static class partitionthread implements Callable<Integer> {
-        RowCollection rc;
-        int L, R, S;
+    /**
+     * collections with at least this number of rows are sorted in parallel on the common fork/join pool
+     */
+    public static int parallelSortLimit = 8192;
+    private static final int isortlimit = 20;
 
-        public partitionthread(final RowCollection rc, final int L, final int R, final int S) {
-            this.rc = rc;
+    private final void sort(final int L, final int R) {
+        if (R - L >= parallelSortLimit) {
+            ForkJoinPool.commonPool().invoke(new SortTask(L, R));
+        } else {
+            quicksort(L, R, new byte[this.rowdef.objectsize], new byte[this.rowdef.primaryKeyLength]);
+        }
+    }
+
+    /**
+     * a parallel quicksort: both partitions are sorted concurrently until they are smaller than parallelSortLimit
+     */
+    private final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 5342157720513496178L;
+        private final int L, R;
+        private SortTask(final int L, final int R) {
             this.L = L;
             this.R = R;
-            this.S = S;
         }
-
         @Override
-        public Integer call() throws Exception {
-            return Integer.valueOf(this.rc.partition(this.L, this.R, this.S, new byte[this.rc.rowdef.objectsize]));
+        protected void compute() {
+            final byte[] swapspace = new byte[RowCollection.this.rowdef.objectsize];
+            final byte[] pivot = new byte[RowCollection.this.rowdef.primaryKeyLength];
+            if (this.R - this.L < parallelSortLimit) {
+                quicksort(this.L, this.R, swapspace, pivot);
+                return;
+            }
+            final long bounds = partition(this.L, this.R, swapspace, pivot);
+            invokeAll(new SortTask(this.L, (int) (bounds >>> 32)), new SortTask((int) bounds, this.R));
         }
     }
 
     /**
-     * @param L is the first element in the sequence
-     * @param R is the right bound of the sequence, and outside of the sequence
-     * @param S is the bound of the sorted elements in the sequence
-     * @param swapspace
-     * @return
+     * sort the rows from L (inclusive) to R (exclusive) in the current thread
+     * @param swapspace a buffer for one row
+     * @param pivot a buffer for one key
      */
-    final int partition(final int L, final int R, int S, final byte[] swapspace) {
-        assert (L < R - 1): "L = " + L + ", R = " + R + ", S = " + S;
-        assert (R - L >= isortlimit): "L = " + L + ", R = " + R + ", S = " + S + ", isortlimit = " + isortlimit;
-
-        int p = L;
-        int q = R - 1;
-        int pivot = pivot(L, R, S);
-        if (this.rowdef.objectOrder instanceof Base64Order) {
-        	while (p <= q) {
-        		// wenn pivot < S: pivot befindet sich in sortierter Sequenz von L bis S - 1
-        		// d.h. alle Werte von L bis pivot sind kleiner als das pivot
-        		// zu finden ist ein minimales p <= q so dass chunk[p] >= pivot
-        		if ((pivot < S) && (p < pivot)) {
-        			//System.out.println("+++ saved " + (pivot - p) + " comparisments");
-        			p = pivot;
-        			S = 0;
-        		} else {
-        			while ((p < R - 1) && (compare(pivot, p) >= 0)) p++; // chunkAt[p] < pivot
-        		}
-        		// nun gilt chunkAt[p] >= pivot
-        		while ((q > L) && (compare(pivot, q) <= 0)) q--; // chunkAt[q] > pivot
-        		if (p <= q) {
-        			pivot = swap(p, q, pivot, swapspace);
-        			p++;
-        			q--;
-        		}
-        	}
-        } else {
-        	while (p <= q) {
-        		if ((pivot < S) && (p < pivot)) {
-        			p = pivot;
-        			S = 0;
-        		} else {
-        			while ((p < R - 1) && (compare(pivot, p) >= 0)) p++; // chunkAt[p] < pivot
-        		}
-        		while ((q > L) && (compare(pivot, q) <= 0)) q--; // chunkAt[q] > pivot
-        		if (p <= q) {
-        			pivot = swap(p, q, pivot, swapspace);
-        			p++;
-        			q--;
-        		}
-        	}
+    private final void quicksort(int L, int R, final byte[] swapspace, final byte[] pivot) {
+        while (R - L > isortlimit) {
+            final long bounds = partition(L, R, swapspace, pivot);
+            final int lt = (int) (bounds >>> 32);
+            final int gt = (int) bounds;
+            // recurse into the smaller partition to bound the stack depth
+            if (lt - L < R - gt) {
+                quicksort(L, lt, swapspace, pivot);
+                L = gt;
+            } else {
+                quicksort(gt, R, swapspace, pivot);
+                R = lt;
+            }
         }
-        // now p is the beginning of the upper sequence
-        // finally, the pivot element should be exactly between the two sequences
-        // distinguish two cases: pivot in lower and upper sequence
-        // to do this it is sufficient to compare the index, not the entry content
-        if (pivot < p) {
-            // switch the pivot with the element _below_ p, the element in p belongs to the upper sequence
-            // and does not fit into the lower sequence
-            swap(pivot, p - 1, pivot, swapspace);
-            return p - 1;
-        } else if (pivot > p) {
-            // switch the pivot with p, they are both in the same sequence
-            swap(pivot, p, pivot, swapspace);
-            return p;
+        // insertion sort for small ranges
+        for (int i = L + 1; i < R; i++) {
+            for (int j = i; j > L && compare(j - 1, j) > 0; j--) swap(j - 1, j, swapspace);
         }
-        assert pivot == p;
-        return p;
-    }
-
-    private final int pivot(final int L, final int R, final int S) {
-        if (S == 0 || S < L) {
-            // the collection has no ordering
-            // or
-            // the collection has an ordering, but this is not relevant for this pivot
-            // because the ordered zone is outside of ordering zone
-            final int m = picMiddle(L, (3 * L + R - 1) / 4, (L + R - 1) / 2, (L + 3 * R - 3) / 4, R - 1);
-            assert L <= m;
-            assert m < R;
-            return m;
+    }
+
+    /**
+     * a three-way partition of the rows from L (inclusive) to R (exclusive) around a median-of-three pivot
+     * @return the bounds of the rows that are equal to the pivot: the start in the upper and the end (exclusive) in the lower 32 bits
+     */
+    private final long partition(final int L, final int R, final byte[] swapspace, final byte[] pivot) {
+        final int objectsize = this.rowdef.objectsize;
+        final int keylength = this.rowdef.primaryKeyLength;
+        final int m = L + ((R - L) >> 1);
+        int p = median(L, m, R - 1);
+        if (R - L > 1000) {
+            final int s = (R - L) >> 3;
+            p = median(median(L, L + s, L + 2 * s), p, median(R - 1 - 2 * s, R - 1 - s, R - 1));
         }
-        if (S < R) {
-            // the collection has an ordering
-            // and part of the ordered zone is inside the to-be-ordered zone
-            final int m = picMiddle(L, L + (S - L) / 3, (L + R - 1) / 2, S, R - 1);
-            assert L <= m;
-            assert m < R;
-            return m;
+        System.arraycopy(this.chunkcache, p * objectsize, pivot, 0, keylength);
+        int lt = L, i = L, gt = R - 1;
+        int c;
+        while (i <= gt) {
+            c = this.rowdef.objectOrder.compare(this.chunkcache, i * objectsize, pivot, 0, keylength);
+            if (c < 0) {
+                swap(lt++, i++, swapspace);
+            } else if (c > 0) {
+                swap(i, gt--, swapspace);
+            } else {
+                i++;
+            }
         }
-        // use the sorted set to find good pivot:
-        // the sort range is fully inside the sorted area:
-        // the middle element must be the best
-        // (however, it should be skipped because there is no point in sorting this)
-        return (L + R - 1) / 2;
+        return (((long) lt) << 32) | (gt + 1);
     }
 
-    private final int picMiddle(final int a, final int b, final int c, final int d, final int e) {
-        return picMiddle(picMiddle(a, b, c), d, e);
+    private final int median(final int a, final int b, final int c) {
+        if (compare(a, b) < 0) {
+            if (compare(b, c) < 0) return b;
+            return compare(a, c) < 0 ? c : a;
+        }
+        if (compare(a, c) < 0) return a;
+        return compare(b, c) < 0 ? c : b;
     }
 
-    private final int picMiddle(final int a, final int b, final int c) {
-        if (compare(a, b) > 0) {
-            if (compare(c, a) > 0) return a;
-            if (compare(b, c) > 0) return b;
-        } else {
-            if (compare(a, c) > 0) return a;
-            if (compare(c, b) > 0) return b;
-        }
-        return c;
-        //if (c < a && a < b || a > b && c > a) return a;
-        //if (a < b && c > b || c < b && a > b) return b;
+    private final void swap(final int i, final int j, final byte[] swapspace) {
+        if (i == j) return;
+        final int objectsize = this.rowdef.objectsize;
+        System.arraycopy(this.chunkcache, objectsize * i, swapspace, 0, objectsize);
+        System.arraycopy(this.chunkcache, objectsize * j, this.chunkcache, objectsize * i, objectsize);
+        System.arraycopy(swapspace, 0, this.chunkcache, objectsize * j, objectsize);
     }
 
-    private final int swap(final int i, final int j, final int p, final byte[] swapspace) {
-        if (i == j) return p;
-        System.arraycopy(this.chunkcache, this.rowdef.objectsize * i, swapspace, 0, this.rowdef.objectsize);
-        System.arraycopy(this.chunkcache, this.rowdef.objectsize * j, this.chunkcache, this.rowdef.objectsize * i, this.rowdef.objectsize);
-        System.arraycopy(swapspace, 0, this.chunkcache, this.rowdef.objectsize * j, this.rowdef.objectsize);
-        if (i == p) return j; else if (j == p) return i; else return p;
+    /**
+     * merge the sorted rows from sortBound to chunkcount into the sorted rows below sortBound.
+     * The tail is copied into a buffer and the merge runs from the top so that no row is overwritten before it is moved.
+     */
+    private final void mergeTail() {
+        final int objectsize = this.rowdef.objectsize;
+        final int keylength = this.rowdef.primaryKeyLength;
+        final int tail = this.chunkcount - this.sortBound;
+        final byte[] buffer = new byte[tail * objectsize];
+        System.arraycopy(this.chunkcache, this.sortBound * objectsize, buffer, 0, buffer.length);
+        int a = this.sortBound - 1; // the top of the sorted part
+        int b = tail - 1;           // the top of the buffer
+        int t = this.chunkcount - 1;
+        while (b >= 0) {
+            if (a >= 0 && this.rowdef.objectOrder.compare(this.chunkcache, a * objectsize, buffer, b * objectsize, keylength) > 0) {
+                System.arraycopy(this.chunkcache, a * objectsize, this.chunkcache, t * objectsize, objectsize);
+                a--;
+            } else {
+                System.arraycopy(buffer, b * objectsize, this.chunkcache, t * objectsize, objectsize);
+                b--;
+            }
+            t--;
+        }
     }
 
     protected synchronized void uniq() {
@@ -61,7 +61,8 @@ import net.yacy.kelondro.workflow.WorkflowProcessor;
 public final class RowHandleMap implements HandleMap, Iterable<Map.Entry<byte[], Long>> {
 
     private   final Row rowdef;
-    private RAMIndexCluster index;
+    private   final String name;
+    private MemoryIndex index;
 
     /**
      * initialize a HandleMap
@@ -75,6 +76,7 @@ public final class RowHandleMap implements HandleMap, Iterable<Map.Entry<byte[],
      */
     public RowHandleMap(final int keylength, final ByteOrder objectOrder, final int idxbytes, final int expectedspace, final String name) {
         this.rowdef = new Row(new Column[]{new Column("key", Column.celltype_binary, Column.encoder_bytes, keylength, "key"), new Column("long c-" + idxbytes + " {b256}")}, objectOrder);
+        this.name = name;
         this.index = new RAMIndexCluster(name, this.rowdef, spread(expectedspace));
     }
 
@@ -126,6 +128,27 @@ public final class RowHandleMap implements HandleMap, Iterable<Map.Entry<byte[],
         this.index.optimize();
     }
 
+    /**
+     * switch the map to a read-optimized representation: the content is packed into one sorted array
+     * that is probed without locking, changes go to a delta that is folded in from time to time.
+     * Use this for maps that are read much more often than they are written.
+     * @see FrozenRowIndex
+     */
+    public synchronized void freeze() {
+        if (this.index instanceof FrozenRowIndex) return;
+        try {
+            this.index = new FrozenRowIndex(this.name, this.index);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    public boolean isFrozen() {
+        return this.index instanceof FrozenRowIndex;
+    }
+
     @Override
     public long mem() {
         return this.index.mem();
@@ -329,7 +352,7 @@ public final class RowHandleMap implements HandleMap, Iterable<Map.Entry<byte[],
         int c;
         long l;
         final int initialSize = size();
-        final ArrayList<RowCollection> rd = this.index.removeDoubles();
+        final List<RowCollection> rd = this.index.removeDoubles();
         for (final RowCollection rowset: rd) {
             is = new long[rowset.size()];
             c = 0;
@@ -53,7 +53,7 @@ public final class RowHandleSet implements HandleSet, Iterable<byte[]>, Cloneabl
     private static final long serialVersionUID=444204785291174968L;
 
     private final Row rowdef;
-    private RowSet index;
+    private volatile MemoryIndex index; // a RowSet, or a FrozenRowIndex after freeze()
 
     public RowHandleSet(final int keylength, final ByteOrder objectOrder, final int expectedspace) {
         this.rowdef = new Row(new Column[]{new Column("key", Column.celltype_binary, Column.encoder_bytes, keylength, "key")}, objectOrder);
@@ -82,18 +82,57 @@ public final class RowHandleSet implements HandleSet, Iterable<byte[]>, Cloneabl
     @Override
     public RowHandleSet clone() {
         optimize();
-        return new RowHandleSet(this.rowdef, this.index.clone());
+        return new RowHandleSet(this.rowdef, sorted().clone());
     }
 
     @Override
     public byte[] export() {
-        return this.index.exportCollection();
+        return sorted().exportCollection();
     }
 
     @Override
     public void optimize() {
-        this.index.sort();
-        this.index.trim();
+        if (this.index instanceof RowSet) {
+            ((RowSet) this.index).sort();
+            ((RowSet) this.index).trim();
+        } else {
+            this.index.optimize();
+        }
+    }
+
+    /**
+     * switch the set to a read-optimized representation: the keys are packed into one sorted array
+     * that is probed without locking, changes go to a delta that is folded in from time to time.
+     * Use this for sets that are probed much more often than they are changed.
+     * @see FrozenRowIndex
+     */
+    public synchronized void freeze() {
+        if (this.index instanceof FrozenRowIndex) return;
+        try {
+            this.index = new FrozenRowIndex(this.rowdef.toString(), this.index);
+        } catch (final IOException e) {
+            ConcurrentLog.logException(e);
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+        }
+    }
+
+    public boolean isFrozen() {
+        return this.index instanceof FrozenRowIndex;
+    }
+
+    /**
+     * @return the content as RowSet; a frozen index is folded and its sorted array is returned, which must not be changed
+     */
+    private RowSet sorted() {
+        return this.index instanceof RowSet ? (RowSet) this.index : ((FrozenRowIndex) this.index).sorted();
+    }
+
+    /**
+     * a frozen set is serialized as a plain RowSet
+     */
+    private Object writeReplace() {
+        return this.index instanceof FrozenRowIndex ? new RowHandleSet(this.rowdef, sorted().clone()) : this;
     }
     
     /**
@@ -191,7 +230,7 @@ public final class RowHandleSet implements HandleSet, Iterable<byte[]>, Cloneabl
 
     @Override
     public int keylen() {
-        return this.index.rowdef.primaryKeyLength;
+        return this.rowdef.primaryKeyLength;
     }
 
     @Override
@@ -200,8 +239,8 @@ public final class RowHandleSet implements HandleSet, Iterable<byte[]>, Cloneabl
     }
 
     @Override
-    public final synchronized boolean has(final byte[] key) {
-        assert (key != null);
+    public final boolean has(final byte[] key) {
+        assert (key != null); // both index types synchronize by themselves, a frozen index is probed without a lock
         return this.index.has(key);
     }
 
@@ -257,7 +296,7 @@ public final class RowHandleSet implements HandleSet, Iterable<byte[]>, Cloneabl
     public final synchronized byte[] getOne(int idx) {
         if (idx >= this.size()) return null;
         Row.Entry indexentry;
-        indexentry = this.index.get(this.size() - 1 - idx, true);
+        indexentry = sorted().get(this.size() - 1 - idx, true);
         if (indexentry == null) return null;
         return indexentry.getPrimaryKeyBytes();
     }
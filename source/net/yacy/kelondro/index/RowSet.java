@@ -44,7 +44,7 @@ import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.util.MemoryControl;
 
 
-public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>, Serializable {
+public class RowSet extends RowCollection implements MemoryIndex, Iterable<Row.Entry>, Serializable {
 
     private static final long serialVersionUID=-6036029762440788566L;
 
@@ -306,6 +306,17 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return iterativeSearch(a, astart, this.sortBound, this.chunkcount);
     }
 
+    /**
+     * find the position of a key without allocation; the key may be part of a larger array,
+     * like the chunk of another row collection with the same row definition
+     * @param a an array that contains the key
+     * @param astart the offset of the key within a
+     * @return the position of the row with the given key or -1 if the key does not exist
+     */
+    public final synchronized int indexOf(final byte[] a, final int astart) {
+        return find(a, astart);
+    }
+
     private final int iterativeSearch(final byte[] key, final int astart, final int leftBorder, final int rightBound) {
         // returns the chunknumber
         for (int i = leftBorder; i < rightBound; i++) {
@@ -558,6 +569,76 @@ public class RowSet extends RowCollection implements Index, Iterable<Row.Entry>,
         return r;
     }
 
+    /**
+     * merge any number of row collections in one pass using a simultanous iteration of all input collections (k-way merge).
+     * Rows with equal keys are taken only once. In that case the row from the collection with the lowest index
+     * in the given list is used, which produces the same result as a left-to-right chain of mergeEnum(c0, c1) calls.
+     * The input collections are not altered other than being sorted, the returned collection is a new collection with copied content.
+     * @param cs a non-empty list of collections that all share the same row definition
+     * @return the merged and sorted collection
+     * @throws SpaceExceededException
+     */
+    protected final static RowSet mergeEnum(final List<? extends RowCollection> cs) throws SpaceExceededException {
+        assert cs != null && !cs.isEmpty();
+        final int k = cs.size();
+        final RowCollection[] c = cs.toArray(new RowCollection[k]);
+        final Row rowdef = c[0].rowdef;
+        final int objectsize = rowdef.objectsize;
+        final int[] pos = new int[k];   // the current row position within each collection
+        final int[] heap = new int[k];  // a min-heap of collection indexes, ordered by the key at their current position
+        int hs = 0;
+        long total = 0;
+        for (int i = 0; i < k; i++) {
+            assert c[i].rowdef == rowdef : c[i].rowdef.toString() + " != " + rowdef.toString();
+            try {
+                c[i].sort();
+            } catch (final Throwable e) {
+                ConcurrentLog.severe("RowSet", "collection corrupted. cleaned. " + e.getMessage(), e);
+                c[i].clear();
+            }
+            total += c[i].size();
+            if (c[i].size() > 0) heap[hs++] = i;
+        }
+        if (total > Integer.MAX_VALUE) throw new SpaceExceededException(total, "mergeEnum: total > Integer.MAX_VALUE");
+        final RowSet r = new RowSet(rowdef, (int) total);
+        for (int i = (hs >> 1) - 1; i >= 0; i--) siftDown(c, pos, heap, hs, i);
+        int top, last;
+        while (hs > 0) {
+            top = heap[0];
+            r.addSorted(c[top].chunkcache, pos[top] * objectsize, objectsize);
+            last = (r.chunkcount - 1) * objectsize;
+            // skip all rows that have the same key as the one that was just taken, including the taken row
+            do {
+                top = heap[0];
+                if (++pos[top] >= c[top].chunkcount) heap[0] = heap[--hs];
+                if (hs > 0) siftDown(c, pos, heap, hs, 0);
+            } while (hs > 0 && rowdef.objectOrder.compare(
+                    r.chunkcache, last,
+                    c[heap[0]].chunkcache, pos[heap[0]] * objectsize, rowdef.primaryKeyLength) == 0);
+        }
+        return r;
+    }
+
+    private final static void siftDown(final RowCollection[] c, final int[] pos, final int[] heap, final int hs, int p) {
+        final int x = heap[p];
+        int child;
+        while ((child = (p << 1) + 1) < hs) {
+            if (child + 1 < hs && headCompare(c, pos, heap[child + 1], heap[child]) < 0) child++;
+            if (headCompare(c, pos, x, heap[child]) <= 0) break;
+            heap[p] = heap[child];
+            p = child;
+        }
+        heap[p] = x;
+    }
+
+    private final static int headCompare(final RowCollection[] c, final int[] pos, final int a, final int b) {
+        final Row rowdef = c[a].rowdef;
+        final int o = rowdef.objectOrder.compare(
+                c[a].chunkcache, pos[a] * rowdef.objectsize,
+                c[b].chunkcache, pos[b] * rowdef.objectsize, rowdef.primaryKeyLength);
+        return o == 0 ? a - b : o;
+    }
+
     public static void main(final String[] args) {
     	// sort/uniq-test
         /*
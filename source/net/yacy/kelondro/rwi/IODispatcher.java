@@ -28,9 +28,12 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.kelondro.blob.ArrayStack;
+import net.yacy.kelondro.util.ByteRateLimiter;
 import net.yacy.kelondro.util.MemoryControl;
 
 
@@ -45,11 +48,22 @@ import net.yacy.kelondro.util.MemoryControl;
  * to use this class, first instantiate a object and then start the concurrent execution
  * of merging with a call to the start() - method. To shut down all mergings, call terminate()
  * only once.
+ *
+ * Merges can be throttled so that they do not saturate the disk: the write throughput of a merge is
+ * limited to mergeBytesPerSecond, and a running merge pauses while the index cells report more than
+ * pauseReadsPerSecond read accesses (which happens during searches). A merge is never paused longer than
+ * maxMergePause in total, and not at all if the merged array has pauseMaxFiles files or more,
+ * so that the number of files stays bounded under a constant search load.
  */
 public class IODispatcher extends Thread {
 
     private static final ConcurrentLog log = new ConcurrentLog("IODispatcher");
 
+    public static long mergeBytesPerSecond = 0;   // write throughput limit for merges; 0 means no limit
+    public static int  pauseReadsPerSecond = 0;   // index read rate that pauses merges; 0 means never pause
+    public static long maxMergePause = 60000;     // the maximum time in milliseconds that a single merge may be paused
+    public static int  pauseMaxFiles = 50;        // merges of arrays with this number of files are not paused
+
     private   Semaphore                    controlQueue; // controls that only one io job is running
     private   final Semaphore              termination; // released if thread is safe to terminate
     private   ArrayBlockingQueue<MergeJob> mergeQueue;
@@ -57,6 +71,15 @@ public class IODispatcher extends Thread {
     private   boolean                      terminate;
     private final int                      writeBufferSize;
 
+    // read load of the index cells
+    private final AtomicInteger            reads;
+    private final Object                   readLock;
+    private volatile long                  readWindowStart;
+    private volatile int                   readRate;
+
+    // merge statistics, written by the merge thread and read by the status servlet
+    private final AtomicLong mergeCount, mergedBytes, mergeMillis, pausedMillis, throttledMillis;
+
     public IODispatcher(final int dumpQueueLength, final int mergeQueueLength, final int writeBufferSize) {
     	super("IODispatcher");
         this.termination = new Semaphore(0);
@@ -65,6 +88,79 @@ public class IODispatcher extends Thread {
         this.mergeQueue = new ArrayBlockingQueue<MergeJob>(mergeQueueLength);
         this.writeBufferSize = writeBufferSize;
         this.terminate = false;
+        this.reads = new AtomicInteger(0);
+        this.readLock = new Object();
+        this.readWindowStart = System.currentTimeMillis();
+        this.readRate = 0;
+        this.mergeCount = new AtomicLong(0);
+        this.mergedBytes = new AtomicLong(0);
+        this.mergeMillis = new AtomicLong(0);
+        this.pausedMillis = new AtomicLong(0);
+        this.throttledMillis = new AtomicLong(0);
+    }
+
+    /**
+     * notify the dispatcher about a read access to an index; merges are paused if there are many read accesses
+     */
+    public void readAccess() {
+        this.reads.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        if (now - this.readWindowStart >= 1000) rollReadWindow(now);
+    }
+
+    private void rollReadWindow(final long now) {
+        synchronized (this.readLock) {
+            final long time = now - this.readWindowStart;
+            if (time < 1000) return;
+            this.readRate = (int) (this.reads.getAndSet(0) * 1000L / time);
+            this.readWindowStart = now;
+        }
+    }
+
+    /**
+     * @return the number of index read accesses per second, measured over about the last second
+     */
+    public int readsPerSecond() {
+        final long now = System.currentTimeMillis();
+        if (now - this.readWindowStart >= 1000) rollReadWindow(now);
+        return this.readRate;
+    }
+
+    /**
+     * @return the number of bytes in the input files of all queued merge jobs
+     */
+    public long pendingMergeBytes() {
+        final ArrayBlockingQueue<MergeJob> queue = this.mergeQueue;
+        if (queue == null) return 0;
+        long bytes = 0;
+        for (final MergeJob job: queue) {
+            for (final File f: job.files) bytes += f.length();
+        }
+        return bytes;
+    }
+
+    public synchronized int pendingMergeJobs() {
+        return this.mergeQueue == null ? 0 : this.mergeQueue.size();
+    }
+
+    public long getMergeCount() {
+        return this.mergeCount.get();
+    }
+
+    public long getMergedBytes() {
+        return this.mergedBytes.get();
+    }
+
+    public long getMergeMillis() {
+        return this.mergeMillis.get();
+    }
+
+    public long getMergePausedMillis() {
+        return this.pausedMillis.get();
+    }
+
+    public long getMergeThrottledMillis() {
+        return this.throttledMillis.get();
     }
 
     public void terminate() {
@@ -81,7 +177,7 @@ public class IODispatcher extends Thread {
     }
 
     @SuppressWarnings("unchecked")
-	protected synchronized void dump(final ReferenceContainerCache<? extends Reference> cache, final File file, final ReferenceContainerArray<? extends Reference> array) {
+	protected synchronized void dump(final ReferenceContainerBuffer<? extends Reference> cache, final File file, final ReferenceContainerArray<? extends Reference> array) {
         if (this.dumpQueue == null || this.controlQueue == null || !isAlive()) {
             log.warn("emergency dump of file " + file.getName());
              if (!cache.isEmpty()) cache.dump(file, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), true);
@@ -112,34 +208,45 @@ public class IODispatcher extends Thread {
     }
 
     protected synchronized void merge(final File f1, final File f2, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+        merge(f2 == null ? new File[]{f1} : new File[]{f1, f2}, factory, array, newFile);
+    }
+
+    /**
+     * merge the given files into one file in a single pass; a single file is rewritten
+     * @param files the files in the order of the array (oldest first)
+     */
+    protected synchronized void merge(final File[] files, final ReferenceFactory<? extends Reference> factory, final ArrayStack array, final File newFile) {
+        final String names = ArrayStack.names(files);
         if (this.mergeQueue == null || this.controlQueue == null || !isAlive()) {
-            if (f2 == null) {
-                log.warn("emergency rewrite of file " + f1.getName() + " to " + newFile.getName());
+            if (files.length == 1) {
+                log.warn("emergency rewrite of file " + names + " to " + newFile.getName());
             } else {
-                log.warn("emergency merge of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                log.warn("emergency merge of files " + names + " to " + newFile.getName());
             }
-            array.mergeMount(f1, f2, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize));
+            array.mergeMount(files, factory, newFile, (int) Math.min(MemoryControl.available() / 3, this.writeBufferSize), null);
         } else {
-            final MergeJob job = new MergeJob(f1, f2, factory, array, newFile);
+            final MergeJob job = new MergeJob(files, factory, array, newFile);
             if (isAlive()) {
                 try {
                     this.mergeQueue.add(job);
-                    if (f2 == null) {
-                        log.info("appended rewrite job of file " + f1.getName() + " to " + newFile.getName());
+                    if (files.length == 1) {
+                        log.info("appended rewrite job of file " + names + " to " + newFile.getName());
                     } else {
-                        log.info("appended merge job of files " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                        log.info("appended merge job of files " + names + " to " + newFile.getName());
                     }
                 } catch (final IllegalStateException e) { // because mergeQueue size is 1, IllegalStateException could happen frequently (serial execution ensured in run() )
-                	log.warn("Could not add merge job to queue: " + e.getMessage());
+                	log.warn("Could not add merge job to queue: " + e.getMessage() + ", mounting " + names + " again");
+                	// the files were unmounted for this job; without a remount they would be missing in the index until a restart
+                	array.remountBLOBs(files);
                 } finally {
                     this.controlQueue.release();
                 }
             } else {
                 job.merge();
-                if (f2 == null) {
-                    log.warn("dispatcher not running, merged files " + f1.getName() + " to " + newFile.getName());
+                if (files.length == 1) {
+                    log.warn("dispatcher not running, rewrote file " + names + " to " + newFile.getName());
                 } else {
-                    log.warn("dispatcher not running, rewrote file " + f1.getName() + ", " + f2.getName() + " to " + newFile.getName());
+                    log.warn("dispatcher not running, merged files " + names + " to " + newFile.getName());
                 }
             }
         }
@@ -173,20 +280,20 @@ public class IODispatcher extends Thread {
 
                 // otherwise do a merge operation
                 if (!this.mergeQueue.isEmpty() && !MemoryControl.shortStatus()) {
-                	File f = null, f1 = null, f2 = null;
+                	File f = null;
+                	File[] files = null;
                     try {
                         mergeJob = this.mergeQueue.take();
                         f = mergeJob.newFile;
-                        f1 = mergeJob.f1;
-                        f2 = mergeJob.f2;
+                        files = mergeJob.files;
                         mergeJob.merge();
                     } catch (final InterruptedException e) {
                         log.severe("main run job was interrupted (2)", e);
                     } catch (final Throwable e) {
-                        if (f2 == null) {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input file is " + f1, e);
+                        if (files != null && files.length == 1) {
+                            log.severe("main run job had errors (2), dump to " + f + " failed. Input file is " + files[0], e);
                         } else {
-                            log.severe("main run job had errors (2), dump to " + f + " failed. Input files are " + f1 + " and " + f2, e);
+                            log.severe("main run job had errors (2), dump to " + f + " failed. Input files are " + (files == null ? null : ArrayStack.names(files)), e);
                         }
                     } finally {
                         // make sure (on error) loop never hangs on controlQueue.acquire() (after/on error)
@@ -217,10 +324,10 @@ public class IODispatcher extends Thread {
     }
 
     private class DumpJob<ReferenceType extends Reference> {
-        private final ReferenceContainerCache<ReferenceType> cache;
+        private final ReferenceContainerBuffer<ReferenceType> cache;
         private final File file;
         private final ReferenceContainerArray<ReferenceType> array;
-        private DumpJob(final ReferenceContainerCache<ReferenceType> cache, final File file, final ReferenceContainerArray<ReferenceType> array) {
+        private DumpJob(final ReferenceContainerBuffer<ReferenceType> cache, final File file, final ReferenceContainerArray<ReferenceType> array) {
             this.cache = cache;
             this.file = file;
             this.array = array;
@@ -237,33 +344,69 @@ public class IODispatcher extends Thread {
 
     private class MergeJob {
 
-        private final File f1, f2, newFile;
+        private final File[] files;
+        private final File newFile;
         private final ArrayStack array;
         private final ReferenceFactory<? extends Reference> factory;
 
         private MergeJob(
-                final File f1,
-                final File f2,
+                final File[] files,
                 final ReferenceFactory<? extends Reference> factory,
                 final ArrayStack array,
                 final File newFile) {
-            this.f1 = f1;
-            this.f2 = f2;
+            this.files = files;
             this.factory = factory;
             this.newFile = newFile;
             this.array = array;
         }
 
         private File merge() {
-        	if (!this.f1.exists()) {
-        	    log.warn("merge of file (1) " + this.f1.getName() + " failed: file does not exists");
-        		return null;
-        	}
-        	if (this.f2 != null && !this.f2.exists()) {
-        	    log.warn("merge of file (2) " + this.f2.getName() + " failed: file does not exists");
-        		return null;
+        	for (int i = 0; i < this.files.length; i++) {
+        	    if (!this.files[i].exists()) {
+        	        log.warn("merge of file (" + (i + 1) + ") " + this.files[i].getName() + " failed: file does not exists");
+        	        return null;
+        	    }
         	}
-            return this.array.mergeMount(this.f1, this.f2, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize));
+            final long start = System.currentTimeMillis();
+            final MergeLimiter limiter = new MergeLimiter(this.array);
+            final File resultFile = this.array.mergeMount(this.files, this.factory, this.newFile, (int) Math.min(MemoryControl.available() / 3, IODispatcher.this.writeBufferSize), limiter);
+            final long time = System.currentTimeMillis() - start;
+            final long bytes = resultFile == null ? 0 : resultFile.length();
+            IODispatcher.this.mergeCount.incrementAndGet();
+            IODispatcher.this.mergedBytes.addAndGet(bytes);
+            IODispatcher.this.mergeMillis.addAndGet(time);
+            IODispatcher.this.pausedMillis.addAndGet(limiter.paused);
+            IODispatcher.this.throttledMillis.addAndGet(limiter.getThrottledMillis());
+            log.info("merged " + this.files.length + " files to " + (bytes / 1024 / 1024) + " MB in " + time + " milliseconds, throttled " + limiter.getThrottledMillis() + " milliseconds, paused " + limiter.paused + " milliseconds; " + pendingMergeJobs() + " merge jobs pending");
+            return resultFile;
+        }
+    }
+
+    /**
+     * the rate limit for a single merge; it pauses the merge while the index is read at a high rate
+     */
+    private class MergeLimiter extends ByteRateLimiter {
+
+        private final ArrayStack array;
+        private long paused;
+
+        private MergeLimiter(final ArrayStack array) {
+            super(mergeBytesPerSecond);
+            this.array = array;
+            this.paused = 0;
+        }
+
+        @Override
+        public void consume(final long bytes) throws InterruptedException {
+            while (pauseReadsPerSecond > 0 &&
+                   this.paused < maxMergePause &&
+                   !IODispatcher.this.terminate &&
+                   this.array.entries() < pauseMaxFiles &&
+                   readsPerSecond() >= pauseReadsPerSecond) {
+                Thread.sleep(100);
+                this.paused += 100;
+            }
+            super.consume(bytes);
         }
     }
 
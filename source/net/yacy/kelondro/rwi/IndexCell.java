@@ -67,9 +67,12 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     private static final long cleanupCycle =  60000;
     private static final long dumpCycle    = 300000;
 
+    public static boolean offHeapBuffer = false; // overwrite this to keep the RAM buffer in direct memory outside of the java heap
+    public static boolean tieredMerge = false;   // merge files of similar size, see ReferenceContainerArray.tierBaseSize
+
     // class variables
     private final ReferenceContainerArray<ReferenceType> array;
-    private       ReferenceContainerCache<ReferenceType> ram;
+    private       ReferenceContainerBuffer<ReferenceType> ram;
     private final ComparableARC<byte[], Integer>         countCache;
     private       int                                    maxRamEntries;
     private       IODispatcher                           merger; // pointer to shared merger
@@ -97,7 +100,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
 
         this.merger = merger;
         this.array = new ReferenceContainerArray<ReferenceType>(cellPath, prefix, factory, termOrder, termSize);
-        this.ram = new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+        this.ram = newBuffer(factory, termOrder, termSize);
         this.countCache = new ComparableARC<byte[], Integer>(1000, termOrder);
         this.maxRamEntries = maxRamEntries;
         this.lastCleanup = System.currentTimeMillis();
@@ -111,6 +114,11 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         this.flushThread.start();
     }
 
+    private static <ReferenceType extends Reference> ReferenceContainerBuffer<ReferenceType> newBuffer(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize) {
+        if (offHeapBuffer) return new ReferenceContainerOffHeapCache<ReferenceType>(factory, termOrder, termSize);
+        return new ReferenceContainerCache<ReferenceType>(factory, termOrder, termSize);
+    }
+
     private class FlushThread extends Thread {
         public FlushThread(String name) {
             super("IndexCell.FlushThread(" + name + ")");
@@ -146,13 +154,13 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
                         final File dumpFile = IndexCell.this.array.newContainerBLOBFile();
                         // a critical point: when the ram is handed to the dump job,
                         // don't write into it any more. Use a fresh one instead
-                        ReferenceContainerCache<ReferenceType> ramdump;
+                        ReferenceContainerBuffer<ReferenceType> ramdump;
                         final ByteOrder termOrder = IndexCell.this.ram.termKeyOrdering();
                         final int termSize = IndexCell.this.ram.termKeyLength();
                         synchronized (this) {
                             ramdump = IndexCell.this.ram;
                             // get a fresh ram cache
-                            IndexCell.this.ram = new ReferenceContainerCache<ReferenceType>(IndexCell.this.factory, termOrder, termSize);
+                            IndexCell.this.ram = newBuffer(IndexCell.this.factory, termOrder, termSize);
                         }
                         // WARNING : if this cell is queried before this dump termination, terms are no longer in the cache and would therefore not be found
                         // dump the buffer
@@ -187,6 +195,37 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         if (this.array.entries() < 2) return false;
         boolean donesomething = false;
 
+        if (tieredMerge) {
+            // merge files of similar size; this keeps the number of files logarithmic in the index size
+            int term = 10;
+            while (term-- > 0 && (this.merger.queueLength() < 3 || this.array.entries() >= 50)) {
+                if (!this.array.shrinkTieredFiles(this.merger, maxFileSize)) break;
+                donesomething = true;
+            }
+
+            // if all tiers are clean but there are still too many files, merge the smallest
+            term = 10;
+            while (!donesomething && term-- > 0 && this.array.entries() >= 50 && this.merger.queueLength() < 2) {
+                if (!this.array.shrinkAnySmallFiles(this.merger, maxFileSize)) break;
+                donesomething = true;
+            }
+        } else {
+            donesomething = shrinkUntiered(targetFileSize, maxFileSize);
+        }
+
+        // rewrite old files (hack from sixcooler, see http://forum.yacy-websuche.de/viewtopic.php?p=15004#p15004)
+        int term = 10;
+        while (term-- > 0 && (this.merger.queueLength() < 1)) {
+            if (!this.array.shrinkOldFiles(this.merger)) break;
+            donesomething = true;
+        }
+
+        return donesomething;
+    }
+
+    private boolean shrinkUntiered(final long targetFileSize, final long maxFileSize) {
+        boolean donesomething = false;
+
         // first try to merge small files that match
         int term = 10;
         while (term-- > 0 && (this.merger.queueLength() < 3 || this.array.entries() >= 50)) {
@@ -208,13 +247,6 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
             donesomething = true;
         }
 
-        // rewrite old files (hack from sixcooler, see http://forum.yacy-websuche.de/viewtopic.php?p=15004#p15004)
-        term = 10;
-        while (term-- > 0 && (this.merger.queueLength() < 1)) {
-            if (!this.array.shrinkOldFiles(this.merger)) break;
-            donesomething = true;
-        }
-
         return donesomething;
     }
 
@@ -316,6 +348,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
     public int count(final byte[] termHash) {
         final Integer cachedCount = this.countCache.get(termHash);
         if (cachedCount != null) return cachedCount.intValue();
+        this.merger.readAccess();
 
         int countFile = 0;
         // read fresh values from file
@@ -351,6 +384,7 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
      */
     @Override
     public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) throws IOException {
+        this.merger.readAccess();
         final ReferenceContainer<ReferenceType> c0 = this.ram.get(termHash, null);
         ReferenceContainer<ReferenceType> c1 = null;
         try {
@@ -640,6 +674,13 @@ public final class IndexCell<ReferenceType extends Reference> extends AbstractBu
         return this.array.entries();
     }
 
+    /**
+     * @return the number of bytes in index files that wait for a merge
+     */
+    public long getMergeDebt() {
+        return this.array.mergeDebt();
+    }
+
     @Override
     public int minMem() {
         return 10 * 1024 * 1024;
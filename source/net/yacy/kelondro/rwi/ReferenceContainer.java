@@ -30,6 +30,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
@@ -38,11 +39,11 @@ import java.util.TreeMap;
 
 import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.order.Base64Order;
-import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.storage.HandleSet;
 import net.yacy.cora.util.ConcurrentLog;
 import net.yacy.cora.util.SpaceExceededException;
 import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowCollection.Cursor;
 import net.yacy.kelondro.index.RowSet;
 
 
@@ -123,6 +124,23 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return new ReferenceContainer<ReferenceType>(this.factory, this.termHash, super.merge(c));
     }
 
+    /**
+     * merge a list of reference collections for the same term in one pass.
+     * If an url reference occurs in more than one collection, the reference from the collection
+     * with the lowest list index is used, just as in a left-to-right chain of merge() calls.
+     * @param factory
+     * @param termHash
+     * @param collections a non-empty list of collections; these may be sorted during the merge
+     * @return a new container with the merged references
+     * @throws SpaceExceededException
+     */
+    public static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> merge(
+            final ReferenceFactory<ReferenceType> factory,
+            final byte[] termHash,
+            final List<? extends RowSet> collections) throws SpaceExceededException {
+        return new ReferenceContainer<ReferenceType>(factory, termHash, mergeEnum(collections));
+    }
+
     public Reference replace(final Reference entry) throws SpaceExceededException {
         assert entry.toKelondroEntry().objectsize() == super.rowdef.objectsize;
         final Row.Entry r = super.replace(entry.toKelondroEntry());
@@ -416,6 +434,47 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         return joinConstructiveByEnumeration(factory, i1, i2, maxDistance);
     }
 
+    // The join and exclude methods walk the row chunks with flyweight cursors and compare the keys in place.
+    // For each matching row of a join one reference is produced; the rows of the other container are read
+    // through a flyweight reference that follows its cursor. The containers of the caller are not sorted in place,
+    // an unsorted container is merge-joined through a sorted copy. Only the pivot of excludeDestructive is changed.
+
+    /**
+     * @return the container itself if all rows are sorted, otherwise a sorted copy; the given container is not changed
+     */
+    private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> sorted(final ReferenceContainer<ReferenceType> c) throws SpaceExceededException {
+        final RowSet copy;
+        synchronized (c) {
+            if (c.sortBound == c.chunkcount) return c;
+            final int bytes = c.chunkcount * c.rowdef.objectsize;
+            try {
+                copy = new RowSet(c.rowdef, c.chunkcount, Arrays.copyOf(c.chunkcache, bytes), c.sortBound);
+            } catch (final OutOfMemoryError e) {
+                throw new SpaceExceededException(bytes, "ReferenceContainer.sorted");
+            }
+        }
+        copy.sort();
+        return new ReferenceContainer<ReferenceType>(c.factory, c.termHash, copy);
+    }
+
+    /**
+     * produce a reference for the result of a join from the flyweight reference of a cursor
+     * @param factory
+     * @param flyweight the reference which follows the cursor
+     * @param c the collection of the cursor
+     * @param index the current position of the cursor
+     * @return a reference that can be changed by a join without changing the collection
+     */
+    private static <ReferenceType extends Reference> ReferenceType produceJoinable(
+            final ReferenceFactory<ReferenceType> factory,
+            final ReferenceType flyweight,
+            final RowSet c,
+            final int index) {
+        final ReferenceType r = factory.produceFast(flyweight, true);
+        // a factory which has no separate fast representation returns the flyweight itself; then use a copy of the row
+        return r == flyweight ? factory.produceSlow(c.get(index, true)) : r;
+    }
+
     private static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> joinConstructiveByTest(
             final ReferenceFactory<ReferenceType> factory,
             final ReferenceContainer<ReferenceType> small,
@@ -426,19 +485,20 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         final int keylength = small.rowdef.width(0);
         assert (keylength == large.rowdef.width(0));
         final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
-        final Iterator<ReferenceType> se = small.entries();
+        final Cursor se = small.cursor();
+        final Cursor le = large.cursor();
+        final ReferenceType sr = factory.produceSlow(se.entry());
+        final ReferenceType lr = factory.produceSlow(le.entry());
         ReferenceType ie1;
-        ReferenceType ie2;
-        while (se.hasNext()) {
-            ie1 = se.next();
-            ie2 = large.getReference(ie1.urlhash());
-            if ((ie1 != null) && (ie2 != null)) {
-                assert (ie1.urlhash().length == keylength) : "ie0.urlHash() = " + ASCII.String(ie1.urlhash());
-                assert (ie2.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie2.urlhash());
+        int p;
+        while (se.next()) {
+            p = large.indexOf(se.chunk(), se.offset());
+            if (p >= 0) {
                 // this is a hit. Calculate word distance:
-
-                ie1 = factory.produceFast(ie2, true);
-                ie1.join(ie2);
+                le.seek(p);
+                assert (lr.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(lr.urlhash());
+                ie1 = produceJoinable(factory, sr, small, se.index());
+                ie1.join(lr);
                 if (ie1.distance() <= maxDistance) conj.add(ie1);
             }
         }
@@ -456,38 +516,39 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         assert (keylength == i2.rowdef.width(0));
         final ReferenceContainer<ReferenceType> conj = new ReferenceContainer<ReferenceType>(factory, null, 0); // start with empty search result
         if (!((i1.rowdef.getOrdering().signature().equals(i2.rowdef.getOrdering().signature())))) return conj; // ordering must be equal
-        final ByteOrder ordering = i1.rowdef.getOrdering();
-        final Iterator<ReferenceType> e1 = i1.entries();
-        final Iterator<ReferenceType> e2 = i2.entries();
+        final ReferenceContainer<ReferenceType> s1 = sorted(i1);
+        final ReferenceContainer<ReferenceType> s2 = sorted(i2);
+        final Cursor e1 = s1.cursor();
+        final Cursor e2 = s2.cursor();
+        final ReferenceType r1 = factory.produceSlow(e1.entry());
+        final ReferenceType r2 = factory.produceSlow(e2.entry());
         int c;
-        if ((e1.hasNext()) && (e2.hasNext())) {
+        if (e1.next() && e2.next()) {
             ReferenceType ie1;
-            ReferenceType ie2;
-            ie1 = e1.next();
-            ie2 = e2.next();
-
             while (true) {
-                assert (ie1.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie1.urlhash());
-                assert (ie2.urlhash().length == keylength) : "ie2.urlHash() = " + ASCII.String(ie2.urlhash());
-                c = ordering.compare(ie1.urlhash(), ie2.urlhash());
-                //System.out.println("** '" + ie1.getUrlHash() + "'.compareTo('" + ie2.getUrlHash() + "')="+c);
+                c = e1.compareKey(e2);
                 if (c < 0) {
-                    if (e1.hasNext()) ie1 = e1.next(); else break;
+                    if (!e1.next()) break;
                 } else if (c > 0) {
-                    if (e2.hasNext()) ie2 = e2.next(); else break;
+                    if (!e2.next()) break;
                 } else {
                     // we have found the same urls in different searches!
-                    ie1 = factory.produceFast(ie1, true);
-                    ie1.join(ie2);
+                    ie1 = produceJoinable(factory, r1, s1, e1.index());
+                    ie1.join(r2);
                     if (ie1.distance() <= maxDistance) conj.add(ie1);
-                    if (e1.hasNext()) ie1 = e1.next(); else break;
-                    if (e2.hasNext()) ie2 = e2.next(); else break;
+                    if (!e1.next()) break;
+                    if (!e2.next()) break;
                 }
             }
         }
         return conj;
     }
 
+    /**
+     * remove all references from the pivot which are also in excl. The pivot is changed and may be sorted,
+     * so it must not be used by other threads during the call; excl is not changed.
+     * @return the pivot, or null if the pivot is empty
+     */
     public static <ReferenceType extends Reference> ReferenceContainer<ReferenceType> excludeDestructive(
             final ReferenceFactory<ReferenceType> factory,
             final ReferenceContainer<ReferenceType> pivot,
@@ -516,18 +577,21 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         assert pivot.rowdef.equals(excl.rowdef) : "small = " + pivot.rowdef.toString() + "; large = " + excl.rowdef.toString();
         final int keylength = pivot.rowdef.width(0);
         assert (keylength == excl.rowdef.width(0));
-        final boolean iterate_pivot = pivot.size() < excl.size();
-        final Iterator<ReferenceType> se = (iterate_pivot) ? pivot.entries() : excl.entries();
-        Reference ie0, ie1;
-            while (se.hasNext()) {
-                ie0 = se.next();
-                ie1 = excl.getReference(ie0.urlhash());
-                if ((ie0 != null) && (ie1 != null)) {
-                    assert (ie0.urlhash().length == keylength) : "ie0.urlHash() = " + ASCII.String(ie0.urlhash());
-                    assert (ie1.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie1.urlhash());
-                    if (iterate_pivot) se.remove(); pivot.delete(ie0.urlhash());
-                }
+        final BitSet remove = new BitSet(pivot.size());
+        int p;
+        if (pivot.size() < excl.size()) {
+            final Cursor se = pivot.cursor();
+            while (se.next()) {
+                if (excl.indexOf(se.chunk(), se.offset()) >= 0) remove.set(se.index());
             }
+        } else {
+            final Cursor se = excl.cursor();
+            while (se.next()) {
+                p = pivot.indexOf(se.chunk(), se.offset());
+                if (p >= 0) remove.set(p);
+            }
+        }
+        pivot.removeRows(remove);
         return pivot;
     }
 
@@ -539,34 +603,33 @@ public class ReferenceContainer<ReferenceType extends Reference> extends RowSet
         final int keylength = pivot.rowdef.width(0);
         assert (keylength == excl.rowdef.width(0));
         if (!((pivot.rowdef.getOrdering().signature().equals(excl.rowdef.getOrdering().signature())))) return pivot; // ordering must be equal
-        final Iterator<ReferenceType> e1 = pivot.entries();
-        final Iterator<ReferenceType> e2 = excl.entries();
+        final ReferenceContainer<ReferenceType> sexcl;
+        try {
+            sexcl = sorted(excl);
+        } catch (final SpaceExceededException e) {
+            return excludeDestructiveByTest(pivot, excl);
+        }
+        pivot.sort();
+        final Cursor e1 = pivot.cursor();
+        final Cursor e2 = sexcl.cursor();
+        final BitSet remove = new BitSet(pivot.size());
         int c;
-        if ((e1.hasNext()) && (e2.hasNext())) {
-            ReferenceType ie1;
-            ReferenceType ie2;
-            ie1 = e1.next();
-            ie2 = e2.next();
-
+        if (e1.next() && e2.next()) {
             while (true) {
-                assert (ie1.urlhash().length == keylength) : "ie1.urlHash() = " + ASCII.String(ie1.urlhash());
-                assert (ie2.urlhash().length == keylength) : "ie2.urlHash() = " + ASCII.String(ie2.urlhash());
-                c = pivot.rowdef.getOrdering().compare(ie1.urlhash(), ie2.urlhash());
-                //System.out.println("** '" + ie1.getUrlHash() + "'.compareTo('" + ie2.getUrlHash() + "')="+c);
+                c = e1.compareKey(e2);
                 if (c < 0) {
-                    if (e1.hasNext()) ie1 = e1.next(); else break;
+                    if (!e1.next()) break;
                 } else if (c > 0) {
-                    if (e2.hasNext()) ie2 = e2.next(); else break;
+                    if (!e2.next()) break;
                 } else {
                     // we have found the same urls in different searches!
-                    ie1 = factory.produceFast(ie1, true);
-                    ie1.join(ie2);
-                    e1.remove();
-                    if (e1.hasNext()) ie1 = e1.next(); else break;
-                    if (e2.hasNext()) ie2 = e2.next(); else break;
+                    remove.set(e1.index());
+                    if (!e1.next()) break;
+                    if (!e2.next()) break;
                 }
             }
         }
+        pivot.removeRows(remove);
         return pivot;
     }
 
@@ -26,8 +26,10 @@ package net.yacy.kelondro.rwi;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import net.yacy.cora.order.ByteOrder;
 import net.yacy.cora.order.CloneableIterator;
@@ -45,6 +47,24 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
 
     private final static long METHOD_MAXRUNTIME = 5000L;
 
+    /**
+     * the minimum number of BLOB files that makes get() read all files at the same time and
+     * merge the results in one pass; with less files the sequential read and merge is used
+     */
+    public static int concurrentGetMinFiles = 3;
+
+    /**
+     * the size-tiered merge policy: files up to tierBaseSize are in the smallest tier,
+     * each following tier holds files that are up to tierFactor times larger
+     */
+    public static long tierBaseSize = 16L * 1024L * 1024L;
+    public static int  tierFactor   = 4;
+
+    /**
+     * the maximum number of files of one tier that are merged in a single pass
+     */
+    public static int  tierMergeFanIn = 8;
+
     private final ReferenceFactory<ReferenceType> factory;
     private final ArrayStack array;
 
@@ -303,6 +323,7 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
      * @throws SpaceExceededException
      */
     public ReferenceContainer<ReferenceType> get(final byte[] termHash) throws IOException, SpaceExceededException {
+        if (concurrentGetMinFiles > 0 && this.array.entries() >= concurrentGetMinFiles) return getConcurrently(termHash);
         final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
         final Iterator<byte[]> entries = this.array.getAll(termHash).iterator();
     	if (entries == null || !entries.hasNext()) return null;
@@ -324,6 +345,24 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
     	return c;
     }
 
+    /**
+     * get a indexContainer from a heap, reading all BLOB files at the same time and
+     * merging the found containers with a single k-way merge
+     * @param termHash
+     * @return the indexContainer if one exist, null otherwise
+     * @throws IOException if one of the BLOB files could not be read
+     * @throws SpaceExceededException
+     */
+    private ReferenceContainer<ReferenceType> getConcurrently(final byte[] termHash) throws IOException, SpaceExceededException {
+        final List<byte[]> entries = this.array.getAllConcurrently(termHash, METHOD_MAXRUNTIME);
+        if (entries.isEmpty()) return null;
+        final Row row = this.factory.getRow();
+        if (entries.size() == 1) return new ReferenceContainer<ReferenceType>(this.factory, termHash, RowSet.importRowSet(entries.get(0), row));
+        final List<RowSet> collections = new ArrayList<RowSet>(entries.size());
+        for (final byte[] b: entries) collections.add(RowSet.importRowSet(b, row));
+        return ReferenceContainer.merge(this.factory, termHash, collections);
+    }
+
     public int count(final byte[] termHash) throws IOException {
         final long timeout = System.currentTimeMillis() + METHOD_MAXRUNTIME;
         final Iterator<Long> entries = this.array.lengthAll(termHash).iterator();
@@ -423,6 +462,21 @@ public final class ReferenceContainerArray<ReferenceType extends Reference> {
         return true;
     }
 
+    public boolean shrinkTieredFiles(final IODispatcher merger, final long maxFileSize) {
+        final File[] ff = this.array.unmountTiered(tierBaseSize, tierFactor, tierMergeFanIn, maxFileSize);
+        if (ff == null) return false;
+        ConcurrentLog.info("RICELL-shrink0/tiered", "unmountTiered(" + tierBaseSize + ", " + tierFactor + ", " + tierMergeFanIn + ", " + maxFileSize + "): " + ff.length + " files");
+        merger.merge(ff, this.factory, this.array, newContainerBLOBFile());
+        return true;
+    }
+
+    /**
+     * @return the number of bytes in files that wait for a merge according to the size-tiered merge policy
+     */
+    public long mergeDebt() {
+        return this.array.mergeDebt(tierBaseSize, tierFactor);
+    }
+
     public boolean shrinkOldFiles(final IODispatcher merger) {
         final File ff = this.array.unmountOldest();
         if (ff == null) return false;
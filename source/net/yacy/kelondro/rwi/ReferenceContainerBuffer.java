@@ -0,0 +1,110 @@
+// ReferenceContainerBuffer.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+import java.util.Iterator;
+
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.sorting.Rating;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.index.Row;
+
+/**
+ * A ReferenceContainerBuffer is the write buffer of an IndexCell: new references are collected here
+ * until the buffer is dumped into a BLOB file of the ReferenceContainerArray.
+ * There are two implementations:
+ * - ReferenceContainerCache, which holds all containers as objects on the java heap
+ * - ReferenceContainerOffHeapCache, which holds all references in direct memory outside of the java heap
+ *
+ * @param <ReferenceType>
+ */
+public interface ReferenceContainerBuffer<ReferenceType extends Reference> extends Index<ReferenceType>, IndexReader<ReferenceType> {
+
+    public Row rowdef();
+
+    /**
+     * @return an iterator over all term hashes in the buffer, in no specific order
+     */
+    public Iterator<ByteArray> keys();
+
+    /**
+     * dump the buffer to a file.
+     * @param heapFile
+     * @param writeBuffer
+     * @param destructive - if true then the buffer is cleaned during the dump causing to free memory
+     */
+    public void dump(final File heapFile, final int writeBuffer, final boolean destructive);
+
+    /**
+     * @return the number of bytes that are used by this buffer
+     */
+    public long usedMemory();
+
+    public boolean isEmpty();
+
+    /**
+     * @return the largest number of references in a single container
+     */
+    public int maxReferences();
+
+    // the following methods are the same as in Index, but they do not throw IOExceptions because the buffer is not file-based
+
+    @Override
+    public void clear();
+
+    @Override
+    public void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException;
+
+    @Override
+    public void add(final byte[] termHash, final ReferenceType newEntry) throws SpaceExceededException;
+
+    @Override
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection);
+
+    @Override
+    public ReferenceContainer<ReferenceType> remove(final byte[] termHash);
+
+    @Override
+    public void delete(final byte[] termHash);
+
+    @Override
+    public boolean remove(final byte[] termHash, final byte[] urlHashBytes);
+
+    @Override
+    public void removeDelayed(final byte[] termHash, final byte[] urlHashBytes);
+
+    @Override
+    public int remove(final byte[] termHash, final HandleSet urlHashes);
+
+    @Override
+    public void removeDelayed();
+
+    @Override
+    public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate);
+
+    @Override
+    public CloneableIterator<Rating<byte[]>> referenceCountIterator(final byte[] startHash, final boolean rot, final boolean excludePrivate);
+
+}
@@ -58,7 +58,7 @@ import net.yacy.kelondro.util.FileUtils;
  *
  * @param <ReferenceType>
  */
-public final class ReferenceContainerCache<ReferenceType extends Reference> extends AbstractIndex<ReferenceType> implements Index<ReferenceType>, IndexReader<ReferenceType>, Iterable<ReferenceContainer<ReferenceType>> {
+public final class ReferenceContainerCache<ReferenceType extends Reference> extends AbstractIndex<ReferenceType> implements ReferenceContainerBuffer<ReferenceType>, Iterable<ReferenceContainer<ReferenceType>> {
 
     private static final ConcurrentLog log = new ConcurrentLog("ReferenceContainerCache");
 
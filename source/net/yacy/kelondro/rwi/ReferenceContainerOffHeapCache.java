@@ -0,0 +1,1001 @@
+// ReferenceContainerOffHeapCache.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.CloneableIterator;
+import net.yacy.cora.sorting.Rating;
+import net.yacy.cora.storage.HandleSet;
+import net.yacy.cora.util.ByteArray;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.blob.HeapWriter;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowSet;
+import net.yacy.kelondro.util.DirectMemory;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * A ReferenceContainerOffHeapCache is a write buffer for word indexes like the ReferenceContainerCache,
+ * but the references are not stored in RowSet objects on the java heap. Instead all references of a term
+ * are stored as one region of rows inside large direct ByteBuffer segments, which are not scanned by the garbage collector.
+ * The terms are kept in an open-addressing hash table made of primitive arrays, so a term costs about 32 bytes
+ * of heap, compared to several java objects in a ReferenceContainerCache.
+ *
+ * Each region keeps the same layout as the chunk of a RowSet: a sorted area followed by an unsorted tail
+ * of rows that have been appended. When the tail becomes too long, it is sorted and merged into the sorted area.
+ * Regions are allocated in power-of-two size classes and freed regions are re-used for the same size class.
+ *
+ * The terms are distributed over independent stripes, each with its own term table, memory arena and lock,
+ * so that indexing threads which add references to different terms do not wait for each other.
+ * ReferenceContainer objects are only created when containers are read.
+ *
+ * @param <ReferenceType>
+ */
+public final class ReferenceContainerOffHeapCache<ReferenceType extends Reference> extends AbstractIndex<ReferenceType> implements ReferenceContainerBuffer<ReferenceType> {
+
+    private static final ConcurrentLog log = new ConcurrentLog("ReferenceContainerOffHeapCache");
+
+    private static final int  segmentSize     = 2 * 1024 * 1024; // the size of a shared direct memory segment of a stripe
+    private static final int  maxSharedRegion = segmentSize / 4; // larger regions get their own segment
+    private static final int  minCapacity     = 4;               // the smallest region size in rows
+    private static final int  transferSize    = 64 * 1024;
+    private static final long EMPTY           = -1L;             // slot was never used
+    private static final long DELETED         = -2L;             // slot was used and the term was deleted
+    private static final int  maxStripes      = 16;
+
+    private final int termSize;
+    private final ByteOrder termOrder;
+    private final Row rowdef;
+    private final int objectsize;
+    private final int keylength;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * create a new, empty off-heap buffer
+     * @param factory the factory for payload reference objects
+     * @param termOrder the order on search terms for the cache
+     * @param termSize the fixed size of search terms
+     */
+    public ReferenceContainerOffHeapCache(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize) {
+        this(factory, termOrder, termSize, Math.min(maxStripes, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * create a new, empty off-heap buffer
+     * @param factory the factory for payload reference objects
+     * @param termOrder the order on search terms for the cache
+     * @param termSize the fixed size of search terms
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    ReferenceContainerOffHeapCache(final ReferenceFactory<ReferenceType> factory, final ByteOrder termOrder, final int termSize, final int stripes) {
+        super(factory);
+        assert termOrder != null;
+        this.termOrder = termOrder;
+        this.termSize = termSize;
+        this.rowdef = factory.getRow();
+        this.objectsize = this.rowdef.objectsize;
+        this.keylength = this.rowdef.primaryKeyLength;
+        int bits = 0;
+        while ((1 << bits) < stripes) bits++;
+        @SuppressWarnings("unchecked")
+        final Stripe[] s = (Stripe[]) Array.newInstance(Stripe.class, 1 << bits);
+        for (int i = 0; i < s.length; i++) s[i] = new Stripe();
+        this.stripes = s;
+        this.stripeShift = 32 - bits;
+    }
+
+    private static int hash(final byte[] key, final int start, final int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) h = 31 * h + key[start + i];
+        return h ^ (h >>> 16);
+    }
+
+    private static int segmentOf(final long addr) {
+        return (int) (addr >>> 32);
+    }
+
+    private static int offsetOf(final long addr) {
+        return (int) addr;
+    }
+
+    /**
+     * select the stripe of a term. The stripe is taken from the high bits of a multiplicative hash,
+     * so it does not correlate with the low bits that select the slot inside the term table of the stripe.
+     * @return the stripe or null if the term can not be in the buffer
+     */
+    private Stripe stripe(final byte[] termHash) {
+        if (termHash == null || termHash.length != this.termSize) return null;
+        if (this.stripes.length == 1) return this.stripes[0];
+        return this.stripes[(hash(termHash, 0, this.termSize) * 0x9E3779B9) >>> this.stripeShift];
+    }
+
+    @Override
+    public Row rowdef() {
+        return this.rowdef;
+    }
+
+    @Override
+    public int termKeyLength() {
+        return this.termSize;
+    }
+
+    @Override
+    public ByteOrder termKeyOrdering() {
+        return this.termOrder;
+    }
+
+    @Override
+    public int minMem() {
+        return 0;
+    }
+
+    @Override
+    public void clear() {
+        for (final Stripe s: this.stripes) s.clear();
+    }
+
+    @Override
+    public void close() {
+        for (final Stripe s: this.stripes) s.close();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (final Stripe s: this.stripes) size += s.size();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (final Stripe s: this.stripes) if (!s.isEmpty()) return false;
+        return true;
+    }
+
+    @Override
+    public long usedMemory() {
+        long m = 0;
+        for (final Stripe s: this.stripes) m += s.usedMemory();
+        return m;
+    }
+
+    private long directMemory() {
+        long m = 0;
+        for (final Stripe s: this.stripes) m += s.directMemory();
+        return m;
+    }
+
+    @Override
+    public int maxReferences() {
+        int max = 0;
+        for (final Stripe s: this.stripes) max = Math.max(max, s.maxReferences());
+        return max;
+    }
+
+    /**
+     * a part of the buffer with its own term table and memory arena; all access is synchronized on the stripe
+     */
+    private final class Stripe {
+
+        // the term table: slot i holds the term termKeys[i * termSize ...], its region address and the region state
+        private byte[] termKeys;
+        private long[] regionAddr;
+        private byte[] regionClass;
+        private int[]  rowCount;
+        private int[]  sortBound;
+        private int    terms;
+        private int    usedSlots; // terms + deleted slots
+
+        // the direct memory arena
+        private List<ByteBuffer> segments;
+        private int   sharedSegment;  // index of the segment that is currently used for new shared regions
+        private int   sharedFill;     // allocation pointer in the current shared segment
+        private long  directMemory;   // number of allocated direct bytes
+        private long[][] freeRegions; // stacks of free shared regions per size class
+        private int[] freeCount;
+
+        private final int termSize, objectsize, keylength;
+        private final Row rowdef;
+        private final ReferenceFactory<ReferenceType> factory;
+
+        // buffers that are re-used inside synchronized methods
+        private final byte[] keyBuffer;
+        private final byte[] rowBuffer;
+        private final byte[] transfer;
+
+        private Stripe() {
+            this.termSize = ReferenceContainerOffHeapCache.this.termSize;
+            this.objectsize = ReferenceContainerOffHeapCache.this.objectsize;
+            this.keylength = ReferenceContainerOffHeapCache.this.keylength;
+            this.rowdef = ReferenceContainerOffHeapCache.this.rowdef;
+            this.factory = ReferenceContainerOffHeapCache.this.factory;
+            this.keyBuffer = new byte[this.keylength];
+            this.rowBuffer = new byte[this.objectsize];
+            this.transfer = new byte[transferSize];
+            init();
+        }
+
+        private void init() {
+            initTable(64);
+            this.segments = new ArrayList<ByteBuffer>();
+            this.sharedSegment = -1;
+            this.sharedFill = segmentSize;
+            this.directMemory = 0;
+            this.freeRegions = new long[32][];
+            this.freeCount = new int[32];
+        }
+
+        private void initTable(final int slots) {
+            this.termKeys = new byte[slots * this.termSize];
+            this.regionAddr = new long[slots];
+            Arrays.fill(this.regionAddr, EMPTY);
+            this.regionClass = new byte[slots];
+            this.rowCount = new int[slots];
+            this.sortBound = new int[slots];
+            this.terms = 0;
+            this.usedSlots = 0;
+        }
+
+        /**
+         * release the direct memory of all segments. The regions must not be accessed any more.
+         */
+        private void releaseSegments() {
+            if (this.segments == null) return;
+            for (final ByteBuffer b: this.segments) DirectMemory.release(b);
+            this.segments.clear();
+            this.directMemory = 0;
+        }
+
+        private synchronized void clear() {
+            if (this.segments == null) return;
+            releaseSegments();
+            init();
+        }
+
+        private synchronized void close() {
+            releaseSegments();
+            this.segments = null;
+            this.termKeys = null;
+            this.regionAddr = null;
+        }
+
+        private synchronized int size() {
+            return (this.segments == null) ? 0 : this.terms;
+        }
+
+        private synchronized boolean isEmpty() {
+            return this.segments == null || this.terms == 0;
+        }
+
+        private synchronized long usedMemory() {
+            if (this.segments == null) return 0;
+            return this.directMemory + this.termKeys.length + this.regionAddr.length * 17L;
+        }
+
+        private synchronized long directMemory() {
+            return this.directMemory;
+        }
+
+        private synchronized int maxReferences() {
+            if (this.segments == null) return 0;
+            int max = 0;
+            for (int slot = 0; slot < this.regionAddr.length; slot++) {
+                if (this.regionAddr[slot] >= 0 && this.rowCount[slot] > max) max = this.rowCount[slot];
+            }
+            return max;
+        }
+
+        // term table
+
+        private boolean termAt(final int slot, final byte[] termHash) {
+            final int p = slot * this.termSize;
+            for (int i = 0; i < this.termSize; i++) if (this.termKeys[p + i] != termHash[i]) return false;
+            return true;
+        }
+
+        /**
+         * @return the slot that holds the given term or -1 if the term is not in the buffer
+         */
+        private int find(final byte[] termHash) {
+            if (this.segments == null || termHash == null) return -1;
+            final int mask = this.regionAddr.length - 1;
+            int slot = hash(termHash, 0, this.termSize) & mask;
+            long a;
+            while ((a = this.regionAddr[slot]) != EMPTY) {
+                if (a != DELETED && termAt(slot, termHash)) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * reserve a slot for a new term which is known not to be in the table
+         */
+        private int newSlot(final byte[] termHash) {
+            if ((this.usedSlots + 1) * 4 > this.regionAddr.length * 3) rehash();
+            final int mask = this.regionAddr.length - 1;
+            int slot = hash(termHash, 0, this.termSize) & mask;
+            while (this.regionAddr[slot] >= 0) slot = (slot + 1) & mask;
+            if (this.regionAddr[slot] == EMPTY) this.usedSlots++;
+            System.arraycopy(termHash, 0, this.termKeys, slot * this.termSize, this.termSize);
+            this.terms++;
+            return slot;
+        }
+
+        private void rehash() {
+            final byte[] oldKeys = this.termKeys;
+            final long[] oldAddr = this.regionAddr;
+            final byte[] oldClass = this.regionClass;
+            final int[] oldCount = this.rowCount;
+            final int[] oldBound = this.sortBound;
+            int slots = this.regionAddr.length;
+            while (this.terms * 2 > slots) slots <<= 1;
+            if (this.terms * 4 > slots) slots <<= 1;
+            initTable(slots);
+            final int mask = slots - 1;
+            for (int old = 0; old < oldAddr.length; old++) {
+                if (oldAddr[old] < 0) continue;
+                int slot = hash(oldKeys, old * this.termSize, this.termSize) & mask;
+                while (this.regionAddr[slot] != EMPTY) slot = (slot + 1) & mask;
+                System.arraycopy(oldKeys, old * this.termSize, this.termKeys, slot * this.termSize, this.termSize);
+                this.regionAddr[slot] = oldAddr[old];
+                this.regionClass[slot] = oldClass[old];
+                this.rowCount[slot] = oldCount[old];
+                this.sortBound[slot] = oldBound[old];
+                this.terms++;
+                this.usedSlots++;
+            }
+        }
+
+        private byte[] termAt(final int slot) {
+            final byte[] termHash = new byte[this.termSize];
+            System.arraycopy(this.termKeys, slot * this.termSize, termHash, 0, this.termSize);
+            return termHash;
+        }
+
+        private void deleteSlot(final int slot) {
+            freeRegion(this.regionAddr[slot], this.regionClass[slot]);
+            this.regionAddr[slot] = DELETED;
+            this.rowCount[slot] = 0;
+            this.sortBound[slot] = 0;
+            this.terms--;
+        }
+
+        // direct memory arena
+
+        private int capacity(final int sizeClass) {
+            return minCapacity << sizeClass;
+        }
+
+        private int sizeClassFor(final int rows) {
+            int c = 0;
+            while (capacity(c) < rows) c++;
+            return c;
+        }
+
+        private long allocRegion(final int sizeClass) throws SpaceExceededException {
+            final long bytes = ((long) capacity(sizeClass)) * this.objectsize;
+            if (bytes > Integer.MAX_VALUE) throw new SpaceExceededException(bytes, "ReferenceContainerOffHeapCache: region too large");
+            if (bytes > maxSharedRegion) {
+                // a large region gets its own segment
+                final ByteBuffer b = allocateDirect((int) bytes);
+                this.segments.add(b);
+                return ((long) (this.segments.size() - 1)) << 32;
+            }
+            if (this.freeCount[sizeClass] > 0) return this.freeRegions[sizeClass][--this.freeCount[sizeClass]];
+            if (this.sharedFill + bytes > segmentSize) {
+                this.segments.add(allocateDirect(segmentSize));
+                this.sharedSegment = this.segments.size() - 1;
+                this.sharedFill = 0;
+            }
+            final long addr = (((long) this.sharedSegment) << 32) | this.sharedFill;
+            this.sharedFill += (int) bytes;
+            return addr;
+        }
+
+        private ByteBuffer allocateDirect(final int bytes) throws SpaceExceededException {
+            try {
+                final ByteBuffer b = ByteBuffer.allocateDirect(bytes);
+                this.directMemory += bytes;
+                return b;
+            } catch (final OutOfMemoryError e) {
+                throw new SpaceExceededException(bytes, "ReferenceContainerOffHeapCache: direct memory exhausted", e);
+            }
+        }
+
+        private void freeRegion(final long addr, final int sizeClass) {
+            final long bytes = ((long) capacity(sizeClass)) * this.objectsize;
+            if (bytes > maxSharedRegion) {
+                final int s = segmentOf(addr);
+                final ByteBuffer b = this.segments.set(s, null);
+                this.directMemory -= b.capacity();
+                DirectMemory.release(b);
+                return;
+            }
+            long[] stack = this.freeRegions[sizeClass];
+            if (stack == null) {
+                stack = new long[16];
+                this.freeRegions[sizeClass] = stack;
+            } else if (this.freeCount[sizeClass] == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                this.freeRegions[sizeClass] = stack;
+            }
+            stack[this.freeCount[sizeClass]++] = addr;
+        }
+
+        private void read(final long addr, final int offset, final byte[] target, final int targetOffset, final int length) {
+            final ByteBuffer b = this.segments.get(segmentOf(addr));
+            ((Buffer) b).position(offsetOf(addr) + offset);
+            b.get(target, targetOffset, length);
+        }
+
+        private void write(final long addr, final int offset, final byte[] source, final int sourceOffset, final int length) {
+            final ByteBuffer b = this.segments.get(segmentOf(addr));
+            ((Buffer) b).position(offsetOf(addr) + offset);
+            b.put(source, sourceOffset, length);
+        }
+
+        private void copy(final long from, final long to, final int length) {
+            int p = 0;
+            while (p < length) {
+                final int l = Math.min(transferSize, length - p);
+                read(from, p, this.transfer, 0, l);
+                write(to, p, this.transfer, 0, l);
+                p += l;
+            }
+        }
+
+        // row access inside a region
+
+        /**
+         * compare the key with the primary key of the row at the given position
+         */
+        private int compareKey(final long addr, final int row, final byte[] key) {
+            read(addr, row * this.objectsize, this.keyBuffer, 0, this.keylength);
+            return this.rowdef.objectOrder.compare(key, 0, this.keyBuffer, 0, this.keylength);
+        }
+
+        private boolean matchKey(final long addr, final int row, final byte[] key) {
+            final ByteBuffer b = this.segments.get(segmentOf(addr));
+            final int p = offsetOf(addr) + row * this.objectsize;
+            for (int i = 0; i < this.keylength; i++) if (b.get(p + i) != key[i]) return false;
+            return true;
+        }
+
+        /**
+         * @return the row number of the row with the given primary key, or -1 if the region has no such row
+         */
+        private int findRow(final int slot, final byte[] key) {
+            final long addr = this.regionAddr[slot];
+            int l = 0, r = this.sortBound[slot];
+            while (l < r) {
+                final int p = (l + r) >>> 1;
+                final int d = compareKey(addr, p, key);
+                if (d == 0) return p;
+                if (d < 0) r = p; else l = p + 1;
+            }
+            for (int i = this.sortBound[slot]; i < this.rowCount[slot]; i++) {
+                if (matchKey(addr, i, key)) return i;
+            }
+            return -1;
+        }
+
+        private int reSortLimit(final int count) {
+            return Math.min(1000, Math.max(32, count >> 3));
+        }
+
+        /**
+         * put a row into the region of a term
+         * @param slot the slot of the term
+         * @param row the row, must have the length of the row definition
+         * @param recent if true then an existing row is only replaced if the new row is not older (like ReferenceContainer.putRecent),
+         *   otherwise it is always replaced (like ReferenceContainer.put)
+         * @return true if the row was added or replaced
+         */
+        private boolean putRow(final int slot, final byte[] row, final boolean recent) throws SpaceExceededException {
+            final int p = findRow(slot, row);
+            long addr = this.regionAddr[slot];
+            if (p >= 0) {
+                if (recent) {
+                    read(addr, p * this.objectsize, this.rowBuffer, 0, this.objectsize);
+                    final ReferenceType oldEntry = this.factory.produceSlow(this.rowdef.newEntry(this.rowBuffer));
+                    final ReferenceType newEntry = this.factory.produceSlow(this.rowdef.newEntry(row));
+                    if (newEntry.isOlder(oldEntry)) return false;
+                }
+                write(addr, p * this.objectsize, row, 0, this.objectsize);
+                return true;
+            }
+            final int count = this.rowCount[slot];
+            if (count == capacity(this.regionClass[slot])) {
+                final int newClass = this.regionClass[slot] + 1;
+                final long newAddr = allocRegion(newClass);
+                copy(addr, newAddr, count * this.objectsize);
+                freeRegion(addr, this.regionClass[slot]);
+                this.regionAddr[slot] = addr = newAddr;
+                this.regionClass[slot] = (byte) newClass;
+            }
+            write(addr, count * this.objectsize, row, 0, this.objectsize);
+            this.rowCount[slot] = count + 1;
+            // extend the sorted area if the new row is appended in order
+            if (this.sortBound[slot] == count && (count == 0 || compareKey(addr, count - 1, row) > 0)) {
+                this.sortBound[slot] = count + 1;
+            } else if (count + 1 - this.sortBound[slot] > reSortLimit(count + 1)) {
+                sortRegion(slot);
+            }
+            return true;
+        }
+
+        /**
+         * sort the unsorted tail of a region and merge it into the sorted area
+         */
+        private void sortRegion(final int slot) throws SpaceExceededException {
+            final int count = this.rowCount[slot];
+            final int bound = this.sortBound[slot];
+            if (bound == count) return;
+            final RowSet sorted = readRows(slot, 0, bound);
+            final RowSet tail = readRows(slot, bound, count);
+            final List<RowSet> parts = new ArrayList<RowSet>(2);
+            parts.add(sorted);
+            parts.add(tail);
+            final ReferenceContainer<ReferenceType> merged = ReferenceContainer.merge(this.factory, null, parts);
+            writeRows(slot, merged);
+        }
+
+        private RowSet readRows(final int slot, final int from, final int to) throws SpaceExceededException {
+            final long bytes = ((long) (to - from)) * this.objectsize;
+            final byte[] chunk;
+            try {
+                chunk = new byte[(int) bytes];
+            } catch (final OutOfMemoryError e) {
+                throw new SpaceExceededException(bytes, "ReferenceContainerOffHeapCache: readRows");
+            }
+            if (bytes > 0) read(this.regionAddr[slot], from * this.objectsize, chunk, 0, chunk.length);
+            return new RowSet(this.rowdef, to - from, chunk, from == 0 ? this.sortBound[slot] : 0);
+        }
+
+        /**
+         * replace the rows of a region with the rows of the given collection; the collection must not be larger than the region
+         */
+        private void writeRows(final int slot, final RowSet rows) {
+            final byte[] export = rows.exportCollection(); // sorts the rows
+            final int count = rows.size();
+            assert count <= capacity(this.regionClass[slot]);
+            write(this.regionAddr[slot], 0, export, export.length - count * this.objectsize, count * this.objectsize);
+            this.rowCount[slot] = count;
+            this.sortBound[slot] = count;
+        }
+
+        /**
+         * create a ReferenceContainer with a copy of the references of a term
+         */
+        private ReferenceContainer<ReferenceType> container(final int slot) throws SpaceExceededException {
+            return new ReferenceContainer<ReferenceType>(this.factory, termAt(slot), readRows(slot, 0, this.rowCount[slot]));
+        }
+
+        // Index methods
+
+        private synchronized int count(final byte[] termHash) {
+            final int slot = find(termHash);
+            return slot < 0 ? 0 : this.rowCount[slot];
+        }
+
+        private synchronized boolean has(final byte[] termHash) {
+            return find(termHash) >= 0;
+        }
+
+        private synchronized ReferenceContainer<ReferenceType> get(final byte[] termHash) throws SpaceExceededException {
+            final int slot = find(termHash);
+            return slot < 0 ? null : container(slot);
+        }
+
+        private synchronized ReferenceContainer<ReferenceType> remove(final byte[] termHash) {
+            final int slot = find(termHash);
+            if (slot < 0) return null;
+            ReferenceContainer<ReferenceType> c = null;
+            try {
+                c = container(slot);
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+            }
+            deleteSlot(slot);
+            return c;
+        }
+
+        private synchronized void delete(final byte[] termHash) {
+            final int slot = find(termHash);
+            if (slot >= 0) deleteSlot(slot);
+        }
+
+        private synchronized boolean remove(final byte[] termHash, final byte[] urlHashBytes) {
+            final int slot = find(termHash);
+            if (slot < 0) return false;
+            final int p = findRow(slot, urlHashBytes);
+            if (p < 0) return false;
+            final int count = this.rowCount[slot];
+            if (count == 1) {
+                deleteSlot(slot);
+                return true;
+            }
+            // move the following rows one position down; this keeps the order of the sorted area
+            final long addr = this.regionAddr[slot];
+            for (int i = p + 1; i < count; i++) {
+                read(addr, i * this.objectsize, this.rowBuffer, 0, this.objectsize);
+                write(addr, (i - 1) * this.objectsize, this.rowBuffer, 0, this.objectsize);
+            }
+            this.rowCount[slot] = count - 1;
+            if (p < this.sortBound[slot]) this.sortBound[slot]--;
+            return true;
+        }
+
+        private synchronized int remove(final byte[] termHash, final HandleSet urlHashes) {
+            final int slot = find(termHash);
+            if (slot < 0) return 0;
+            try {
+                final ReferenceContainer<ReferenceType> c = container(slot);
+                final int count = c.removeEntries(urlHashes);
+                if (count == 0) return 0;
+                if (c.isEmpty()) deleteSlot(slot); else writeRows(slot, c);
+                return count;
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+                return 0;
+            }
+        }
+
+        /**
+         * @return the slot of the term, a new slot with an empty region if the term was not in the stripe, or -1 if the stripe is closed
+         */
+        private int slotFor(final byte[] termHash, final int rows) throws SpaceExceededException {
+            if (this.segments == null) return -1;
+            int slot = find(termHash);
+            if (slot < 0) {
+                slot = newSlot(termHash);
+                this.regionClass[slot] = (byte) sizeClassFor(rows);
+                this.regionAddr[slot] = allocRegion(this.regionClass[slot]);
+                this.rowCount[slot] = 0;
+                this.sortBound[slot] = 0;
+            }
+            return slot;
+        }
+
+        private synchronized void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException {
+            final int slot = slotFor(container.getTermHash(), container.size());
+            if (slot < 0) return;
+            synchronized (container) {
+                final Iterator<Row.Entry> i = container.iterator();
+                while (i.hasNext()) {
+                    final Row.Entry row = i.next();
+                    if (row == null) continue;
+                    row.writeToArray(this.rowBuffer, 0);
+                    putRow(slot, this.rowBuffer, true);
+                }
+            }
+        }
+
+        private synchronized void add(final byte[] termHash, final byte[] row) throws SpaceExceededException {
+            final int slot = slotFor(termHash, 1);
+            if (slot < 0) return;
+            putRow(slot, row, false);
+        }
+
+        /**
+         * add the terms of this stripe to the list
+         */
+        private synchronized void terms(final List<byte[]> list) {
+            if (this.segments == null) return;
+            for (int slot = 0; slot < this.regionAddr.length; slot++) {
+                if (this.regionAddr[slot] >= 0) list.add(termAt(slot));
+            }
+        }
+    }
+
+    // Index methods
+
+    @Override
+    public boolean has(final byte[] termHash) {
+        final Stripe s = stripe(termHash);
+        return s != null && s.has(termHash);
+    }
+
+    @Override
+    public int count(final byte[] termHash) {
+        final Stripe s = stripe(termHash);
+        return s == null ? 0 : s.count(termHash);
+    }
+
+    /**
+     * get a copy of the references of a term
+     * @param termHash
+     * @param urlselection if not null, only references to urls in this set are returned
+     * @return the references or null if the buffer has no references for the term
+     */
+    @Override
+    public ReferenceContainer<ReferenceType> get(final byte[] termHash, final HandleSet urlselection) {
+        final Stripe s = stripe(termHash);
+        if (s == null) return null;
+        final ReferenceContainer<ReferenceType> c;
+        try {
+            c = s.get(termHash);
+            if (c == null) return null;
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+            return null;
+        }
+        if (urlselection == null) return c;
+        try {
+            final ReferenceContainer<ReferenceType> c1 = new ReferenceContainer<ReferenceType>(this.factory, c.getTermHash(), c.size());
+            final Iterator<ReferenceType> e = c.entries();
+            ReferenceType ee;
+            while (e.hasNext()) {
+                ee = e.next();
+                if (urlselection.has(ee.urlhash())) c1.add(ee);
+            }
+            return c1;
+        } catch (final SpaceExceededException e) {
+            ConcurrentLog.logException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public ReferenceContainer<ReferenceType> remove(final byte[] termHash) {
+        final Stripe s = stripe(termHash);
+        return s == null ? null : s.remove(termHash);
+    }
+
+    @Override
+    public void delete(final byte[] termHash) {
+        final Stripe s = stripe(termHash);
+        if (s != null) s.delete(termHash);
+    }
+
+    @Override
+    public void removeDelayed(final byte[] termHash, final byte[] urlHashBytes) {
+        remove(termHash, urlHashBytes);
+    }
+
+    @Override
+    public void removeDelayed() {}
+
+    @Override
+    public boolean remove(final byte[] termHash, final byte[] urlHashBytes) {
+        final Stripe s = stripe(termHash);
+        return s != null && s.remove(termHash, urlHashBytes);
+    }
+
+    @Override
+    public int remove(final byte[] termHash, final HandleSet urlHashes) {
+        if (urlHashes.isEmpty()) return 0;
+        final Stripe s = stripe(termHash);
+        return s == null ? 0 : s.remove(termHash, urlHashes);
+    }
+
+    @Override
+    public void add(final ReferenceContainer<ReferenceType> container) throws SpaceExceededException {
+        if (container == null || container.isEmpty()) return;
+        final Stripe s = stripe(container.getTermHash());
+        if (s != null) s.add(container);
+    }
+
+    @Override
+    public void add(final byte[] termHash, final ReferenceType newEntry) throws SpaceExceededException {
+        final Stripe s = stripe(termHash);
+        if (s != null) s.add(termHash, newEntry.toKelondroEntry().bytes());
+    }
+
+    /**
+     * @return all terms in the buffer in the term order
+     */
+    private List<byte[]> sortedTerms() {
+        final List<byte[]> list = new ArrayList<byte[]>();
+        for (final Stripe s: this.stripes) s.terms(list);
+        list.sort(this.termOrder);
+        return list;
+    }
+
+    @Override
+    public Iterator<ByteArray> keys() {
+        final List<byte[]> terms = new ArrayList<byte[]>();
+        for (final Stripe s: this.stripes) s.terms(terms);
+        final List<ByteArray> list = new ArrayList<ByteArray>(terms.size());
+        for (final byte[] term: terms) list.add(new ByteArray(term));
+        return list.iterator();
+    }
+
+    @Override
+    public void dump(final File heapFile, final int writeBuffer, final boolean destructive) {
+        log.info("creating rwi heap dump '" + heapFile.getName() + "', " + size() + " rwi's, " + (directMemory() / 1024 / 1024) + " MB direct memory");
+        if (heapFile.exists()) FileUtils.deletedelete(heapFile);
+        final File tmpFile = new File(heapFile.getParentFile(), heapFile.getName() + ".prt");
+        HeapWriter dump;
+        try {
+            dump = new HeapWriter(tmpFile, heapFile, this.termSize, this.termOrder, writeBuffer);
+        } catch (final IOException e1) {
+            ConcurrentLog.logException(e1);
+            return;
+        }
+        final long startTime = System.currentTimeMillis();
+        long wordcount = 0, urlcount = 0;
+        for (final byte[] term: sortedTerms()) {
+            final ReferenceContainer<ReferenceType> container = destructive ? remove(term) : get(term, null);
+            if (container == null) continue;
+            try {
+                dump.add(term, container.exportCollection());
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            } catch (final SpaceExceededException e) {
+                ConcurrentLog.logException(e);
+            }
+            urlcount += container.size();
+            wordcount++;
+        }
+        // the containers are copies, so the direct memory can be released before the file is finished
+        if (destructive) clear();
+        try {
+            dump.close(true);
+            log.info("finished rwi heap dump: " + wordcount + " terms, " + urlcount + " term/data relations in " + (System.currentTimeMillis() - startTime) + " milliseconds");
+        } catch (final IOException e) {
+            log.severe("failed rwi heap dump: " + e.getMessage(), e);
+        } finally {
+            dump = null;
+        }
+    }
+
+    @Override
+    public Iterator<ReferenceContainer<ReferenceType>> iterator() {
+        return referenceContainerIterator(null, false, false);
+    }
+
+    @Override
+    public CloneableIterator<ReferenceContainer<ReferenceType>> referenceContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+        return new ReferenceContainerIterator(startWordHash, rot, excludePrivate);
+    }
+
+    @Override
+    public CloneableIterator<Rating<byte[]>> referenceCountIterator(final byte[] startHash, final boolean rot, final boolean excludePrivate) {
+        return new ReferenceCountIterator(startHash, rot, excludePrivate);
+    }
+
+    /**
+     * iterates over a sorted snapshot of the terms in the buffer; the term content is read when the term is reached
+     */
+    private abstract class TermIterator<E> {
+
+        protected final boolean rot, excludePrivate;
+        private final List<byte[]> termcopy;
+        private int p;
+        private byte[] latestTermHash;
+
+        public TermIterator(byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+            this.rot = rot;
+            this.excludePrivate = excludePrivate;
+            if (startWordHash != null && startWordHash.length == 0) startWordHash = null;
+            this.termcopy = sortedTerms();
+            this.p = 0;
+            if (startWordHash != null) {
+                while (this.p < this.termcopy.size() && ReferenceContainerOffHeapCache.this.termOrder.compare(this.termcopy.get(this.p), startWordHash) < 0) this.p++;
+            }
+            this.latestTermHash = null;
+        }
+
+        protected abstract E produce(byte[] termHash);
+
+        public boolean hasNext() {
+            if (this.rot) return !this.termcopy.isEmpty();
+            return this.p < this.termcopy.size();
+        }
+
+        public E next() {
+            for (int round = 0; round < 2; round++) {
+                while (this.p < this.termcopy.size()) {
+                    this.latestTermHash = this.termcopy.get(this.p++);
+                    if (this.excludePrivate && Word.isPrivate(this.latestTermHash)) continue;
+                    final E e = produce(this.latestTermHash);
+                    if (e != null) return e;
+                }
+                // rotation iteration
+                if (!this.rot || this.termcopy.isEmpty()) return null;
+                this.p = 0;
+            }
+            return null;
+        }
+
+        public void remove() {
+            if (this.latestTermHash != null) delete(this.latestTermHash);
+        }
+
+        public void close() {
+        }
+    }
+
+    public class ReferenceContainerIterator extends TermIterator<ReferenceContainer<ReferenceType>> implements CloneableIterator<ReferenceContainer<ReferenceType>>, Iterable<ReferenceContainer<ReferenceType>> {
+
+        public ReferenceContainerIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+            super(startWordHash, rot, excludePrivate);
+        }
+
+        @Override
+        protected ReferenceContainer<ReferenceType> produce(final byte[] termHash) {
+            return get(termHash, null);
+        }
+
+        @Override
+        public ReferenceContainerIterator clone(final Object secondWordHash) {
+            return new ReferenceContainerIterator((byte[]) secondWordHash, this.rot, this.excludePrivate);
+        }
+
+        @Override
+        public Iterator<ReferenceContainer<ReferenceType>> iterator() {
+            return this;
+        }
+    }
+
+    public class ReferenceCountIterator extends TermIterator<Rating<byte[]>> implements CloneableIterator<Rating<byte[]>>, Iterable<Rating<byte[]>> {
+
+        public ReferenceCountIterator(final byte[] startWordHash, final boolean rot, final boolean excludePrivate) {
+            super(startWordHash, rot, excludePrivate);
+        }
+
+        @Override
+        protected Rating<byte[]> produce(final byte[] termHash) {
+            final int c = count(termHash);
+            return c == 0 ? null : new Rating<byte[]>(termHash, c);
+        }
+
+        @Override
+        public ReferenceCountIterator clone(final Object secondWordHash) {
+            return new ReferenceCountIterator((byte[]) secondWordHash, this.rot, this.excludePrivate);
+        }
+
+        @Override
+        public Iterator<Rating<byte[]>> iterator() {
+            return this;
+        }
+    }
+
+    /**
+     * return a string with the key as a list
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(size() * 13 + 2);
+        sb.append('[');
+        final Iterator<ByteArray> i = keys();
+        while (i.hasNext()) sb.append(ASCII.String(i.next().asBytes())).append(',');
+        if (sb.length() == 1) sb.append(']'); else sb.setCharAt(sb.length() - 1, ']');
+        return sb.toString();
+    }
+}
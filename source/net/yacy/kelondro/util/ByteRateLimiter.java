@@ -0,0 +1,82 @@
+// ByteRateLimiter.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+package net.yacy.kelondro.util;
+
+/**
+ * A token bucket that limits the throughput of a bulk IO process, like the merging of index files,
+ * to a given number of bytes per second. The process calls consume() for every chunk of bytes it has
+ * written or read; if the process is faster than the budget, consume() sleeps until the budget allows the bytes.
+ * Up to one second of budget may be used as a burst.
+ */
+public class ByteRateLimiter {
+
+    private volatile long bytesPerSecond; // <= 0 means no limit
+    private long available;               // the current content of the bucket; may become negative
+    private long lastRefill;
+    private long throttledMillis;         // the total time that consume() has slept
+
+    /**
+     * @param bytesPerSecond the budget; a value <= 0 switches the limit off
+     */
+    public ByteRateLimiter(final long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = Math.max(0, bytesPerSecond);
+        this.lastRefill = System.currentTimeMillis();
+        this.throttledMillis = 0;
+    }
+
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getBytesPerSecond() {
+        return this.bytesPerSecond;
+    }
+
+    /**
+     * @return the total time in milliseconds that the limiter has delayed the process
+     */
+    public synchronized long getThrottledMillis() {
+        return this.throttledMillis;
+    }
+
+    /**
+     * account the given number of bytes and wait if the budget is exceeded
+     * @param bytes
+     * @throws InterruptedException
+     */
+    public void consume(final long bytes) throws InterruptedException {
+        final long rate = this.bytesPerSecond;
+        if (rate <= 0 || bytes <= 0) return;
+        final long wait;
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+            this.available = Math.min(rate, this.available + (now - this.lastRefill) * rate / 1000);
+            this.lastRefill = now;
+            this.available -= bytes;
+            if (this.available >= 0) return;
+            wait = -this.available * 1000 / rate;
+            this.throttledMillis += wait;
+        }
+        Thread.sleep(wait);
+    }
+}
@@ -0,0 +1,99 @@
+// DirectMemory.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * Explicit release of direct and memory mapped ByteBuffers.
+ * The memory of such a buffer is normally released only when the buffer object is garbage collected,
+ * which may happen very late because the buffer object itself is small. A mapped file can not be deleted
+ * on some operating systems as long as the mapping exists.
+ * The JVM has no public API for this; on java 9 and later sun.misc.Unsafe.invokeCleaner is used,
+ * on java 8 the cleaner of sun.nio.ch.DirectBuffer. If neither is available, release() does nothing.
+ */
+public final class DirectMemory {
+
+    private static final Object unsafe;          // java 9 and later
+    private static final Method invokeCleaner;
+    private static final Method cleaner, clean;  // java 8
+
+    static {
+        Object u = null;
+        Method ic = null, cr = null, cl = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            ic = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            u = f.get(null);
+        } catch (final Throwable e) {
+            ic = null;
+            u = null;
+            try {
+                cr = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                cl = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                cr.setAccessible(true);
+                cl.setAccessible(true);
+            } catch (final Throwable ee) {
+                cr = null;
+                cl = null;
+                ConcurrentLog.info("DirectMemory", "direct buffers can not be released explicitly: " + ee.getMessage());
+            }
+        }
+        unsafe = u;
+        invokeCleaner = ic;
+        cleaner = cr;
+        clean = cl;
+    }
+
+    private DirectMemory() {}
+
+    /**
+     * release the memory of a direct or memory mapped buffer. The buffer must not be used any more after this call,
+     * also no duplicate or slice of it: an access would read freed memory and may crash the JVM.
+     * @param buffer the buffer, may be null
+     * @return true if the memory was released, false if the buffer is not direct or the release is not supported
+     */
+    public static boolean release(final ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return false;
+        try {
+            if (invokeCleaner != null) {
+                invokeCleaner.invoke(unsafe, buffer);
+                return true;
+            }
+            if (cleaner != null) {
+                final Object c = cleaner.invoke(buffer);
+                if (c == null) return false; // a duplicate or slice
+                clean.invoke(c);
+                return true;
+            }
+        } catch (final Throwable e) {
+            // a duplicate or slice, or the release is not permitted
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+// VirtualThreads.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+package net.yacy.kelondro.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * access to the virtual threads of Java 21 and later while the code is still compiled for Java 8.
+ * A virtual thread that waits for network IO does not block an operating system thread,
+ * so that thousands of blocking requests can run on a small pool of carrier threads.
+ */
+public final class VirtualThreads {
+
+    private static final ThreadFactory factory = virtualThreadFactory("virtual-");
+    private static final Method newThreadPerTaskExecutor = threadPerTaskExecutorMethod();
+
+    private VirtualThreads() {}
+
+    /**
+     * @return true if the running JVM can create virtual threads
+     */
+    public static boolean isSupported() {
+        return factory != null && newThreadPerTaskExecutor != null;
+    }
+
+    /**
+     * create an executor that starts a new virtual thread for each task
+     * @param namePrefix the prefix of the thread names, a counter is appended
+     * @return the executor or null if the JVM has no virtual threads
+     */
+    public static ExecutorService newThreadPerTaskExecutor(final String namePrefix) {
+        if (!isSupported()) return null;
+        final ThreadFactory f = virtualThreadFactory(namePrefix);
+        if (f == null) return null;
+        try {
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, f);
+        } catch (final ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory virtualThreadFactory(final String namePrefix) {
+        try {
+            // Thread.ofVirtual().name(namePrefix, 0).factory()
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object named = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(named);
+        } catch (final ReflectiveOperationException e) {
+            return null; // Java 20 or older
+        } catch (final RuntimeException e) {
+            return null; // a preview feature that is not enabled
+        }
+    }
+
+    private static Method threadPerTaskExecutorMethod() {
+        try {
+            return Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
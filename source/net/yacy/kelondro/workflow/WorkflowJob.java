@@ -33,6 +33,7 @@ public class WorkflowJob {
     public final static int STATUS_POISON    = 99;
     
     public int status = STATUS_INITIATED;
+    public long enqueued = 0; // the time from System.nanoTime() when the job was put into the queue of a processor
     
     public WorkflowJob() {
         this.status = STATUS_INITIATED;
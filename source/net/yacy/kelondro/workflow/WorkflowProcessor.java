@@ -26,14 +26,19 @@ package net.yacy.kelondro.workflow;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.LatencyHistogram;
 import net.yacy.kelondro.util.NamePrefixThreadFactory;
 
 
@@ -41,8 +46,11 @@ public class WorkflowProcessor<J extends WorkflowJob> {
 
     public static final int availableCPU = Runtime.getRuntime().availableProcessors();
     private static final ArrayList<WorkflowProcessor<?>> processMonitor = new ArrayList<WorkflowProcessor<?>>();
+    private static ForkJoinPool sharedPool = null; // the work-stealing pool of all processors in shared mode
+    private static final int queueSizeSamples = 300; // the length of the queue size history
+    private static final long queueSizeSampleInterval = 1000; // the minimum time in milliseconds between two samples of the queue size
 
-    private ExecutorService executor;
+    private ExecutorService executor; // null in shared mode
     private AtomicInteger executorRunning;
     private BlockingQueue<J> input;
     private final WorkflowProcessor<J> output;
@@ -50,23 +58,44 @@ public class WorkflowProcessor<J extends WorkflowJob> {
     private final WorkflowTask<J> task;
     private final String processName, description;
     private final String[] childs;
-    private long blockTime, execTime, passOnTime;
+    private final boolean shared;
+    private long blockTime, execTime, passOnTime; // execTime is counted in nanoseconds
     private long execCount;
+    private final LatencyHistogram waitHistogram, execHistogram; // the time that jobs wait in the input queue and that their execution takes
+    private final long[] queueSizeTimes; // a ring of the times of queue size samples
+    private final int[] queueSizes; // a ring of queue size samples
+    private int queueSizeCount; // the number of samples taken
+    private volatile long lastQueueSizeSample; // the time of the latest sample, read without the lock on every enQueue
 
     public WorkflowProcessor(
             final String name, final String description, final String[] childnames,
             final WorkflowTask<J> task,
             final int inputQueueSize, final WorkflowProcessor<J> output,
             final int maxpoolsize) {
+        this(name, description, childnames, task, inputQueueSize, output, maxpoolsize, false);
+    }
+
+    /**
+     * @param shared if true, the jobs are not executed by own threads but as tasks of a work-stealing pool
+     * which is shared by all processors in shared mode. At most maxpoolsize jobs of this processor run at the
+     * same time; a job which is passed on to a full queue of the next processor keeps its place until the queue
+     * takes it. This lets a busy processor use the cores which an idle processor does not need.
+     */
+    public WorkflowProcessor(
+            final String name, final String description, final String[] childnames,
+            final WorkflowTask<J> task,
+            final int inputQueueSize, final WorkflowProcessor<J> output,
+            final int maxpoolsize, final boolean shared) {
         // start a fixed number of executors that handle entries in the process queue
         this.processName = name;
         this.description = description;
         this.task = task;
         this.childs = childnames;
         this.maxpoolsize = maxpoolsize;
+        this.shared = shared;
         this.input = new LinkedBlockingQueue<J>(Math.max(maxpoolsize + 1, inputQueueSize));
         this.output = output;
-        this.executor = Executors.newCachedThreadPool(new NamePrefixThreadFactory(name));
+        this.executor = shared ? null : Executors.newCachedThreadPool(new NamePrefixThreadFactory(name));
         this.executorRunning = new AtomicInteger(0);
         /*
         for (int i = 0; i < this.maxpoolsize; i++) {
@@ -79,11 +108,29 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         this.execTime = 0;
         this.passOnTime = 0;
         this.execCount = 0;
+        this.waitHistogram = new LatencyHistogram();
+        this.execHistogram = new LatencyHistogram();
+        this.queueSizeTimes = new long[queueSizeSamples];
+        this.queueSizes = new int[queueSizeSamples];
+        this.queueSizeCount = 0;
+        this.lastQueueSizeSample = 0;
 
         // store this object for easy monitoring
         processMonitor.add(this);
     }
 
+    private static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null) {
+            // asynchronous mode: forked tasks are executed in the order of their submission
+            sharedPool = new ForkJoinPool(availableCPU, pool -> {
+                final ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                t.setName("WorkflowProcessor.shared_" + t.getPoolIndex());
+                return t;
+            }, null, true);
+        }
+        return sharedPool;
+    }
+
     public WorkflowTask<J> getTask() {
 		return this.task;
 	}
@@ -125,6 +172,7 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         final long t = System.currentTimeMillis();
         final J j = this.input.take();
         this.blockTime += System.currentTimeMillis() - t;
+        if (j != null && j != WorkflowJob.poisonPill) this.waitHistogram.addSince(j.enqueued);
         return j;
     }
 
@@ -166,7 +214,7 @@ public class WorkflowProcessor<J extends WorkflowJob> {
 
     public void enQueue(final J in) {
         // ensure that enough job executors are running
-        if (this.input == null || this.executor == null || this.executor.isShutdown() || this.executor.isTerminated()) {
+        if (this.input == null || (!this.shared && (this.executor == null || this.executor.isShutdown() || this.executor.isTerminated()))) {
             // execute serialized without extra thread
             //Log.logWarning("PROCESSOR", "executing job " + environment.getClass().getName() + "." + methodName + " serialized");
             try {
@@ -178,7 +226,13 @@ public class WorkflowProcessor<J extends WorkflowJob> {
                 ConcurrentLog.logException(e);
             }
             return;
-        }        
+        }
+        in.enqueued = System.nanoTime();
+        sampleQueueSize();
+        if (this.shared) {
+            enQueueShared(in);
+            return;
+        }
         // execute concurrent in thread
         while (this.input != null) {
             try {
@@ -196,8 +250,84 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         }
     }
 
+    private void enQueueShared(final J in) {
+        final BlockingQueue<J> queue = this.input;
+        try {
+            // wait until the queue has space; a waiting worker of the shared pool is replaced by a spare thread meanwhile
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean done = false;
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!this.done) {
+                        queue.put(in);
+                        this.done = true;
+                    }
+                    return true;
+                }
+                @Override
+                public boolean isReleasable() {
+                    return this.done || (this.done = queue.offer(in));
+                }
+            });
+        } catch (final InterruptedException e) {
+            // do not lose the job
+            try {
+                final J out = this.task.process(in);
+                if (out != null && this.output != null) this.output.enQueue(out);
+            } catch (final Throwable ee) {
+                ConcurrentLog.logException(ee);
+            }
+            return;
+        }
+        schedule(queue);
+    }
+
+    /**
+     * start tasks in the shared pool for the queued jobs, as long as less than maxpoolsize tasks are running
+     */
+    private void schedule(final BlockingQueue<J> queue) {
+        final ForkJoinPool pool = sharedPool();
+        while (!queue.isEmpty()) {
+            final int running = this.executorRunning.get();
+            if (running >= this.maxpoolsize) return; // a running task schedules again when it is finished
+            if (!this.executorRunning.compareAndSet(running, running + 1)) continue;
+            final ForkJoinTask<?> job = ForkJoinTask.adapt(new Runnable() {
+                @Override
+                public void run() {
+                    WorkflowProcessor.this.runShared(queue);
+                }
+            });
+            if (ForkJoinTask.getPool() == pool) job.fork(); else pool.execute(job);
+        }
+    }
+
+    private void runShared(final BlockingQueue<J> queue) {
+        try {
+            final J next = queue.poll();
+            if (next == null) return;
+            this.waitHistogram.addSince(next.enqueued);
+            final long t = System.nanoTime();
+            J out = null;
+            try {
+                out = this.task.process(next);
+            } catch (final Throwable e) {
+                ConcurrentLog.severe("WorkflowProcess", "Runtime Error in shared job of " + this.processName + ": " + e.getMessage());
+                ConcurrentLog.logException(e);
+            }
+            increaseJobTime(System.nanoTime() - t);
+            if (out != null) passOn(out); // the place of this task is kept until the next queue takes the result
+        } finally {
+            this.executorRunning.decrementAndGet();
+        }
+        schedule(queue);
+    }
+
     @SuppressWarnings("unchecked")
     public void shutdown() {
+        if (this.shared) {
+            shutdownShared();
+            return;
+        }
         if (this.executor == null) {
             return;
         }
@@ -237,7 +367,46 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         ConcurrentLog.info("serverProcessor", "queue " + this.processName + ": shutdown.");
         this.executor = null;
         this.input = null;
-        // remove entry from monitor
+        removeFromMonitor();
+    }
+
+    private void shutdownShared() {
+        if (this.input == null) {
+            return;
+        }
+        // the tasks of the shared pool do not take poison pills; wait until the pool has done all jobs.
+        // A running task schedules the next job of its queue, so the pool is only quiescent if all queues are empty.
+        final ForkJoinPool pool;
+        synchronized (WorkflowProcessor.class) {
+            pool = sharedPool;
+        }
+        if (pool != null && !pool.awaitQuiescence(60, TimeUnit.SECONDS)) {
+            ConcurrentLog.warn("WorkflowProcess", "queue " + this.processName + " did not shut down in time; input.size = " + this.input.size());
+        }
+        ConcurrentLog.info("serverProcessor", "queue " + this.processName + ": shutdown.");
+        this.input = null;
+        removeFromMonitor();
+        shutdownSharedPool();
+    }
+
+    /**
+     * terminate the shared pool when the last processor in shared mode was shut down
+     */
+    private static void shutdownSharedPool() {
+        final ForkJoinPool pool;
+        synchronized (WorkflowProcessor.class) {
+            if (sharedPool == null) return;
+            for (final WorkflowProcessor<?> p: processMonitor) if (p.shared) return; // the pool is still used
+            pool = sharedPool;
+            sharedPool = null;
+        }
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) ConcurrentLog.warn("WorkflowProcess", "the shared pool did not terminate in time");
+        } catch (final InterruptedException e) {}
+    }
+
+    private void removeFromMonitor() {
         final Iterator<WorkflowProcessor<?>> i = processes();
         WorkflowProcessor<?> p;
         while (i.hasNext()) {
@@ -253,9 +422,57 @@ public class WorkflowProcessor<J extends WorkflowJob> {
         return processMonitor.iterator();
     }
 
-    protected void increaseJobTime(final long time) {
-        this.execTime += time;
+    /**
+     * @param nanos the execution time of a job in nanoseconds
+     */
+    protected void increaseJobTime(final long nanos) {
+        this.execTime += nanos;
         this.execCount++;
+        this.execHistogram.add(nanos / 1000L);
+    }
+
+    /**
+     * @return the histogram of the time in microseconds that jobs waited in the input queue
+     */
+    public LatencyHistogram getWaitHistogram() {
+        return this.waitHistogram;
+    }
+
+    /**
+     * @return the histogram of the execution time of jobs in microseconds
+     */
+    public LatencyHistogram getExecHistogram() {
+        return this.execHistogram;
+    }
+
+    /**
+     * take a sample of the queue size, if the last sample is older than one second
+     */
+    public void sampleQueueSize() {
+        final long now = System.currentTimeMillis();
+        if (now - this.lastQueueSizeSample < queueSizeSampleInterval) return; // the usual case, without a lock
+        synchronized (this.queueSizes) {
+            if (now - this.lastQueueSizeSample < queueSizeSampleInterval) return; // sampled by a concurrent call
+            final int p = this.queueSizeCount % queueSizeSamples;
+            this.queueSizeTimes[p] = now;
+            this.queueSizes[p] = getQueueSize();
+            this.queueSizeCount++;
+            this.lastQueueSizeSample = now;
+        }
+    }
+
+    /**
+     * @return the latest samples of the queue size, the oldest first; each sample is an array of the time in milliseconds and the queue size
+     */
+    public List<long[]> getQueueSizeHistory() {
+        synchronized (this.queueSizes) {
+            final int n = Math.min(this.queueSizeCount, queueSizeSamples);
+            final List<long[]> history = new ArrayList<long[]>(n);
+            for (int i = this.queueSizeCount - n; i < this.queueSizeCount; i++) {
+                history.add(new long[]{this.queueSizeTimes[i % queueSizeSamples], this.queueSizes[i % queueSizeSamples]});
+            }
+            return history;
+        }
     }
 
     public String getName() {
@@ -288,7 +505,7 @@ public class WorkflowProcessor<J extends WorkflowJob> {
      * @return
      */
     public long getExecTime() {
-        return this.execTime;
+        return this.execTime / 1000000L;
     }
     public long getExecCount() {
         return this.execCount;
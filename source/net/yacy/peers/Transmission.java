@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -171,14 +172,14 @@ public class Transmission {
                 }
                 testids.add(ASCII.String(e.urlhash()));
             }
-            i = c.entries();
-            while (i.hasNext()) {
-                final WordReference e = i.next();
-                if (Transmission.this.segment.fulltext().exists(ASCII.String(e.urlhash()))) {
-                    this.references.put(e.urlhash());
+            final Map<String, Long> known = Transmission.this.segment.fulltext().getLoadDates(testids);
+            for (final String id: testids) {
+                final byte[] urlhash = ASCII.getBytes(id);
+                if (known.containsKey(id)) {
+                    this.references.put(urlhash);
                 } else {
-                    notFoundx.add(e.urlhash());
-                    this.badReferences.put(e.urlhash());
+                    notFoundx.add(urlhash);
+                    this.badReferences.put(urlhash);
                 }
             }
             // now delete all references that were not found
@@ -51,6 +51,7 @@ import net.yacy.cora.protocol.HeaderFramework;
 import net.yacy.cora.protocol.RequestHeader;
 import net.yacy.cora.protocol.ResponseHeader;
 import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.FinishingInputStream;
 import net.yacy.crawler.data.Cache;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.crawler.retrieval.FTPLoader;
@@ -60,6 +61,7 @@ import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
 import net.yacy.crawler.retrieval.SMBLoader;
 import net.yacy.crawler.retrieval.StreamResponse;
+import net.yacy.crawler.retrieval.TeeCacheInputStream;
 import net.yacy.document.Document;
 import net.yacy.document.Parser;
 import net.yacy.document.TextParser;
@@ -256,6 +258,10 @@ public final class LoaderDispatcher {
         if (response.getContent() == null) {
             throw new IOException("empty response (code " + response.getStatus() + ") for url " + url.toNormalform(true));
         }
+        if (response.isNotModified()) {
+            // the answer to a conditional request has no content to cache
+            return response;
+        }
 
         // we got something. Now check if we want to store that to the cache
         // first check looks if we want to store the content to the cache
@@ -409,8 +415,14 @@ public final class LoaderDispatcher {
         } else {
             throw new IOException("Unsupported protocol '" + protocol + "' in url " + url);
         }
+        if (response.getContentStream() == null) {
+            return response;
+        }
 
-        return response;
+        // the content is written to the cache when the stream has been read to its end, with the same checks as in loadInternal
+        final Response loaded = response.getResponse();
+        final boolean store = crawlProfile != null && crawlProfile.storeHTCache() && loaded.getResponseHeader() != null && loaded.shallStoreCacheForCrawler() == null;
+        return new StreamResponse(loaded, new TeeCacheInputStream(response.getContentStream(), loaded, store));
     }
 
 
@@ -509,23 +521,41 @@ public final class LoaderDispatcher {
 			// which may be successful faster because of a cache hit
 		}
 
-		this.loaderSteering.put(request.url(), new Semaphore(0));
+		final DigestURL url = request.url(); // the request is changed by a redirection
+		final Semaphore steering = new Semaphore(0);
+		this.loaderSteering.put(url, steering);
 		try {
 			response = openInputStreamInternal(request, cacheStrategy, maxFileSize, blacklistType, agent);
 		} catch(IOException ioe) {
+			this.releaseSteering(url, steering);
 			/* Do not re encapsulate any eventual IOException in an IOException */
 			throw ioe;
 		} catch (final Throwable e) {
+			this.releaseSteering(url, steering);
 			throw new IOException(e);
-		} finally {
-			// release the semaphore anyway
-			check = this.loaderSteering.remove(request.url());
-			if (check != null) {
-				check.release(1000); // don't block any other
-			}
+		}
+		if (response.getContentStream() == null) {
+			this.releaseSteering(url, steering);
+			return response;
 		}
 
-		return response;
+		// a waiting load of the same url finds the content in the cache only when this stream is finished
+		return new StreamResponse(response.getResponse(), new FinishingInputStream(response.getContentStream()) {
+			@Override
+			protected void finished(final IOException error) {
+				LoaderDispatcher.this.releaseSteering(url, steering);
+			}
+		});
+	}
+
+	/**
+	 * release the semaphore of a finished load, so that other loads of the url do not wait any more
+	 * @param url the url of the load
+	 * @param steering the semaphore of the load
+	 */
+	private void releaseSteering(final DigestURL url, final Semaphore steering) {
+		this.loaderSteering.remove(url, steering);
+		steering.release(1000); // don't block any other
 	}
 
     /**
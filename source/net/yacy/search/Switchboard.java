@@ -155,10 +155,12 @@ import net.yacy.cora.util.Memory;
 import net.yacy.crawler.CrawlStacker;
 import net.yacy.crawler.CrawlSwitchboard;
 import net.yacy.crawler.HarvestProcess;
+import net.yacy.crawler.HostQueue;
 import net.yacy.crawler.data.Cache;
 import net.yacy.crawler.data.CrawlProfile;
 import net.yacy.crawler.data.CrawlProfile.CrawlAttribute;
 import net.yacy.crawler.data.CrawlQueues;
+import net.yacy.crawler.data.Latency;
 import net.yacy.crawler.data.NoticedURL;
 import net.yacy.crawler.data.NoticedURL.StackType;
 import net.yacy.crawler.data.ResultImages;
@@ -167,6 +169,7 @@ import net.yacy.crawler.data.ResultURLs.EventOrigin;
 import net.yacy.crawler.data.Transactions;
 import net.yacy.crawler.retrieval.Request;
 import net.yacy.crawler.retrieval.Response;
+import net.yacy.crawler.retrieval.StreamResponse;
 import net.yacy.crawler.robots.RobotsTxt;
 import net.yacy.data.BlogBoard;
 import net.yacy.data.BlogBoardComments;
@@ -200,13 +203,17 @@ import net.yacy.gui.Tray;
 import net.yacy.http.YaCyHttpServer;
 import net.yacy.kelondro.blob.ArrayStack;
 import net.yacy.kelondro.blob.BEncodedHeap;
+import net.yacy.kelondro.blob.HeapReader;
 import net.yacy.kelondro.blob.Tables;
 import net.yacy.kelondro.blob.Tables.SortDirection;
 import net.yacy.kelondro.data.meta.URIMetadataNode;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.logging.GuiHandler;
 import net.yacy.kelondro.logging.ThreadDump;
+import net.yacy.kelondro.rwi.IODispatcher;
+import net.yacy.kelondro.rwi.IndexCell;
 import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceContainerArray;
 import net.yacy.kelondro.util.FileUtils;
 import net.yacy.kelondro.util.MemoryControl;
 import net.yacy.kelondro.util.OS;
@@ -322,6 +329,7 @@ public final class Switchboard extends serverSwitch {
     public WorkflowProcessor<IndexingQueueEntry> indexingCondensementProcessor;
     public WorkflowProcessor<IndexingQueueEntry> indexingAnalysisProcessor;
     public WorkflowProcessor<IndexingQueueEntry> indexingStorageProcessor;
+    private Semaphore streamParsers; // the documents which are parsed in loader threads, limited like the parser queue
 
     public RobotsTxtConfig robotstxtConfig = null;
     public boolean useTailCache;
@@ -594,6 +602,15 @@ public final class Switchboard extends serverSwitch {
 
         // initialize index
         ReferenceContainer.maxReferences = this.getConfigInt("index.maxReferences", 0);
+        IndexCell.offHeapBuffer = this.getConfigBool("index.offHeapBuffer", false);
+        HeapReader.mmapRead = !OS.isWindows && this.getConfigBool("index.mmapRead", true);
+        IndexCell.tieredMerge = this.getConfigBool("index.merge.tiered", false);
+        ReferenceContainerArray.tierMergeFanIn = Math.max(2, this.getConfigInt("index.merge.fanIn", 8));
+        IODispatcher.mergeBytesPerSecond = this.getConfigLong("index.merge.bytesPerSecond", 0);
+        IODispatcher.pauseReadsPerSecond = this.getConfigInt("index.merge.pauseReadsPerSecond", 0);
+        Fulltext.useURLHashIndex = this.getConfigBool("index.urlHashIndex", true);
+        Fulltext.writeBufferSize = this.getConfigInt("index.writeBuffer.size", 100);
+        Fulltext.writeBufferDelay = this.getConfigLong("index.writeBuffer.delay", 1000);
         final File segmentsPath = new File(new File(indexPath, networkName), "SEGMENTS");
         try {this.index = new Segment(this.log, segmentsPath, archivePath, solrCollectionConfigurationWork, solrWebgraphConfigurationWork);} catch (final IOException e) {ConcurrentLog.logException(e);}
         if (this.getConfigBool(SwitchboardConstants.CORE_SERVICE_RWI, true)) try {
@@ -964,6 +981,14 @@ public final class Switchboard extends serverSwitch {
                 new File(appPath, "defaults/oaiListFriendsSource.xml"),
                 this.getDataPath());
         OAIListFriendsLoader.init(this.loader, oaiFriends, ClientIdentification.yacyInternetCrawlerAgent);
+        HostQueue.lazyStacks = this.getConfigBool(SwitchboardConstants.CRAWLER_LAZY_QUEUES, false);
+        HostQueue.maxOpenQueues = this.getConfigInt("crawler.onDemandLimit", 1000);
+        Latency.adaptive = this.getConfigBool(SwitchboardConstants.CRAWLER_ADAPTIVE, true);
+        Latency.adaptiveMaxParallel = Math.max(1, this.getConfigInt(SwitchboardConstants.CRAWLER_ADAPTIVE_MAX_PARALLEL, 4));
+        Latency.adaptiveFastLatency = this.getConfigInt(SwitchboardConstants.CRAWLER_ADAPTIVE_FAST_LATENCY, 300);
+        Latency.adaptiveSlowLatency = this.getConfigInt(SwitchboardConstants.CRAWLER_ADAPTIVE_SLOW_LATENCY, 5000);
+        CrawlQueues.streamParsing = this.getConfigBool(SwitchboardConstants.CRAWLER_STREAM_PARSING, false);
+        CrawlQueues.conditionalRequests = this.getConfigBool(SwitchboardConstants.CRAWLER_CONDITIONAL_REQUESTS, true);
         this.crawlQueues = new CrawlQueues(this, this.queuesRoot);
 
         // on startup, resume all crawls
@@ -1069,6 +1094,7 @@ public final class Switchboard extends serverSwitch {
         this.clusterhashes = this.peers.clusterHashes(this.getConfig("cluster.peers.yacydomain", ""));
 
         // deploy blocking threads
+        final boolean workStealing = this.getConfigBool(SwitchboardConstants.INDEXER_WORK_STEALING, false);
         this.indexingStorageProcessor =
             new WorkflowProcessor<>(
                 "storeDocumentIndex",
@@ -1082,7 +1108,8 @@ public final class Switchboard extends serverSwitch {
                 },
                 2,
                 null,
-                1);
+                1,
+                workStealing);
         this.indexingAnalysisProcessor =
             new WorkflowProcessor<>(
                 "webStructureAnalysis",
@@ -1093,7 +1120,8 @@ public final class Switchboard extends serverSwitch {
                 in -> Switchboard.this.webStructureAnalysis(in),
                 WorkflowProcessor.availableCPU + 1,
                 this.indexingStorageProcessor,
-                WorkflowProcessor.availableCPU);
+                WorkflowProcessor.availableCPU,
+                workStealing);
         this.indexingCondensementProcessor =
             new WorkflowProcessor<>(
                 "condenseDocument",
@@ -1104,7 +1132,8 @@ public final class Switchboard extends serverSwitch {
                 in -> Switchboard.this.condenseDocument(in),
                 WorkflowProcessor.availableCPU + 1,
                 this.indexingAnalysisProcessor,
-                WorkflowProcessor.availableCPU);
+                WorkflowProcessor.availableCPU,
+                workStealing);
         this.indexingDocumentProcessor =
             new WorkflowProcessor<>(
                 "parseDocument",
@@ -1115,7 +1144,9 @@ public final class Switchboard extends serverSwitch {
                 in -> Switchboard.this.parseDocument(in),
                 Math.max(20, WorkflowProcessor.availableCPU * 2), // it may happen that this is filled with new files from the search process. That means there should be enough place for two result pages
                 this.indexingCondensementProcessor,
-                WorkflowProcessor.availableCPU);
+                WorkflowProcessor.availableCPU,
+                workStealing);
+        this.streamParsers = new Semaphore(this.indexingDocumentProcessor.getMaxConcurrency());
 
         // deploy busy threads
         this.log.config("Starting Threads");
@@ -1328,6 +1359,10 @@ public final class Switchboard extends serverSwitch {
             generalPoolMaxTotal = SwitchboardConstants.HTTP_OUTGOING_POOL_GENERAL_MAX_TOTAL_DEFAULT;
             this.setConfig(SwitchboardConstants.HTTP_OUTGOING_POOL_GENERAL_MAX_TOTAL, generalPoolMaxTotal);
         }
+        if (SwitchboardConstants.CRAWLER_FETCH_ENGINE_VIRTUAL.equals(this.getConfig(SwitchboardConstants.CRAWLER_FETCH_ENGINE, SwitchboardConstants.CRAWLER_FETCH_ENGINE_THREADS))) {
+            /* The virtual thread fetch engine has many more requests in flight than there are loader threads */
+            generalPoolMaxTotal = Math.max(generalPoolMaxTotal, this.getConfigInt(SwitchboardConstants.CRAWLER_FETCH_MAX_IN_FLIGHT, 2000));
+        }
         HTTPClient.initPoolMaxConnections(HTTPClient.CONNECTION_MANAGER, generalPoolMaxTotal);
 
         int remoteSolrPoolMaxTotal = this.getConfigInt(SwitchboardConstants.HTTP_OUTGOING_POOL_REMOTE_SOLR_MAX_TOTAL,
@@ -2095,6 +2130,75 @@ public final class Switchboard extends serverSwitch {
      * @return null if successful, an error message otherwise
      */
     public String toIndexer(final Response response) {
+        final String rejectReason = this.indexingRejectReason(response);
+        if (rejectReason != null) return rejectReason;
+
+        this.indexingDocumentProcessor.enQueue(new IndexingQueueEntry(
+            response,
+            null,
+            null));
+        return null;
+    }
+
+    /**
+     * pass a response whose content is still loading to the indexer. If the content can be parsed from a stream,
+     * it is parsed in the calling thread while it is transferred and the documents are handed to the condenser;
+     * otherwise the content is read and the response is passed to the parser queue like in {@link #toIndexer(Response)}.
+     * The number of documents which are parsed in loader threads is limited to the concurrency of the parser queue,
+     * and they are only parsed there while the parser queue is empty; otherwise the parser queue is used as well.
+     * The content stream is closed in any case.
+     *
+     * @param streamResponse
+     * @return null if successful, an error message otherwise
+     * @throws IOException when the content could not be read
+     */
+    public String toIndexer(final StreamResponse streamResponse) throws IOException {
+        try {
+            final Response response = streamResponse.getResponse();
+            final String rejectReason = this.indexingRejectReason(response);
+            if (rejectReason != null) return rejectReason;
+
+            final boolean stream = response.getContent() == null && streamResponse.getContentStream() != null
+                    && TextParser.supportsStreaming(response.url(), response.getMimeType())
+                    && this.indexingDocumentProcessor.queueIsEmpty() && this.streamParsers.tryAcquire();
+            if (!stream) {
+                // the content is loaded completely and parsed in the parser queue
+                if (response.getContent() == null) {
+                    final byte[] content = streamResponse.getContentStream() == null ? null : FileUtils.read(streamResponse.getContentStream());
+                    if (content == null) throw new IOException("empty response (code " + response.getStatus() + ") for url " + response.url().toNormalform(true));
+                    response.setContent(content);
+                }
+                this.indexingDocumentProcessor.enQueue(new IndexingQueueEntry(
+                    response,
+                    null,
+                    null));
+                return null;
+            }
+
+            // parse the content while it is loaded and skip the parser queue
+            response.updateStatus(Response.QUEUE_STATE_PARSING);
+            final Document[] documents;
+            try {
+                documents = this.parseDocument(response, streamResponse.getContentStream());
+            } catch (final InterruptedException e) {
+                return "interrupted";
+            } finally {
+                this.streamParsers.release();
+            }
+            if (documents == null) return null; // the failure has been recorded in the error db
+            this.indexingCondensementProcessor.enQueue(new IndexingQueueEntry(response, documents, null));
+            return null;
+        } finally {
+            streamResponse.close();
+        }
+    }
+
+    /**
+     * check if the document of a response shall be indexed; a rejection is recorded in the error db
+     * @param response
+     * @return null if the document shall be indexed, an error message otherwise
+     */
+    private String indexingRejectReason(final Response response) {
         assert response != null;
 
         // get next queue entry and start a queue processing
@@ -2151,11 +2255,6 @@ public final class Switchboard extends serverSwitch {
             // finish this entry
             return "not allowed: " + noIndexReason;
         }
-
-        this.indexingDocumentProcessor.enQueue(new IndexingQueueEntry(
-            response,
-            null,
-            null));
         return null;
     }
 
@@ -3119,6 +3218,14 @@ public final class Switchboard extends serverSwitch {
     }
 
     private Document[] parseDocument(final Response response) throws InterruptedException {
+        return this.parseDocument(response, null);
+    }
+
+    /**
+     * @param response
+     * @param contentStream the content of a supported response which is still loading, or null to parse the content of the response
+     */
+    private Document[] parseDocument(final Response response, final InputStream contentStream) throws InterruptedException {
         Document[] documents = null;
         //final Pattern rewritePattern = Pattern.compile(";jsessionid.*");
         final EventOrigin processCase = response.processCase(this.peers.mySeed().hash);
@@ -3136,7 +3243,7 @@ public final class Switchboard extends serverSwitch {
 
         // PARSE CONTENT
         final long parsingStartTime = System.currentTimeMillis();
-        if ( response.getContent() == null ) {
+        if ( contentStream == null && response.getContent() == null ) {
             // fetch the document from cache
             response.setContent(Cache.getContent(response.url().hash()));
             if ( response.getContent() == null ) {
@@ -3146,10 +3253,10 @@ public final class Switchboard extends serverSwitch {
                 return null;
             }
         }
-        assert response.getContent() != null;
+        assert contentStream != null || response.getContent() != null;
 
         try {
-            final String supportError = TextParser.supports(response.url(), response.getMimeType());
+            final String supportError = contentStream == null ? TextParser.supports(response.url(), response.getMimeType()) : null;
             if (supportError != null) {
                 /* No parser available or format is denied */
                 if(response.profile().isIndexNonParseableUrls()) {
@@ -3168,6 +3275,19 @@ public final class Switchboard extends serverSwitch {
                     this.crawlQueues.errorURL.push(response.url(), response.depth(), response.profile(), FailCategory.FINAL_PROCESS_CONTEXT, supportError, -1);
                     return null;
                 }
+            } else if (contentStream != null) {
+                // parse the document while it is loaded
+                documents =
+                        TextParser.parseSource(
+                                new AnchorURL(response.url()),
+                                response.getMimeType(),
+                                response.getCharacterEncoding(),
+                                response.profile().ignoreDivClassName(),
+                                response.profile().scraper(),
+                                response.profile().timezoneOffset(),
+                                response.depth(),
+                                response.size(),
+                                contentStream);
             } else {
                 // parse the document
                 documents =
@@ -3279,6 +3399,7 @@ public final class Switchboard extends serverSwitch {
 
                 // insert those hyperlinks to the crawler
                 MultiProtocolURL nextUrl;
+                final List<Request> nextRequests = new ArrayList<>(hl.size());
                 for ( final Map.Entry<AnchorURL, String> nextEntry : hl.entrySet() ) {
                     // check for interruption
                     this.checkInterruption();
@@ -3305,7 +3426,7 @@ public final class Switchboard extends serverSwitch {
                     // enqueue the hyperlink into the pre-notice-url db
                     final int nextdepth = nextEntry.getValue() != null && nextEntry.getValue().equals(Document.CANONICAL_MARKER) ? response.depth() : response.depth() + 1; // canonical documents are on the same depth
                     try {
-                        this.crawlStacker.enqueueEntry(new Request(
+                        nextRequests.add(new Request(
                             response.initiator(),
                             new DigestURL(u),
                             response.url().hash(),
@@ -3318,6 +3439,8 @@ public final class Switchboard extends serverSwitch {
                         ConcurrentLog.logException(e);
                     }
                 }
+                // all links of the document are checked and stacked as one block
+                this.crawlStacker.enqueueEntries(nextRequests);
                 final long stackEndTime = System.currentTimeMillis();
                 if ( this.log.isInfo() ) {
                     this.log.info("CRAWL: ADDED "
@@ -3927,10 +4050,11 @@ public final class Switchboard extends serverSwitch {
             for (final String id: urlmap.keySet()) searchEvent.addHeuristic(ASCII.getBytes(id), heuristicName, true);
         }
         final List<Request> requests = new ArrayList<>();
+        final Map<String, Long> known = doublecheck ? this.index.getLoadDates(urlmap.keySet()) : null;
         for (final Map.Entry<String, DigestURL> e: urlmap.entrySet()) {
             final String urlName = e.getValue().toNormalform(true);
             if (doublecheck) {
-                if (this.index.exists(e.getKey())) {
+                if (known.containsKey(e.getKey())) {
                     this.log.info("addToIndex: double " + urlName);
                     continue;
                 }
@@ -4007,8 +4131,9 @@ public final class Switchboard extends serverSwitch {
     public void addToCrawler(final Collection<DigestURL> urls, final boolean asglobal) {
         final Map<String, DigestURL> urlmap = new HashMap<>();
         for (final DigestURL url: urls) urlmap.put(ASCII.String(url.hash()), url);
+        final Map<String, Long> known = this.index.getLoadDates(urlmap.keySet());
         for (final Map.Entry<String, DigestURL> e: urlmap.entrySet()) {
-            if (this.index.exists(e.getKey())) continue; // double
+            if (known.containsKey(e.getKey())) continue; // double
             final DigestURL url = e.getValue();
             final Request request = this.loader.request(url, true, true);
             final CrawlProfile profile = this.crawler.get(ASCII.getBytes(request.profileHandle()));
@@ -340,12 +340,32 @@ public final class SwitchboardConstants {
     public static final String CORE_SERVICE_CITATION            = "core.service.citation.tmp";
     public static final String CORE_SERVICE_WEBGRAPH            = "core.service.webgraph.tmp";
 
+    /** if true, the stages of the indexing pipeline run their jobs in one shared work-stealing pool instead of own threads */
+    public static final String INDEXER_WORK_STEALING            = "indexer.workStealing";
+
     /**
      * <p><code>public static final String <strong>CRAWLER_THREADS_ACTIVE_MAX</strong> = "crawler.MaxActiveThreads"</code></p>
      * <p>Name of the setting how many active crawler-threads may maximal be running on the same time</p>
      */
     public static final String CRAWLER_THREADS_ACTIVE_MAX       = "crawler.MaxActiveThreads";
+    /** the fetch engine of the crawler: "threads" for the loader threads, "virtual" for one virtual thread per request (Java 21 and later) */
+    public static final String CRAWLER_FETCH_ENGINE             = "crawler.fetchEngine";
+    public static final String CRAWLER_FETCH_ENGINE_THREADS     = "threads";
+    public static final String CRAWLER_FETCH_ENGINE_VIRTUAL     = "virtual";
+    /** the maximum number of requests in flight in the virtual thread fetch engine */
+    public static final String CRAWLER_FETCH_MAX_IN_FLIGHT      = "crawler.fetchEngine.maxInFlight";
+    /** if true, the crawl queues of hosts open their stack files only when they are used; the crawler.onDemandLimit is then the maximum number of open queues */
+    public static final String CRAWLER_LAZY_QUEUES              = "crawler.lazyQueues";
     public static final String CRAWLER_LATENCY_FACTOR           = "crawler.latencyFactor";
+    /** if true, the number of parallel loads and the access delay of each host follow its measured response times */
+    public static final String CRAWLER_ADAPTIVE                 = "crawler.adaptive";
+    public static final String CRAWLER_ADAPTIVE_MAX_PARALLEL    = "crawler.adaptive.maxParallel";
+    public static final String CRAWLER_ADAPTIVE_FAST_LATENCY    = "crawler.adaptive.fastLatency";
+    public static final String CRAWLER_ADAPTIVE_SLOW_LATENCY    = "crawler.adaptive.slowLatency";
+    /** if true, the crawler parses html, xml, rss and archive content while it is transferred instead of loading it completely first */
+    public static final String CRAWLER_STREAM_PARSING           = "crawler.streamParsing";
+    /** if true, documents which are in the index are requested with If-Modified-Since and If-None-Match; a 304 answer only refreshes their load date */
+    public static final String CRAWLER_CONDITIONAL_REQUESTS     = "crawler.http.conditionalRequests";
     public static final String CRAWLER_MAX_SAME_HOST_IN_QUEUE   = "crawler.MaxSameHostInQueue";
     public static final String CRAWLER_FOLLOW_REDIRECTS         = "crawler.http.FollowRedirects"; // ignore the target url and follow to the redirect
     public static final String CRAWLER_RECORD_REDIRECTS         = "crawler.http.RecordRedirects"; // record the ignored redirected page to the index store
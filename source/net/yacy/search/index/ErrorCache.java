@@ -64,7 +64,7 @@ public class ErrorCache {
 
     public void clear() throws IOException {
         clearCache();
-        this.sb.index.fulltext().getDefaultConnector().deleteByQuery(CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
+        this.sb.index.fulltext().deleteByQuery(CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
     }
 
     public void removeHosts(final Set<String> hosthashes) {
@@ -119,7 +119,7 @@ public class ErrorCache {
                         olddoc.getFieldValue(CollectionSchema.httpstatus_i.getSolrFieldName()) == null ||
                         ((Integer) olddoc.getFieldValue(CollectionSchema.httpstatus_i.getSolrFieldName())) == 200) {
                         SolrInputDocument errorDoc = failDoc.toSolr(this.sb.index.fulltext().getDefaultConfiguration());
-                        this.sb.index.fulltext().getDefaultConnector().add(errorDoc);
+                        this.sb.index.fulltext().putErrorDocument(errorDoc);
                     }
                 } catch (final IOException e) {
                     ConcurrentLog.warn("SOLR", "failed to send error " + url.toNormalform(true) + " to solr: " + e.getMessage());
@@ -33,6 +33,7 @@ import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -104,6 +105,14 @@ public final class Fulltext {
     private final CollectionConfiguration collectionConfiguration;
     private final WebgraphConfiguration   webgraphConfiguration;
     private       boolean                 writeWebgraph;
+    private final URLHashIndex            urlHashIndex; // the ids of the local collection; null if switched off
+    private final SolrWriteBuffer         documentBuffer, edgeBuffer; // documents which are written in batches; null if switched off
+
+    public static final String urlHashIndexName = "urlhash.dump";
+    public static boolean useURLHashIndex = true; // keep the ids of the local collection in memory
+    public static int urlHashIndexRebuildLimit = 100000; // delete queries with more results cause a rebuild of the url hash index
+    public static int writeBufferSize = 100; // the number of documents which are written to Solr with one request; 0 writes each document at once
+    public static long writeBufferDelay = 1000; // the maximum time in milliseconds that a document waits in the write buffer
 
     protected Fulltext(final File segmentPath, final File archivePath,
             final CollectionConfiguration collectionConfiguration, final WebgraphConfiguration webgraphConfiguration) {
@@ -115,6 +124,67 @@ public final class Fulltext {
         this.collectionConfiguration = collectionConfiguration;
         this.webgraphConfiguration = webgraphConfiguration;
         this.writeWebgraph = false;
+        this.urlHashIndex = useURLHashIndex ? new URLHashIndex(new File(segmentPath, urlHashIndexName)) : null;
+        if (writeBufferSize > 0) {
+            this.documentBuffer = new SolrWriteBuffer("Fulltext.documentWriter", writeBufferSize, writeBufferDelay) {
+                @Override
+                protected void write(final List<SolrInputDocument> docs) throws IOException {
+                    final SolrConnector connector = Fulltext.this.getDefaultConnector();
+                    if (connector == null) return;
+                    try {
+                        connector.add(docs);
+                    } catch (final SolrException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+                @Override
+                protected void written(final List<String> ids) {
+                    // a buffered document is found in the buffer until it is written, then in the url hash index
+                    if (Fulltext.this.urlHashIndex != null) for (final String id: ids) Fulltext.this.urlHashIndex.put(id);
+                }
+            };
+            this.edgeBuffer = new SolrWriteBuffer("Fulltext.edgeWriter", writeBufferSize * 10, writeBufferDelay) { // a document has many edges
+                @Override
+                protected void write(final List<SolrInputDocument> docs) throws IOException {
+                    final SolrConnector connector = Fulltext.this.getWebgraphConnector();
+                    if (connector == null) return;
+                    try {
+                        connector.add(docs);
+                    } catch (final SolrException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+            };
+        } else {
+            this.documentBuffer = null;
+            this.edgeBuffer = null;
+        }
+    }
+
+    /**
+     * write the documents and edges which wait in the write buffers. This must be done before documents are
+     * deleted or the connectors change, because a buffered document would otherwise be written afterwards.
+     */
+    public void flushWriteBuffers() {
+        if (this.documentBuffer != null) this.documentBuffer.flush();
+        if (this.edgeBuffer != null) this.edgeBuffer.flush();
+    }
+
+    /**
+     * write the documents which wait in the write buffer if one of them has the given id. This must be done before
+     * a partial update of the document is sent to Solr, because the buffered document would otherwise replace it.
+     * @param id a document id
+     */
+    public void flushWriteBuffer(final String id) {
+        if (this.getBufferedDocument(id) != null) this.documentBuffer.flush();
+    }
+
+    /**
+     * @param id a document id
+     * @return the document if it waits in the write buffer, null otherwise
+     */
+    private SolrInputDocument getBufferedDocument(final String id) {
+        return this.documentBuffer == null ? null : this.documentBuffer.get(id);
     }
 
     public void setUseWebgraph(boolean check) {
@@ -163,12 +233,48 @@ public final class Fulltext {
         ConcurrentLog.info("Fulltext", "using lucene version " + lvn);
         ConcurrentLog.info("Fulltext", "connected solr in " + solrLocation.toString() + ", lucene version " + lvn);
         this.solrInstances.connectEmbedded(localCollectionInstance);
+        if (this.urlHashIndex != null && !this.urlHashIndex.load()) this.urlHashIndex.rebuild(this.getDefaultEmbeddedConnector());
     }
 
     public void disconnectLocalSolr() {
+        this.flushWriteBuffers();
+        if (this.urlHashIndex != null) this.urlHashIndex.close();
         this.solrInstances.disconnectEmbedded();
     }
 
+    /**
+     * @return the url hash index if it can answer lookups for the default connector, null otherwise
+     */
+    private URLHashIndex readyURLHashIndex() {
+        final URLHashIndex index = this.urlHashIndex;
+        if (index == null || !index.isReady() || this.solrInstances.isConnectedRemote()) return null;
+        return index;
+    }
+
+    /**
+     * rebuild the url hash index from the local collection. This must be called after changes of the collection
+     * which were not done with the methods of this class, i.e. updates with the Solr update handler.
+     */
+    public void rebuildURLHashIndex() {
+        if (this.urlHashIndex != null && this.solrInstances.isConnectedEmbedded()) this.urlHashIndex.rebuild(this.getDefaultEmbeddedConnector());
+    }
+
+    /**
+     * add the id of a document to the url hash index which was added to the collection without the methods of this class
+     * @param id the document id
+     */
+    public void urlHashAdded(final String id) {
+        if (this.urlHashIndex != null) this.urlHashIndex.put(id);
+    }
+
+    /**
+     * remove the id of a document from the url hash index which was deleted without the methods of this class
+     * @param id the document id
+     */
+    public void urlHashDeleted(final String id) {
+        if (this.urlHashIndex != null) this.urlHashIndex.remove(id);
+    }
+
     public boolean connectedRemoteSolr() {
         return this.solrInstances.isConnectedRemote();
     }
@@ -178,6 +284,7 @@ public final class Fulltext {
     }
 
     public void disconnectRemoteSolr() {
+        this.flushWriteBuffers();
         this.solrInstances.disconnectRemote();
     }
 
@@ -243,7 +350,7 @@ public final class Fulltext {
     }
 
     public int bufferSize() {
-        return this.solrInstances.bufferSize();
+        return this.solrInstances.bufferSize() + (this.documentBuffer == null ? 0 : this.documentBuffer.size());
     }
 
     public void clearCaches() {
@@ -254,6 +361,7 @@ public final class Fulltext {
         if (this.exportthread != null) {
             this.exportthread.interrupt();
         }
+        this.flushWriteBuffers();
         this.solrInstancesLock.lock();
         try {
             EmbeddedInstance instance = this.solrInstances.getEmbedded();
@@ -262,6 +370,7 @@ public final class Fulltext {
                     this.solrInstances.getEmbeddedConnector(name).clear();
                 }
                 this.commit(false);
+                if (this.urlHashIndex != null) this.urlHashIndex.clear();
             }
             this.solrInstances.clearCaches();
         } finally {
@@ -270,6 +379,7 @@ public final class Fulltext {
     }
 
     public void clearRemoteSolr() throws IOException {
+        this.flushWriteBuffers();
         this.solrInstancesLock.lock();
         try {
             ShardInstance instance = this.solrInstances.getRemote();
@@ -309,6 +419,9 @@ public final class Fulltext {
     }
 
     public void close() {
+        if (this.documentBuffer != null) this.documentBuffer.close();
+        if (this.edgeBuffer != null) this.edgeBuffer.close();
+        if (this.urlHashIndex != null) this.urlHashIndex.close();
         try {
             this.solrInstances.close();
         } catch (Throwable e) {
@@ -321,6 +434,7 @@ public final class Fulltext {
         long t = System.currentTimeMillis();
         if (this.lastCommit + 10000 > t) return;
         this.lastCommit = t;
+        this.flushWriteBuffers();
         getDefaultConnector().commit(softCommit);
         if (this.writeWebgraph) getWebgraphConnector().commit(softCommit);
     }
@@ -352,10 +466,13 @@ public final class Fulltext {
 
     private URIMetadataNode getMetadata(final byte[] urlHash, final WordReferenceVars wre, final long score) {
         String u = ASCII.String(urlHash);
+        // get the metadata from the write buffer or from Solr; a buffered document is not yet in the url hash index
+        final SolrInputDocument buffered = this.getBufferedDocument(u);
+        final URLHashIndex index = this.readyURLHashIndex();
+        if (buffered == null && index != null && !index.has(u)) return null; // i.e. references of deleted documents in the RWI
 
-        // get the metadata from Solr
         try {
-            SolrDocument doc = this.getDefaultConnector().getDocumentById(u);
+            SolrDocument doc = buffered != null ? this.getDefaultConfiguration().toSolrDocument(buffered) : this.getDefaultConnector().getDocumentById(u);
             if (doc != null) {
                 return new URIMetadataNode(doc, wre, score);
             }
@@ -373,18 +490,38 @@ public final class Fulltext {
         String url = (String) doc.getFieldValue(CollectionSchema.sku.getSolrFieldName());
         assert url != null && url.length() < 30000;
         ConcurrentLog.info("Fulltext", "indexing: " + id + " " + url);
-        try {
-            connector.add(doc);
-        } catch (final SolrException e) {
-            throw new IOException(e.getMessage(), e);
+        if (this.documentBuffer != null) {
+            this.documentBuffer.add(id, doc); // the id is put to the url hash index when the document is written
+        } else {
+            try {
+                connector.add(doc);
+            } catch (final SolrException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            if (this.urlHashIndex != null) this.urlHashIndex.put(id);
         }
         if (MemoryControl.shortStatus()) clearCaches();
     }
 
+    /**
+     * store an error document; other than putDocument this does not log the document
+     */
+    void putErrorDocument(final SolrInputDocument doc) throws IOException {
+        final String id = (String) doc.getFieldValue(CollectionSchema.id.getSolrFieldName());
+        if (this.documentBuffer != null) {
+            this.documentBuffer.add(id, doc); // the id is put to the url hash index when the document is written
+        } else {
+            this.getDefaultConnector().add(doc);
+            if (this.urlHashIndex != null) this.urlHashIndex.put(id);
+        }
+    }
+
     public void putEdges(final Collection<SolrInputDocument> edges) throws IOException {
         if (!this.useWebgraph()) return;
         if (edges == null || edges.size() == 0) return;
-        try {
+        if (this.edgeBuffer != null) {
+            for (final SolrInputDocument edge: edges) this.edgeBuffer.add((String) edge.getFieldValue(WebgraphSchema.id.getSolrFieldName()), edge);
+        } else try {
             this.getWebgraphConnector().add(edges);
         } catch (final SolrException e) {
             throw new IOException(e.getMessage(), e);
@@ -400,7 +537,8 @@ public final class Fulltext {
         String id = ASCII.String(idb);
         try {
             // because node entries are richer than metadata entries we must check if they exist to prevent that they are overwritten
-            SolrDocument doc = this.getDefaultConnector().getDocumentById(id, CollectionSchema.collection_sxt.getSolrFieldName());
+            final SolrInputDocument buffered = this.getBufferedDocument(id);
+            SolrDocument doc = buffered != null ? this.getDefaultConfiguration().toSolrDocument(buffered) : this.getDefaultConnector().getDocumentById(id, CollectionSchema.collection_sxt.getSolrFieldName());
             if (doc == null || !doc.containsKey(CollectionSchema.collection_sxt.getSolrFieldName())) {
                 // document does not exist
                 putDocument(getDefaultConfiguration().metadata2solr(entry));
@@ -428,10 +566,10 @@ public final class Fulltext {
     public void deleteStaleDomainHashes(final Set<String> hosthashes, Date freshdate) {
         // delete in solr
         Date now = new Date();
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes,
+        deleteDomainWithConstraint(true, CollectionSchema.host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (CollectionSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
-        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_id_s.getSolrFieldName(), hosthashes,
+        if (this.writeWebgraph) deleteDomainWithConstraint(false, WebgraphSchema.source_host_id_s.getSolrFieldName(), hosthashes,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
     }
@@ -439,10 +577,10 @@ public final class Fulltext {
     public void deleteStaleDomainNames(final Set<String> hostnames, Date freshdate) {
 
         Date now = new Date();
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_s.getSolrFieldName(), hostnames,
+        deleteDomainWithConstraint(true, CollectionSchema.host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (CollectionSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
-        if (this.writeWebgraph) deleteDomainWithConstraint(this.getWebgraphConnector(), WebgraphSchema.source_host_s.getSolrFieldName(), hostnames,
+        if (this.writeWebgraph) deleteDomainWithConstraint(false, WebgraphSchema.source_host_s.getSolrFieldName(), hostnames,
                 (freshdate == null || freshdate.after(now)) ? null :
                 (WebgraphSchema.load_date_dt.getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(freshdate) + "]"));
     }
@@ -452,11 +590,15 @@ public final class Fulltext {
      * @param hosthashes
      */
     public void deleteDomainErrors(final Set<String> hosthashes) {
-        deleteDomainWithConstraint(this.getDefaultConnector(), CollectionSchema.host_id_s.getSolrFieldName(), hosthashes, CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
+        deleteDomainWithConstraint(true, CollectionSchema.host_id_s.getSolrFieldName(), hosthashes, CollectionSchema.failreason_s.getSolrFieldName() + AbstractSolrConnector.CATCHALL_DTERM);
     }
 
-    private static void deleteDomainWithConstraint(SolrConnector connector, String fieldname, final Set<String> hosthashes, String constraintQuery) {
+    /**
+     * @param collection true to delete in the collection, false to delete in the webgraph
+     */
+    private void deleteDomainWithConstraint(final boolean collection, String fieldname, final Set<String> hosthashes, String constraintQuery) {
         if (hosthashes == null || hosthashes.size() == 0) return;
+        this.flushWriteBuffers();
         int subsetscount = 1 + (hosthashes.size() / 255); // if the list is too large, we get a "too many boolean clauses" exception
         int c = 0;
         @SuppressWarnings("unchecked")
@@ -471,7 +613,8 @@ public final class Fulltext {
                     //query.append(CollectionSchema.host_id_s.getSolrFieldName()).append(":\"").append(hosthash).append(":\"");
                     query.append("({!cache=false raw f=").append(fieldname).append('}').append(hosthash).append(")");
                 }
-                if (constraintQuery == null) connector.deleteByQuery(query.toString()); else connector.deleteByQuery("(" + query.toString() + ") AND " + constraintQuery);
+                final String q = constraintQuery == null ? query.toString() : "(" + query.toString() + ") AND " + constraintQuery;
+                if (collection) this.deleteByQuery(q); else this.getWebgraphConnector().deleteByQuery(q);
             } catch (final IOException e) {
             }
         }
@@ -481,8 +624,9 @@ public final class Fulltext {
         Date deleteageDate = new Date(System.currentTimeMillis() - deltaToNow);
         final String collection1Query = (loaddate ? CollectionSchema.load_date_dt : CollectionSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
         final String webgraphQuery = (loaddate ? WebgraphSchema.load_date_dt : WebgraphSchema.last_modified).getSolrFieldName() + ":[* TO " + ISO8601Formatter.FORMATTER.format(deleteageDate) + "]";
+        this.flushWriteBuffers();
         try {
-            this.getDefaultConnector().deleteByQuery(collection1Query);
+            this.deleteByQuery(collection1Query);
             if (this.getWebgraphConnector() != null) this.getWebgraphConnector().deleteByQuery(webgraphQuery);
         } catch (final IOException e) {
         }
@@ -523,8 +667,10 @@ public final class Fulltext {
      */
     public void remove(final Collection<String> deleteIDs) {
         if (deleteIDs == null || deleteIDs.size() == 0) return;
+        this.flushWriteBuffers();
         try {
             this.getDefaultConnector().deleteByIds(deleteIDs);
+            if (this.urlHashIndex != null) this.urlHashIndex.remove(deleteIDs);
             if (this.writeWebgraph) { // Webgraph.id is combination of sourceHash+targetHash+hexCounter, to be successful use source_id_s and/or target_id_s
                 for (String id : deleteIDs) {
                     /* Add quotes around the url hash to prevent Solr logging a ParseException stack trace when the hash start with a '-' character */
@@ -544,9 +690,11 @@ public final class Fulltext {
      */
     public boolean remove(final byte[] urlHash) {
         if (urlHash == null) return false;
+        this.flushWriteBuffers();
         try {
             String id = ASCII.String(urlHash);
             this.getDefaultConnector().deleteById(id);
+            if (this.urlHashIndex != null) this.urlHashIndex.remove(id);
             if (this.writeWebgraph) { // Webgraph.id is combination of sourceHash+targetHash+hexCounter, to be successful use source_id_s and/or target_id_s
                 /* Add quotes around the url hash to prevent Solr logging a ParseException stack trace when the hash start with a '-' character */
                 this.getWebgraphConnector().deleteByQuery(WebgraphSchema.source_id_s + ":\"" + id + "\"");
@@ -557,8 +705,63 @@ public final class Fulltext {
         return false;
     }
 
+    /**
+     * delete documents from the collection, but not their edges in the webgraph
+     * @param ids the document ids
+     * @throws IOException
+     */
+    public void deleteByIds(final Collection<String> ids) throws IOException {
+        if (ids == null || ids.isEmpty()) return;
+        this.flushWriteBuffers();
+        this.getDefaultConnector().deleteByIds(ids);
+        if (this.urlHashIndex != null) this.urlHashIndex.remove(ids);
+    }
+
+    /**
+     * delete all documents from the collection which match a query. The ids of the matching documents are collected
+     * and exactly these documents are deleted and removed from the url hash index, so that a document which is added
+     * in between is neither deleted nor lost in the index. Documents which were added within the soft commit time are
+     * not yet visible to the query and are not deleted. If the query matches many documents, they are deleted with
+     * the query and the url hash index is rebuilt instead.
+     * @param query a solr query for the collection
+     * @throws IOException
+     */
+    public void deleteByQuery(final String query) throws IOException {
+        this.flushWriteBuffers();
+        final SolrConnector connector = this.getDefaultConnector();
+        final URLHashIndex index = this.readyURLHashIndex();
+        if (index == null) {
+            connector.deleteByQuery(query);
+            // the index may be used again when the remote solr is disconnected or a running rebuild is finished, then it must be complete
+            this.rebuildURLHashIndex();
+            return;
+        }
+        final List<String> ids = new ArrayList<String>();
+        final BlockingQueue<String> idQueue = connector.concurrentIDsByQuery(query, null, 0, urlHashIndexRebuildLimit + 1, Long.MAX_VALUE, 100, 1);
+        try {
+            String id;
+            while ((id = idQueue.take()) != AbstractSolrConnector.POISON_ID) ids.add(id);
+        } catch (final InterruptedException e) {
+            connector.deleteByQuery(query);
+            this.rebuildURLHashIndex();
+            return;
+        }
+        if (ids.isEmpty()) return;
+        if (ids.size() > urlHashIndexRebuildLimit) {
+            connector.deleteByQuery(query);
+            this.rebuildURLHashIndex();
+            return;
+        }
+        connector.deleteByIds(ids);
+        index.remove(ids);
+    }
+
     public String getURL(final String urlHash) throws IOException {
         if (urlHash == null || this.getDefaultConnector() == null) return null;
+        final SolrInputDocument buffered = this.getBufferedDocument(urlHash);
+        if (buffered != null) return (String) buffered.getFieldValue(CollectionSchema.sku.getSolrFieldName());
+        final URLHashIndex index = this.readyURLHashIndex();
+        if (index != null && !index.has(urlHash)) return null;
 
         return this.getDefaultConnector().getURL(urlHash);
     }
@@ -569,9 +772,48 @@ public final class Fulltext {
      * @return whether the documents exists
      */
     public boolean exists(final String id) {
+        if (this.getBufferedDocument(id) != null) return true;
+        final URLHashIndex index = this.readyURLHashIndex();
+        if (index != null) return index.has(id);
         return this.getDefaultConnector().exists(id);
     }
 
+    /**
+     * check the existence of many documents at once; this replaces a single request for each id with a few bulk requests
+     * @param ids the url hashes and document ids
+     * @return a map from the id of each existing document to its load date in milliseconds; 0 if the load date is unknown
+     */
+    public Map<String, Long> getLoadDates(final Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return new HashMap<String, Long>();
+        final URLHashIndex index = this.readyURLHashIndex();
+        final Map<String, Long> buffered = new HashMap<String, Long>();
+        Collection<String> known = ids;
+        if (index != null || this.documentBuffer != null) {
+            // only the load dates of indexed documents must be requested; documents in the write buffer are not yet in Solr
+            known = new ArrayList<String>();
+            for (final String id: ids) {
+                final SolrInputDocument doc = this.getBufferedDocument(id);
+                if (doc != null) {
+                    final Object loaddate = doc.getFieldValue(CollectionSchema.load_date_dt.getSolrFieldName());
+                    buffered.put(id, loaddate instanceof Date ? ((Date) loaddate).getTime() : 0L);
+                } else if (index == null || index.has(id)) {
+                    known.add(id);
+                }
+            }
+            if (known.isEmpty()) return buffered;
+        }
+        Map<String, Long> dates;
+        try {
+            dates = this.getDefaultConnector().getLoadDates(known);
+        } catch (final IOException e) {
+            ConcurrentLog.warn("Fulltext", "bulk existence check failed, checking single ids: " + e.getMessage());
+            dates = new HashMap<String, Long>();
+            for (final String id: known) if (this.exists(id)) dates.put(id, 0L);
+        }
+        dates.putAll(buffered);
+        return dates;
+    }
+
     public List<File> dumpFiles() {
         EmbeddedInstance esc = this.solrInstances.getEmbedded();
         ArrayList<File> zips = new ArrayList<File>();
@@ -640,6 +882,7 @@ public final class Fulltext {
         this.solrInstancesLock.lock();
         try {
             // this.disconnectLocalSolr(); // moved to (InstanceMirror) sorlInstances.close()
+            if (this.urlHashIndex != null) this.urlHashIndex.drop(); // the restored collection has other ids
             this.solrInstances.close();
             try {
                 ZIPReader.unzip(solrDumpZipFile, storagePath);
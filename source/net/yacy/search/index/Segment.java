@@ -32,6 +32,7 @@ import java.net.MalformedURLException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -356,6 +357,21 @@ public class Segment {
         return this.termIndex.getSegmentCount();
     }
 
+    /**
+     * @return the number of bytes in reverse word index files that wait for a merge
+     */
+    public long RWIMergeDebt() {
+        if (this.termIndex == null) return 0;
+        return this.termIndex.getMergeDebt();
+    }
+
+    /**
+     * @return the dispatcher that dumps and merges the reverse word index files, or null if the index is not connected
+     */
+    public IODispatcher RWIMerger() {
+        return this.merger;
+    }
+
     public int RWIBufferCount() {
         if (this.termIndex == null) return 0;
         return this.termIndex.getBufferSize();
@@ -424,6 +440,26 @@ public class Segment {
         }
     }
 
+    /**
+     * get the load times of a set of urls at once. Urls that were never loaded are only checked
+     * against the RAM index of the load time table, so that only known urls cause a table read.
+     * @param urlhashes
+     * @return a map from the url hash to the load time for all urls which have a load time
+     */
+    public Map<String, Long> getLoadTimes(final Collection<byte[]> urlhashes) {
+        final Map<String, Long> times = new HashMap<>();
+        for (final byte[] urlhash: urlhashes) {
+            if (urlhash == null || !this.loadTimeIndex.has(urlhash)) continue;
+            try {
+                final long time = this.loadTimeIndex.get(urlhash);
+                if (time >= 0) times.put(ASCII.String(urlhash), time);
+            } catch (final IOException e) {
+                ConcurrentLog.logException(e);
+            }
+        }
+        return times;
+    }
+
     /**
      * check if a given document, identified by url hash as document id exists
      * @param id the url hash and document id
@@ -433,6 +469,42 @@ public class Segment {
         return this.fulltext.exists(id);
     }
 
+    /**
+     * check the existence of many documents at once
+     * @param ids the url hashes and document ids
+     * @return a map from the id of each existing document to its load date in milliseconds; 0 if the load date is unknown
+     */
+    public Map<String, Long> getLoadDates(final Collection<String> ids) {
+        return this.fulltext.getLoadDates(ids);
+    }
+
+    /**
+     * a document was requested again and the server answered that it was not modified since it was loaded:
+     * the document is not parsed again, only its load date and the date until it is considered as fresh are updated.
+     * The fresh date is computed like for a new document, so that unchanged documents are recrawled less often.
+     * @param url the url of the document
+     * @return true if the document exists and was updated
+     * @throws IOException
+     */
+    public boolean refreshLoadDate(final DigestURL url) throws IOException {
+        final String id = ASCII.String(url.hash());
+        this.fulltext.flushWriteBuffer(id); // the partial update must not be overwritten by a buffered document
+        final SolrConnector connector = this.fulltext.getDefaultConnector();
+        final SolrDocument doc = connector.getDocumentById(id, CollectionSchema.last_modified.getSolrFieldName());
+        if (doc == null) return false;
+        final Date loadDate = new Date();
+        Date modDate = (Date) doc.getFieldValue(CollectionSchema.last_modified.getSolrFieldName());
+        if (modDate == null || modDate.after(loadDate)) modDate = loadDate;
+        final CollectionConfiguration collectionConfig = this.fulltext.getDefaultConfiguration();
+        final SolrInputDocument update = new SolrInputDocument();
+        update.setField(CollectionSchema.id.getSolrFieldName(), id);
+        if (collectionConfig.contains(CollectionSchema.load_date_dt)) update.setField(CollectionSchema.load_date_dt.getSolrFieldName(), loadDate);
+        if (collectionConfig.contains(CollectionSchema.fresh_date_dt)) update.setField(CollectionSchema.fresh_date_dt.getSolrFieldName(), new Date(loadDate.getTime() + Math.max(0, loadDate.getTime() - modDate.getTime()) / 2));
+        if (update.size() > 1) connector.update(update);
+        setLoadTime(url.hash(), loadDate.getTime());
+        return true;
+    }
+
     /**
      * discover all urls that start with a given url stub
      * @param stub
@@ -761,13 +833,13 @@ public class Segment {
             // iterate over all words of content text
             Word wprop = null;
             byte[] wordhash;
-            String word;
+            final byte[][] wordhashes = Word.words2hashes(condenser.words().keySet()); // in the order of the entries
+            int w = 0;
             for (Map.Entry<String, Word> wentry: condenser.words().entrySet()) {
-                word = wentry.getKey();
                 wprop = wentry.getValue();
                 assert (wprop.flags != null);
                 ientry.setWord(wprop);
-                wordhash = Word.word2hash(word);
+                wordhash = wordhashes[w++];
                 if (this.termIndex != null && storeToRWI) try {
                     this.termIndex.add(wordhash, ientry);
                 } catch (final Exception e) {
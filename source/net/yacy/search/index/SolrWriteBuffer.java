@@ -0,0 +1,256 @@
+// SolrWriteBuffer.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.search.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import net.yacy.cora.util.ConcurrentLog;
+
+/**
+ * a write-behind buffer for Solr documents. Documents are collected until a batch is full or the oldest
+ * document waited for the maximum delay; then a writer thread sends the whole batch with a single request.
+ * A document stays visible with {@link #get(String)} until it is written, so that a document is found
+ * right after it was added. A document which is added again before it is written replaces the older one.
+ * If the buffer holds four batches, the adding thread writes a batch itself, which limits the memory use
+ * when Solr is slower than the indexer.
+ */
+public abstract class SolrWriteBuffer {
+
+    private final static ConcurrentLog log = new ConcurrentLog("SolrWriteBuffer");
+
+    private final String name;
+    private final int batchSize;
+    private final long maxDelay;
+    private final LinkedHashMap<String, Pending> pending; // the documents that are not written, in the order of their first add
+    private final Object writeLock; // only one batch is written at a time, so that batches are written in the order of their adds
+    private Thread writer;
+    private boolean closed;
+
+    /**
+     * @param name the name of the writer thread
+     * @param batchSize the number of documents which are written with a single request
+     * @param maxDelay the maximum time in milliseconds that a document waits for a batch to fill up
+     */
+    public SolrWriteBuffer(final String name, final int batchSize, final long maxDelay) {
+        this.name = name;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelay = Math.max(1, maxDelay);
+        this.pending = new LinkedHashMap<String, Pending>();
+        this.writeLock = new Object();
+        this.writer = null;
+        this.closed = false;
+    }
+
+    /**
+     * a document which waits to be written, with the time when a document with its id was added first
+     */
+    private static final class Pending {
+        private final SolrInputDocument doc;
+        private final long added;
+
+        private Pending(final SolrInputDocument doc, final long added) {
+            this.doc = doc;
+            this.added = added;
+        }
+    }
+
+    /**
+     * write a batch of documents to Solr
+     * @param docs the documents
+     * @throws IOException
+     */
+    protected abstract void write(final List<SolrInputDocument> docs) throws IOException;
+
+    /**
+     * called after documents were written successfully, before they are removed from the buffer
+     * @param ids the ids of the written documents
+     */
+    protected void written(final List<String> ids) {
+    }
+
+    /**
+     * add a document to the buffer. If the buffer is closed, the document is written at once.
+     * @param id the id of the document
+     * @param doc the document
+     * @throws IOException if the document was written in the calling thread and the write failed
+     */
+    public void add(final String id, final SolrInputDocument doc) throws IOException {
+        final boolean direct, full;
+        synchronized (this) {
+            direct = this.closed;
+            if (direct) {
+                full = false;
+            } else {
+                // a replaced document keeps its place and its time, it waits since the first add
+                final Pending replaced = this.pending.get(id);
+                this.pending.put(id, new Pending(doc, replaced == null ? System.currentTimeMillis() : replaced.added));
+                if (this.writer == null) {
+                    this.writer = new Thread(this.name) {
+                        @Override
+                        public void run() {
+                            SolrWriteBuffer.this.runWriter();
+                        }
+                    };
+                    this.writer.setDaemon(true);
+                    this.writer.start();
+                }
+                if (this.pending.size() >= this.batchSize) this.notifyAll();
+                full = this.pending.size() >= 4 * this.batchSize;
+            }
+        }
+        if (direct) {
+            this.write(Collections.singletonList(doc));
+            this.written(Collections.singletonList(id));
+            return;
+        }
+        if (full) this.writeBatch(true);
+    }
+
+    /**
+     * @param id the id of a document
+     * @return the document if it is waiting to be written, null otherwise
+     */
+    public synchronized SolrInputDocument get(final String id) {
+        final Pending p = this.pending.get(id);
+        return p == null ? null : p.doc;
+    }
+
+    /**
+     * @return the number of documents which are not written
+     */
+    public synchronized int size() {
+        return this.pending.size();
+    }
+
+    /**
+     * @return the time in milliseconds that the oldest pending document waits, 0 if no document is pending
+     */
+    public synchronized long oldestAge() {
+        return this.pending.isEmpty() ? 0 : Math.max(0, System.currentTimeMillis() - this.pending.values().iterator().next().added);
+    }
+
+    /**
+     * write all pending documents. This is done before the index is changed in another way than with an add,
+     * because a pending document would otherwise overwrite a later change.
+     */
+    public void flush() {
+        try {
+            while (this.writeBatch(false)) {}
+        } catch (final IOException e) {
+            // not possible, errors are logged in writeBatch
+        }
+    }
+
+    /**
+     * write all pending documents and stop the writer thread. Documents which are added later are written at once.
+     */
+    public void close() {
+        final Thread t;
+        synchronized (this) {
+            this.closed = true;
+            t = this.writer;
+            this.writer = null;
+            this.notifyAll();
+        }
+        if (t != null) try {t.join(10000);} catch (final InterruptedException e) {}
+        this.flush();
+    }
+
+    private void runWriter() {
+        while (true) {
+            synchronized (this) {
+                if (this.writer != Thread.currentThread()) return; // closed
+                final long wait = this.maxDelay - this.oldestAge();
+                if (this.pending.size() < this.batchSize && (this.pending.isEmpty() || wait > 0)) {
+                    try {this.wait(this.pending.isEmpty() ? this.maxDelay : wait);} catch (final InterruptedException e) {return;}
+                    continue;
+                }
+            }
+            try {
+                this.writeBatch(false);
+            } catch (final IOException e) {
+                // not possible, errors are logged in writeBatch
+            }
+        }
+    }
+
+    /**
+     * write the first batch of the pending documents
+     * @param throwErrors true if an error shall be thrown to the caller, otherwise it is logged
+     * @return true if documents were written
+     * @throws IOException
+     */
+    private boolean writeBatch(final boolean throwErrors) throws IOException {
+        synchronized (this.writeLock) {
+            final List<String> ids = new ArrayList<String>(this.batchSize);
+            final List<SolrInputDocument> batch = new ArrayList<SolrInputDocument>(this.batchSize);
+            synchronized (this) {
+                for (final Map.Entry<String, Pending> entry: this.pending.entrySet()) {
+                    ids.add(entry.getKey());
+                    batch.add(entry.getValue().doc);
+                    if (batch.size() >= this.batchSize) break;
+                }
+            }
+            if (batch.isEmpty()) return false;
+            try {
+                this.write(batch);
+                this.written(ids);
+            } catch (final Throwable e) {
+                // one broken document must not discard the whole batch: write the documents one by one
+                log.warn("writing a batch of " + batch.size() + " documents failed, writing single documents: " + e.getMessage());
+                IOException error = null;
+                final List<String> written = new ArrayList<String>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    try {
+                        this.write(Collections.singletonList(batch.get(i)));
+                        written.add(ids.get(i));
+                    } catch (final Throwable ee) {
+                        log.warn("cannot write document: " + ee.getMessage());
+                        error = ee instanceof IOException ? (IOException) ee : new IOException(ee.getMessage(), ee);
+                    }
+                }
+                this.written(written);
+                if (error != null && throwErrors) {
+                    this.removeWritten(ids, batch);
+                    throw error;
+                }
+            }
+            this.removeWritten(ids, batch);
+            return true;
+        }
+    }
+
+    private synchronized void removeWritten(final List<String> ids, final List<SolrInputDocument> batch) {
+        for (int i = 0; i < ids.size(); i++) {
+            // a document that was added again while the batch was written stays pending
+            final Pending p = this.pending.get(ids.get(i));
+            if (p != null && p.doc == batch.get(i)) this.pending.remove(ids.get(i));
+        }
+    }
+}
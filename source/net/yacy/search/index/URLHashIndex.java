@@ -0,0 +1,292 @@
+// URLHashIndex.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.search.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.federate.solr.connector.EmbeddedSolrConnector;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.ConcurrentLog;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.index.RowHandleSet;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * the set of all document ids (url hashes) of the local fulltext collection.
+ * A lookup in this set answers the question if an url is indexed without a request to Solr.
+ * The set is changed together with the collection; it is written to a sorted dump when the index is closed
+ * and read again at the next start. The dump is deleted after reading, so that it cannot be used again
+ * after a crash; if there is no dump, the set is rebuilt from the term dictionary of the Solr id field.
+ * The set is only used while it is ready, that is while it holds exactly the ids of the collection.
+ */
+public final class URLHashIndex {
+
+    private final static ConcurrentLog log = new ConcurrentLog("URLHashIndex");
+
+    private final File file;
+    private volatile RowHandleSet ids;
+    private volatile boolean ready;
+    private volatile Set<String> removed; // the ids that were removed while a rebuild is running; null if no rebuild runs
+    private Thread rebuilder;
+    private boolean rebuildAgain;
+
+    public URLHashIndex(final File file) {
+        this.file = file;
+        this.ids = newSet();
+        this.ready = false;
+        this.removed = null;
+        this.rebuilder = null;
+        this.rebuildAgain = false;
+    }
+
+    private static RowHandleSet newSet() {
+        final RowHandleSet set = new RowHandleSet(Word.commonHashLength, Base64Order.enhancedCoder, 0);
+        set.freeze();
+        return set;
+    }
+
+    /**
+     * read the dump of the set. The dump is deleted afterwards.
+     * @return true if the dump was read and the set is ready
+     */
+    public synchronized boolean load() {
+        if (this.ready) return true;
+        if (!this.file.exists()) return false;
+        try {
+            final long start = System.currentTimeMillis();
+            final RowHandleSet set = new RowHandleSet(Word.commonHashLength, Base64Order.enhancedCoder, this.file);
+            set.freeze();
+            this.ids = set;
+            this.ready = true;
+            log.info("loaded " + set.size() + " url hashes from " + this.file.getName() + " in " + (System.currentTimeMillis() - start) + " milliseconds");
+            return true;
+        } catch (final IOException e) {
+            log.warn("cannot read " + this.file.getName() + ": " + e.getMessage());
+            return false;
+        } catch (final SpaceExceededException e) {
+            log.warn("not enough memory to read " + this.file.getName());
+            return false;
+        } finally {
+            FileUtils.deletedelete(this.file);
+        }
+    }
+
+    /**
+     * @return true if the set holds exactly the ids of the collection and can answer lookups
+     */
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * @param id a document id
+     * @return true if the id is in the set; the result is only valid if the set is ready
+     */
+    public boolean has(final String id) {
+        if (id == null || id.length() != Word.commonHashLength) return false;
+        return this.ids.has(ASCII.getBytes(id));
+    }
+
+    /**
+     * add the id of a new document
+     * @param id
+     */
+    public void put(final String id) {
+        if (id == null || id.length() != Word.commonHashLength) return;
+        try {
+            this.ids.put(ASCII.getBytes(id));
+        } catch (final SpaceExceededException e) {
+            log.warn("not enough memory for the url hash index, the index is switched off until the next start");
+            drop();
+            return;
+        }
+        final Set<String> r = this.removed;
+        if (r != null) r.remove(id);
+    }
+
+    /**
+     * remove the id of a deleted document
+     * @param id
+     */
+    public void remove(final String id) {
+        if (id == null || id.length() != Word.commonHashLength) return;
+        this.ids.remove(ASCII.getBytes(id));
+        final Set<String> r = this.removed;
+        if (r != null) r.add(id);
+    }
+
+    public void remove(final Collection<String> ids) {
+        for (final String id: ids) remove(id);
+    }
+
+    /**
+     * @return the number of ids in the set
+     */
+    public int size() {
+        return this.ids.size();
+    }
+
+    /**
+     * empty the set after all documents of the collection were deleted
+     */
+    public synchronized void clear() {
+        stopRebuild();
+        this.ids = newSet();
+        this.ready = true;
+    }
+
+    /**
+     * rebuild the set from the collection in a concurrent thread. The set is not used until the rebuild is finished.
+     * This must be called after changes of the collection that are not reported to put() and remove().
+     * A rebuild that is called while another rebuild is running is done again after that rebuild.
+     * @param connector the embedded connector of the collection
+     */
+    public synchronized void rebuild(final EmbeddedSolrConnector connector) {
+        if (connector == null) return;
+        this.ready = false;
+        if (this.rebuilder != null) {
+            this.rebuildAgain = true;
+            return;
+        }
+        this.rebuilder = new Thread("URLHashIndex.rebuild") {
+            @Override
+            public void run() {
+                try {
+                    do {
+                        if (!rebuildPass(connector)) return;
+                    } while (!finishPass());
+                } finally {
+                    synchronized (URLHashIndex.this) {
+                        if (URLHashIndex.this.rebuilder == this) {
+                            URLHashIndex.this.rebuilder = null;
+                            URLHashIndex.this.removed = null;
+                        }
+                    }
+                }
+            }
+        };
+        this.rebuilder.setDaemon(true);
+        this.rebuilder.start();
+    }
+
+    private boolean rebuildPass(final EmbeddedSolrConnector connector) {
+        final long start = System.currentTimeMillis();
+        final Set<String> r = ConcurrentHashMap.newKeySet();
+        final RowHandleSet set = newSet();
+        synchronized (this) {
+            if (this.rebuilder != Thread.currentThread()) return false; // stopped
+            this.rebuildAgain = false;
+            // from here on changes of the collection are written to the new set
+            this.removed = r;
+            this.ids = set;
+        }
+        try {
+            // make all documents visible which were added or deleted before the new set was in place
+            connector.commit(true);
+            final Thread self = Thread.currentThread();
+            connector.forEachId(new Consumer<String>() {
+                @Override
+                public void accept(final String id) {
+                    if (self.isInterrupted()) throw new RuntimeException(new InterruptedException());
+                    if (id.length() != Word.commonHashLength || r.contains(id)) return;
+                    try {
+                        set.put(ASCII.getBytes(id));
+                    } catch (final SpaceExceededException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            // ids that were deleted while the term dictionary was read may have been added again by the scan
+            for (final String id: r) set.remove(ASCII.getBytes(id));
+            log.info("rebuilt url hash index with " + set.size() + " entries in " + (System.currentTimeMillis() - start) + " milliseconds");
+            return true;
+        } catch (final IOException e) {
+            log.warn("cannot rebuild the url hash index: " + e.getMessage());
+            return false;
+        } catch (final RuntimeException e) {
+            if (e.getCause() instanceof SpaceExceededException) log.warn("not enough memory for the url hash index, the index is switched off until the next start");
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the set is ready; false if another pass is required
+     */
+    private synchronized boolean finishPass() {
+        if (this.rebuilder != Thread.currentThread()) return true; // stopped
+        if (this.rebuildAgain) return false;
+        for (final String id: this.removed) this.ids.remove(ASCII.getBytes(id));
+        this.removed = null;
+        this.ready = true;
+        return true;
+    }
+
+    private synchronized void stopRebuild() {
+        final Thread t = this.rebuilder;
+        if (t == null) return;
+        this.rebuilder = null;
+        this.rebuildAgain = false;
+        this.removed = null;
+        t.interrupt();
+    }
+
+    /**
+     * switch the set off and delete the dump; it is used again after a load or rebuild
+     */
+    public synchronized void drop() {
+        stopRebuild();
+        this.ready = false;
+        this.ids = newSet();
+        FileUtils.deletedelete(this.file);
+    }
+
+    /**
+     * write the dump of the set if it is ready; the set is empty afterwards and must be loaded again
+     */
+    public synchronized void close() {
+        stopRebuild();
+        if (this.ready) {
+            final File tmp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+            try {
+                final int c = this.ids.dump(tmp);
+                if (tmp.renameTo(this.file)) {
+                    log.info("wrote " + c + " url hashes to " + this.file.getName());
+                } else {
+                    log.warn("cannot rename " + tmp.getName() + " to " + this.file.getName());
+                    FileUtils.deletedelete(tmp);
+                }
+            } catch (final IOException e) {
+                log.warn("cannot write " + this.file.getName() + ": " + e.getMessage());
+                FileUtils.deletedelete(tmp);
+            }
+        }
+        this.ready = false;
+        this.ids = newSet();
+    }
+}
@@ -1240,6 +1240,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
     public int postprocessing(final Segment segment, final ReferenceReportCache rrCache, final String harvestkey, final boolean byPartialUpdate) {
         if (!this.contains(CollectionSchema.process_sxt)) return 0;
         if (!segment.connectedCitation() && !segment.fulltext().useWebgraph()) return 0;
+        segment.fulltext().flushWriteBuffers(); // buffered documents would overwrite the (partial) updates of the post processing
         final SolrConnector collectionConnector = segment.fulltext().getDefaultConnector();
         collectionConnector.commit(false); // make sure that we have latest information that can be found
         if (segment.fulltext().useWebgraph()) segment.fulltext().getWebgraphConnector().commit(false);
@@ -1495,7 +1496,7 @@ public class CollectionConfiguration extends SchemaConfiguration implements Seri
 
                 if (failids.size() > 0) {
                     ConcurrentLog.info("CollectionConfiguration", "cleanup_processing: deleting " + failids.size() + " documents which have permanent execution fails");
-                    collectionConnector.deleteByIds(failids);
+                    segment.fulltext().deleteByIds(failids);
                 }
                 if (count != countcheck.get()) ConcurrentLog.warn("CollectionConfiguration", "ambiguous collection document count for harvestkey " + harvestkey + ": expected=" + count + ", counted=" + countcheck + "; countquery=" + collection1query); // big gap for harvestkey = null
                 ConcurrentLog.info("CollectionConfiguration", "cleanup_processing: re-calculated " + proccount + " new documents, " +
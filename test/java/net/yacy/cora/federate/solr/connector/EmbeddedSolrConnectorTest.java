@@ -2,8 +2,11 @@ package net.yacy.cora.federate.solr.connector;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import net.yacy.cora.federate.solr.instance.EmbeddedInstance;
 import net.yacy.search.schema.CollectionSchema;
 import net.yacy.search.schema.WebgraphSchema;
@@ -72,6 +75,30 @@ public class EmbeddedSolrConnectorTest {
         assertEquals(expResult, result);
     }
 
+    /**
+     * Test of the bulk existence check
+     */
+    @Test
+    public void testGetLoadDates() throws IOException {
+        final String id0 = "A" + Long.toString(System.currentTimeMillis());
+        final String id1 = "B" + Long.toString(System.currentTimeMillis());
+        final Date loaded = new Date(1000000000000L);
+        SolrInputDocument doc = new SolrInputDocument();
+        doc.addField(CollectionSchema.id.name(), id0);
+        doc.addField(CollectionSchema.load_date_dt.name(), loaded);
+        solr.add(doc);
+        doc = new SolrInputDocument();
+        doc.addField(CollectionSchema.id.name(), id1);
+        solr.add(doc);
+        solr.commit(true);
+
+        final Map<String, Long> dates = solr.getLoadDates(Arrays.asList(id0, id1, "C" + id0));
+        assertEquals(2, dates.size());
+        assertEquals(loaded.getTime(), dates.get(id0).longValue());
+        assertEquals(0L, dates.get(id1).longValue());
+        assertTrue(solr.getLoadDates(new ArrayList<String>()).isEmpty());
+    }
+
     /**
      * Test of update (partial update)
      */
@@ -0,0 +1,90 @@
+// FinishingInputStreamTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FinishingInputStreamTest {
+
+    /**
+     * a stream which records the calls of finished()
+     */
+    private static class RecordingStream extends FinishingInputStream {
+
+        final List<IOException> calls = new ArrayList<IOException>();
+
+        RecordingStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        protected void finished(final IOException error) {
+            this.calls.add(error);
+        }
+    }
+
+    @Test
+    public void testFinishedAtEndAndClose() throws IOException {
+        final RecordingStream end = new RecordingStream(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        assertEquals(3, end.read(new byte[10]));
+        assertEquals(0, end.calls.size());
+        assertEquals(-1, end.read());
+        assertEquals(1, end.calls.size()); // at the end, before the close
+        end.close();
+        assertEquals(1, end.calls.size()); // only once
+        assertNull(end.calls.get(0));
+
+        final RecordingStream closed = new RecordingStream(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        assertEquals(1, closed.read());
+        closed.close();
+        assertEquals(1, closed.calls.size());
+    }
+
+    @Test
+    public void testReadError() throws IOException {
+        final IOException error = new IOException("connection reset");
+        final RecordingStream failing = new RecordingStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw error;
+            }
+        });
+        try {
+            failing.read();
+        } catch (final IOException e) {
+            assertSame(error, e);
+        }
+        failing.close();
+        assertEquals(1, failing.calls.size());
+        assertSame(error, failing.calls.get(0));
+    }
+}
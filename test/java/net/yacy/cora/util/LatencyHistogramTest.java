@@ -0,0 +1,61 @@
+// LatencyHistogramTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 100000; v += 7) {
+            final int bucket = LatencyHistogram.bucket(v);
+            final long highest = LatencyHistogram.highestValue(bucket);
+            assertTrue(v <= highest);
+            assertTrue(highest - v <= v / 8); // at most 1/8 above the value
+            if (bucket > 0) assertTrue(v > LatencyHistogram.highestValue(bucket - 1));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 1000; i++) histogram.add(i);
+        histogram.add(-5); // counted as 0
+        assertEquals(1001, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        final long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8);
+        final long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000); // not above the maximum
+        assertEquals(1000, histogram.getPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
@@ -1,6 +1,7 @@
 package net.yacy.crawler;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -107,6 +108,33 @@ public class HostBalancerTest {
         }
         hb.close();
 
+    }
+
+    /**
+     * Test that a host in the internet is not selected as long as its robots.txt is not loaded
+     */
+    @Test
+    public void testRobotsPending() throws IOException, SpaceExceededException {
+        FileUtils.deletedelete(QUEUES_ROOT);
+        final HostBalancer hb = new HostBalancer(QUEUES_ROOT, ON_DEMAND_LIMIT, EXCEED_134217727, false);
+        final RobotsTxt rob = new RobotsTxt(new WorkTables(DATA_DIR), null, 1);
+        rob.close(); // the robots.txt can not be loaded
+        try {
+            final DigestURL url = new DigestURL("http://203.0.113.40/index.html");
+            rob.delete(url);
+            assertFalse(rob.isReady(url));
+            assertTrue(rob.isReady(new DigestURL("file:///C:/filedirectory")));
+
+            assertNull(hb.push(new Request(url, null), null, rob));
+            assertFalse(rob.isLoading(RobotsTxt.getHostPort(url)));
+            assertNull("host waits for robots.txt", hb.pop(false, null, rob));
+            assertNull("host waits for robots.txt", hb.pop(false, null, rob));
+            assertEquals(1, hb.size());
+            assertTrue(hb.has(url.hash()));
+        } finally {
+            hb.clear();
+            hb.close();
+        }
     }
     
 	/**
@@ -58,4 +58,68 @@ public class HostQueueTest {
 
     }
 
+    /**
+     * Test of the lazy mode: stacks are opened on use and closed again when too many queues are open
+     */
+    @Test
+    public void testLazyStacks() throws MalformedURLException, IOException, SpaceExceededException {
+        final boolean lazyStacks = HostQueue.lazyStacks;
+        final int maxOpenQueues = HostQueue.maxOpenQueues;
+        HostQueue.lazyStacks = true;
+        HostQueue.maxOpenQueues = 1;
+        File stackDirFile = new File(stackDir);
+        try {
+            DigestURL urlA = new DigestURL("http://a.com/test.html");
+            HostQueue hqA = new HostQueue(stackDirFile, urlA, false, true);
+            hqA.push(new Request(urlA, null), null, null);
+            hqA.push(new Request(new DigestURL("http://a.com/test2.html"), null), null, null);
+            hqA.close();
+
+            // reopen: only the sizes are read
+            File pathA = stackDirFile.listFiles()[0];
+            hqA = new HostQueue(pathA, false, true);
+            assertEquals(2, hqA.size());
+            assertFalse(hqA.isEmpty());
+            assertEquals(0, HostQueue.openQueues());
+
+            // has() does not open the stacks, use does
+            assertFalse(hqA.has(urlA.hash()));
+            assertEquals(0, HostQueue.openQueues());
+            assertNotNull(hqA.get(urlA.hash()));
+            assertTrue(hqA.has(urlA.hash()));
+            assertEquals(1, HostQueue.openQueues());
+
+            // another queue closes the least recently used one
+            DigestURL urlB = new DigestURL("http://b.com/test.html");
+            HostQueue hqB = new HostQueue(stackDirFile, urlB, false, true);
+            hqB.push(new Request(urlB, null), null, null);
+            assertEquals(1, HostQueue.openQueues());
+            assertEquals(2, hqA.size());
+            assertEquals(1, hqB.size());
+
+            // a closed queue keeps no url hashes in memory: has() is false without opening the stacks
+            assertFalse(hqA.has(urlA.hash()));
+            assertEquals(1, HostQueue.openQueues());
+            assertEquals(2, hqA.size());
+
+            // and is opened again when used
+            assertNotNull(hqA.get(urlA.hash()));
+            hqB.push(new Request(new DigestURL("http://b.com/test2.html"), null), null, null); // closes queue A
+            assertEquals(1, HostQueue.openQueues());
+            assertEquals(2, hqA.size());
+            assertEquals(2, hqB.size());
+            assertNotNull(hqA.get(new DigestURL("http://a.com/test2.html").hash())); // the stack files are read again
+
+            hqA.clear();
+            hqB.clear();
+            hqA.close();
+            hqB.close();
+            assertEquals(0, HostQueue.openQueues());
+        } finally {
+            HostQueue.lazyStacks = lazyStacks;
+            HostQueue.maxOpenQueues = maxOpenQueues;
+        }
+        assertEquals ("host files in queue dir",0,stackDirFile.list().length);
+    }
+
 }
@@ -0,0 +1,135 @@
+// HostSchedulerTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class HostSchedulerTest {
+
+    @Test
+    public void testOrder() {
+        final HostScheduler scheduler = new HostScheduler();
+        assertTrue(scheduler.offer("hostC", 300));
+        assertTrue(scheduler.offer("hostA", 100));
+        assertTrue(scheduler.offer("hostB", 200));
+        assertFalse(scheduler.offer("hostA", 0)); // already scheduled
+        assertEquals(3, scheduler.size());
+
+        assertEquals("hostA", scheduler.poll().hosthash);
+        assertEquals("hostB", scheduler.poll().hosthash);
+        assertEquals("hostC", scheduler.poll().hosthash);
+        assertNull(scheduler.poll());
+        assertEquals(3, scheduler.size()); // all taken
+    }
+
+    @Test
+    public void testTakeAndRelease() {
+        final HostScheduler scheduler = new HostScheduler();
+        scheduler.offer("hostA", 100);
+        scheduler.offer("hostB", 200);
+        final HostScheduler.Slot slot = scheduler.poll();
+        assertEquals("hostA", slot.hosthash);
+        assertEquals(100, slot.due);
+
+        // a taken host is neither offered again nor moved
+        assertFalse(scheduler.offer("hostA", 0));
+        assertFalse(scheduler.update("hostA", 0));
+        assertEquals(Long.MAX_VALUE, scheduler.due("hostA"));
+
+        assertTrue(scheduler.release("hostA", 300));
+        assertFalse(scheduler.release("hostA", 300)); // not taken any more
+        assertEquals("hostB", scheduler.poll().hosthash);
+        assertEquals("hostA", scheduler.poll().hosthash);
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        final HostScheduler scheduler = new HostScheduler();
+        scheduler.offer("hostA", 100);
+        scheduler.offer("hostB", 200);
+        scheduler.offer("hostC", 300);
+        assertTrue(scheduler.update("hostA", 400));
+        assertFalse(scheduler.update("hostD", 0)); // unknown hosts are not added
+        assertEquals(400, scheduler.due("hostA"));
+        assertEquals(Long.MIN_VALUE, scheduler.due("hostD"));
+        scheduler.remove("hostB");
+        assertEquals(2, scheduler.size());
+
+        assertEquals("hostC", scheduler.poll().hosthash);
+        assertEquals("hostA", scheduler.poll().hosthash);
+        assertNull(scheduler.poll());
+    }
+
+    /**
+     * concurrent threads take, update and release hosts; a host must never be held by two threads at the same time
+     */
+    @Test
+    public void testConcurrentPoll() throws InterruptedException {
+        final HostScheduler scheduler = new HostScheduler();
+        final int hosts = 50;
+        for (int i = 0; i < hosts; i++) scheduler.offer("host" + i, i);
+        final ConcurrentHashMap<String, Thread> holders = new ConcurrentHashMap<>();
+        final AtomicInteger collisions = new AtomicInteger(0);
+        final AtomicInteger polls = new AtomicInteger(0);
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 5000; i++) {
+                        final HostScheduler.Slot slot = scheduler.poll();
+                        if (slot == null) {
+                            scheduler.update("host" + (i % hosts), i);
+                            continue;
+                        }
+                        polls.incrementAndGet();
+                        if (holders.putIfAbsent(slot.hosthash, this) != null) collisions.incrementAndGet();
+                        holders.remove(slot.hosthash);
+                        scheduler.release(slot.hosthash, slot.due + hosts);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (final Thread thread: threads) thread.join();
+        assertEquals(0, collisions.get());
+        assertTrue(polls.get() > 0);
+        assertEquals(hosts, scheduler.size());
+
+        // all hosts are scheduled again and each of them is taken exactly once
+        final List<String> taken = new ArrayList<>();
+        HostScheduler.Slot slot;
+        while ((slot = scheduler.poll()) != null) taken.add(slot.hosthash);
+        assertEquals(hosts, taken.size());
+    }
+}
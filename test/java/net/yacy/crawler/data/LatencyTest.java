@@ -0,0 +1,119 @@
+// LatencyTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.ClientIdentification;
+
+public class LatencyTest {
+
+    private static void load(final DigestURL url, final long time) {
+        Latency.updateBeforeLoad(url);
+        Latency.updateAfterLoad(url, time);
+    }
+
+    /**
+     * fast loads raise the parallel loads step by step up to the limit; the waiting time is divided by them
+     */
+    @Test
+    public void testFastHostGetsParallelLoads() throws Exception {
+        final DigestURL url = new DigestURL("http://203.0.113.17/index.html");
+        final String hosthash = url.hosthash();
+        load(url, 50);
+        assertEquals(1, Latency.parallel(hosthash));
+        for (int i = 0; i < 9; i++) load(url, 50);
+        assertEquals(2, Latency.parallel(hosthash)); // after 10 fast loads
+        for (int i = 0; i < 20; i++) load(url, 50);
+        assertEquals(3, Latency.parallel(hosthash)); // after 20 more
+        for (int i = 0; i < 100; i++) load(url, 50);
+        assertEquals(Latency.adaptiveMaxParallel, Latency.parallel(hosthash));
+        assertEquals(1000 / Latency.adaptiveMaxParallel, Latency.adaptiveWaiting(hosthash, 1000, 0));
+        // but not below the minimum delta of the agent for a host in the internet
+        assertEquals(500, Latency.adaptiveWaiting(hosthash, 1000, 500));
+        final DigestURL local = new DigestURL("http://127.0.0.1:8091/index.html");
+        for (int i = 0; i < 130; i++) load(local, 50);
+        assertEquals(1000 / Latency.parallel(local.hosthash()), Latency.adaptiveWaiting(local.hosthash(), 1000, 500));
+
+        // a host which has all its parallel loads running waits the full time
+        for (int i = 0; i < Latency.adaptiveMaxParallel; i++) Latency.updateBeforeLoad(url);
+        assertEquals(1000, Latency.adaptiveWaiting(hosthash, 1000, 0));
+        for (int i = 0; i < Latency.adaptiveMaxParallel; i++) Latency.updateAfterLoad(url, 50);
+        assertEquals(1000 / Latency.adaptiveMaxParallel, Latency.adaptiveWaiting(hosthash, 1000, 0));
+
+        // a slow load halves the parallel loads
+        load(url, Latency.adaptiveSlowLatency);
+        assertEquals(Latency.adaptiveMaxParallel / 2, Latency.parallel(hosthash));
+    }
+
+    /**
+     * refusals and timeouts go back to one load at a time with a longer delay, which recovers with later loads
+     */
+    @Test
+    public void testBackoff() throws Exception {
+        final DigestURL url = new DigestURL("http://203.0.113.18/index.html");
+        final String hosthash = url.hosthash();
+        for (int i = 0; i < 40; i++) load(url, 50);
+        assertTrue(Latency.parallel(hosthash) > 1);
+
+        // a 429 with a Retry-After header
+        Latency.updateBeforeLoad(url);
+        final long now = System.currentTimeMillis();
+        Latency.updateAfterRefusal(url, "120");
+        Latency.updateAfterFailure(url, 50, new IOException("REJECTED WRONG STATUS TYPE"));
+        assertEquals(1, Latency.parallel(hosthash));
+        assertEquals(2000, Latency.adaptiveWaiting(hosthash, 1000, 0));
+        assertTrue(Latency.nextAccessGuessed(hosthash, ClientIdentification.yacyInternetCrawlerAgent) >= now + 120000);
+
+        // a timeout doubles the delay again
+        Latency.updateBeforeLoad(url);
+        Latency.updateAfterFailure(url, 10000, new SocketTimeoutException());
+        assertEquals(4000, Latency.adaptiveWaiting(hosthash, 1000, 0));
+
+        // other errors do not change the politeness
+        Latency.updateBeforeLoad(url);
+        Latency.updateAfterFailure(url, 50, new IOException("no response body"));
+        assertEquals(4000, Latency.adaptiveWaiting(hosthash, 1000, 0));
+
+        // fast loads reduce the delay first
+        for (int i = 0; i < 20; i++) load(url, 50);
+        assertEquals(1000, Latency.adaptiveWaiting(hosthash, 1000, 0));
+        assertEquals(1, Latency.parallel(hosthash));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        final long now = 1000000000000L;
+        assertEquals(0, Latency.retryAfterMillis(null, now));
+        assertEquals(0, Latency.retryAfterMillis("soon", now));
+        assertEquals(30000, Latency.retryAfterMillis(" 30 ", now));
+        assertEquals(600000, Latency.retryAfterMillis("86400", now)); // at most ten minutes
+        assertEquals(0, Latency.retryAfterMillis("Fri, 31 Dec 1999 23:59:59 GMT", now)); // in the past
+    }
+}
@@ -0,0 +1,155 @@
+// HTTPLoaderTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.retrieval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.ClientIdentification;
+import net.yacy.cora.protocol.HeaderFramework;
+import net.yacy.cora.protocol.RequestHeader;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.cora.protocol.http.HTTPClient;
+
+public class HTTPLoaderTest {
+
+    private static final Date lastLoad = new Date(1000000000000L);
+
+    private HttpServer server;
+    private final AtomicReference<String> ifModifiedSince = new AtomicReference<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        // a server which answers every conditional request with 304
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final String since = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+                HTTPLoaderTest.this.ifModifiedSince.set(since);
+                if (since == null) {
+                    final byte[] content = "<html><body>content</body></html>".getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, content.length);
+                    exchange.getResponseBody().write(content);
+                } else {
+                    exchange.sendResponseHeaders(304, -1);
+                }
+                exchange.close();
+            }
+        });
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() {
+        this.server.stop(0);
+    }
+
+    private Request request() throws Exception {
+        return new Request(new DigestURL("http://127.0.0.1:" + this.server.getAddress().getPort() + "/index.html"), null);
+    }
+
+    @Test
+    public void testConditionalHeaders() throws Exception {
+        final Request request = request();
+        request.setConditional(lastLoad, "\"v1\"");
+        final RequestHeader requestHeader = new RequestHeader();
+        HTTPLoader.putConditionalHeaders(request, requestHeader);
+        assertEquals(HeaderFramework.formatRFC1123(lastLoad), requestHeader.get(RequestHeader.IF_MODIFIED_SINCE));
+        assertEquals("\"v1\"", requestHeader.get(RequestHeader.IF_NONE_MATCH));
+    }
+
+    @Test
+    public void testUnconditionalHeaders() throws Exception {
+        final RequestHeader requestHeader = new RequestHeader();
+        HTTPLoader.putConditionalHeaders(request(), requestHeader);
+        assertNull(requestHeader.get(RequestHeader.IF_MODIFIED_SINCE));
+        assertNull(requestHeader.get(RequestHeader.IF_NONE_MATCH));
+    }
+
+    @Test
+    public void testNotModifiedResponse() throws Exception {
+        final Request request = request();
+        request.setConditional(lastLoad, null);
+        final Response response = HTTPLoader.notModifiedResponse(request, new RequestHeader(), new ResponseHeader(304), null);
+        assertNotNull(response);
+        assertTrue(response.isNotModified());
+        assertEquals(0, response.getContent().length);
+        // other answers and unconditional requests are handled by the loader
+        assertNull(HTTPLoader.notModifiedResponse(request, new RequestHeader(), new ResponseHeader(200), null));
+        assertNull(HTTPLoader.notModifiedResponse(request(), new RequestHeader(), new ResponseHeader(304), null));
+    }
+
+    /**
+     * the conditional header must be sent also on the path of the loader which passes the admin credentials
+     */
+    @Test
+    public void testNotModifiedLoad() throws Exception {
+        final Request request = request();
+        request.setConditional(lastLoad, null);
+        final RequestHeader requestHeader = new RequestHeader();
+        HTTPLoader.putConditionalHeaders(request, requestHeader);
+        try (final HTTPClient client = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent)) {
+            client.setRedirecting(false);
+            client.setHeader(requestHeader.entrySet());
+            final byte[] content = client.GETbytes(request.url(), "admin", "", HTTPLoader.DEFAULT_MAXFILESIZE, false);
+            final int statusCode = client.getHttpResponse().getStatusLine().getStatusCode();
+            assertNotNull(this.ifModifiedSince.get());
+            assertEquals(304, statusCode);
+            assertTrue(content == null || content.length == 0);
+            final ResponseHeader responseHeader = new ResponseHeader(statusCode, client.getHttpResponse().getAllHeaders());
+            assertTrue(HTTPLoader.notModifiedResponse(request, requestHeader, responseHeader, null).isNotModified());
+        }
+    }
+
+    @Test
+    public void testUnconditionalLoad() throws Exception {
+        final Request request = request();
+        final RequestHeader requestHeader = new RequestHeader();
+        HTTPLoader.putConditionalHeaders(request, requestHeader);
+        try (final HTTPClient client = new HTTPClient(ClientIdentification.yacyInternetCrawlerAgent)) {
+            client.setRedirecting(false);
+            client.setHeader(requestHeader.entrySet());
+            final byte[] content = client.GETbytes(request.url(), "admin", "", HTTPLoader.DEFAULT_MAXFILESIZE, false);
+            assertNull(this.ifModifiedSince.get());
+            assertEquals(200, client.getHttpResponse().getStatusLine().getStatusCode());
+            assertTrue(content.length > 0);
+        }
+    }
+}
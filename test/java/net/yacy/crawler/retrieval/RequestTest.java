@@ -0,0 +1,79 @@
+// RequestTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.retrieval;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.ResponseHeader;
+
+public class RequestTest {
+
+    @Test
+    public void testConditional() throws Exception {
+        final Request request = new Request(new DigestURL("http://yacy.net/index.html"), null);
+        assertFalse(request.isConditional());
+
+        final Date modified = new Date(1000000000000L);
+        request.setConditional(modified, "");
+        assertTrue(request.isConditional());
+        assertEquals(modified, request.ifModifiedSince());
+        assertNull(request.ifNoneMatch()); // an empty entity tag is no validator
+
+        request.setConditional(null, "\"abc\"");
+        assertTrue(request.isConditional());
+        assertEquals("\"abc\"", request.ifNoneMatch());
+
+        // the validators do not apply to another url
+        request.redirectURL(new DigestURL("http://yacy.net/other.html"));
+        assertFalse(request.isConditional());
+    }
+
+    @Test
+    public void testLoadDate() throws Exception {
+        final Request request = new Request(new DigestURL("http://yacy.net/index.html"), null);
+        assertNull(request.loaddate());
+
+        // the load date is stored with the request in the crawl queues
+        request.setLoadDate(1000000000000L);
+        final Request stored = new Request(request.toRow());
+        assertEquals(new Date(1000000000000L), stored.loaddate());
+
+        // the load date does not apply to another url
+        stored.redirectURL(new DigestURL("http://yacy.net/other.html"));
+        assertNull(stored.loaddate());
+    }
+
+    @Test
+    public void testNotModified() throws Exception {
+        final Request request = new Request(new DigestURL("http://yacy.net/index.html"), null);
+        assertTrue(new Response(request, null, new ResponseHeader(304), null, false, new byte[0]).isNotModified());
+        assertFalse(new Response(request, null, new ResponseHeader(200), null, false, new byte[0]).isNotModified());
+    }
+}
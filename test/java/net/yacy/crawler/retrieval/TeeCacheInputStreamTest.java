@@ -0,0 +1,128 @@
+// TeeCacheInputStreamTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.crawler.retrieval;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.protocol.ResponseHeader;
+import net.yacy.crawler.data.Cache;
+import net.yacy.kelondro.util.FileUtils;
+
+public class TeeCacheInputStreamTest {
+
+    private static final byte[] CONTENT = "<html><head><title>streamed</title></head><body>streamed content</body></html>".getBytes(StandardCharsets.UTF_8);
+
+    @Before
+    public void setUp() {
+        Cache.init(new File(System.getProperty("java.io.tmpdir") + File.separator + "testTeeCache"), "peerSalt",
+                10L * 1024L * 1024L, 2000, Deflater.BEST_COMPRESSION);
+        Cache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        Cache.clear();
+        Cache.close();
+    }
+
+    private static Response response(final DigestURL url) {
+        // a chunked response: the content length is unknown
+        return new Response(new Request(url, null), null, new ResponseHeader(200), null, false, null);
+    }
+
+    /**
+     * a content that is read to its end is written to the cache and its length is known afterwards
+     */
+    @Test
+    public void testStoreAtEnd() throws Exception {
+        final DigestURL url = new DigestURL("http://yacy.net/streamed.html");
+        final Response response = response(url);
+        assertEquals(-1, response.size());
+        try (final TeeCacheInputStream in = new TeeCacheInputStream(new ByteArrayInputStream(CONTENT), response, true)) {
+            assertEquals(10, in.read(new byte[10]));
+            assertEquals('d', in.read());
+            assertEquals(5, in.skip(5)); // skipped bytes are copied as well
+            assertNull(Cache.getContent(url.hash())); // not yet complete
+            final byte[] rest = FileUtils.read(in);
+            assertEquals(CONTENT.length - 16, rest.length);
+            assertTrue(in.isFinished());
+            assertEquals(CONTENT.length, in.getCount());
+        }
+        assertArrayEquals(CONTENT, Cache.getContent(url.hash()));
+        assertEquals(CONTENT.length, response.size());
+    }
+
+    /**
+     * a stream that is closed before its end is read to the end on close, so that the cache entry is complete
+     */
+    @Test
+    public void testStoreOnEarlyClose() throws Exception {
+        final DigestURL url = new DigestURL("http://yacy.net/partial.html");
+        try (final TeeCacheInputStream in = new TeeCacheInputStream(new ByteArrayInputStream(CONTENT), response(url), true)) {
+            assertEquals(10, in.read(new byte[10]));
+            assertFalse(in.isFinished());
+        }
+        assertArrayEquals(CONTENT, Cache.getContent(url.hash()));
+    }
+
+    /**
+     * content that cannot be read completely and content that shall not be cached is not written to the cache
+     */
+    @Test
+    public void testNoStore() throws Exception {
+        final DigestURL broken = new DigestURL("http://yacy.net/broken.html");
+        final InputStream failing = new SequenceInputStream(new ByteArrayInputStream(CONTENT), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        try (final TeeCacheInputStream in = new TeeCacheInputStream(failing, response(broken), true)) {
+            assertEquals(10, in.read(new byte[10]));
+        }
+        assertNull(Cache.getContent(broken.hash()));
+
+        final DigestURL uncached = new DigestURL("http://yacy.net/uncached.html");
+        try (final TeeCacheInputStream in = new TeeCacheInputStream(new ByteArrayInputStream(CONTENT), response(uncached), false)) {
+            assertEquals(CONTENT.length, FileUtils.read(in).length);
+            assertTrue(in.isFinished());
+        }
+        assertNull(Cache.getContent(uncached.hash()));
+    }
+}
@@ -24,10 +24,13 @@ package net.yacy.document;
 
 import static org.junit.Assert.*;
 
+import java.net.MalformedURLException;
 import java.util.Locale;
 
 import org.junit.Test;
 
+import net.yacy.cora.document.id.MultiProtocolURL;
+
 /**
  * Unit tests for the {@link TextParser} class.
  * 
@@ -61,4 +64,18 @@ public class TextParserTest {
 		}
 	}
 
+	/**
+	 * Test the detection of the content which can be parsed while it is loaded.
+	 */
+	@Test
+	public void testSupportsStreaming() throws MalformedURLException {
+		assertTrue(TextParser.supportsStreaming(new MultiProtocolURL("http://yacy.net/index.html"), "text/html"));
+		assertTrue(TextParser.supportsStreaming(new MultiProtocolURL("http://yacy.net/feed"), "application/rss+xml"));
+		assertTrue(TextParser.supportsStreaming(new MultiProtocolURL("http://yacy.net/sitemap.xml.gz"), "application/gzip"));
+		/* the pdf parser needs the complete content */
+		assertFalse(TextParser.supportsStreaming(new MultiProtocolURL("http://yacy.net/doc.pdf"), "application/pdf"));
+		/* no parser besides the generic one */
+		assertFalse(TextParser.supportsStreaming(new MultiProtocolURL("http://yacy.net/file.unknown"), "application/x-unknown"));
+	}
+
 }
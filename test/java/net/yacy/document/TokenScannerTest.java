@@ -0,0 +1,105 @@
+// TokenScannerTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.document;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.solr.common.params.MapSolrParams;
+import org.junit.Test;
+
+import net.yacy.cora.document.analysis.EnhancedTextProfileSignature;
+
+public class TokenScannerTest {
+
+    private static final String[] PARTS = {"word", "Word", "WORD", "index", "of", "last", "modified", "a", "ab", "x1",
+        "ΑΣ", "ας", "İstanbul", "東京", " ", "  ", ".", "!", "?", "...", ",", "-", "\n", "\r\n", "\t", "\u0000", " ", "'s"};
+
+    private static String randomText(final Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int n = random.nextInt(60);
+        for (int i = 0; i < n; i++) sb.append(PARTS[random.nextInt(PARTS.length)]);
+        return sb.toString();
+    }
+
+    /**
+     * the scanner must produce the same tokens as a WordTokenizer over a SentenceReader, also if pre mode is switched on
+     */
+    @Test
+    public void testSameTokensAsWordTokenizer() {
+        final Random random = new Random(0);
+        for (int t = 0; t < 5000; t++) {
+            final String text = randomText(random);
+            final int preAt = random.nextInt(20);
+            final WordTokenizer wordenum = new WordTokenizer(new SentenceReader(text), null);
+            final TokenScanner scanner = TokenScanner.get(text, false);
+            try {
+                int count = 0;
+                while (wordenum.hasMoreElements()) {
+                    final String expected = wordenum.nextElement().toString();
+                    assertEquals(text, true, scanner.next());
+                    assertEquals(text, expected, scanner.toString());
+                    if (count++ == preAt) {
+                        wordenum.pre(true);
+                        scanner.pre();
+                    }
+                }
+                assertFalse(text, scanner.next());
+            } finally {
+                wordenum.close();
+                scanner.release();
+            }
+        }
+    }
+
+    /**
+     * the profile which is counted by the tokenizer must be the same as the one from the whole text
+     */
+    @Test
+    public void testProfile() {
+        final Random random = new Random(1);
+        for (int t = 0; t < 2000; t++) {
+            final String text = randomText(random) + " index of last modified\r\n\r\n" + randomText(random);
+            for (int minTokenLen = 0; minTokenLen < 4; minTokenLen++) {
+                final EnhancedTextProfileSignature expected = signature(minTokenLen);
+                expected.add(text);
+                final EnhancedTextProfileSignature profile = signature(minTokenLen);
+                new Tokenizer(null, text, null, false, null, profile);
+                assertEquals(text, expected.getSignatureText().toString(), profile.getSignatureText().toString());
+                assertEquals(text, EnhancedTextProfileSignature.getSignatureLong(expected), EnhancedTextProfileSignature.getSignatureLong(profile));
+            }
+        }
+    }
+
+    private static EnhancedTextProfileSignature signature(final int minTokenLen) {
+        final EnhancedTextProfileSignature signature = new EnhancedTextProfileSignature();
+        final Map<String, String> params = new HashMap<String, String>();
+        params.put("quantRate", "0.5");
+        params.put("minTokenLen", Integer.toString(minTokenLen));
+        signature.init(new MapSolrParams(params));
+        return signature;
+    }
+}
@@ -0,0 +1,231 @@
+// ArrayStackTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+import net.yacy.kelondro.rwi.ReferenceIterator;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+
+public class ArrayStackTest {
+
+    private File dir;
+    private ArrayStack stack;
+    private long time;
+
+    @Before
+    public void setUp() throws Exception {
+        this.dir = new File(System.getProperty("java.io.tmpdir"), "ArrayStackTest" + System.nanoTime());
+        this.dir.mkdirs();
+        this.stack = new ArrayStack(this.dir, "test", NaturalOrder.naturalOrder, 12, 0, true, true);
+        this.time = System.currentTimeMillis() - 100000;
+    }
+
+    @After
+    public void tearDown() {
+        this.stack.close(false);
+        FileUtils.deletedelete(this.dir);
+    }
+
+    /**
+     * write and mount a blob file with the given number of records of 1000 bytes each
+     */
+    private File mount(final int records) throws Exception {
+        final File f = this.stack.newBLOB(new Date(this.time++));
+        final HeapWriter writer = new HeapWriter(new File(f.getPath() + ".prt"), f, 12, NaturalOrder.naturalOrder, 4096);
+        for (int i = 0; i < records; i++) writer.add(ASCII.getBytes(String.format("k%05d-%05d", records, i)), new byte[1000]);
+        writer.close(false);
+        this.stack.mountBLOB(f, false);
+        return f;
+    }
+
+    /**
+     * the tiered selection must merge files of similar size and leave a single file per tier alone
+     */
+    @Test
+    public void testUnmountTiered() throws Exception {
+        final long base = 16 * 1024;
+        final File large = mount(100);  // about 100KB: tier 2
+        final File small1 = mount(5);   // about 5KB: tier 0
+        final File medium = mount(30);  // about 30KB: tier 1
+        final File small2 = mount(8);   // about 8KB: tier 0
+        assertEquals(small1.length() + small2.length(), this.stack.mergeDebt(base, 4));
+
+        final File[] ff = this.stack.unmountTiered(base, 4, 2, Long.MAX_VALUE);
+        assertNotNull(ff);
+        final Set<File> selected = new HashSet<File>(Arrays.asList(ff));
+        assertTrue(selected.contains(small1));
+        assertTrue(selected.contains(small2));
+        assertEquals(2, this.stack.entries());
+
+        // now every tier has a single file
+        assertNull(this.stack.unmountTiered(base, 4, 2, Long.MAX_VALUE));
+        assertEquals(0, this.stack.mergeDebt(base, 4));
+        assertTrue(large.exists() && medium.exists());
+    }
+
+    @Test
+    public void testUnmountTieredMaxResultSize() throws Exception {
+        mount(5);
+        mount(8);
+        assertNull(this.stack.unmountTiered(16 * 1024, 4, 2, 1024));
+        assertEquals(2, this.stack.entries());
+    }
+
+    /**
+     * the fan-in limits the number of files that are selected from one tier
+     */
+    @Test
+    public void testUnmountTieredFanIn() throws Exception {
+        final File[] small = new File[5];
+        for (int i = 0; i < small.length; i++) small[i] = mount(3 + i);
+        final File[] ff = this.stack.unmountTiered(16 * 1024, 4, 3, Long.MAX_VALUE);
+        assertNotNull(ff);
+        // the three smallest files, in the order of the stack
+        assertArrayEquals(new File[]{small[0], small[1], small[2]}, ff);
+        assertEquals(2, this.stack.entries());
+    }
+
+    /**
+     * files of a merge that could not be started are mounted again at their old position in the stack
+     */
+    @Test
+    public void testRemountBLOBs() throws Exception {
+        final File[] small = new File[5];
+        for (int i = 0; i < small.length; i++) small[i] = mount(3 + i);
+        final File[] ff = this.stack.unmountTiered(16 * 1024, 4, 3, Long.MAX_VALUE);
+        assertEquals(3, ff.length);
+        assertEquals(2, this.stack.entries());
+        this.stack.remountBLOBs(ff);
+        assertEquals(5, this.stack.entries());
+        assertNotNull(this.stack.get(ASCII.getBytes(String.format("k%05d-%05d", 3, 0))));
+        for (int i = 0; i < small.length; i++) assertEquals(small[i], this.stack.unmountOldestBLOB(false));
+    }
+
+    /**
+     * a merge of several reference files in one pass must contain every term and reference once,
+     * and on equal references the one from the oldest file must be kept
+     */
+    @Test
+    public void testMergeMountFiles() throws Exception {
+        final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+        final ArrayStack array = new ArrayStack(new File(this.dir, "rwi"), "rwi", Base64Order.enhancedCoder, Word.commonHashLength, 0, true, true);
+        try {
+            // expected hitcount for each term and url; the hitcount tells which file a reference came from
+            final Map<String, Map<String, Integer>> expected = new TreeMap<String, Map<String, Integer>>();
+            final File[] files = new File[4];
+            for (int f = 0; f < files.length; f++) {
+                // overlapping term and url ranges
+                final TreeSet<byte[]> termHashes = new TreeSet<byte[]>(Base64Order.enhancedCoder);
+                for (int t = f * 5; t < f * 5 + 20; t++) termHashes.add(Word.word2hash("term" + t));
+                files[f] = array.newBLOB(new Date(this.time++));
+                final HeapWriter writer = new HeapWriter(new File(files[f].getPath() + ".prt"), files[f], Word.commonHashLength, Base64Order.enhancedCoder, 4096);
+                for (final byte[] termHash: termHashes) {
+                    final ReferenceContainer<WordReference> c = new ReferenceContainer<WordReference>(factory, termHash);
+                    Map<String, Integer> refs = expected.get(ASCII.String(termHash));
+                    if (refs == null) {
+                        refs = new HashMap<String, Integer>();
+                        expected.put(ASCII.String(termHash), refs);
+                    }
+                    for (int u = f * 2; u < f * 2 + 4; u++) {
+                        final WordReferenceVars ref = newReference(new DigestURL("http://test" + u + ".org/"), f + 1);
+                        c.add(ref);
+                        if (!refs.containsKey(ASCII.String(ref.urlhash()))) refs.put(ASCII.String(ref.urlhash()), f + 1);
+                    }
+                    c.sort();
+                    writer.add(termHash, c.exportCollection());
+                }
+                writer.close(false);
+            }
+
+            final File result = array.mergeMount(files, factory, array.newBLOB(new Date(this.time++)), 4096, null);
+            assertNotNull(result);
+            assertEquals(1, array.entries());
+            for (final File f: files) assertFalse(f.exists());
+
+            final ReferenceIterator<WordReference> i = new ReferenceIterator<WordReference>(result, factory);
+            final Set<String> found = new HashSet<String>();
+            while (i.hasNext()) {
+                final ReferenceContainer<WordReference> c = i.next();
+                final String term = ASCII.String(c.getTermHash());
+                assertTrue("term written twice", found.add(term));
+                final Map<String, Integer> refs = expected.get(term);
+                assertNotNull(refs);
+                assertEquals(refs.size(), c.size());
+                final Iterator<WordReference> r = c.entries();
+                while (r.hasNext()) {
+                    final WordReference ref = r.next();
+                    assertEquals("reference from a wrong file", refs.get(ASCII.String(ref.urlhash())).intValue(), ref.hitcount());
+                }
+            }
+            i.close();
+            assertEquals(expected.keySet(), found);
+        } finally {
+            array.close(false);
+        }
+    }
+
+    private static WordReferenceVars newReference(final DigestURL url, final int hitcount) {
+        final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+        positions.add(10);
+        return new WordReferenceVars(
+                url.hash(),
+                url.toNormalform(true).length(),
+                MultiProtocolURL.urlComps(url.toNormalform(true)).length,
+                0, hitcount, 1, 1, 1, positions, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d);
+    }
+}
@@ -0,0 +1,127 @@
+// HeapReaderTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.order.NaturalOrder;
+import net.yacy.kelondro.util.FileUtils;
+
+public class HeapReaderTest {
+
+    private File dir;
+    private boolean mmapRead;
+
+    @Before
+    public void setUp() throws Exception {
+        this.mmapRead = HeapReader.mmapRead;
+        this.dir = new File(System.getProperty("java.io.tmpdir"), "HeapReaderTest" + System.nanoTime());
+        this.dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        HeapReader.mmapRead = this.mmapRead;
+        FileUtils.deletedelete(this.dir);
+    }
+
+    private static byte[] key(final int i) {
+        return ASCII.getBytes(String.format("key-%08d", i));
+    }
+
+    private static byte[] value(final int i) {
+        final byte[] b = new byte[1 + (i * 37) % 500];
+        for (int j = 0; j < b.length; j++) b[j] = (byte) (i + j);
+        return b;
+    }
+
+    private File writeHeap() throws Exception {
+        final File f = new File(this.dir, "test.blob");
+        final HeapWriter writer = new HeapWriter(new File(this.dir, "test.blob.prt"), f, 12, NaturalOrder.naturalOrder, 4096);
+        for (int i = 0; i < 1000; i++) writer.add(key(i), value(i));
+        writer.close(false);
+        return f;
+    }
+
+    /**
+     * reading from the memory map must return the same records as reading from the file
+     */
+    @Test
+    public void testMappedGet() throws Exception {
+        final File f = writeHeap();
+        HeapReader.mmapRead = true;
+        final HeapModifier mapped = new HeapModifier(f, 12, NaturalOrder.naturalOrder);
+        for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(value(i), mapped.get(key(i)));
+            assertEquals(value(i).length, mapped.length(key(i)));
+        }
+        assertNull(mapped.get(key(1000)));
+
+        // deletions are written to the file and must be visible through the map
+        mapped.delete(key(10));
+        mapped.delete(key(999));
+        assertNull(mapped.get(key(10)));
+        assertArrayEquals(value(11), mapped.get(key(11)));
+        mapped.close(false);
+
+        HeapReader.mmapRead = false;
+        final HeapModifier unmapped = new HeapModifier(f, 12, NaturalOrder.naturalOrder);
+        assertEquals(998, unmapped.size());
+        for (int i = 0; i < 999; i++) {
+            if (i == 10) continue;
+            assertArrayEquals(value(i), unmapped.get(key(i)));
+        }
+        unmapped.close(false);
+    }
+
+    /**
+     * a closed heap releases its map, so the file can be replaced and mapped again with the new content
+     */
+    @Test
+    public void testRemapAfterClose() throws Exception {
+        HeapReader.mmapRead = true;
+        File f = writeHeap();
+        final HeapModifier first = new HeapModifier(f, 12, NaturalOrder.naturalOrder);
+        assertArrayEquals(value(5), first.get(key(5)));
+        first.clear();
+        assertNull(first.get(key(5)));
+        first.close(false);
+        FileUtils.deletedelete(f);
+
+        f = new File(this.dir, "test.blob");
+        final HeapWriter writer = new HeapWriter(new File(this.dir, "test.blob.prt"), f, 12, NaturalOrder.naturalOrder, 4096);
+        for (int i = 0; i < 100; i++) writer.add(key(i), value(i + 1));
+        writer.close(false);
+        final HeapModifier second = new HeapModifier(f, 12, NaturalOrder.naturalOrder);
+        for (int i = 0; i < 100; i++) assertArrayEquals(value(i + 1), second.get(key(i)));
+        second.close(false);
+    }
+}
@@ -0,0 +1,109 @@
+// WordHashCacheTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import net.yacy.cora.order.Digest;
+
+public class WordHashCacheTest {
+
+    @Test
+    public void testLookup() {
+        final WordHashCache cache = new WordHashCache(100);
+        final byte[] hash = new byte[] {1, 2, 3};
+        cache.put("wort", hash);
+        assertSame(hash, cache.get("wort"));
+        assertSame(hash, cache.get(new StringBuilder("WoRt")));
+        assertNull(cache.get("worte"));
+        cache.put("ας", hash);
+        assertSame(hash, cache.get("ας"));
+        assertNull(cache.get("ΑΣ")); // lowercase of a final sigma depends on the context
+        cache.clear();
+        assertNull(cache.get("wort"));
+    }
+
+    @Test
+    public void testEviction() {
+        final WordHashCache cache = new WordHashCache(64);
+        final byte[] hash = new byte[0];
+        cache.put("keep", hash);
+        for (int i = 0; i < 10000; i++) {
+            cache.put("w" + i, hash);
+            assertSame(hash, cache.get("keep")); // a word which is read again is not evicted
+        }
+        assertEquals(cache.capacity(), cache.size());
+    }
+
+    @Test
+    public void testWord2hash() throws InterruptedException {
+        final String[] words = {"Suchmaschine", "search", "SEARCH", "İstanbul", "ΑΣ", "𐐀x", "東京", ""};
+        for (final String word: words) {
+            final byte[] expected = expectedHash(word);
+            assertArrayEquals(word, expected, Word.word2hash(word));
+            assertArrayEquals(word, expected, Word.word2hash(word)); // from the cache
+            assertArrayEquals(word, expected, Word.word2hash(new StringBuilder(word)));
+        }
+        final byte[][] hashes = Word.words2hashes(Arrays.asList(words));
+        for (int i = 0; i < words.length; i++) assertArrayEquals(words[i], expectedHash(words[i]), hashes[i]);
+
+        // concurrent access from several threads
+        final List<Thread> threads = new ArrayList<Thread>();
+        final List<AssertionError> errors = new ArrayList<AssertionError>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            final String word = "w" + ((i * 7 + seed) % 3000);
+                            assertArrayEquals(expectedHash(word), Word.word2hash(word));
+                        }
+                    } catch (final AssertionError e) {
+                        synchronized (errors) {errors.add(e);}
+                    }
+                }
+            });
+        }
+        for (final Thread thread: threads) thread.start();
+        for (final Thread thread: threads) thread.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    private static byte[] expectedHash(final String word) {
+        final byte[] h = Word.commonHashOrder.encodeSubstring(Digest.encodeMD5Raw(word.toLowerCase(Locale.ENGLISH)), Word.commonHashLength);
+        assertTrue(!Word.isPrivate(h));
+        return h;
+    }
+}
@@ -0,0 +1,79 @@
+// BloomFilterTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.kelondro.data.word.Word;
+
+public class BloomFilterTest {
+
+    private static byte[] key(final String s) {
+        return Word.word2hash(s);
+    }
+
+    /**
+     * all added keys must be found, and only a small share of other keys
+     */
+    @Test
+    public void testMightContain() {
+        final BloomFilter filter = new BloomFilter(Word.commonHashLength, 10000, 10);
+        for (int i = 0; i < 10000; i++) filter.add(key("in" + i));
+        for (int i = 0; i < 10000; i++) assertTrue("false negative", filter.mightContain(key("in" + i)));
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) if (filter.mightContain(key("out" + i))) falsePositives++;
+        assertTrue("too many false positives: " + falsePositives, falsePositives < 300);
+    }
+
+    /**
+     * shorter keys are treated as if they were padded with zeros
+     */
+    @Test
+    public void testShortKeys() {
+        final BloomFilter filter = new BloomFilter(6, 10, 10);
+        filter.add(new byte[]{'a', 'b', 'c', 0, 0, 0});
+        assertTrue(filter.mightContain(ASCII.getBytes("abc")));
+    }
+
+    @Test
+    public void testDumpAndLoad() throws Exception {
+        final BloomFilter filter = new BloomFilter(Word.commonHashLength, 1000, 10);
+        for (int i = 0; i < 1000; i++) filter.add(key("dump" + i));
+        final File file = File.createTempFile("BloomFilterTest", ".blm");
+        try {
+            filter.dump(file);
+            final BloomFilter loaded = BloomFilter.load(file);
+            assertEquals(filter.keylength(), loaded.keylength());
+            assertEquals(filter.mem(), loaded.mem());
+            for (int i = 0; i < 1000; i++) assertTrue("false negative", loaded.mightContain(key("dump" + i)));
+            for (int i = 0; i < 1000; i++) assertEquals(filter.mightContain(key("other" + i)), loaded.mightContain(key("other" + i)));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+// FrozenRowIndexTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.order.ByteOrder;
+import net.yacy.cora.order.NaturalOrder;
+
+public class FrozenRowIndexTest {
+
+    private int foldMinimum;
+
+    @Before
+    public void setUp() {
+        this.foldMinimum = FrozenRowIndex.foldMinimum;
+        FrozenRowIndex.foldMinimum = 50; // fold often
+    }
+
+    @After
+    public void tearDown() {
+        FrozenRowIndex.foldMinimum = this.foldMinimum;
+    }
+
+    private static Row row(final ByteOrder order) {
+        return new Row("byte[] key-12, Cardinal count-4 {b256}", order);
+    }
+
+    private static Row.Entry entry(final Row row, final byte[] key, final long count) {
+        final Row.Entry entry = row.newEntry();
+        entry.setCol(0, key);
+        entry.setCol(1, count);
+        return entry;
+    }
+
+    /**
+     * random puts, replaces and removes must give the same content as a TreeMap, before and after folding
+     */
+    private static void randomOperations(final ByteOrder order) throws Exception {
+        final Row row = row(order);
+        final Random r = new Random(order.hashCode());
+        final RowSet initial = new RowSet(row, 0);
+        final TreeMap<byte[], Long> expected = new TreeMap<byte[], Long>(order);
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        for (int i = 0; i < 3000; i++) {
+            final byte[] key = RowSet.randomHash(r);
+            keys.add(key);
+            if (i < 2000) {
+                initial.put(entry(row, key, i));
+                expected.put(key, (long) i);
+            }
+        }
+        final FrozenRowIndex index = new FrozenRowIndex("test", initial);
+        assertEquals(expected.size(), index.size());
+
+        for (int i = 0; i < 5000; i++) {
+            final byte[] key = keys.get(r.nextInt(keys.size()));
+            switch (r.nextInt(3)) {
+                case 0:
+                    final Row.Entry old = index.replace(entry(row, key, i));
+                    final Long oldExpected = expected.put(key, (long) i);
+                    if (oldExpected == null) assertNull(old); else assertEquals(oldExpected.longValue(), old.getColLong(1));
+                    break;
+                case 1:
+                    final Row.Entry removed = index.remove(key);
+                    final Long removedExpected = expected.remove(key);
+                    if (removedExpected == null) assertNull(removed); else assertEquals(removedExpected.longValue(), removed.getColLong(1));
+                    break;
+                default:
+                    assertEquals(expected.containsKey(key), index.has(key));
+                    final Row.Entry e = index.get(key, true);
+                    if (expected.containsKey(key)) assertEquals(expected.get(key).longValue(), e.getColLong(1)); else assertNull(e);
+            }
+            assertEquals(expected.size(), index.size());
+        }
+        for (final byte[] key: keys) {
+            assertEquals(expected.containsKey(key), index.has(key));
+        }
+
+        // iteration folds the delta and gives the rows in order
+        final Iterator<Row.Entry> i = index.rows(true, null);
+        for (final Map.Entry<byte[], Long> e: expected.entrySet()) {
+            assertTrue(i.hasNext());
+            final Row.Entry entry = i.next();
+            assertArrayEquals(e.getKey(), entry.getPrimaryKeyBytes());
+            assertEquals(e.getValue().longValue(), entry.getColLong(1));
+        }
+        assertFalse(i.hasNext());
+        assertEquals(expected.size(), index.size());
+        assertArrayEquals(expected.firstKey(), index.smallestKey());
+        assertArrayEquals(expected.lastKey(), index.largestKey());
+        for (final byte[] key: keys) {
+            assertEquals(expected.containsKey(key), index.has(key));
+        }
+    }
+
+    @Test
+    public void testEnhancedCoder() throws Exception {
+        randomOperations(Base64Order.enhancedCoder);
+    }
+
+    /**
+     * orders without a usable key cardinal are searched without the radix table
+     */
+    @Test
+    public void testOtherOrders() throws Exception {
+        randomOperations(new Base64Order(false, false));
+        randomOperations(NaturalOrder.naturalOrder);
+    }
+
+    @Test
+    public void testHandleMapFreeze() throws Exception {
+        final RowHandleMap map = new RowHandleMap(12, Base64Order.enhancedCoder, 4, 100, "test");
+        final Random r = new Random(1);
+        final List<byte[]> keys = new ArrayList<byte[]>();
+        for (int i = 0; i < 500; i++) {
+            final byte[] key = RowSet.randomHash(r);
+            keys.add(key);
+            map.put(key, i);
+        }
+        map.freeze();
+        assertTrue(map.isFrozen());
+        for (int i = 0; i < keys.size(); i++) assertEquals(i, map.get(keys.get(i)));
+        assertEquals(7, map.add(keys.get(0), 7));
+        assertEquals(1, map.remove(keys.get(1)));
+        assertEquals(-1, map.get(keys.get(1)));
+        assertEquals(499, map.size());
+    }
+
+    @Test
+    public void testHandleSetFreeze() throws Exception {
+        final RowHandleSet set = new RowHandleSet(12, Base64Order.enhancedCoder, 100);
+        final Random r = new Random(2);
+        for (int i = 0; i < 500; i++) set.put(RowSet.randomHash(r));
+        final RowHandleSet copy = set.clone();
+        set.freeze();
+        assertTrue(set.isFrozen());
+        for (final byte[] key: copy) assertTrue(set.has(key));
+        assertArrayEquals(copy.export(), set.export());
+        assertArrayEquals(copy.getOne(0), set.getOne(0));
+        final byte[] key = RowSet.randomHash(r);
+        assertTrue(set.put(key));
+        assertFalse(set.put(key));
+        assertTrue(set.remove(key));
+        assertEquals(copy.size(), set.size());
+    }
+}
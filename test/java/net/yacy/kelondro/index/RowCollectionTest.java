@@ -0,0 +1,103 @@
+// RowCollectionTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.cora.order.Base64Order;
+
+public class RowCollectionTest {
+
+    private static final Row row = new Row("byte[] key-12, Cardinal count-4 {b256}", Base64Order.enhancedCoder);
+
+    /**
+     * create a collection with random keys; every key appears up to three times
+     */
+    private static RowCollection randomCollection(final int size, final long seed) throws Exception {
+        final RowCollection c = new RowCollection(row, size);
+        final Random r = new Random(seed);
+        byte[] key = null;
+        for (int i = 0; i < size; i++) {
+            if (key == null || r.nextInt(3) > 0) key = RowSet.randomHash(r);
+            final Row.Entry entry = row.newEntry();
+            entry.setCol(0, key);
+            entry.setCol(1, i);
+            c.addUnique(entry);
+        }
+        return c;
+    }
+
+    private static void assertSameKeys(final RowCollection expected, final RowCollection sorted) {
+        assertEquals(expected.size(), sorted.size());
+        assertEquals(sorted.size(), sorted.sorted());
+        assertTrue(sorted.isSorted());
+        for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.getKey(i), sorted.getKey(i));
+    }
+
+    /**
+     * the sort must return the same key sequence as the generic quicksort, in the sequential and the parallel case
+     */
+    @Test
+    public void testSort() throws Exception {
+        final int limit = RowCollection.parallelSortLimit;
+        try {
+            RowCollection.parallelSortLimit = 1000;
+            for (final int size: new int[]{0, 1, 2, 19, 20, 21, 500, 30000}) {
+                final RowCollection expected = randomCollection(size, size);
+                net.yacy.cora.sorting.Array.sort(expected);
+                final RowCollection sorted = randomCollection(size, size);
+                sorted.sort();
+                assertSameKeys(expected, sorted);
+            }
+        } finally {
+            RowCollection.parallelSortLimit = limit;
+        }
+    }
+
+    /**
+     * a small unsorted tail is merged into the sorted part
+     */
+    @Test
+    public void testSortTail() throws Exception {
+        final RowCollection sorted = randomCollection(10000, 1);
+        sorted.sort();
+        final Random r = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            final Row.Entry entry = row.newEntry();
+            entry.setCol(0, i % 10 == 0 ? sorted.getKey(r.nextInt(sorted.size())) : RowSet.randomHash(r));
+            entry.setCol(1, i);
+            sorted.addUnique(entry);
+        }
+        assertEquals(10000, sorted.sorted());
+        final RowCollection expected = new RowCollection(row, sorted.size());
+        for (int i = 0; i < sorted.size(); i++) expected.addUnique(sorted.get(i, true));
+        net.yacy.cora.sorting.Array.sort(expected);
+        sorted.sort();
+        assertSameKeys(expected, sorted);
+    }
+}
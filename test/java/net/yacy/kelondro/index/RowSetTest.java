@@ -0,0 +1,95 @@
+// RowSetTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import net.yacy.cora.order.Base64Order;
+
+public class RowSetTest {
+
+    private static final Row row = new Row("byte[] key-12, Cardinal count-4 {b256}", Base64Order.enhancedCoder);
+
+    private static RowSet randomSet(final int size) throws Exception {
+        final RowSet set = new RowSet(row, size);
+        final Random r = new Random(size);
+        for (int i = 0; i < size; i++) {
+            final Row.Entry entry = row.newEntry();
+            entry.setCol(0, RowSet.randomHash(r));
+            entry.setCol(1, i);
+            set.put(entry);
+        }
+        set.sort();
+        return set;
+    }
+
+    /**
+     * the cursor must show the same rows as get(), moving a single entry
+     */
+    @Test
+    public void testCursor() throws Exception {
+        final RowSet set = randomSet(500);
+        final RowCollection.Cursor cursor = set.cursor();
+        final Row.Entry flyweight = cursor.entry();
+        int count = 0;
+        while (cursor.next()) {
+            assertSame(flyweight, cursor.entry());
+            assertArrayEquals(set.get(count, true).bytes(), cursor.copy().bytes());
+            assertEquals(set.get(count, true).getColLong(1), cursor.entry().getColLong(1));
+            assertEquals(count, set.indexOf(cursor.chunk(), cursor.offset()));
+            if (count > 0) {
+                assertTrue(cursor.compareKey(set.getKey(count - 1), 0) > 0);
+            }
+            count++;
+        }
+        assertEquals(set.size(), count);
+        assertFalse(cursor.next());
+    }
+
+    /**
+     * removing several rows in one pass must keep the order and the search ability
+     */
+    @Test
+    public void testRemoveRows() throws Exception {
+        final RowSet set = randomSet(300);
+        final RowSet copy = randomSet(300);
+        final BitSet remove = new BitSet();
+        for (int i = 0; i < set.size(); i += 3) remove.set(i);
+        assertEquals(100, set.removeRows(remove));
+        assertEquals(200, set.size());
+        assertTrue(set.isSorted());
+        assertEquals(200, set.sorted());
+        for (int i = 0; i < copy.size(); i++) {
+            final byte[] key = copy.getKey(i);
+            assertEquals(i % 3 != 0, set.has(key));
+        }
+    }
+}
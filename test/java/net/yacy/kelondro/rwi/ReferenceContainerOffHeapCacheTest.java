@@ -0,0 +1,237 @@
+// ReferenceContainerOffHeapCacheTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.cora.document.id.MultiProtocolURL;
+import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * Unit tests for the ReferenceContainerOffHeapCache: the off-heap buffer must behave like the ReferenceContainerCache.
+ */
+public class ReferenceContainerOffHeapCacheTest {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ReferenceContainerBuffer<WordReference> offHeap() {
+        return new ReferenceContainerOffHeapCache<WordReference>(factory, Word.commonHashOrder, Word.commonHashLength);
+    }
+
+    private static ReferenceContainerBuffer<WordReference> offHeap(final int stripes) {
+        return new ReferenceContainerOffHeapCache<WordReference>(factory, Word.commonHashOrder, Word.commonHashLength, stripes);
+    }
+
+    private static ReferenceContainerBuffer<WordReference> onHeap() {
+        return new ReferenceContainerCache<WordReference>(factory, Word.commonHashOrder, Word.commonHashLength);
+    }
+
+    /**
+     * fill both buffer implementations with the same random references and compare the content
+     */
+    @Test
+    public void testSameContentAsCache() throws Exception {
+        final ReferenceContainerBuffer<WordReference> a = offHeap(4);
+        final ReferenceContainerBuffer<WordReference> b = onHeap();
+        final Random r = new Random(42);
+        final DigestURL[] urls = new DigestURL[3000];
+        for (int u = 0; u < urls.length; u++) urls[u] = new DigestURL("http://test" + u + ".org/page.html");
+        for (int i = 0; i < 20000; i++) {
+            // a few terms get many references to exercise region growth and re-sorting
+            final byte[] term = Word.word2hash("term" + (r.nextBoolean() ? r.nextInt(5) : r.nextInt(2000)));
+            final WordReferenceVars ref = newReference(urls[r.nextInt(urls.length)], 1 + r.nextInt(100));
+            a.add(term, ref);
+            b.add(term, ref);
+        }
+        assertEquals("size", b.size(), a.size());
+        assertEquals("maxReferences", b.maxReferences(), a.maxReferences());
+
+        final Iterator<ReferenceContainer<WordReference>> ia = a.referenceContainerIterator(null, false, false);
+        final Iterator<ReferenceContainer<WordReference>> ib = b.referenceContainerIterator(null, false, false);
+        while (ib.hasNext()) {
+            assertTrue("iterator too short", ia.hasNext());
+            final ReferenceContainer<WordReference> cb = ib.next();
+            final ReferenceContainer<WordReference> ca = ia.next();
+            assertEquals("term order", new String(cb.getTermHash()), new String(ca.getTermHash()));
+            assertEquals("container size", cb.size(), ca.size());
+            assertEquals("count", cb.size(), a.count(cb.getTermHash()));
+            final Iterator<WordReference> e = cb.entries();
+            while (e.hasNext()) {
+                final WordReference wb = e.next();
+                final WordReference wa = ca.getReference(wb.urlhash());
+                assertNotNull("reference missing", wa);
+                assertEquals("hitcount", wb.hitcount(), wa.hitcount());
+            }
+        }
+        assertFalse("iterator too long", ia.hasNext());
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        final ReferenceContainerBuffer<WordReference> a = offHeap();
+        final byte[] term = Word.word2hash("remove");
+        final DigestURL[] urls = new DigestURL[100];
+        for (int u = 0; u < urls.length; u++) {
+            urls[u] = new DigestURL("http://remove" + u + ".org/");
+            a.add(term, newReference(urls[u], u + 1));
+        }
+        assertEquals(100, a.count(term));
+        assertTrue(a.remove(term, urls[50].hash()));
+        assertFalse(a.remove(term, urls[50].hash()));
+        assertEquals(99, a.count(term));
+        assertNull(a.get(term, null).getReference(urls[50].hash()));
+        assertNotNull(a.get(term, null).getReference(urls[51].hash()));
+
+        final ReferenceContainer<WordReference> c = a.remove(term);
+        assertEquals(99, c.size());
+        assertFalse(a.has(term));
+        assertTrue(a.isEmpty());
+
+        // freed regions are re-used
+        a.add(term, newReference(urls[0], 1));
+        assertEquals(1, a.count(term));
+        a.clear();
+        assertEquals(0, a.size());
+    }
+
+    /**
+     * a dump must contain all terms in the term order with all references, a destructive dump must empty the buffer
+     */
+    @Test
+    public void testDump() throws Exception {
+        final ReferenceContainerBuffer<WordReference> a = offHeap(4);
+        final ReferenceContainerBuffer<WordReference> b = onHeap();
+        final Random r = new Random(7);
+        for (int i = 0; i < 5000; i++) {
+            final byte[] term = Word.word2hash("dump" + r.nextInt(500));
+            final WordReferenceVars ref = newReference(new DigestURL("http://dump" + r.nextInt(1000) + ".org/"), 1 + r.nextInt(10));
+            a.add(term, ref);
+            b.add(term, ref);
+        }
+        for (final boolean destructive: new boolean[]{false, true}) {
+            final File heapFile = new File(this.folder.getRoot(), "dump" + destructive + ".blob");
+            a.dump(heapFile, 64 * 1024, destructive);
+            assertTrue(heapFile.exists());
+            assertEquals("buffer after dump", destructive ? 0 : b.size(), a.size());
+
+            final ReferenceIterator<WordReference> i = new ReferenceIterator<WordReference>(heapFile, factory);
+            final Iterator<ReferenceContainer<WordReference>> ib = b.referenceContainerIterator(null, false, false);
+            try {
+                while (ib.hasNext()) {
+                    final ReferenceContainer<WordReference> cb = ib.next();
+                    assertTrue("dump too short", i.hasNext());
+                    final ReferenceContainer<WordReference> ca = i.next();
+                    assertEquals("term order", new String(cb.getTermHash()), new String(ca.getTermHash()));
+                    assertEquals("container size", cb.size(), ca.size());
+                    final Iterator<WordReference> e = cb.entries();
+                    while (e.hasNext()) {
+                        final WordReference wb = e.next();
+                        final WordReference wa = ca.getReference(wb.urlhash());
+                        assertNotNull("reference missing", wa);
+                        assertEquals("hitcount", wb.hitcount(), wa.hitcount());
+                    }
+                }
+                assertFalse("dump too long", i.hasNext());
+            } finally {
+                i.close();
+                FileUtils.deletedelete(heapFile);
+            }
+        }
+        // the buffer can be used again after a destructive dump
+        final byte[] term = Word.word2hash("again");
+        a.add(term, newReference(new DigestURL("http://again.org/"), 1));
+        assertEquals(1, a.count(term));
+    }
+
+    /**
+     * threads that add references to the same and to different terms must not lose references
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final ReferenceContainerBuffer<WordReference> a = offHeap(8);
+        final int threads = 4, terms = 200, urls = 50;
+        final DigestURL[] url = new DigestURL[urls];
+        for (int u = 0; u < urls; u++) url[u] = new DigestURL("http://concurrent" + u + ".org/");
+        final List<Thread> workers = new ArrayList<Thread>();
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int n = 0; n < terms; n++) {
+                            final byte[] term = Word.word2hash("concurrent" + ((n + offset * 17) % terms));
+                            for (int u = offset; u < urls; u += threads) a.add(term, newReference(url[u], 1));
+                        }
+                    } catch (final Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+        }
+        for (final Thread t: workers) t.start();
+        for (final Thread t: workers) t.join();
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(terms, a.size());
+        for (int n = 0; n < terms; n++) assertEquals(urls, a.count(Word.word2hash("concurrent" + n)));
+    }
+
+    private static WordReferenceVars newReference(final DigestURL url, final int hitcount) {
+        final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+        positions.add(10);
+        return new WordReferenceVars(
+                url.hash(),
+                url.toNormalform(true).length(),
+                MultiProtocolURL.urlComps(url.toNormalform(true)).length,
+                0, hitcount, 1, 1, 1, positions, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d);
+    }
+
+}
@@ -23,14 +23,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.junit.Test;
 
+import net.yacy.cora.document.encoding.ASCII;
 import net.yacy.cora.document.id.DigestURL;
 import net.yacy.cora.document.id.MultiProtocolURL;
 import net.yacy.crawler.retrieval.Response;
+import net.yacy.kelondro.index.Row;
+import net.yacy.kelondro.index.RowSet;
 import net.yacy.kelondro.data.word.Word;
 import net.yacy.kelondro.data.word.WordReference;
 import net.yacy.kelondro.data.word.WordReferenceFactory;
@@ -99,4 +107,117 @@ public class ReferenceContainerTest {
         assertEquals("distance()", wentry.distance(), wc.distance());
     }
 
+    /**
+     * Test of the k-way merge of a list of containers: the result must be the
+     * same as a left-to-right chain of pairwise merges.
+     */
+    @Test
+    public void testMergeList() throws Exception {
+        final ReferenceFactory<WordReference> wordReferenceFactory = new WordReferenceFactory();
+        final byte[] termHash = Word.word2hash("test");
+
+        final List<RowSet> collections = new ArrayList<RowSet>();
+        final List<RowSet> copies = new ArrayList<RowSet>();
+        for (int c = 0; c < 5; c++) {
+            final ReferenceContainer<WordReference> rc = new ReferenceContainer<WordReference>(wordReferenceFactory, termHash);
+            // overlapping url sets, the hitcount tells which container a reference came from
+            for (int u = c * 3; u < c * 3 + 10; u++) {
+                rc.add(newReference(new DigestURL("http://test" + u + ".org/test.html"), c + 1));
+            }
+            collections.add(rc);
+            copies.add(rc.clone());
+        }
+
+        ReferenceContainer<WordReference> expected = new ReferenceContainer<WordReference>(wordReferenceFactory, termHash, copies.get(0));
+        for (int c = 1; c < copies.size(); c++) {
+            expected = expected.merge(new ReferenceContainer<WordReference>(wordReferenceFactory, termHash, copies.get(c)));
+        }
+
+        final ReferenceContainer<WordReference> merged = ReferenceContainer.merge(wordReferenceFactory, termHash, collections);
+        assertEquals("size", 22, merged.size());
+        assertEquals("size", expected.size(), merged.size());
+        assertTrue("sorted", merged.isSorted());
+        final Iterator<WordReference> i = expected.entries();
+        while (i.hasNext()) {
+            final WordReference e = i.next();
+            final WordReference m = merged.getReference(e.urlhash());
+            assertNotNull("reference missing", m);
+            assertEquals("reference from wrong container", e.hitcount(), m.hitcount());
+        }
+    }
+
+    /**
+     * Test of the cursor based joins and excludes: both the test and the enumeration method
+     * must return the intersection or the difference of the url sets.
+     */
+    @Test
+    public void testJoinAndExclude() throws Exception {
+        final ReferenceFactory<WordReference> wordReferenceFactory = new WordReferenceFactory();
+        // the first pair has similar sizes (enumeration), the second pair very different sizes (test)
+        final int[][] ranges = new int[][]{{0, 100, 50, 150}, {0, 2000, 1990, 1995}};
+        for (final int[] r: ranges) {
+            final ReferenceContainer<WordReference> a = new ReferenceContainer<WordReference>(wordReferenceFactory, Word.word2hash("a"));
+            final ReferenceContainer<WordReference> b = new ReferenceContainer<WordReference>(wordReferenceFactory, Word.word2hash("b"));
+            for (int u = r[0]; u < r[1]; u++) a.add(newReference(new DigestURL("http://test" + u + ".org/"), 1, 5));
+            for (int u = r[2]; u < r[3]; u++) b.add(newReference(new DigestURL("http://test" + u + ".org/"), 2, 10));
+            final Set<String> expectedJoin = new HashSet<String>();
+            final Set<String> expectedExclude = new HashSet<String>();
+            for (int u = r[0]; u < r[1]; u++) {
+                final String hash = ASCII.String(new DigestURL("http://test" + u + ".org/").hash());
+                if (u >= r[2] && u < r[3]) expectedJoin.add(hash); else expectedExclude.add(hash);
+            }
+
+            final List<String> orderB = rowOrder(b);
+            final List<String> orderA = rowOrder(a);
+
+            final ReferenceContainer<WordReference> join = ReferenceContainer.joinConstructive(wordReferenceFactory, a, b, Integer.MAX_VALUE);
+            assertEquals("join size", expectedJoin.size(), join.size());
+            assertEquals("join", expectedJoin, urlHashes(join));
+            // a joined reference combines both references: the hitcount of b and the position of a
+            final Iterator<WordReference> j = join.entries();
+            while (j.hasNext()) {
+                final WordReference w = j.next();
+                assertEquals("hitcount of join", 2, w.hitcount());
+                assertEquals("position of join", 5, w.posintext());
+            }
+            assertEquals("join changed the order of the input", orderA, rowOrder(a));
+            assertEquals("join changed the order of the input", orderB, rowOrder(b));
+
+            final ReferenceContainer<WordReference> exclude = ReferenceContainer.excludeDestructive(wordReferenceFactory, a, b);
+            assertEquals("exclude size", expectedExclude.size(), exclude.size());
+            assertEquals("exclude", expectedExclude, urlHashes(exclude));
+            assertEquals("exclude changed the excluded container", orderB, rowOrder(b));
+        }
+    }
+
+    /**
+     * @return the url hashes in the order of the rows in the container
+     */
+    private static List<String> rowOrder(final ReferenceContainer<WordReference> c) {
+        final List<String> order = new ArrayList<String>();
+        for (final Row.Entry row: c) order.add(ASCII.String(row.getPrimaryKeyBytes()));
+        return order;
+    }
+
+    private static Set<String> urlHashes(final ReferenceContainer<WordReference> c) {
+        final Set<String> hashes = new HashSet<String>();
+        final Iterator<WordReference> i = c.entries();
+        while (i.hasNext()) hashes.add(ASCII.String(i.next().urlhash()));
+        return hashes;
+    }
+
+    private static WordReferenceVars newReference(final DigestURL url, final int hitcount) {
+        return newReference(url, hitcount, 1);
+    }
+
+    private static WordReferenceVars newReference(final DigestURL url, final int hitcount, final int posintext) {
+        final Queue<Integer> positions = new LinkedBlockingQueue<Integer>();
+        positions.add(10);
+        return new WordReferenceVars(
+                url.hash(),
+                url.toNormalform(true).length(),
+                MultiProtocolURL.urlComps(url.toNormalform(true)).length,
+                0, hitcount, 1, 1, posintext, positions, 1, 1, 0, "en", Response.DT_TEXT, 0, 0, new Bitfield(4), 0.0d);
+    }
+
 }
@@ -0,0 +1,70 @@
+// VirtualThreadsTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+package net.yacy.kelondro.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+    /**
+     * on a JVM with virtual threads, many blocking tasks must run at the same time; otherwise no executor is created
+     */
+    @Test
+    public void testThreadPerTaskExecutor() throws Exception {
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("test-");
+        if (!VirtualThreads.isSupported()) {
+            assertNull(executor);
+            return;
+        }
+        final int tasks = 2000;
+        final CountDownLatch started = new CountDownLatch(tasks);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger finished = new AtomicInteger();
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        release.await();
+                        finished.incrementAndGet();
+                    } catch (final InterruptedException e) {}
+                }
+            });
+        }
+        // all tasks block at the same time, which would need 2000 platform threads
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(tasks, finished.get());
+    }
+}
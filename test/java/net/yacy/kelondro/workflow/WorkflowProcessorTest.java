@@ -0,0 +1,75 @@
+// WorkflowProcessorTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.workflow;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WorkflowProcessorTest {
+
+    private static class Job extends WorkflowJob {
+        int value;
+        Job(final int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * a two-stage pipeline in shared mode processes all jobs, runs at most maxpoolsize jobs of a stage at once
+     * and waits at a full queue of the next stage instead of losing jobs
+     */
+    @Test
+    public void testSharedPipeline() throws Exception {
+        final int jobs = 200;
+        final AtomicInteger sum = new AtomicInteger(0);
+        final AtomicInteger done = new AtomicInteger(0);
+        final AtomicInteger sinkRunning = new AtomicInteger(0);
+        final AtomicInteger sinkMaxRunning = new AtomicInteger(0);
+
+        final WorkflowProcessor<Job> sink = new WorkflowProcessor<Job>("testSink", "", new String[0], in -> {
+            final int running = sinkRunning.incrementAndGet();
+            sinkMaxRunning.accumulateAndGet(running, Math::max);
+            Thread.sleep(1); // slower than the source stage, so that its queue fills up
+            sum.addAndGet(in.value);
+            done.incrementAndGet();
+            sinkRunning.decrementAndGet();
+            return null;
+        }, 2, null, 1, true);
+        final WorkflowProcessor<Job> source = new WorkflowProcessor<Job>("testSource", "", new String[]{"testSink"}, in -> {
+            in.value = in.value * 2;
+            return in;
+        }, 2, sink, 4, true);
+
+        for (int i = 1; i <= jobs; i++) source.enQueue(new Job(i));
+        source.shutdown();
+        sink.shutdown();
+
+        assertEquals(jobs, done.get());
+        assertEquals(jobs * (jobs + 1), sum.get());
+        assertEquals(1, sinkMaxRunning.get());
+        assertEquals(jobs, sink.getExecCount());
+        assertEquals(0, source.getExecutors());
+    }
+}
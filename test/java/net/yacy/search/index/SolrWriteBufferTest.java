@@ -0,0 +1,152 @@
+// SolrWriteBufferTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.Test;
+
+public class SolrWriteBufferTest {
+
+    /**
+     * a buffer which records the size of each written batch, the ids of the written documents and the ids
+     * which were reported as written
+     */
+    private static class RecordingBuffer extends SolrWriteBuffer {
+
+        final List<Integer> batches = new ArrayList<Integer>();
+        final List<String> written = new ArrayList<String>();
+        final List<String> confirmed = new ArrayList<String>();
+        boolean pendingWhenConfirmed = true; // the documents must stay visible until they are reported as written
+        String broken = null; // the id of a document which cannot be written
+        long writeTime = 0; // the time that a write takes
+
+        RecordingBuffer(final int batchSize, final long maxDelay) {
+            super("SolrWriteBufferTest", batchSize, maxDelay);
+        }
+
+        @Override
+        protected synchronized void write(final List<SolrInputDocument> docs) throws IOException {
+            for (final SolrInputDocument doc: docs) {
+                if (doc.getFieldValue("id").equals(this.broken)) throw new IOException("broken document");
+            }
+            if (this.writeTime > 0) try {Thread.sleep(this.writeTime);} catch (final InterruptedException e) {}
+            this.batches.add(docs.size());
+            for (final SolrInputDocument doc: docs) this.written.add((String) doc.getFieldValue("id"));
+        }
+
+        @Override
+        protected synchronized void written(final List<String> ids) {
+            for (final String id: ids) if (this.get(id) == null) this.pendingWhenConfirmed = false;
+            this.confirmed.addAll(ids);
+        }
+
+        synchronized int writtenCount() {
+            return this.written.size();
+        }
+    }
+
+    private static SolrInputDocument doc(final String id) {
+        final SolrInputDocument doc = new SolrInputDocument();
+        doc.setField("id", id);
+        return doc;
+    }
+
+    @Test
+    public void testBatchesAndReadYourWrites() throws Exception {
+        final RecordingBuffer buffer = new RecordingBuffer(3, 60000);
+        final SolrInputDocument a = doc("a");
+        buffer.add("a", a);
+        buffer.add("b", doc("b"));
+        assertSame(a, buffer.get("a")); // visible before it is written
+        final SolrInputDocument a2 = doc("a");
+        buffer.add("a", a2); // replaces the pending document
+        assertEquals(2, buffer.size());
+        assertSame(a2, buffer.get("a"));
+        buffer.add("c", doc("c")); // the batch is full
+
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (buffer.writtenCount() < 3 && System.currentTimeMillis() < timeout) Thread.sleep(10);
+        assertEquals(3, buffer.writtenCount());
+        assertEquals(Integer.valueOf(3), buffer.batches.get(0)); // one request for the whole batch
+        assertEquals("a", buffer.written.get(0)); // in the order of the first add
+        assertNull(buffer.get("a"));
+        assertEquals(0, buffer.size());
+        buffer.close();
+    }
+
+    @Test
+    public void testOldestAge() throws Exception {
+        final RecordingBuffer buffer = new RecordingBuffer(2, 60000);
+        assertEquals(0, buffer.oldestAge());
+        buffer.writeTime = 200;
+        buffer.add("a", doc("a"));
+        buffer.add("b", doc("b")); // the batch is full
+        buffer.add("c", doc("c"));
+        final long added = System.currentTimeMillis();
+        final long timeout = added + 10000;
+        while (buffer.writtenCount() < 2 && System.currentTimeMillis() < timeout) Thread.sleep(10);
+        while (buffer.size() > 1 && System.currentTimeMillis() < timeout) Thread.sleep(10);
+        assertEquals(1, buffer.size());
+        // the document which waits since before the batch was written keeps its age
+        assertTrue(buffer.oldestAge() >= System.currentTimeMillis() - added);
+        buffer.flush();
+        assertEquals(0, buffer.oldestAge());
+        buffer.close();
+    }
+
+    @Test
+    public void testDelayFlushAndClose() throws Exception {
+        final RecordingBuffer buffer = new RecordingBuffer(100, 50);
+        buffer.add("a", doc("a"));
+        final long timeout = System.currentTimeMillis() + 10000;
+        while (buffer.writtenCount() < 1 && System.currentTimeMillis() < timeout) Thread.sleep(10);
+        assertEquals(1, buffer.writtenCount()); // written after the delay although the batch is not full
+
+        buffer.broken = "c";
+        buffer.add("b", doc("b"));
+        buffer.add("c", doc("c"));
+        buffer.add("d", doc("d"));
+        buffer.flush();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.written.contains("b")); // a broken document does not discard its batch
+        assertTrue(buffer.written.contains("d"));
+        assertTrue(buffer.confirmed.contains("b"));
+        assertFalse(buffer.confirmed.contains("c")); // only written documents are reported
+        assertTrue(buffer.pendingWhenConfirmed);
+
+        buffer.close();
+        buffer.add("e", doc("e")); // written at once after close
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.written.contains("e"));
+        assertTrue(buffer.confirmed.contains("e"));
+    }
+}
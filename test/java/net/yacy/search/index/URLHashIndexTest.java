@@ -0,0 +1,106 @@
+// URLHashIndexTest.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.search.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.yacy.cora.document.encoding.ASCII;
+import net.yacy.cora.document.id.DigestURL;
+import net.yacy.kelondro.util.FileUtils;
+
+public class URLHashIndexTest {
+
+    private File dump;
+
+    @Before
+    public void setUp() {
+        this.dump = new File(System.getProperty("java.io.tmpdir"), "URLHashIndexTest" + System.nanoTime() + ".dump");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deletedelete(this.dump);
+    }
+
+    private static String hash(final String url) throws Exception {
+        return ASCII.String(new DigestURL(url).hash());
+    }
+
+    @Test
+    public void testDumpAndLoad() throws Exception {
+        final URLHashIndex index = new URLHashIndex(this.dump);
+        assertFalse(index.load()); // no dump
+        assertFalse(index.isReady());
+
+        index.clear(); // an empty collection
+        assertTrue(index.isReady());
+        final String a = hash("http://yacy.net/a.html");
+        final String b = hash("http://yacy.net/b.html");
+        final String c = hash("http://yacy.net/c.html");
+        index.put(a);
+        index.put(b);
+        index.put(c);
+        index.put(a);
+        index.remove(b);
+        index.put("too short"); // not an url hash, ignored
+        assertEquals(2, index.size());
+        assertTrue(index.has(a));
+        assertFalse(index.has(b));
+        assertTrue(index.has(c));
+
+        index.close();
+        assertFalse(index.isReady());
+        assertTrue(this.dump.exists());
+
+        final URLHashIndex loaded = new URLHashIndex(this.dump);
+        assertTrue(loaded.load());
+        assertFalse(this.dump.exists()); // a crash after loading must not leave a stale dump
+        assertTrue(loaded.isReady());
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.has(a));
+        assertFalse(loaded.has(b));
+        assertTrue(loaded.has(c));
+
+        loaded.remove(Arrays.asList(a, c));
+        assertEquals(0, loaded.size());
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        final URLHashIndex index = new URLHashIndex(this.dump);
+        index.clear();
+        index.put(hash("http://yacy.net/"));
+        index.drop();
+        assertFalse(index.isReady());
+        index.close();
+        assertFalse(this.dump.exists()); // a set that is not ready is not written
+    }
+}
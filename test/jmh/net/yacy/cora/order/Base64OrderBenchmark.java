@@ -0,0 +1,93 @@
+// Base64OrderBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.order;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * comparison of 12-byte hashes, the inner loop of every kelondro index operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class Base64OrderBenchmark {
+
+    private static final int mask = 1023;
+
+    private byte[][] hashes;
+    private byte[][] prefixed; // pairs of hashes that share the first 6 bytes, like hashes of one host
+    private byte[] chunk;      // all hashes in one array, like the chunk of a RowSet
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.hashes = BenchmarkData.hashes(mask + 1, 9);
+        this.prefixed = new byte[mask + 1][];
+        for (int i = 0; i <= mask; i++) {
+            this.prefixed[i] = this.hashes[i].clone();
+            System.arraycopy(this.hashes[(i + 1) & mask], 0, this.prefixed[i], 0, 6);
+        }
+        this.chunk = new byte[12 * (mask + 1)];
+        for (int i = 0; i <= mask; i++) System.arraycopy(this.hashes[i], 0, this.chunk, 12 * i, 12);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public int compare() {
+        final int i = this.next++;
+        return Base64Order.enhancedCoder.compare(this.hashes[i & mask], this.hashes[(i + 1) & mask]);
+    }
+
+    @Benchmark
+    public int compareCommonPrefix() {
+        final int i = this.next++;
+        return Base64Order.enhancedCoder.compare(this.prefixed[i & mask], this.hashes[(i + 1) & mask]);
+    }
+
+    @Benchmark
+    public int compareOffset() {
+        final int i = this.next++;
+        return Base64Order.enhancedCoder.compare(this.chunk, 12 * (i & mask), this.chunk, 12 * ((i + 1) & mask), 12);
+    }
+
+    @Benchmark
+    public long cardinal() {
+        return Base64Order.enhancedCoder.cardinal(this.hashes[this.next++ & mask]);
+    }
+}
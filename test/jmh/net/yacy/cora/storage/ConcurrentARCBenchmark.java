@@ -0,0 +1,120 @@
+// ConcurrentARCBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.cora.storage;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * get and put of a ConcurrentARC under contention, with the key and value types of the word hash cache.
+ * The key set is twice as large as the cache, so about one half of the gets are misses.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConcurrentARCBenchmark {
+
+    private static final int mask = (1 << 15) - 1;
+
+    @Param({"16384"})
+    public int cacheSize;
+
+    @Param({"8"})
+    public int partitions;
+
+    private ConcurrentARC<String, byte[]> arc;
+    private String[] keys;
+    private byte[][] values;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.arc = new ConcurrentARC<String, byte[]>(this.cacheSize, this.partitions);
+        this.keys = BenchmarkData.words(mask + 1, 12);
+        this.values = BenchmarkData.hashes(mask + 1, 13);
+        for (int i = 0; i <= mask; i += 2) this.arc.put(this.keys[i], this.values[i]);
+    }
+
+    /**
+     * the position of every thread in the key set
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+        @Setup(Level.Trial)
+        public void setUp() {
+            this.next = (int) (Thread.currentThread().getId() * 7919);
+        }
+        private int next() {
+            this.next = this.next * 1103515245 + 12345; // a linear congruential generator; the low bits are masked out
+            return (this.next >>> 8) & mask;
+        }
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public byte[] readMostlyGet(final Cursor cursor) {
+        return this.arc.get(this.keys[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public byte[] readMostlyPut(final Cursor cursor) {
+        final int i = cursor.next();
+        return this.arc.put(this.keys[i], this.values[i]);
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public byte[] balancedGet(final Cursor cursor) {
+        return this.arc.get(this.keys[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public byte[] balancedPut(final Cursor cursor) {
+        final int i = cursor.next();
+        return this.arc.put(this.keys[i], this.values[i]);
+    }
+}
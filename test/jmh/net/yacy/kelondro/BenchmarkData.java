@@ -0,0 +1,111 @@
+// BenchmarkData.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceVars;
+import net.yacy.kelondro.index.RowSet;
+import net.yacy.kelondro.rwi.ReferenceContainer;
+import net.yacy.kelondro.rwi.ReferenceFactory;
+import net.yacy.kelondro.util.Bitfield;
+import net.yacy.kelondro.util.FileUtils;
+
+/**
+ * reproducible data for the benchmarks: every generator is seeded with a fixed value and a salt,
+ * so that each run of a benchmark works on exactly the same keys, words and values.
+ */
+public final class BenchmarkData {
+
+    public static final long SEED = 0x59614379L;
+
+    private BenchmarkData() {}
+
+    public static Random random(final long salt) {
+        return new Random(SEED + salt);
+    }
+
+    /**
+     * @return count random 12-byte hashes in the enhanced base64 alphabet, like url and word hashes
+     */
+    public static byte[][] hashes(final int count, final long salt) {
+        final Random r = random(salt);
+        final byte[][] hashes = new byte[count][];
+        for (int i = 0; i < count; i++) hashes[i] = RowSet.randomHash(r);
+        return hashes;
+    }
+
+    /**
+     * @return count random lower-case words with a length of 3 to 12 characters
+     */
+    public static String[] words(final int count, final long salt) {
+        final Random r = random(salt);
+        final String[] words = new String[count];
+        final StringBuilder sb = new StringBuilder(12);
+        for (int i = 0; i < count; i++) {
+            sb.setLength(0);
+            final int length = 3 + r.nextInt(10);
+            for (int j = 0; j < length; j++) sb.append((char) ('a' + r.nextInt(26)));
+            words[i] = sb.toString();
+        }
+        return words;
+    }
+
+    /**
+     * @return a value with random content and the given length
+     */
+    public static byte[] value(final int length, final Random r) {
+        final byte[] b = new byte[length];
+        r.nextBytes(b);
+        return b;
+    }
+
+    /**
+     * a reference container with one reference for each given url hash; the hitcount is the same for all references
+     */
+    public static ReferenceContainer<WordReference> container(final ReferenceFactory<WordReference> factory, final byte[] termHash, final byte[][] urlHashes, final int hitcount) throws Exception {
+        final ReferenceContainer<WordReference> container = new ReferenceContainer<WordReference>(factory, termHash, urlHashes.length);
+        for (final byte[] urlHash: urlHashes) {
+            final LinkedBlockingQueue<Integer> positions = new LinkedBlockingQueue<Integer>();
+            positions.add(10);
+            container.add(new WordReferenceVars(urlHash, 40, 3, 0, hitcount, 100, 10, 10, positions, 1, 1, 0, "en", 't', 0, 0, new Bitfield(4), 0.0d));
+        }
+        container.sort();
+        return container;
+    }
+
+    /**
+     * @return a new empty directory in the temporary directory
+     */
+    public static File tempDirectory(final String name) {
+        final File dir = new File(System.getProperty("java.io.tmpdir"), name + System.nanoTime());
+        dir.mkdirs();
+        return dir;
+    }
+
+    public static void delete(final File dir) {
+        FileUtils.deletedelete(dir);
+    }
+}
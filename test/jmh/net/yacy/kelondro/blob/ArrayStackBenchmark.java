@@ -0,0 +1,104 @@
+// ArrayStackBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * getAll() of an ArrayStack with several BLOB files that all contain the same keys,
+ * like the RWI files of an IndexCell before they are merged
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ArrayStackBenchmark {
+
+    private static final int keylength = 12;
+
+    @Param({"1", "8"})
+    public int files;
+
+    @Param({"20000"})
+    public int count;
+
+    private File dir;
+    private byte[][] keys;
+    private ArrayStack stack;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SpaceExceededException {
+        this.dir = BenchmarkData.tempDirectory("ArrayStackBenchmark");
+        this.keys = BenchmarkData.hashes(this.count, 4);
+        final byte[][] sortedKeys = this.keys.clone();
+        Arrays.sort(sortedKeys, Base64Order.enhancedCoder);
+        final Random r = BenchmarkData.random(5);
+        this.stack = new ArrayStack(this.dir, "bench", Base64Order.enhancedCoder, keylength, 0, true, true);
+        long time = 0;
+        for (int f = 0; f < this.files; f++) {
+            final File file = this.stack.newBLOB(new Date(time += 1000));
+            final HeapWriter writer = new HeapWriter(new File(file.getPath() + ".prt"), file, keylength, Base64Order.enhancedCoder, 1024 * 1024);
+            for (final byte[] key: sortedKeys) writer.add(key, BenchmarkData.value(100 + r.nextInt(400), r));
+            writer.close(true);
+            this.stack.mountBLOB(file, true);
+        }
+        this.next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.stack.close(false);
+        BenchmarkData.delete(this.dir);
+    }
+
+    @Benchmark
+    public void getAll(final Blackhole blackhole) throws IOException {
+        for (final byte[] b: this.stack.getAll(this.keys[this.next++ % this.count])) blackhole.consume(b);
+    }
+}
@@ -0,0 +1,110 @@
+// HeapBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.blob;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * insert and get of BLOBs in a Heap file. The inserts cycle over a fixed key set, so that after the first
+ * round every insert replaces a record, which is the steady state of a heap that is in use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HeapBenchmark {
+
+    private static final int keylength = 12;
+
+    @Param({"100000"})
+    public int count;
+
+    @Param({"100", "4000"})
+    public int valueLength;
+
+    private File dir;
+    private byte[][] keys;
+    private byte[][] values;
+    private Heap writeHeap;
+    private Heap readHeap;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.dir = BenchmarkData.tempDirectory("HeapBenchmark");
+        this.keys = BenchmarkData.hashes(this.count, 2);
+        final Random r = BenchmarkData.random(3);
+        this.values = new byte[256][];
+        for (int i = 0; i < this.values.length; i++) this.values[i] = BenchmarkData.value(this.valueLength / 2 + r.nextInt(this.valueLength), r);
+
+        this.writeHeap = new Heap(new File(this.dir, "write.heap"), keylength, Base64Order.enhancedCoder, 1024 * 1024);
+
+        // the read heap is written completely and opened again, so that all records are read from the file
+        final File readFile = new File(this.dir, "read.heap");
+        Heap heap = new Heap(readFile, keylength, Base64Order.enhancedCoder, 1024 * 1024);
+        for (int i = 0; i < this.count; i++) heap.insert(this.keys[i], this.values[i % this.values.length]);
+        heap.close(true);
+        this.readHeap = new Heap(readFile, keylength, Base64Order.enhancedCoder, 1024 * 1024);
+        this.next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.writeHeap.close(false);
+        this.readHeap.close(false);
+        BenchmarkData.delete(this.dir);
+    }
+
+    @Benchmark
+    public void insert() throws IOException {
+        final int i = this.next++;
+        this.writeHeap.insert(this.keys[i % this.count], this.values[i % this.values.length]);
+    }
+
+    @Benchmark
+    public byte[] get() throws IOException, SpaceExceededException {
+        return this.readHeap.get(this.keys[this.next++ % this.count]);
+    }
+}
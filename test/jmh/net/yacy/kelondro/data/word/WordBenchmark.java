@@ -0,0 +1,75 @@
+// WordBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.data.word;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * word hash computation, once with words that are in the hash cache and once with words that are not
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class WordBenchmark {
+
+    private static final int mask = 1023;
+
+    private String[] words;
+    private String[] unique; // word prefixes; a counter is appended, so the words are never in the cache
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.words = BenchmarkData.words(mask + 1, 10);
+        this.unique = BenchmarkData.words(mask + 1, 11);
+        for (final String word: this.words) Word.word2hash(word);
+        this.next = 0;
+    }
+
+    @Benchmark
+    public byte[] word2hashCached() {
+        return Word.word2hash(this.words[this.next++ & mask]);
+    }
+
+    @Benchmark
+    public byte[] word2hashUncached() {
+        final int i = this.next++;
+        return Word.word2hash(this.unique[i & mask] + i);
+    }
+}
@@ -0,0 +1,117 @@
+// RowHandleSetBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * a plain and a frozen RowHandleSet of url hashes, the shape of the URLHashIndex: a large loaded set which gets
+ * new hashes all the time. The lookups are half hits and half misses and run while the set has changed rows.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowHandleSetBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    private byte[][] keys;    // the content of the set
+    private byte[][] misses;  // hashes which are not in the set
+    private byte[][] added;   // new hashes for put()
+    private RowHandleSet set;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SpaceExceededException {
+        this.keys = BenchmarkData.hashes(this.size, 1);
+        this.misses = BenchmarkData.hashes(this.size, 2);
+        this.added = BenchmarkData.hashes(this.size, 3);
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() throws SpaceExceededException {
+        this.set = new RowHandleSet(12, Base64Order.enhancedCoder, this.size);
+        if (this.frozen) this.set.freeze();
+        for (final byte[] key: this.keys) this.set.put(key);
+        this.set.optimize();
+        // changes after the load, as in a running crawl
+        for (int i = 0; i < this.size / 20; i++) this.set.put(this.added[i]);
+        this.next = this.size / 20;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean has() {
+        final int i = this.next++;
+        return this.set.has((i & 1) == 0 ? this.keys[i % this.size] : this.misses[i % this.size]);
+    }
+
+    /**
+     * one put of a new hash for ten lookups
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean mixed() throws SpaceExceededException {
+        final int i = this.next++;
+        if (i % 10 == 0) return this.set.put(this.added[(i / 10) % this.size]);
+        return this.set.has(this.keys[i % this.size]);
+    }
+
+    /**
+     * build the set with put()
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public RowHandleSet put() throws SpaceExceededException {
+        final RowHandleSet s = new RowHandleSet(12, Base64Order.enhancedCoder, 0);
+        if (this.frozen) s.freeze();
+        for (final byte[] key: this.keys) s.put(key);
+        return s;
+    }
+}
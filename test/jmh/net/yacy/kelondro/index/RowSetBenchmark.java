@@ -0,0 +1,138 @@
+// RowSetBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.index;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.order.Base64Order;
+import net.yacy.cora.sorting.Array;
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.BenchmarkData;
+
+/**
+ * insert, lookup and sort of a RowSet with rows of a 12-byte hash and a 4-byte number,
+ * the shape of most kelondro indexes
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RowSetBenchmark {
+
+    private static final Row row = new Row("byte[] key-12, Cardinal count-4 {b256}", Base64Order.enhancedCoder);
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private byte[][] keys;
+    private RowSet unsorted; // all rows in the order of the keys
+    private RowSet sorted;   // all rows, sorted
+    private RowSet copy;     // a fresh unsorted copy for each sort invocation
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SpaceExceededException {
+        this.keys = BenchmarkData.hashes(this.size, 1);
+        this.unsorted = fill(new RowSet(row, this.size));
+        this.sorted = this.unsorted.clone();
+        this.sorted.sort();
+        this.next = 0;
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        this.copy = this.unsorted.clone();
+    }
+
+    private RowSet fill(final RowSet set) throws SpaceExceededException {
+        for (int i = 0; i < this.keys.length; i++) set.addUnique(entry(i));
+        return set;
+    }
+
+    private Row.Entry entry(final int i) {
+        final Row.Entry entry = row.newEntry();
+        entry.setCol(0, this.keys[i]);
+        entry.setCol(1, i);
+        return entry;
+    }
+
+    /**
+     * build the set with put(); every put keeps the set searchable
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public RowSet put() throws SpaceExceededException {
+        final RowSet set = new RowSet(row, 0);
+        for (int i = 0; i < this.keys.length; i++) set.put(entry(i));
+        return set;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Row.Entry get() {
+        final byte[] key = this.keys[this.next++ % this.keys.length];
+        return this.sorted.get(key, false);
+    }
+
+    /**
+     * the sort of RowCollection
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public RowSet sort() {
+        this.copy.sort();
+        return this.copy;
+    }
+
+    /**
+     * the generic sort of the Sortable interface, for comparison with sort()
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public RowSet sortArray() {
+        Array.sort(this.copy);
+        return this.copy;
+    }
+}
@@ -0,0 +1,103 @@
+// ReferenceContainerBenchmark.java
+// (C) 2026 by the YaCy authors; first published 16.10.2026 on http://yacy.net
+//
+// This is a part of YaCy, a peer-to-peer based web search engine
+//
+// LICENSE
+//
+// This program is free software; you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation; either version 2 of the License, or
+// (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with this program; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+package net.yacy.kelondro.rwi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.yacy.cora.util.SpaceExceededException;
+import net.yacy.kelondro.BenchmarkData;
+import net.yacy.kelondro.data.word.Word;
+import net.yacy.kelondro.data.word.WordReference;
+import net.yacy.kelondro.data.word.WordReferenceFactory;
+import net.yacy.kelondro.index.RowSet;
+
+/**
+ * merge of the containers of one term from several RWI files, and the join of two terms of a search
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReferenceContainerBenchmark {
+
+    private static final ReferenceFactory<WordReference> factory = new WordReferenceFactory();
+
+    /** the number of references in the smaller join container and in each merge container */
+    @Param({"100", "10000"})
+    public int size;
+
+    /** the number of references in the larger join container */
+    @Param({"100000"})
+    public int largeSize;
+
+    private final byte[] termHash = Word.word2hash("benchmark");
+    private List<ReferenceContainer<WordReference>> mergeContainers;
+    private ReferenceContainer<WordReference> small, large;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // four containers that overlap by one half
+        final byte[][] urls = BenchmarkData.hashes(this.size * 5 / 2, 6);
+        this.mergeContainers = new ArrayList<ReferenceContainer<WordReference>>();
+        for (int c = 0; c < 4; c++) {
+            final byte[][] part = new byte[this.size][];
+            System.arraycopy(urls, c * this.size / 2, part, 0, this.size);
+            this.mergeContainers.add(BenchmarkData.container(factory, this.termHash, part, c + 1));
+        }
+
+        // the small container shares every second url with the large one
+        final byte[][] largeUrls = BenchmarkData.hashes(this.largeSize, 7);
+        final byte[][] otherUrls = BenchmarkData.hashes(this.size, 8);
+        final byte[][] smallUrls = new byte[this.size][];
+        for (int i = 0; i < this.size; i++) smallUrls[i] = i % 2 == 0 ? largeUrls[i * (this.largeSize / this.size)] : otherUrls[i];
+        this.large = BenchmarkData.container(factory, Word.word2hash("large"), largeUrls, 1);
+        this.small = BenchmarkData.container(factory, Word.word2hash("small"), smallUrls, 1);
+    }
+
+    @Benchmark
+    public ReferenceContainer<WordReference> merge() throws SpaceExceededException {
+        final List<RowSet> collections = new ArrayList<RowSet>(this.mergeContainers);
+        return ReferenceContainer.merge(factory, this.termHash, collections);
+    }
+
+    @Benchmark
+    public ReferenceContainer<WordReference> join() throws SpaceExceededException {
+        return ReferenceContainer.joinConstructive(factory, this.small, this.large, Integer.MAX_VALUE);
+    }
+}